@@ -0,0 +1,54 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the unlock benchmarks with the GC profiler, so every score comes with its allocation rate
+ * ({@code gc.alloc.rate.norm} is bytes allocated per operation, i.e. per unlock for {@link UnlockBenchmark}).
+ * <p>
+ *     The benchmarks need JMH 1.37 ({@code org.openjdk.jmh:jmh-core}, plus
+ *     {@code org.openjdk.jmh:jmh-generator-annprocess} as annotation processor), compiled together with
+ *     {@code src} and {@code src/resources/Device-dist.jar}:
+ * </p>
+ * <pre>
+ *   javac -cp Device-dist.jar:jmh-core.jar:jmh-generator-annprocess.jar:... -d out src/*.java bench/benchmarks/*.java
+ *   java -cp out:Device-dist.jar:jmh-core.jar:... benchmarks.BenchmarkRunner [JMH options]
+ * </pre>
+ * <p>
+ *     Arguments are ordinary JMH options, e.g. a benchmark regex or {@code -p bits=4,1024}. Results are
+ *     also written to {@code jmh-result.json}, the baseline to compare performance changes against.
+ * </p>
+ * @version 1.0
+ * @see UnlockBenchmark
+ * @see DeviceOperationBenchmark
+ * @see RemoteUnlockBenchmark
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * Not instantiable.
+     */
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Run the benchmarks.
+     * @param args JMH command line options
+     * @throws RunnerException if a benchmark fails
+     * @throws CommandLineOptionException if the options cannot be parsed
+     */
+    public static void main(final String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result.json")
+                .build()).run();
+    }
+}
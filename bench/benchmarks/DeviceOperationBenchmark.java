@@ -0,0 +1,107 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of single TestingDevice operations from 4 to 1M bits.
+ * <p>
+ *     A device only accepts a peek right after a spin and a poke right after a peek, so the benchmarks
+ *     measure the protocol prefixes spin, spin+peek and spin+peek+poke; the cost of a peek or a poke is
+ *     the difference between consecutive scores. Patterns request the first two bits and are built once.
+ *     The poke writes one 'T' and one 'F', so the ring always holds both values and every spin measures a
+ *     locked device, however many invocations a trial runs; poking a single value would leave the device
+ *     uniform, and unlocked, within a few invocations.
+ * </p>
+ * @version 1.0
+ * @see BenchmarkRunner
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class DeviceOperationBenchmark {
+
+    /** Bits disclosed per peek. */
+    private static final int DISCLOSED = 2;
+
+    /**
+     * Number of bits in the device.
+     */
+    @Param({"4", "64", "1024", "65536", "1048576"})
+    public int bits;
+
+    /** Device under test. */
+    private Object dev;
+
+    /** Peek request for the first two bits. */
+    private String request;
+
+    /** Poke setting the first bit to 'T' and the second to 'F'. */
+    private String poke;
+
+    /**
+     * Build the device and patterns.
+     * @throws Throwable if the device cannot be created
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        dev = (Object) Targets.NEW_DEVICE.invokeExact(bits, DISCLOSED);
+        char[] pattern = new char[bits];
+        Arrays.fill(pattern, '-');
+        Arrays.fill(pattern, 0, DISCLOSED, '?');
+        request = new String(pattern);
+        pattern[0] = 'T';
+        pattern[1] = 'F';
+        poke = new String(pattern);
+    }
+
+    /**
+     * One spin.
+     * @return what the spin returned
+     * @throws Throwable if the device fails
+     */
+    @Benchmark
+    public boolean spin() throws Throwable {
+        return (boolean) Targets.SPIN.invokeExact(dev);
+    }
+
+    /**
+     * A spin followed by a peek.
+     * @param blackhole consumes the results
+     * @throws Throwable if the device fails
+     */
+    @Benchmark
+    public void spinPeek(final Blackhole blackhole) throws Throwable {
+        blackhole.consume((boolean) Targets.SPIN.invokeExact(dev));
+        blackhole.consume((CharSequence) Targets.PEEK.invokeExact(dev, (CharSequence) request));
+    }
+
+    /**
+     * A spin, a peek and a poke.
+     * @param blackhole consumes the results
+     * @throws Throwable if the device fails
+     */
+    @Benchmark
+    public void spinPeekPoke(final Blackhole blackhole) throws Throwable {
+        blackhole.consume((boolean) Targets.SPIN.invokeExact(dev));
+        blackhole.consume((CharSequence) Targets.PEEK.invokeExact(dev, (CharSequence) request));
+        Targets.POKE.invokeExact(dev, (CharSequence) poke);
+    }
+}
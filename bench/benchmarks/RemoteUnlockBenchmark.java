@@ -0,0 +1,109 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and throughput of unlocking devices hosted by a loopback {@code DeviceServer}, so that
+ * serialization, system calls and round trips show up in the scores.
+ * <p>
+ *     Each invocation creates a remote 4/2 device, unlocks it through the blocking {@code Device} API and
+ *     releases it. The benchmark threads share one client whose pool has {@code connections}
+ *     connections, multiplexing their requests over it.
+ * </p>
+ * @version 1.0
+ * @see BenchmarkRunner
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(4)
+@State(Scope.Benchmark)
+public class RemoteUnlockBenchmark {
+
+    /**
+     * Number of pooled client connections.
+     */
+    @Param({"1", "4"})
+    public int connections;
+
+    /** Server hosting the devices. */
+    private Closeable server;
+
+    /** Client shared by the benchmark threads. */
+    private Object client;
+
+    /**
+     * Start the server and connect.
+     * @throws Throwable if either cannot be started
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        server = (Closeable) Targets.NEW_SERVER.invokeExact();
+        InetSocketAddress address = (InetSocketAddress) Targets.SERVER_ADDRESS.invokeExact((Object) server);
+        client = (Closeable) Targets.NEW_CLIENT.invokeExact(address, connections);
+    }
+
+    /**
+     * Disconnect and stop the server.
+     * @throws IOException if closing fails
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ((Closeable) client).close();
+        server.close();
+    }
+
+    /**
+     * Unlock one remote device.
+     * @param session per-thread unlock session
+     * @return whether the device was unlocked
+     * @throws Throwable if a request fails
+     */
+    @Benchmark
+    public boolean unlock(final Session session) throws Throwable {
+        Closeable dev = (Closeable) Targets.CREATE_REMOTE.invokeExact(client);
+        try {
+            return (boolean) Targets.UNLOCK.invokeExact(session.unlocker, (Object) dev);
+        } finally {
+            dev.close();
+        }
+    }
+
+    /**
+     * Unlock session of one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Session {
+        /** The session. */
+        private Object unlocker;
+
+        /**
+         * Create the session.
+         * @throws Throwable if it cannot be created
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws Throwable {
+            unlocker = (Object) Targets.NEW_UNLOCKER.invokeExact();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package benchmarks;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.net.InetSocketAddress;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Handles on the classes under test.
+ * <p>
+ *     JMH only accepts benchmarks in a named package, and a named package cannot refer to the default
+ *     package that holds {@code Device} and the unlockers, so benchmarks reach them through these method
+ *     handles. The handles are static finals, which the JIT treats as constants and inlines, so calling
+ *     through them costs the same as a direct call once compiled.
+ * </p>
+ * @version 1.0
+ */
+final class Targets {
+    /** System property that disables strategy tables. */
+    static final String TABLES_PROPERTY = "deviceunlocker.strategy.tables";
+
+    /** {@code new TestingDevice(int size, int bitsPerPeek)}, as (int, int) Object. */
+    static final MethodHandle NEW_DEVICE;
+    /** {@code DeviceGeometry.DEFAULT}, the 4-bit/2-disclosure geometry. */
+    static final Object DEFAULT_GEOMETRY;
+    /** {@code RotationMode.valueOf(String name)}, as (String) Object. */
+    static final MethodHandle ROTATION_MODE;
+    /** {@code new DevicePool(DeviceGeometry geometry, RotationMode mode)}, as (Object, Object) Object. */
+    static final MethodHandle NEW_POOL;
+    /** {@code DevicePool.acquire(long seed)}, as (Object, long) Object. */
+    static final MethodHandle ACQUIRE;
+    /** {@code new FourBitTwoDisclosureDeviceUnlocker()}, as () Object. */
+    static final MethodHandle NEW_UNLOCKER;
+    /** {@code Device.spin()}, as (Object) boolean. */
+    static final MethodHandle SPIN;
+    /** {@code Device.peek(CharSequence)}, as (Object, CharSequence) CharSequence. */
+    static final MethodHandle PEEK;
+    /** {@code Device.poke(CharSequence)}, as (Object, CharSequence) void. */
+    static final MethodHandle POKE;
+    /** {@code FourBitTwoDisclosureDeviceUnlocker.unlockDevice(Device)}, as (Object, Object) boolean. */
+    static final MethodHandle UNLOCK;
+    /** {@code new DeviceServer()}, as () Closeable. */
+    static final MethodHandle NEW_SERVER;
+    /** {@code DeviceServer.address()}, as (Object) InetSocketAddress. */
+    static final MethodHandle SERVER_ADDRESS;
+    /** {@code new DeviceClient(InetSocketAddress address, int connections)}, as (InetSocketAddress, int) Closeable. */
+    static final MethodHandle NEW_CLIENT;
+    /** {@code DeviceClient.create()}, as (Object) Closeable. */
+    static final MethodHandle CREATE_REMOTE;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Class<?> device = Class.forName("Device");
+            Class<?> testingDevice = Class.forName("TestingDevice");
+            Class<?> unlocker = Class.forName("FourBitTwoDisclosureDeviceUnlocker");
+            NEW_DEVICE = lookup.findConstructor(testingDevice, methodType(void.class, int.class, int.class))
+                    .asType(methodType(Object.class, int.class, int.class));
+            Class<?> geometry = Class.forName("DeviceGeometry");
+            Class<?> mode = Class.forName("RotationMode");
+            Class<?> pool = Class.forName("DevicePool");
+            DEFAULT_GEOMETRY = geometry.getField("DEFAULT").get(null);
+            ROTATION_MODE = lookup.findStatic(mode, "valueOf", methodType(mode, String.class))
+                    .asType(methodType(Object.class, String.class));
+            NEW_POOL = lookup.findConstructor(pool, methodType(void.class, geometry, mode))
+                    .asType(methodType(Object.class, Object.class, Object.class));
+            ACQUIRE = lookup.findVirtual(pool, "acquire", methodType(testingDevice, long.class))
+                    .asType(methodType(Object.class, Object.class, long.class));
+            NEW_UNLOCKER = lookup.findConstructor(unlocker, methodType(void.class))
+                    .asType(methodType(Object.class));
+            SPIN = lookup.findVirtual(device, "spin", methodType(boolean.class))
+                    .asType(methodType(boolean.class, Object.class));
+            PEEK = lookup.findVirtual(device, "peek", methodType(CharSequence.class, CharSequence.class))
+                    .asType(methodType(CharSequence.class, Object.class, CharSequence.class));
+            POKE = lookup.findVirtual(device, "poke", methodType(void.class, CharSequence.class))
+                    .asType(methodType(void.class, Object.class, CharSequence.class));
+            UNLOCK = lookup.findVirtual(unlocker, "unlockDevice", methodType(boolean.class, device))
+                    .asType(methodType(boolean.class, Object.class, Object.class));
+            Class<?> server = Class.forName("DeviceServer");
+            Class<?> client = Class.forName("DeviceClient");
+            NEW_SERVER = lookup.findConstructor(server, methodType(void.class))
+                    .asType(methodType(Closeable.class));
+            SERVER_ADDRESS = lookup.findVirtual(server, "address", methodType(InetSocketAddress.class))
+                    .asType(methodType(InetSocketAddress.class, Object.class));
+            NEW_CLIENT = lookup.findConstructor(client, methodType(void.class, InetSocketAddress.class, int.class))
+                    .asType(methodType(Closeable.class, InetSocketAddress.class, int.class));
+            CREATE_REMOTE = lookup.findVirtual(client, "create", methodType(Class.forName("RemoteDevice")))
+                    .asType(methodType(Closeable.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Not instantiable.
+     */
+    private Targets() {
+    }
+}
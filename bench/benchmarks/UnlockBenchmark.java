@@ -0,0 +1,100 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency of a complete 4-bit/2-disclosure unlock, per kind of TestingDevice rotation.
+ * <p>
+ *     Every invocation resets the thread's device from a {@code DevicePool} to a new seed and unlocks it,
+ *     as the simulation engine does, so the scores include the reset but no allocation for the device;
+ *     {@link #acquireOnly()} measures the reset alone, to be subtracted. {@code tables=false} runs the
+ *     heuristic fallback instead of the strategy table.
+ * </p>
+ * @version 1.0
+ * @see BenchmarkRunner
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class UnlockBenchmark {
+
+    /**
+     * How the devices rotate per spin.
+     */
+    @Param({"LINEAR", "POLYNOMIAL", "RANDOM"})
+    public String rotation;
+
+    /**
+     * Whether unlocks follow the strategy table ("true") or the heuristic ("false").
+     */
+    @Param({"true", "false"})
+    public String tables;
+
+    /** Session reused by every invocation, as the static entry point does per thread. */
+    private Object unlocker;
+
+    /** Devices of the selected rotation kind, one per benchmark thread. */
+    private Object pool;
+
+    /** Source of device seeds. */
+    private SplittableRandom seeds;
+
+    /**
+     * Create the session and the device pool, and select the unlock strategy.
+     * @throws Throwable if the session or the pool cannot be created
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        System.setProperty(Targets.TABLES_PROPERTY, tables);
+        unlocker = (Object) Targets.NEW_UNLOCKER.invokeExact();
+        Object mode = (Object) Targets.ROTATION_MODE.invokeExact(rotation);
+        pool = (Object) Targets.NEW_POOL.invokeExact(Targets.DEFAULT_GEOMETRY, mode);
+        seeds = new SplittableRandom();
+    }
+
+    /**
+     * Restore the default strategy.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.clearProperty(Targets.TABLES_PROPERTY);
+    }
+
+    /**
+     * Reset and unlock one device.
+     * @return whether the device was unlocked
+     * @throws Throwable if the device cannot be reset
+     */
+    @Benchmark
+    public boolean unlock() throws Throwable {
+        return (boolean) Targets.UNLOCK.invokeExact(unlocker, (Object) Targets.ACQUIRE.invokeExact(pool, seeds.nextLong()));
+    }
+
+    /**
+     * Reset one device without unlocking it.
+     * @return the device
+     * @throws Throwable if the device cannot be reset
+     */
+    @Benchmark
+    public Object acquireOnly() throws Throwable {
+        return (Object) Targets.ACQUIRE.invokeExact(pool, seeds.nextLong());
+    }
+}
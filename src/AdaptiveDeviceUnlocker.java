@@ -0,0 +1,490 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Unlocker that keeps track of everything its peeks have revealed and acts on it.
+ * <p>
+ *     The session holds a belief: the set of ring configurations, up to rotation, that the device can
+ *     still be in. Each round it peeks the positions whose answer splits the belief most evenly (the
+ *     highest-entropy observation), narrows the belief to the configurations consistent with what it saw,
+ *     and pokes the values that the majority of them would be unlocked by on the next spin, or failing
+ *     that, the values bringing them closest to uniform. A poke that would write back exactly what was
+ *     seen is skipped, and each round spins once, since one spin is all a device rotating by unknown
+ *     amounts allows to test. The belief does not depend on rotation, so the peeked positions are free to
+ *     move: they first sweep the positions not yet peeked, which a device that has not rotated still
+ *     holds as they were poked, and then go to a random rotation each round, so that a device rotating in
+ *     step with the peeks cannot hide the same bits forever.
+ * </p>
+ * <p>
+ *     Beliefs are tracked for devices of up to {@value #MAX_BITS} bits that disclose at least half of
+ *     them per peek. On larger or narrower devices a one-round lookahead loses to a plain sweep (about
+ *     20 operations against 17 on an 8-bit device disclosing 2), so they are unlocked by
+ *     {@link GeneralizedDeviceUnlocker}, which
+ *     also chooses its target by majority and skips no-op pokes. If a device reports something no
+ *     configuration explains, the belief starts over from every locked configuration.
+ * </p>
+ * @version 1.0
+ * @see BeliefState
+ * @see <a href="../projectDescription.html">Project Description</a>
+ */
+public class AdaptiveDeviceUnlocker extends DeviceUnlocker {
+
+    /**char representing true in device.**/
+    private static final char TRUE = 'T';
+
+    /**char representing false in device.**/
+    private static final char FALSE = 'F';
+
+    /**char requesting a bit in a peek pattern.**/
+    private static final char REQUEST = '?';
+
+    /**char leaving a bit out of a peek/poke pattern.**/
+    private static final char HIDDEN = '-';
+
+    /** Largest device whose beliefs are tracked. */
+    static final int MAX_BITS = 4;
+
+    /** Geometry the cached tables below were built for; null before the first unlock. */
+    private DeviceGeometry geometry;
+
+    /** Configurations of the device size. */
+    private Necklaces necklaces;
+
+    /** Peek masks to choose from, one per rotation class. */
+    private int[] masks;
+
+    /** Belief after a failed first spin. */
+    private BeliefState locked;
+
+    /** Unlocker for devices whose beliefs are not tracked. */
+    private GeneralizedDeviceUnlocker fallback;
+
+    /** Number of spins requested during the last unlock. */
+    private long spins;
+
+    /** Number of peeks requested during the last unlock. */
+    private long peeks;
+
+    /** Number of pokes requested during the last unlock. */
+    private long pokes;
+
+    /** Source of the random mask rotations. */
+    private SplittableRandom random;
+
+    /**
+     * Create an unlock session. A session may be reused for any number of sequential unlocks, but must
+     * not be shared between threads while an unlock is in progress.
+     */
+    public AdaptiveDeviceUnlocker() {
+        this(new SplittableRandom(ThreadLocalRandom.current().nextLong()));
+    }
+
+    /**
+     * Create an unlock session that draws its mask rotations, and its fallback's window offsets, from a
+     * generator, so that a seeded generator repeats the same unlocks on the same devices.
+     * @param random source of every random choice of the session, owned by the session from now on
+     */
+    public AdaptiveDeviceUnlocker(final SplittableRandom random) {
+        this.random = random;
+    }
+
+    @Override
+    void reseed(final long seed) {
+        random = new SplittableRandom(seed);
+        if (fallback != null) {
+            fallback.reseed(random);
+        }
+    }
+
+    /**
+     * Unlocks a resource controlled by a device of any geometry.
+     * @param dev the device controlling the resource to unlock
+     * @return true if the resource is unlocked (all bits in the device are now identical); false otherwise
+     */
+    public boolean unlockDevice(final Device dev) {
+        return unlockDeviceWithResult(dev).unlocked();
+    }
+
+    /**
+     * Unlocks a resource controlled by a device of any geometry, reporting how.
+     * Halts after a bounded number of rounds whether or not the device was unlocked.
+     * @param dev the device controlling the resource to unlock
+     * @return whether the resource is unlocked, why the unlock stopped, and the operations and time it took
+     */
+    public UnlockResult unlockDeviceWithResult(final Device dev) {
+        long startNanos = System.nanoTime();
+        spins = 0;
+        peeks = 0;
+        pokes = 0;
+        if (dev == null) {
+            return finish(false, UnlockResult.Termination.REJECTED, 0, 0, 0, startNanos);
+        }
+        DeviceGeometry shape = DeviceGeometry.of(dev);
+        if (!tracked(shape)) {
+            if (fallback == null || !shape.equals(geometry)) {
+                geometry = shape;
+                fallback = new GeneralizedDeviceUnlocker(shape, random);
+                necklaces = null;
+            }
+            UnlockResult result = fallback.unlockDeviceWithResult(dev);
+            spins = fallback.spinCount();
+            peeks = fallback.peekCount();
+            pokes = fallback.pokeCount();
+            return result;
+        }
+        prepare(shape);
+        spins++;
+        if (dev.spin()) {
+            return finish(true, UnlockResult.Termination.DETERMINISTIC_PASS, spins, peeks, pokes, startNanos);
+        }
+        if (masks.length == 0) {
+            return finish(false, UnlockResult.Termination.REJECTED, spins, peeks, pokes, startNanos);
+        }
+        int bits = shape.bits();
+        int maxRounds = UnlockRounds.maxRounds(bits, shape.usableDisclosed());
+        BeliefState belief = locked;
+        int swept = 0;
+        for (int round = 0; round < maxRounds; round++) {
+            int mask = place(bestMask(belief), swept);
+            swept |= mask;
+            peeks++;
+            int observation = observe(dev.peek(render(mask, 0, true)), mask);
+            if (observation < 0) {
+                return finish(false, UnlockResult.Termination.REJECTED, spins, peeks, pokes, startNanos);
+            }
+            int[] group = consistent(belief, mask, observation);
+            if (group.length == 0) {
+                // the device contradicted every configuration; forget what was learned
+                group = consistent(locked, mask, observation);
+            }
+            int poke = bestPoke(group, mask, observation);
+            if (poke != observation) {
+                pokes++;
+                dev.poke(render(mask, poke, false));
+            }
+            spins++;
+            if (dev.spin()) {
+                return finish(true, UnlockResult.Termination.DETERMINISTIC_PASS, spins, peeks, pokes, startNanos);
+            }
+            belief = after(group, mask, poke);
+            if (belief.isEmpty()) {
+                belief = locked;
+            }
+        }
+        return finish(false, UnlockResult.Termination.BUDGET_EXHAUSTED, spins, peeks, pokes, startNanos);
+    }
+
+    /**
+     * Place a mask at a rotation. The belief does not depend on rotation, so every rotation is as good for
+     * it; but a device that has not rotated still holds the poked values at the positions already peeked.
+     * Until every position has been peeked the mask goes where it covers the most positions not yet
+     * peeked, as a sweep would, and after that at a random rotation, so that a device rotating in step
+     * with the peeks cannot hide the same bits round after round.
+     * @param mask the mask to place
+     * @param swept positions peeked since the unlock started
+     * @return the mask, rotated
+     */
+    private int place(final int mask, final int swept) {
+        int bits = necklaces.bits();
+        int offset = random.nextInt(bits);
+        if (swept == (1 << bits) - 1) {
+            return necklaces.rotate(mask, offset);
+        }
+        int best = mask;
+        int bestFresh = -1;
+        for (int r = 0; r < bits; r++) {
+            int rotated = necklaces.rotate(mask, (offset + r) % bits);
+            int fresh = Integer.bitCount(rotated & ~swept);
+            if (fresh > bestFresh) {
+                best = rotated;
+                bestFresh = fresh;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Total number of device operations (spins, peeks and pokes) requested during the last unlock.
+     * @return operation count of the last unlock
+     */
+    public long operationCount() {
+        return spins + peeks + pokes;
+    }
+
+    /**
+     * Build the tables for a geometry unless the last unlock already did.
+     * @param shape geometry of the device about to be unlocked
+     */
+    private void prepare(final DeviceGeometry shape) {
+        if (shape.equals(geometry) && necklaces != null) {
+            return;
+        }
+        geometry = shape;
+        necklaces = Necklaces.of(shape.bits());
+        locked = BeliefState.locked(necklaces);
+        List<Integer> candidates = new ArrayList<>();
+        if (shape.usableDisclosed() > 0) {
+            PeekPatterns patterns = new PeekPatterns(shape.bits(), shape.usableDisclosed());
+            for (long mask = patterns.first(); mask != PeekPatterns.NONE; mask = patterns.next(mask)) {
+                if (necklaces.canonical((int) mask) == mask) {
+                    candidates.add((int) mask);
+                }
+            }
+        }
+        masks = new int[candidates.size()];
+        for (int i = 0; i < masks.length; i++) {
+            masks[i] = candidates.get(i);
+        }
+    }
+
+    /**
+     * The peek most likely to let the next poke unlock the device, and among equally likely ones the peek
+     * whose answer is least predictable. Every rotation of every configuration in the belief counts as
+     * equally likely.
+     * @param belief configurations the device can be in
+     * @return the best mask; the first on a tie
+     */
+    private int bestMask(final BeliefState belief) {
+        int best = masks[0];
+        int bestUnlocked = -1;
+        double bestEntropy = -1;
+        for (int mask : masks) {
+            int[][] groups = split(belief, mask);
+            int unlocked = 0;
+            for (int observation = 0; observation < groups.length; observation++) {
+                unlocked += mostUnlocked(groups[observation], mask);
+            }
+            if (unlocked < bestUnlocked) {
+                continue;
+            }
+            double entropy = entropy(groups, belief.size() * necklaces.bits());
+            if (unlocked > bestUnlocked || entropy > bestEntropy + 1e-12) {
+                best = mask;
+                bestUnlocked = unlocked;
+                bestEntropy = entropy;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Split a belief by what a peek at a mask would reveal.
+     * @param belief configurations the device can be in
+     * @param mask positions to peek
+     * @return per observation, the rotated configurations revealing it
+     */
+    private int[][] split(final BeliefState belief, final int mask) {
+        int bits = necklaces.bits();
+        int[][] groups = new int[1 << Integer.bitCount(mask)][belief.size() * bits];
+        int[] sizes = new int[groups.length];
+        for (int id = belief.next(0); id >= 0; id = belief.next(id + 1)) {
+            int code = necklaces.code(id);
+            for (int r = 0; r < bits; r++) {
+                int rotated = necklaces.rotate(code, r);
+                int observation = UnlockPlan.extract(rotated, mask);
+                groups[observation][sizes[observation]++] = rotated;
+            }
+        }
+        for (int observation = 0; observation < groups.length; observation++) {
+            groups[observation] = Arrays.copyOf(groups[observation], sizes[observation]);
+        }
+        return groups;
+    }
+
+    /**
+     * Largest number of configurations of a group that one poke unlocks.
+     * @param group configurations sharing an observation
+     * @param mask positions peeked
+     * @return configurations unlocked by the best poke
+     */
+    private int mostUnlocked(final int[] group, final int mask) {
+        int most = 0;
+        for (int poke = (1 << Integer.bitCount(mask)) - 1; poke >= 0 && most < group.length; poke--) {
+            most = Math.max(most, unlockedBy(group, mask, poke));
+        }
+        return most;
+    }
+
+    /**
+     * Number of configurations of a group that a poke unlocks.
+     * @param group configurations sharing an observation
+     * @param mask positions poked
+     * @param poke values poked, packed in mask-position order
+     * @return configurations left uniform by the poke
+     */
+    private int unlockedBy(final int[] group, final int mask, final int poke) {
+        int scattered = UnlockPlan.deposit(poke, mask);
+        int unlocked = 0;
+        for (int code : group) {
+            if (necklaces.isUniform((code & ~mask) | scattered)) {
+                unlocked++;
+            }
+        }
+        return unlocked;
+    }
+
+    /**
+     * Shannon entropy of the observations of a split belief.
+     * @param groups configurations revealing each observation
+     * @param total number of configurations in all groups
+     * @return entropy in nats
+     */
+    private static double entropy(final int[][] groups, final int total) {
+        double entropy = 0;
+        for (int[] group : groups) {
+            if (group.length > 0) {
+                double p = (double) group.length / total;
+                entropy -= p * Math.log(p);
+            }
+        }
+        return entropy;
+    }
+
+    /**
+     * Rotated configurations of a belief that would have shown an observation.
+     * @param belief configurations the device could be in
+     * @param mask positions peeked
+     * @param observation values seen, packed in mask-position order
+     * @return every matching rotation of every configuration
+     */
+    private int[] consistent(final BeliefState belief, final int mask, final int observation) {
+        int bits = necklaces.bits();
+        int[] group = new int[belief.size() * bits];
+        int size = 0;
+        for (int id = belief.next(0); id >= 0; id = belief.next(id + 1)) {
+            int code = necklaces.code(id);
+            for (int r = 0; r < bits; r++) {
+                int rotated = necklaces.rotate(code, r);
+                if (UnlockPlan.extract(rotated, mask) == observation) {
+                    group[size++] = rotated;
+                }
+            }
+        }
+        return Arrays.copyOf(group, size);
+    }
+
+    /**
+     * The values to poke: those unlocking the most configurations on the next spin, then those bringing
+     * the configurations closest to uniform, then those leaving the fewest configurations behind, then the
+     * values already there, so that a no-op poke is skipped.
+     * @param group configurations consistent with the observation
+     * @param mask positions peeked
+     * @param observation values seen, packed in mask-position order
+     * @return values to poke, packed in mask-position order
+     */
+    private int bestPoke(final int[] group, final int mask, final int observation) {
+        int best = observation;
+        int bestUnlocked = -1;
+        long bestDistance = Long.MAX_VALUE;
+        int bestRemaining = Integer.MAX_VALUE;
+        int all = (1 << Integer.bitCount(mask)) - 1;
+        for (int i = 0; i <= all; i++) {
+            // try the observation itself first so that it wins every tie
+            int poke = i ^ observation;
+            int unlocked = unlockedBy(group, mask, poke);
+            long distance = distanceAfter(group, mask, poke);
+            if (unlocked < bestUnlocked || (unlocked == bestUnlocked && distance > bestDistance)) {
+                continue;
+            }
+            int remaining = after(group, mask, poke).size();
+            if (unlocked > bestUnlocked || distance < bestDistance || remaining < bestRemaining) {
+                best = poke;
+                bestUnlocked = unlocked;
+                bestDistance = distance;
+                bestRemaining = remaining;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Total number of bits that would still differ from each configuration's majority value after a poke.
+     * @param group configurations consistent with the observation
+     * @param mask positions poked
+     * @param poke values poked, packed in mask-position order
+     * @return sum over the group of the poked configuration's minority count
+     */
+    private long distanceAfter(final int[] group, final int mask, final int poke) {
+        int bits = necklaces.bits();
+        int scattered = UnlockPlan.deposit(poke, mask);
+        long distance = 0;
+        for (int code : group) {
+            int ones = Integer.bitCount((code & ~mask) | scattered);
+            distance += Math.min(ones, bits - ones);
+        }
+        return distance;
+    }
+
+    /**
+     * Whether beliefs are tracked for a geometry.
+     * @param shape device geometry
+     * @return true if the geometry is small enough, and discloses enough per peek, to beat a sweep
+     */
+    static boolean tracked(final DeviceGeometry shape) {
+        return shape.bits() <= MAX_BITS && 2 * shape.usableDisclosed() >= shape.bits();
+    }
+
+    /**
+     * Belief after poking values into every configuration of a group and seeing the next spin fail.
+     * @param group configurations consistent with the observation
+     * @param mask positions poked
+     * @param poke values poked, packed in mask-position order
+     * @return configurations the device can be in after the spin
+     */
+    private BeliefState after(final int[] group, final int mask, final int poke) {
+        BeliefState.Builder builder = new BeliefState.Builder(necklaces);
+        int scattered = UnlockPlan.deposit(poke, mask);
+        for (int code : group) {
+            builder.add((code & ~mask) | scattered);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Render a peek request or a poke pattern for a mask.
+     * @param mask positions to request or set
+     * @param values values to set, packed in mask-position order; ignored for a request
+     * @param request true to render '?' at the mask positions, false to render the values
+     * @return the pattern
+     */
+    private String render(final int mask, final int values, final boolean request) {
+        char[] pattern = new char[necklaces.bits()];
+        Arrays.fill(pattern, HIDDEN);
+        int j = 0;
+        for (int m = mask; m != 0; m &= m - 1, j++) {
+            int position = Integer.numberOfTrailingZeros(m);
+            if (request) {
+                pattern[position] = REQUEST;
+            } else {
+                pattern[position] = (values & (1 << j)) != 0 ? TRUE : FALSE;
+            }
+        }
+        return new String(pattern);
+    }
+
+    /**
+     * Read the values a peek disclosed at a mask's positions.
+     * @param peeked pattern returned by the device
+     * @param mask positions requested
+     * @return observed values packed in mask-position order, or -1 if the device did not disclose them
+     */
+    private int observe(final CharSequence peeked, final int mask) {
+        if (peeked == null || peeked.length() != necklaces.bits()) {
+            return -1;
+        }
+        int observation = 0;
+        int j = 0;
+        for (int m = mask; m != 0; m &= m - 1, j++) {
+            char bit = peeked.charAt(Integer.numberOfTrailingZeros(m));
+            if (bit == TRUE) {
+                observation |= 1 << j;
+            } else if (bit != FALSE) {
+                return -1;
+            }
+        }
+        return observation;
+    }
+}
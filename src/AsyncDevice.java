@@ -0,0 +1,52 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A device whose operations complete later, e.g. a device reached over a network.
+ * <p>
+ *     Each operation returns at once with a future of its answer. A caller must not start an operation
+ *     before the previous one on the same device has completed, just as a {@link Device} is used by one
+ *     thread at a time.
+ * </p>
+ * @version 1.0
+ * @see AsyncDeviceUnlocker
+ */
+public interface AsyncDevice {
+    /**
+     * Spin the device.
+     * @return future of true if all bits are the same value
+     */
+    CompletableFuture<Boolean> spinAsync();
+
+    /**
+     * Peek at the device.
+     * @param pattern the requested pattern
+     * @return future of the pattern returned by the device
+     */
+    CompletableFuture<CharSequence> peekAsync(CharSequence pattern);
+
+    /**
+     * Poke the device.
+     * @param pattern the pattern to poke
+     * @return future completed once the poke has been performed
+     */
+    CompletableFuture<Void> pokeAsync(CharSequence pattern);
+
+    /**
+     * Geometry of the device.
+     * @return bits and disclosure width; 4/2 unless the device says otherwise
+     */
+    default DeviceGeometry geometry() {
+        return DeviceGeometry.DEFAULT;
+    }
+
+    /**
+     * Adapt a blocking device, running each of its operations as a task on an executor.
+     * @param dev the blocking device
+     * @param executor where the blocking operations run
+     * @return the asynchronous view of dev
+     */
+    static AsyncDevice of(final Device dev, final Executor executor) {
+        return new BlockingAsyncDevice(dev, executor);
+    }
+}
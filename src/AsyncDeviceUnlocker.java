@@ -0,0 +1,247 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+
+/**
+ * Unlocker for asynchronous devices that never blocks a thread.
+ * <p>
+ *     Runs the same rounds as {@link GeneralizedDeviceUnlocker}, planned by the same {@link UnlockRounds}
+ *     (peek a window of the sweep or one aimed by the rotation model, poke it towards the majority value,
+ *     spin), but each unlock is a small state machine advanced by the completion of its last device
+ *     operation instead of a thread waiting for it. Operations that complete at once are
+ *     followed in a loop rather than by nesting callbacks, so an unlock through a synchronous device
+ *     cannot exhaust the stack.
+ * </p>
+ * <p>
+ *     The strategy {@link UnlockStrategies} chooses for the device's geometry unlocks the device if it can
+ *     {@link UnlockStrategy#unlockAsync(AsyncDevice) unlock asynchronous devices}. The built-in strategies
+ *     only unlock blocking devices, and driving one through a blocking view would hold a thread for the
+ *     whole unlock, so such strategies are stood in for by the generalized rounds, which suit every geometry.
+ * </p>
+ * <p>
+ *     An unlocker holds no per-unlock state and may start any number of concurrent unlocks from any
+ *     thread. Cancelling the returned future stops its unlock before the next device operation.
+ * </p>
+ * @version 1.0
+ * @see AsyncDevice
+ */
+public class AsyncDeviceUnlocker extends DeviceUnlocker {
+
+    /** Generator each unlock splits its own source of random window offsets from. */
+    private final SplittableRandom random;
+
+    /**
+     * Create an unlocker.
+     */
+    public AsyncDeviceUnlocker() {
+        this(new SplittableRandom(ThreadLocalRandom.current().nextLong()));
+    }
+
+    /**
+     * Create an unlocker whose unlocks draw their random window offsets from generators split from a
+     * given one, so that a seeded generator repeats the same unlocks when they are started in the same order.
+     * @param random generator to split, owned by the unlocker from now on
+     */
+    public AsyncDeviceUnlocker(final SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * Start unlocking a device.
+     * @param dev the device controlling the resource to unlock
+     * @return future of whether the resource is unlocked, why the unlock stopped, and the operations and time
+     *         it took; completed exceptionally if a device operation failed
+     */
+    public CompletableFuture<UnlockResult> unlockAsync(final AsyncDevice dev) {
+        if (dev == null) {
+            return CompletableFuture.completedFuture(
+                    finish(false, UnlockResult.Termination.REJECTED, 0, 0, 0, System.nanoTime()));
+        }
+        CompletableFuture<UnlockResult> dispatched = UnlockStrategies.forGeometry(dev.geometry()).unlockAsync(dev);
+        if (dispatched != null) {
+            return dispatched;
+        }
+        SplittableRandom offsets;
+        synchronized (random) {
+            offsets = random.split();
+        }
+        Unlock unlock = new Unlock(dev, offsets);
+        unlock.advance(null);
+        return unlock.result;
+    }
+
+    /**
+     * State of one unlock, advanced each time a device operation completes.
+     */
+    private static final class Unlock implements BiConsumer<Object, Throwable> {
+        /** Waiting for the first spin. */
+        private static final int FIRST_SPIN = 0;
+        /** Waiting for a peek. */
+        private static final int PEEKED = 1;
+        /** Waiting for a poke. */
+        private static final int POKED = 2;
+        /** Waiting for the spin ending a round. */
+        private static final int SPUN = 3;
+
+        /** Result of the unlock. */
+        private final CompletableFuture<UnlockResult> result = new CompletableFuture<>();
+
+        /** Device being unlocked. */
+        private final AsyncDevice dev;
+
+        /** Plan of the rounds. */
+        private final UnlockRounds rounds;
+
+        /** {@link System#nanoTime()} when the unlock started. */
+        private final long startNanos = System.nanoTime();
+
+        /** Operation being waited for; -1 before the first. */
+        private int phase = -1;
+
+        /** Spins requested so far. */
+        private long spins;
+
+        /** Peeks requested so far. */
+        private long peeks;
+
+        /** Pokes requested so far. */
+        private long pokes;
+
+        /**
+         * Prepare to unlock a device.
+         * @param dev the device to unlock
+         * @param random source of the random window offsets
+         */
+        Unlock(final AsyncDevice dev, final SplittableRandom random) {
+            this.dev = dev;
+            this.rounds = new UnlockRounds(dev.geometry(), random);
+            rounds.start();
+        }
+
+        /**
+         * Continue once the pending operation has completed.
+         * @param value what the operation returned
+         * @param error why it failed, or null
+         */
+        @Override
+        public void accept(final Object value, final Throwable error) {
+            if (error != null) {
+                result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            } else {
+                advance(value);
+            }
+        }
+
+        /**
+         * Perform steps until one has to wait for the device or the unlock is over.
+         * @param answer what the last operation returned
+         */
+        void advance(final Object answer) {
+            Object value = answer;
+            while (true) {
+                CompletableFuture<?> pending;
+                try {
+                    pending = result.isDone() ? null : step(value);
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+                if (pending == null) {
+                    return;
+                }
+                if (!pending.isDone()) {
+                    pending.whenComplete(this);
+                    return;
+                }
+                try {
+                    value = pending.join();
+                } catch (CompletionException | CancellationException e) {
+                    accept(null, e);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Act on the answer to the last operation and start the next one.
+         * @param value what the last operation returned
+         * @return the next operation, or null if the unlock is over
+         */
+        private CompletableFuture<?> step(final Object value) {
+            switch (phase) {
+                case FIRST_SPIN:
+                    rounds.spun((Boolean) value);
+                    if ((Boolean) value) {
+                        return done(true, UnlockResult.Termination.DETERMINISTIC_PASS);
+                    }
+                    if (!rounds.disclosing()) {
+                        return done(false, UnlockResult.Termination.REJECTED);
+                    }
+                    return peek();
+                case PEEKED:
+                    CharSequence peeked = (CharSequence) value;
+                    if (!rounds.accepts(peeked)) {
+                        return done(false, UnlockResult.Termination.REJECTED);
+                    }
+                    BitPattern poke = rounds.poke(peeked);
+                    if (poke == null) {
+                        return spin();
+                    }
+                    phase = POKED;
+                    pokes++;
+                    return dev.pokeAsync(poke.toString());
+                case POKED:
+                    return spin();
+                case SPUN:
+                    rounds.spun((Boolean) value);
+                    if ((Boolean) value) {
+                        return done(true, rounds.termination());
+                    }
+                    return peek();
+                default:
+                    phase = FIRST_SPIN;
+                    spins++;
+                    return dev.spinAsync();
+            }
+        }
+
+        /**
+         * Peek at the next round's window, unless the unlock has used every round it may.
+         * @return the pending peek, or null if the unlock is over
+         */
+        private CompletableFuture<CharSequence> peek() {
+            if (!rounds.hasNext()) {
+                done(false, UnlockResult.Termination.BUDGET_EXHAUSTED);
+                return null;
+            }
+            phase = PEEKED;
+            peeks++;
+            return dev.peekAsync(rounds.peek().toString());
+        }
+
+        /**
+         * Spin at the end of a round.
+         * @return the pending spin
+         */
+        private CompletableFuture<Boolean> spin() {
+            phase = SPUN;
+            spins++;
+            return dev.spinAsync();
+        }
+
+        /**
+         * Complete the unlock.
+         * @param unlocked whether the device is unlocked
+         * @param termination why the unlock stopped
+         * @return null, as no operation follows
+         */
+        private CompletableFuture<?> done(final boolean unlocked, final UnlockResult.Termination termination) {
+            result.complete(finish(unlocked, termination, spins, peeks, pokes, startNanos));
+            return null;
+        }
+    }
+}
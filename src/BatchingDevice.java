@@ -0,0 +1,15 @@
+/**
+ * A device that can perform a whole {@link DeviceCommandBatch} in one round trip, e.g. a remote device
+ * that ships the batch to where the device is and receives all answers together.
+ * @version 1.0
+ * @see DeviceCommandBatch#execute(Device)
+ */
+public interface BatchingDevice {
+    /**
+     * Perform the commands of a batch in order, answering each through the batch's {@code answer}
+     * methods. If the batch {@link DeviceCommandBatch#stopsOnUnlock() stops on unlock}, no command after a
+     * spin that found the device unlocked may be performed.
+     * @param batch the commands to perform
+     */
+    void execute(DeviceCommandBatch batch);
+}
@@ -0,0 +1,162 @@
+import java.util.Arrays;
+
+/**
+ * Set of ring configurations, up to rotation, that a device might still be in.
+ * Immutable; equal sets are equal objects so that beliefs can key memo tables.
+ * @version 1.0
+ * @see Necklaces
+ */
+final class BeliefState {
+    /**
+     * Membership bitset over necklace numbers.
+     */
+    private final long[] words;
+    /**
+     * Number of necklaces in the set.
+     */
+    private final int size;
+    /**
+     * Cached hash of the membership bitset.
+     */
+    private final int hash;
+
+    /**
+     * Wrap a membership bitset.
+     * @param words membership bitset over necklace numbers; not copied
+     */
+    private BeliefState(long[] words) {
+        this.words = words;
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        this.size = count;
+        this.hash = Arrays.hashCode(words);
+    }
+
+    /**
+     * Belief of an unlocker that has just seen a spin fail: every non-uniform configuration.
+     * @param necklaces the configurations of the device size
+     * @return belief holding every non-uniform necklace
+     */
+    static BeliefState locked(Necklaces necklaces) {
+        Builder builder = new Builder(necklaces);
+        for (int id = 0; id < necklaces.count(); id++) {
+            builder.add(necklaces.code(id));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Number of necklaces in this belief.
+     * @return belief size
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Whether no configuration remains possible.
+     * @return true if this belief is empty
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Whether a necklace is in this belief.
+     * @param id necklace number
+     * @return true if the necklace is possible
+     */
+    boolean contains(int id) {
+        return (words[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Next necklace number in this belief.
+     * @param from necklace number to start searching at
+     * @return the first member at or after {@code from}, or -1 if there is none
+     */
+    int next(int from) {
+        int w = from >>> 6;
+        if (w >= words.length) return -1;
+        long word = words[w] & (-1L << from);
+        while (true) {
+            if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+            if (++w == words.length) return -1;
+            word = words[w];
+        }
+    }
+
+    /**
+     * Whether every necklace in this belief is also in another.
+     * A plan that handles a belief therefore also handles every subset of it.
+     * @param other the possibly larger belief
+     * @return true if this belief is a subset of other
+     */
+    boolean isSubsetOf(BeliefState other) {
+        if (size > other.size) return false;
+        for (int i = 0; i < words.length; i++) {
+            if ((words[i] & ~other.words[i]) != 0) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof BeliefState)) return false;
+        BeliefState that = (BeliefState) other;
+        return hash == that.hash && size == that.size && Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Accumulates configurations into a belief, dropping uniform ones since a spin would have reported them.
+     */
+    static final class Builder {
+        /**
+         * Configurations of the device size.
+         */
+        private final Necklaces necklaces;
+        /**
+         * Membership bitset under construction.
+         */
+        private long[] words;
+
+        /**
+         * Start an empty belief.
+         * @param necklaces the configurations of the device size
+         */
+        Builder(Necklaces necklaces) {
+            this.necklaces = necklaces;
+            this.words = new long[(necklaces.count() + 63) >>> 6];
+        }
+
+        /**
+         * Add a configuration, in any rotation.
+         * @param code the configuration
+         * @return true if it was uniform, i.e. a spin from it would report the device unlocked
+         */
+        boolean add(int code) {
+            if (necklaces.isUniform(code)) return true;
+            int id = necklaces.id(code);
+            words[id >>> 6] |= 1L << id;
+            return false;
+        }
+
+        /**
+         * Finish the belief. The builder must not be used afterwards.
+         * @return the accumulated belief
+         */
+        BeliefState build() {
+            BeliefState belief = new BeliefState(words);
+            words = null;
+            return belief;
+        }
+    }
+}
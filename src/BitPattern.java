@@ -0,0 +1,236 @@
+import java.util.Arrays;
+
+/**
+ * A mutable peek or poke pattern backed by bitsets, for exchanging patterns without allocating.
+ * <p>
+ *     Each position is hidden ('-'), requested ('?'), or disclosed as true ('T') or false ('F'). Reading
+ *     the pattern as a {@link CharSequence} decodes the bitsets on the fly, so a pattern can be handed to
+ *     any device; a {@link TestingDevice} recognises it and reads the bitsets directly, and answers peeks
+ *     with a pattern of its own that it reuses on every peek. A pattern is reusable after {@link #clear()}
+ *     and is not thread-safe; {@link #toString()} takes a snapshot that outlives it.
+ * </p>
+ * @version 1.0
+ * @see TestingDevice#peek(CharSequence)
+ */
+public final class BitPattern implements CharSequence {
+
+    /**char requesting a bit in a peek pattern.**/
+    private static final char REQUEST = '?';
+
+    /**char leaving a bit out of a peek/poke pattern.**/
+    private static final char HIDDEN = '-';
+
+    /** Number of positions. */
+    private final int length;
+
+    /** Positions requested. */
+    private final long[] requested;
+
+    /** Positions disclosed as true or false. */
+    private final long[] disclosed;
+
+    /** Positions disclosed as true. */
+    private final long[] ones;
+
+    /**
+     * Create a pattern with every position hidden.
+     * @param length number of positions
+     */
+    public BitPattern(final int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("pattern length must not be negative, not " + length);
+        }
+        this.length = length;
+        int words = (length + Long.SIZE - 1) / Long.SIZE;
+        this.requested = new long[words];
+        this.disclosed = new long[words];
+        this.ones = new long[words];
+    }
+
+    /**
+     * Hide every position.
+     * @return this pattern
+     */
+    public BitPattern clear() {
+        Arrays.fill(requested, 0L);
+        Arrays.fill(disclosed, 0L);
+        Arrays.fill(ones, 0L);
+        return this;
+    }
+
+    /**
+     * Request a position, as '?' does.
+     * @param position position to request
+     * @return this pattern
+     */
+    public BitPattern request(final int position) {
+        check(position);
+        long bit = 1L << position;
+        requested[position >>> 6] |= bit;
+        disclosed[position >>> 6] &= ~bit;
+        ones[position >>> 6] &= ~bit;
+        return this;
+    }
+
+    /**
+     * Disclose a value at a position, as 'T' or 'F' does.
+     * @param position position to set
+     * @param value true for 'T', false for 'F'
+     * @return this pattern
+     */
+    public BitPattern set(final int position, final boolean value) {
+        check(position);
+        long bit = 1L << position;
+        requested[position >>> 6] &= ~bit;
+        disclosed[position >>> 6] |= bit;
+        if (value) {
+            ones[position >>> 6] |= bit;
+        } else {
+            ones[position >>> 6] &= ~bit;
+        }
+        return this;
+    }
+
+    /**
+     * Make this pattern equal to another of the same length.
+     * @param other the pattern to copy
+     * @return this pattern
+     */
+    public BitPattern copyFrom(final BitPattern other) {
+        if (other.length != length) {
+            throw new IllegalArgumentException("cannot copy a pattern of length " + other.length + " into " + length);
+        }
+        System.arraycopy(other.requested, 0, requested, 0, requested.length);
+        System.arraycopy(other.disclosed, 0, disclosed, 0, disclosed.length);
+        System.arraycopy(other.ones, 0, ones, 0, ones.length);
+        return this;
+    }
+
+    /**
+     * Whether a position is requested.
+     * @param position a position
+     * @return true if the position reads '?'
+     */
+    public boolean isRequested(final int position) {
+        return (requested[position >>> 6] & (1L << position)) != 0;
+    }
+
+    /**
+     * Whether a position is disclosed as true or false.
+     * @param position a position
+     * @return true if the position reads 'T' or 'F'
+     */
+    public boolean isDisclosed(final int position) {
+        return (disclosed[position >>> 6] & (1L << position)) != 0;
+    }
+
+    /**
+     * Value disclosed at a position.
+     * @param position a disclosed position
+     * @return true if the position reads 'T'
+     */
+    public boolean value(final int position) {
+        return (ones[position >>> 6] & (1L << position)) != 0;
+    }
+
+    /**
+     * First requested position at or after a position.
+     * @param from position to start from
+     * @return the requested position, or -1 if there is none
+     */
+    public int nextRequested(final int from) {
+        return next(requested, from);
+    }
+
+    /**
+     * First disclosed position at or after a position.
+     * @param from position to start from
+     * @return the disclosed position, or -1 if there is none
+     */
+    public int nextDisclosed(final int from) {
+        return next(disclosed, from);
+    }
+
+    /**
+     * Number of positions.
+     * @return pattern length
+     */
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Character at a position.
+     * @param index a position
+     * @return '-', '?', 'T' or 'F'
+     */
+    @Override
+    public char charAt(final int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("position " + index + " of a pattern of length " + length);
+        }
+        if (isDisclosed(index)) {
+            return value(index) ? TestingDevice.VALUE_TRUE : TestingDevice.VALUE_FALSE;
+        }
+        return isRequested(index) ? REQUEST : HIDDEN;
+    }
+
+    /**
+     * Snapshot of a range of positions.
+     * @param start first position
+     * @param end end of the range, exclusive
+     * @return the characters of the range
+     */
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        return toString().substring(start, end);
+    }
+
+    /**
+     * Snapshot of the pattern.
+     * @return the pattern's characters
+     */
+    @Override
+    public String toString() {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = charAt(i);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * First set bit of a bitset at or after a position.
+     * @param bits a bitset over positions
+     * @param from position to start from
+     * @return the position, or -1 if there is none
+     */
+    private int next(final long[] bits, final int from) {
+        if (from >= length || from < 0) {
+            return -1;
+        }
+        int word = from >>> 6;
+        long current = bits[word] & (-1L << from);
+        while (true) {
+            if (current != 0) {
+                int position = word * Long.SIZE + Long.numberOfTrailingZeros(current);
+                return position < length ? position : -1;
+            }
+            if (++word == bits.length) {
+                return -1;
+            }
+            current = bits[word];
+        }
+    }
+
+    /**
+     * Reject a position outside the pattern.
+     * @param position a position
+     */
+    private void check(final int position) {
+        if (position < 0 || position >= length) {
+            throw new IndexOutOfBoundsException("position " + position + " of a pattern of length " + length);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+import java.nio.LongBuffer;
+
+/**
+ * Circular sequence of bits packed into 64-bit words.
+ * <p>
+ *     Rotation only moves a logical origin, and the number of set bits is maintained on every write,
+ *     so rotating and asking whether all bits are identical are both constant time regardless of size.
+ * </p>
+ * <p>
+ *     The words live in a {@link LongBuffer}: a heap array for ordinary devices, or a view of direct
+ *     memory handed out by a {@link DeviceArena}, which keeps the bits of huge devices out of the
+ *     collected heap.
+ * </p>
+ * @version 1.0
+ * @see TestingDevice
+ */
+final class BitRing {
+    /**
+     * Number of bits per storage word.
+     */
+    private static final int WORD_BITS = 64;
+    /**
+     * Packed bit storage, bit i held in word i / 64 at position i % 64.
+     */
+    private final LongBuffer words;
+    /**
+     * Number of bits in the ring.
+     */
+    private final int size;
+    /**
+     * Physical index of logical position 0.
+     */
+    private int origin = 0;
+    /**
+     * Number of bits currently set.
+     */
+    private int ones = 0;
+
+    /**
+     * Create a ring holding the given bits, with logical position 0 at index 0.
+     * @param initialBits bit values for the ring; must hold at least one bit
+     */
+    BitRing(boolean[] initialBits) {
+        if (initialBits.length < 1) throw new IllegalArgumentException("ring must hold at least one bit");
+        this.size = initialBits.length;
+        long[] packed = new long[words(size)];
+        for (int i = 0; i < size; i++) {
+            if (initialBits[i]) {
+                packed[i / WORD_BITS] |= 1L << i;
+                ones++;
+            }
+        }
+        this.words = LongBuffer.wrap(packed);
+    }
+
+    /**
+     * Create a ring over existing storage, taking its current contents as the bits, with logical position 0
+     * at index 0. Bits of the last word beyond the ring size must be clear.
+     * @param words storage of at least {@link #words(int)} words, indexed from 0; owned by the ring from now on
+     * @param size number of bits in the ring, at least 1
+     */
+    BitRing(LongBuffer words, int size) {
+        if (size < 1) throw new IllegalArgumentException("ring must hold at least one bit");
+        if (words.capacity() < words(size)) {
+            throw new IllegalArgumentException(size + " bits need " + words(size) + " words, not " + words.capacity());
+        }
+        this.size = size;
+        this.words = words;
+        for (int w = 0; w < words(size); w++) {
+            ones += Long.bitCount(words.get(w));
+        }
+    }
+
+    /**
+     * Create a ring of random bits over existing storage, making sure they are not all identical.
+     * @param words storage of at least {@link #words(int)} words, indexed from 0; owned by the ring from now on
+     * @param size number of bits in the ring, at least 1
+     * @param random source of the bits
+     * @return a ring that is not uniform, unless it holds a single bit
+     */
+    static BitRing random(LongBuffer words, int size, DeviceRandom random) {
+        BitRing ring = new BitRing(words, size);
+        ring.randomize(random);
+        return ring;
+    }
+
+    /**
+     * Overwrite every bit with a random value in place, making sure they are not all identical, and move
+     * the origin back to index 0.
+     * @param random source of the bits
+     */
+    void randomize(DeviceRandom random) {
+        int count = words(size);
+        ones = 0;
+        for (int w = 0; w < count; w++) {
+            long word = random.nextLong();
+            if (w == count - 1 && size % WORD_BITS != 0) word &= (1L << size) - 1;
+            words.put(w, word);
+            ones += Long.bitCount(word);
+        }
+        origin = 0;
+        // ensure the last bit is different if all the rest are the same
+        if (isUniform() && size > 1) set(size - 1, !get(0));
+    }
+
+    /**
+     * Number of storage words a ring of a given size needs.
+     * @param size number of bits
+     * @return words of 64 bits holding them
+     */
+    static int words(int size) {
+        return (size + WORD_BITS - 1) / WORD_BITS;
+    }
+
+    /**
+     * Number of bits in this ring.
+     * @return the ring size
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Number of bits currently set.
+     * @return the population count of this ring
+     */
+    int ones() {
+        return ones;
+    }
+
+    /**
+     * Whether all bits hold the same value.
+     * @return true if every bit is set or every bit is clear
+     */
+    boolean isUniform() {
+        return ones == 0 || ones == size;
+    }
+
+    /**
+     * Read the bit at a logical position.
+     * @param position logical position, 0 &lt;= position &lt; size
+     * @return the bit value
+     */
+    boolean get(int position) {
+        int i = physical(position);
+        return (words.get(i / WORD_BITS) & (1L << i)) != 0;
+    }
+
+    /**
+     * Write the bit at a logical position.
+     * @param position logical position, 0 &lt;= position &lt; size
+     * @param value the new bit value
+     */
+    void set(int position, boolean value) {
+        int i = physical(position);
+        long bit = 1L << i;
+        long word = words.get(i / WORD_BITS);
+        boolean current = (word & bit) != 0;
+        if (current == value) return;
+        words.put(i / WORD_BITS, word ^ bit);
+        ones += value ? 1 : -1;
+    }
+
+    /**
+     * Advance the logical origin, so that the bit previously at position {@code steps} becomes position 0.
+     * @param steps number of positions to rotate by; any value, reduced modulo the ring size
+     */
+    void rotate(long steps) {
+        origin = (int) ((origin + Math.floorMod(steps, (long) size)) % size);
+    }
+
+    /**
+     * Map a logical position to its physical bit index.
+     * @param position logical position, 0 &lt;= position &lt; size
+     * @return physical bit index
+     */
+    private int physical(int position) {
+        int i = origin + position;
+        return i >= size ? i - size : i;
+    }
+}
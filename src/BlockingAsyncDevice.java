@@ -0,0 +1,77 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Asynchronous view of a blocking device: each operation runs as a task on an executor and its
+ * future completes with the answer, or exceptionally with whatever the device threw.
+ * @version 1.0
+ * @see AsyncDevice#of(Device, Executor)
+ */
+final class BlockingAsyncDevice implements AsyncDevice {
+    /** Device performing the operations. */
+    private final Device delegate;
+
+    /** Geometry of the delegate. */
+    private final DeviceGeometry geometry;
+
+    /** Where the blocking operations run. */
+    private final Executor executor;
+
+    /**
+     * Adapt a device.
+     * @param delegate device performing the operations
+     * @param executor where the blocking operations run
+     */
+    BlockingAsyncDevice(final Device delegate, final Executor executor) {
+        this.delegate = delegate;
+        this.geometry = DeviceGeometry.of(delegate);
+        this.executor = executor;
+    }
+
+    /**
+     * Spin the device on the executor.
+     * @return future of true if all bits are the same value
+     */
+    @Override
+    public CompletableFuture<Boolean> spinAsync() {
+        return CompletableFuture.supplyAsync(delegate::spin, executor);
+    }
+
+    /**
+     * Peek at the device on the executor.
+     * @param pattern the requested pattern
+     * @return future of the pattern returned by the device
+     */
+    @Override
+    public CompletableFuture<CharSequence> peekAsync(final CharSequence pattern) {
+        return CompletableFuture.supplyAsync(() -> delegate.peek(pattern), executor);
+    }
+
+    /**
+     * Poke the device on the executor.
+     * @param pattern the pattern to poke
+     * @return future completed once the poke has been performed
+     */
+    @Override
+    public CompletableFuture<Void> pokeAsync(final CharSequence pattern) {
+        return CompletableFuture.runAsync(() -> delegate.poke(pattern), executor);
+    }
+
+    /**
+     * Geometry of the adapted device.
+     * @return bits and disclosure width
+     */
+    @Override
+    public DeviceGeometry geometry() {
+        return geometry;
+    }
+
+    /**
+     * Rendering of the adapted device.
+     * @return the adapted device's string form
+     */
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
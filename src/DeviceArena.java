@@ -0,0 +1,110 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.SplittableRandom;
+
+/**
+ * Off-heap storage for the bits of many large {@link TestingDevice}s.
+ * <p>
+ *     An arena allocates one block of direct memory when it is created and carves it into bit-packed rings,
+ *     one per device, at 8 bytes per 64 bits. A device of tens of millions of bits costs a few megabytes
+ *     outside the heap and a handful of small objects inside it, so thousands of them can be held at once
+ *     without the collector ever scanning or copying their bits, and building one fills whole words
+ *     instead of a bit at a time. The devices rotate and track uniformity exactly as heap devices do.
+ * </p>
+ * <p>
+ *     Space is never reused: the memory is released when the arena and every device carved from it are
+ *     unreachable. An arena can be shared between threads; each device must be used by one thread at a
+ *     time, as usual.
+ * </p>
+ * @version 1.0
+ * @see TestingDevice
+ * @see BitRing
+ */
+public final class DeviceArena {
+    /** Largest arena, in bytes: the largest direct buffer, rounded down to whole words. */
+    public static final int MAX_BYTES = Integer.MAX_VALUE & ~(Long.BYTES - 1);
+
+    /** Direct memory holding every ring, in native byte order. */
+    private final ByteBuffer memory;
+
+    /** Offset of the first free byte. */
+    private int used;
+
+    /** Number of devices carved from the arena. */
+    private int devices;
+
+    /**
+     * Allocate an arena.
+     * @param capacity bytes of direct memory to allocate, rounded down to whole words; at most MAX_BYTES
+     */
+    public DeviceArena(final long capacity) {
+        if (capacity < 0 || capacity > MAX_BYTES) {
+            throw new IllegalArgumentException("arena capacity must be 0 to " + MAX_BYTES + " bytes, not " + capacity);
+        }
+        this.memory = ByteBuffer.allocateDirect((int) capacity & ~(Long.BYTES - 1)).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Bytes of arena a device of a given geometry takes.
+     * @param geometry size and disclosure width of the device
+     * @return bytes of its bit-packed ring
+     */
+    public static long bytesFor(final DeviceGeometry geometry) {
+        return (long) BitRing.words(geometry.bits()) * Long.BYTES;
+    }
+
+    /**
+     * Create a device with random bits held in the arena, drawing every choice from a random number
+     * generator, as {@link SimulationEngine} populations do.
+     * @param geometry size and disclosure width of the device, at least one bit
+     * @param mode how the device rotates on each spin
+     * @param random source of the device's seed; a device built from the same seed on the heap is identical
+     * @return a locked device
+     * @throws IllegalStateException if the arena has no room left for the device
+     */
+    public synchronized TestingDevice device(final DeviceGeometry geometry, final RotationMode mode,
+                                             final SplittableRandom random) {
+        if (geometry.bits() < 1) {
+            throw new IllegalArgumentException("an arena device must hold at least one bit, not " + geometry);
+        }
+        long bytes = bytesFor(geometry);
+        if (bytes > memory.capacity() - used) {
+            throw new IllegalStateException("arena of " + memory.capacity() + " bytes has " + (memory.capacity() - used)
+                    + " left, not the " + bytes + " a " + geometry + " device needs");
+        }
+        ByteBuffer slice = memory.duplicate();
+        slice.limit(used + (int) bytes).position(used);
+        LongBuffer words = slice.slice().order(ByteOrder.nativeOrder()).asLongBuffer();
+        used += (int) bytes;
+        devices++;
+        long seed = random.nextLong();
+        DeviceRandom source = new DeviceRandom(seed);
+        BitRing ring = BitRing.random(words, geometry.bits(), source);
+        return TestingDevice.create(ring, geometry.disclosed(), mode, seed, source);
+    }
+
+    /**
+     * Bytes of direct memory the arena holds.
+     * @return capacity in bytes
+     */
+    public long capacity() {
+        return memory.capacity();
+    }
+
+    /**
+     * Bytes already carved into devices.
+     * @return used bytes
+     */
+    public synchronized long used() {
+        return used;
+    }
+
+    /**
+     * Number of devices carved from the arena.
+     * @return device count
+     */
+    public synchronized int devices() {
+        return devices;
+    }
+}
@@ -0,0 +1,242 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Client of a {@link DeviceServer}, handing out {@link RemoteDevice}s.
+ * <p>
+ *     The client keeps a fixed pool of connections and spreads requests over them round-robin. Requests
+ *     are multiplexed: any number may be outstanding on a connection, each tagged with an id that the
+ *     server echoes, and a reader thread per connection completes each request's future as its response
+ *     arrives. Callbacks on those futures run on the reader thread and must not block.
+ * </p>
+ * @version 1.0
+ * @see DeviceProtocol
+ */
+public final class DeviceClient implements Closeable {
+    /** Pooled connections. */
+    private final Link[] links;
+
+    /** Requests awaiting their response, by request id. */
+    private final Map<Integer, CompletableFuture<ByteBuffer>> pending = new ConcurrentHashMap<>();
+
+    /** Source of request ids. */
+    private final AtomicInteger requestIds = new AtomicInteger();
+
+    /** Round-robin position in the pool. */
+    private final AtomicInteger nextLink = new AtomicInteger();
+
+    /** Set once the client is closed. */
+    private volatile boolean closed;
+
+    /**
+     * Connect to a server.
+     * @param address the server's address
+     * @param connections number of pooled connections, at least 1
+     * @throws IOException if a connection cannot be opened
+     */
+    public DeviceClient(final InetSocketAddress address, final int connections) throws IOException {
+        if (connections < 1) {
+            throw new IllegalArgumentException("connections must be at least 1, was " + connections);
+        }
+        this.links = new Link[connections];
+        try {
+            for (int i = 0; i < connections; i++) {
+                links[i] = new Link(address, i);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Create a default 4-bit/2-disclosure device on the server.
+     * @return the remote device
+     */
+    public RemoteDevice create() {
+        return create(DeviceGeometry.DEFAULT);
+    }
+
+    /**
+     * Create a device on the server.
+     * @param geometry bits and disclosure width of the device
+     * @return the remote device
+     */
+    public RemoteDevice create(final DeviceGeometry geometry) {
+        ByteBuffer response = RemoteDevice.await(call(DeviceProtocol.CREATE, 0, 8,
+                request -> request.putInt(geometry.bits()).putInt(geometry.disclosed())));
+        return new RemoteDevice(this, response.getInt(), geometry);
+    }
+
+    /**
+     * Close every connection; requests still outstanding fail.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Link link : links) {
+            if (link != null) {
+                link.close();
+            }
+        }
+        failPending(new IOException("client closed"));
+    }
+
+    /**
+     * Send a request.
+     * @param op operation
+     * @param deviceId device addressed
+     * @param payloadBytes size of the payload
+     * @param payload writes the payload, or null if there is none
+     * @return future of the response payload, positioned after the status; completed exceptionally with an
+     *         {@link UncheckedIOException} if the connection fails, or an {@link IllegalStateException}
+     *         carrying the server's message if the request failed there
+     * @throws IllegalArgumentException if the request would exceed the protocol's frame limit
+     */
+    CompletableFuture<ByteBuffer> call(final byte op, final int deviceId, final int payloadBytes,
+                                       final Consumer<ByteBuffer> payload) {
+        if (payloadBytes > DeviceProtocol.MAX_FRAME_BYTES - DeviceProtocol.REQUEST_HEADER_BYTES) {
+            throw new IllegalArgumentException("request of " + payloadBytes + " payload bytes exceeds the "
+                    + DeviceProtocol.MAX_FRAME_BYTES + "-byte frame limit");
+        }
+        int requestId = requestIds.incrementAndGet();
+        CompletableFuture<ByteBuffer> response = new CompletableFuture<>();
+        pending.put(requestId, response);
+        ByteBuffer request = ByteBuffer.allocate(DeviceProtocol.LENGTH_BYTES + DeviceProtocol.REQUEST_HEADER_BYTES + payloadBytes);
+        request.putInt(DeviceProtocol.REQUEST_HEADER_BYTES + payloadBytes).putInt(requestId).put(op).putInt(deviceId);
+        if (payload != null) {
+            payload.accept(request);
+        }
+        request.flip();
+        try {
+            if (closed) {
+                throw new IOException("client closed");
+            }
+            links[Math.floorMod(nextLink.getAndIncrement(), links.length)].send(request);
+        } catch (IOException e) {
+            pending.remove(requestId);
+            response.completeExceptionally(new UncheckedIOException(e));
+        }
+        return response;
+    }
+
+    /**
+     * Complete the request a response answers.
+     * @param frame the response, without its length
+     */
+    private void dispatch(final ByteBuffer frame) {
+        CompletableFuture<ByteBuffer> response = pending.remove(frame.getInt());
+        if (response == null) {
+            return;
+        }
+        if (frame.get() == DeviceProtocol.OK) {
+            response.complete(frame);
+        } else {
+            response.completeExceptionally(new IllegalStateException(DeviceProtocol.getMessage(frame)));
+        }
+    }
+
+    /**
+     * Fail every outstanding request.
+     * @param cause why
+     */
+    private void failPending(final IOException cause) {
+        for (Integer requestId : pending.keySet()) {
+            CompletableFuture<ByteBuffer> response = pending.remove(requestId);
+            if (response != null) {
+                response.completeExceptionally(new UncheckedIOException(cause));
+            }
+        }
+    }
+
+    /**
+     * One pooled connection and the thread reading its responses.
+     */
+    private final class Link {
+        /** The connection, in blocking mode. */
+        private final SocketChannel channel;
+
+        /**
+         * Connect and start reading.
+         * @param address the server's address
+         * @param index position in the pool, for the reader thread's name
+         * @throws IOException if the connection cannot be opened
+         */
+        Link(final InetSocketAddress address, final int index) throws IOException {
+            this.channel = SocketChannel.open(address);
+            channel.socket().setTcpNoDelay(true);
+            Thread reader = new Thread(this::read, "device-client-" + channel.socket().getLocalPort() + "-" + index);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        /**
+         * Write a whole request; concurrent senders take turns.
+         * @param request the framed request
+         * @throws IOException if writing fails
+         */
+        synchronized void send(final ByteBuffer request) throws IOException {
+            while (request.hasRemaining()) {
+                channel.write(request);
+            }
+        }
+
+        /**
+         * Read responses until the connection closes, then fail what is outstanding.
+         */
+        private void read() {
+            ByteBuffer length = ByteBuffer.allocate(DeviceProtocol.LENGTH_BYTES);
+            try {
+                while (true) {
+                    length.clear();
+                    readFully(length);
+                    int bytes = length.getInt(0);
+                    if (bytes < DeviceProtocol.RESPONSE_HEADER_BYTES || bytes > DeviceProtocol.MAX_FRAME_BYTES) {
+                        throw new IOException("bad frame length " + bytes);
+                    }
+                    ByteBuffer frame = ByteBuffer.allocate(bytes);
+                    readFully(frame);
+                    frame.flip();
+                    dispatch(frame);
+                }
+            } catch (IOException e) {
+                close();
+                failPending(closed ? new IOException("client closed") : e);
+            }
+        }
+
+        /**
+         * Fill a buffer from the connection.
+         * @param buffer the buffer
+         * @throws IOException if reading fails or the connection ends first
+         */
+        private void readFully(final ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("connection closed by server");
+                }
+            }
+        }
+
+        /**
+         * Close the connection, ending the reader.
+         */
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+    }
+}
@@ -0,0 +1,302 @@
+import java.util.Arrays;
+
+/**
+ * A sequence of device operations that do not depend on each other's answers, performed together.
+ * <p>
+ *     On a {@link BatchingDevice} the whole batch costs one round trip; any other device performs it one
+ *     operation at a time. A batch may stop at the first spin that finds the device unlocked, so that a
+ *     run of spins never spins past an unlock. Answers are read back by command index once the batch has
+ *     been executed. A batch is reusable after {@link #clear()} and is not thread-safe.
+ * </p>
+ * @version 1.0
+ * @see BatchingDevice
+ */
+public final class DeviceCommandBatch {
+
+    /**
+     * Operation performed by a command.
+     */
+    public enum Command {
+        /** Spin the device. */
+        SPIN,
+        /** Peek at the device with the command's pattern. */
+        PEEK,
+        /** Poke the device with the command's pattern. */
+        POKE
+    }
+
+    /** Whether execution stops at the first spin finding the device unlocked. */
+    private final boolean stopOnUnlock;
+
+    /** Operation of each command. */
+    private Command[] commands = new Command[8];
+
+    /** Pattern of each peek and poke command. */
+    private CharSequence[] patterns = new CharSequence[8];
+
+    /** Answer to each executed peek command. */
+    private CharSequence[] responses = new CharSequence[8];
+
+    /** Copies of answers that the device reuses, kept across executions so that copying allocates once. */
+    private BitPattern[] copies = new BitPattern[8];
+
+    /** Answer to each executed spin command. */
+    private boolean[] spun = new boolean[8];
+
+    /** Number of commands. */
+    private int size;
+
+    /** Number of commands performed by the last execution. */
+    private int executed;
+
+    /** Whether a performed spin found the device unlocked. */
+    private boolean unlocked;
+
+    /**
+     * Create an empty batch.
+     * @param stopOnUnlock true to stop at the first spin that finds the device unlocked
+     */
+    public DeviceCommandBatch(final boolean stopOnUnlock) {
+        this.stopOnUnlock = stopOnUnlock;
+    }
+
+    /**
+     * Append a spin.
+     * @return this batch
+     */
+    public DeviceCommandBatch spin() {
+        return add(Command.SPIN, null);
+    }
+
+    /**
+     * Append a run of spins.
+     * @param count number of spins
+     * @return this batch
+     */
+    public DeviceCommandBatch spins(final int count) {
+        for (int i = 0; i < count; i++) {
+            add(Command.SPIN, null);
+        }
+        return this;
+    }
+
+    /**
+     * Append a peek.
+     * @param pattern the pattern to request
+     * @return this batch
+     */
+    public DeviceCommandBatch peek(final CharSequence pattern) {
+        return add(Command.PEEK, pattern);
+    }
+
+    /**
+     * Append a poke.
+     * @param pattern the pattern to poke
+     * @return this batch
+     */
+    public DeviceCommandBatch poke(final CharSequence pattern) {
+        return add(Command.POKE, pattern);
+    }
+
+    /**
+     * Remove every command and answer, keeping the storage.
+     * @return this batch
+     */
+    public DeviceCommandBatch clear() {
+        Arrays.fill(patterns, 0, size, null);
+        Arrays.fill(responses, 0, size, null);
+        size = 0;
+        executed = 0;
+        unlocked = false;
+        return this;
+    }
+
+    /**
+     * Number of commands in the batch.
+     * @return command count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Whether execution stops at the first spin that finds the device unlocked.
+     * @return true if commands after an unlocking spin are skipped
+     */
+    public boolean stopsOnUnlock() {
+        return stopOnUnlock;
+    }
+
+    /**
+     * Operation of a command.
+     * @param index command index
+     * @return the operation
+     */
+    public Command command(final int index) {
+        check(index, size);
+        return commands[index];
+    }
+
+    /**
+     * Pattern of a peek or poke command.
+     * @param index command index
+     * @return the pattern, or null for a spin
+     */
+    public CharSequence pattern(final int index) {
+        check(index, size);
+        return patterns[index];
+    }
+
+    /**
+     * Perform the batch on a device: in one round trip if it is a {@link BatchingDevice}, otherwise one
+     * command at a time. Answers of a previous execution are discarded.
+     * @param dev the device
+     */
+    public void execute(final Device dev) {
+        executed = 0;
+        unlocked = false;
+        if (dev instanceof BatchingDevice) {
+            ((BatchingDevice) dev).execute(this);
+        } else {
+            executeSequentially(dev);
+        }
+    }
+
+    /**
+     * Perform the batch one command at a time, e.g. where a {@link BatchingDevice} receives it.
+     * @param dev the device performing each command
+     */
+    public void executeSequentially(final Device dev) {
+        for (int i = executed; i < size && !(stopOnUnlock && unlocked); i++) {
+            switch (commands[i]) {
+                case SPIN:
+                    answerSpin(i, dev.spin());
+                    break;
+                case PEEK:
+                    answerPeek(i, dev.peek(patterns[i]));
+                    break;
+                default:
+                    dev.poke(patterns[i]);
+                    answerPoke(i);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Record the answer to a spin; commands must be answered in order.
+     * @param index command index
+     * @param isUnlocked what the spin returned
+     */
+    public void answerSpin(final int index, final boolean isUnlocked) {
+        answered(index, Command.SPIN);
+        spun[index] = isUnlocked;
+        unlocked |= isUnlocked;
+    }
+
+    /**
+     * Record the answer to a peek; commands must be answered in order.
+     * @param index command index
+     * @param response the pattern the device returned
+     */
+    public void answerPeek(final int index, final CharSequence response) {
+        answered(index, Command.PEEK);
+        if (response instanceof BitPattern) {
+            // the device overwrites its answer on its next peek, which may be in this very batch
+            BitPattern answer = (BitPattern) response;
+            if (copies[index] == null || copies[index].length() != answer.length()) {
+                copies[index] = new BitPattern(answer.length());
+            }
+            responses[index] = copies[index].copyFrom(answer);
+        } else {
+            responses[index] = response;
+        }
+    }
+
+    /**
+     * Record that a poke was performed; commands must be answered in order.
+     * @param index command index
+     */
+    public void answerPoke(final int index) {
+        answered(index, Command.POKE);
+    }
+
+    /**
+     * Number of commands performed by the last execution: all of them, unless it stopped on unlock.
+     * @return performed command count
+     */
+    public int executed() {
+        return executed;
+    }
+
+    /**
+     * Whether a spin of the last execution found the device unlocked.
+     * @return true if the device was unlocked
+     */
+    public boolean unlocked() {
+        return unlocked;
+    }
+
+    /**
+     * Answer to a performed spin.
+     * @param index command index
+     * @return true if the spin found the device unlocked
+     */
+    public boolean spinResult(final int index) {
+        check(index, executed);
+        return spun[index];
+    }
+
+    /**
+     * Answer to a performed peek.
+     * @param index command index
+     * @return the pattern the device returned
+     */
+    public CharSequence peekResult(final int index) {
+        check(index, executed);
+        return responses[index];
+    }
+
+    /**
+     * Append a command, growing the storage if needed.
+     * @param command the operation
+     * @param pattern its pattern, or null for a spin
+     * @return this batch
+     */
+    private DeviceCommandBatch add(final Command command, final CharSequence pattern) {
+        if (size == commands.length) {
+            commands = Arrays.copyOf(commands, size * 2);
+            patterns = Arrays.copyOf(patterns, size * 2);
+            responses = Arrays.copyOf(responses, size * 2);
+            copies = Arrays.copyOf(copies, size * 2);
+            spun = Arrays.copyOf(spun, size * 2);
+        }
+        commands[size] = command;
+        patterns[size++] = pattern;
+        return this;
+    }
+
+    /**
+     * Check that an answer is for the next unanswered command, of the right kind, and not past a stop.
+     * @param index command index
+     * @param command operation being answered
+     */
+    private void answered(final int index, final Command command) {
+        if (index != executed || index >= size || commands[index] != command || (stopOnUnlock && unlocked)) {
+            throw new IllegalStateException("answer for " + command + " " + index + " out of order; "
+                    + executed + " of " + size + " commands answered");
+        }
+        executed++;
+    }
+
+    /**
+     * Check a command index.
+     * @param index command index
+     * @param limit number of valid indices
+     */
+    private static void check(final int index, final int limit) {
+        if (index < 0 || index >= limit) {
+            throw new IndexOutOfBoundsException("command " + index + " of " + limit);
+        }
+    }
+}
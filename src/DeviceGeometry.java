@@ -0,0 +1,93 @@
+/**
+ * Size and disclosure width of a device: how many bits it stores and how many of them a single peek/poke reveals.
+ * @version 1.0
+ * @see GeometryAware
+ */
+public final class DeviceGeometry {
+    /**
+     * Geometry of a device built with the Device defaults (4 bits, 2 disclosed).
+     */
+    public static final DeviceGeometry DEFAULT = new DeviceGeometry(Device.DEFAULT_SIZE, Device.DEFAULT_PEEKS);
+
+    /** Number of bits stored in the device. */
+    private final int bits;
+
+    /** Number of bits disclosed by a peek and set by a poke. */
+    private final int disclosed;
+
+    /**
+     * Describe a device geometry.
+     * @param bits number of bits stored in the device
+     * @param disclosed number of bits disclosed by a peek and set by a poke
+     */
+    public DeviceGeometry(final int bits, final int disclosed) {
+        if (bits < 0 || disclosed < 0) {
+            throw new IllegalArgumentException("geometry must not be negative: " + bits + "/" + disclosed);
+        }
+        this.bits = bits;
+        this.disclosed = disclosed;
+    }
+
+    /**
+     * Determine the geometry of a device. Devices that do not describe themselves are
+     * assumed to be default 4-bit/2-disclosure devices.
+     * @param dev the device to describe
+     * @return the device's geometry
+     */
+    public static DeviceGeometry of(final Device dev) {
+        if (dev instanceof GeometryAware) {
+            return ((GeometryAware) dev).geometry();
+        }
+        return DEFAULT;
+    }
+
+    /**
+     * Number of bits stored in the device.
+     * @return the device size
+     */
+    public int bits() {
+        return bits;
+    }
+
+    /**
+     * Number of bits disclosed by a peek and set by a poke.
+     * @return the disclosure width
+     */
+    public int disclosed() {
+        return disclosed;
+    }
+
+    /**
+     * Number of bits a peek can actually disclose, which never exceeds the device size.
+     * @return the usable disclosure width
+     */
+    public int usableDisclosed() {
+        return Math.min(bits, disclosed);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof DeviceGeometry)) {
+            return false;
+        }
+        DeviceGeometry that = (DeviceGeometry) other;
+        return bits == that.bits && disclosed == that.disclosed;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * bits + disclosed;
+    }
+
+    /**
+     * Render geometry as "bits/disclosed", e.g. "4/2".
+     * @return rendering of this geometry
+     */
+    @Override
+    public String toString() {
+        return bits + "/" + disclosed;
+    }
+}
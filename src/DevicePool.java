@@ -0,0 +1,70 @@
+import java.util.Objects;
+
+/**
+ * Reusable {@link TestingDevice}s, one per thread, for simulations and benchmarks that unlock devices at a
+ * high rate.
+ * <p>
+ *     Each thread that acquires from a pool gets its own device, built on its first acquisition and
+ *     {@link TestingDevice#reset(RotationMode, long) reset} in place on every later one. After warm-up
+ *     acquiring a device allocates nothing, so the cost of a simulated unlock is the unlock itself. A
+ *     device stays valid until the same thread acquires from the pool again; it must not be kept or
+ *     handed to another thread past that point. A reset keeps a device's size and disclosure width, since
+ *     its ring, on or off the heap, is sized when the device is built; a pool therefore serves one
+ *     geometry, and a run over several geometries uses a pool for each.
+ * </p>
+ * @version 1.0
+ * @see TestingDevice
+ * @see SimulationEngine
+ */
+public final class DevicePool {
+    /** Size and disclosure width of the devices. */
+    private final DeviceGeometry geometry;
+
+    /** How the devices rotate. */
+    private final RotationMode mode;
+
+    /** Device of each thread, null until the thread's first acquisition. */
+    private final ThreadLocal<TestingDevice> devices = new ThreadLocal<>();
+
+    /**
+     * Create an empty pool.
+     * @param geometry size and disclosure width of the devices
+     * @param mode how the devices rotate
+     */
+    public DevicePool(final DeviceGeometry geometry, final RotationMode mode) {
+        this.geometry = Objects.requireNonNull(geometry, "geometry");
+        this.mode = Objects.requireNonNull(mode, "mode");
+    }
+
+    /**
+     * The calling thread's device, reset to a seed.
+     * @param seed seed of the device's random choices; equal seeds yield devices that behave identically
+     * @return a locked device, identical to a new device built from the seed
+     */
+    public TestingDevice acquire(final long seed) {
+        TestingDevice device = devices.get();
+        if (device == null) {
+            device = TestingDevice.create(geometry, mode, seed);
+            devices.set(device);
+        } else {
+            device.reset(mode, seed);
+        }
+        return device;
+    }
+
+    /**
+     * Size and disclosure width of the devices.
+     * @return device geometry
+     */
+    public DeviceGeometry geometry() {
+        return geometry;
+    }
+
+    /**
+     * How the devices rotate.
+     * @return rotation mode
+     */
+    public RotationMode mode() {
+        return mode;
+    }
+}
@@ -0,0 +1,193 @@
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Wire format shared by {@link DeviceServer} and {@link DeviceClient}.
+ * <p>
+ *     Every message is a frame of an int length followed by that many bytes (big-endian):
+ * </p>
+ * <pre>
+ *   request   int request id, byte op, int device id, payload
+ *   response  int request id, byte status, payload
+ *
+ *   op        request payload                        response payload
+ *   CREATE    int bits, int disclosed                int device id
+ *   SPIN      -                                      byte 1 if unlocked, else 0
+ *   PEEK      pattern                                pattern
+ *   POKE      pattern                                -
+ *   BATCH     byte stop on unlock, int count,        int performed, then per performed command:
+ *             then per command byte op, pattern       byte for a spin, pattern for a peek
+ *             for peeks and pokes
+ *   RELEASE   -                                      -
+ *
+ *   status    OK, or FAILED with a short length and UTF-8 message as payload
+ *   pattern   as in a device recording: int length and 2 bits per character, or the
+ *             null and raw forms
+ * </pre>
+ * <p>
+ *     Request ids are chosen by the client and echoed by the server, so any number of requests may be
+ *     outstanding on a connection and their responses matched as they arrive. A request that would not
+ *     fit in {@value #MAX_FRAME_BYTES} bytes, such as a raw pattern of millions of characters, is refused
+ *     by the client before it is sent.
+ * </p>
+ * @version 1.0
+ * @see DeviceRecorder
+ */
+final class DeviceProtocol {
+    /** Create a device. */
+    static final byte CREATE = 0;
+    /** Spin a device. */
+    static final byte SPIN = 1;
+    /** Peek at a device. */
+    static final byte PEEK = 2;
+    /** Poke a device. */
+    static final byte POKE = 3;
+    /** Perform a command batch on a device. */
+    static final byte BATCH = 4;
+    /** Forget a device. */
+    static final byte RELEASE = 5;
+
+    /** Request performed. */
+    static final byte OK = 0;
+    /** Request failed; the payload holds the reason. */
+    static final byte FAILED = 1;
+
+    /** Bytes of a frame's length prefix. */
+    static final int LENGTH_BYTES = 4;
+    /** Bytes of a request header after the length: request id, op, device id. */
+    static final int REQUEST_HEADER_BYTES = 9;
+    /** Bytes of a response header after the length: request id, status. */
+    static final int RESPONSE_HEADER_BYTES = 5;
+    /** Largest frame either side accepts. */
+    static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * Not instantiable.
+     */
+    private DeviceProtocol() {
+    }
+
+    /**
+     * Encoded size of a pattern.
+     * @param pattern the pattern, possibly null
+     * @return bytes written by {@link #putPattern(ByteBuffer, CharSequence)}
+     */
+    static int patternBytes(final CharSequence pattern) {
+        if (pattern == null) {
+            return 4;
+        }
+        if (isPackable(pattern)) {
+            return 4 + (pattern.length() + 3) / 4;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, 8 + 2L * pattern.length());
+    }
+
+    /**
+     * Encode a pattern, packed if it only holds pattern characters.
+     * @param buffer destination, with at least {@link #patternBytes(CharSequence)} bytes remaining
+     * @param pattern the pattern, possibly null
+     */
+    static void putPattern(final ByteBuffer buffer, final CharSequence pattern) {
+        if (pattern == null) {
+            buffer.putInt(DeviceRecorder.NULL_PATTERN);
+        } else if (isPackable(pattern)) {
+            int length = pattern.length();
+            buffer.putInt(length);
+            for (int i = 0; i < length; i += 4) {
+                int packed = 0;
+                for (int j = i; j < Math.min(length, i + 4); j++) {
+                    packed |= DeviceRecorder.CODES.indexOf(pattern.charAt(j)) << (2 * (j - i));
+                }
+                buffer.put((byte) packed);
+            }
+        } else {
+            buffer.putInt(DeviceRecorder.RAW_PATTERN).putInt(pattern.length());
+            for (int i = 0; i < pattern.length(); i++) {
+                buffer.putChar(pattern.charAt(i));
+            }
+        }
+    }
+
+    /**
+     * Decode a pattern.
+     * @param buffer source, positioned at the pattern
+     * @return the pattern, or null if a null pattern was sent
+     */
+    static CharSequence getPattern(final ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == DeviceRecorder.NULL_PATTERN) {
+            return null;
+        }
+        char[] pattern;
+        if (length == DeviceRecorder.RAW_PATTERN) {
+            pattern = new char[checkedLength(buffer, buffer.getInt(), true)];
+            for (int i = 0; i < pattern.length; i++) {
+                pattern[i] = buffer.getChar();
+            }
+        } else {
+            pattern = new char[checkedLength(buffer, length, false)];
+            int packed = 0;
+            for (int i = 0; i < length; i++) {
+                if (i % 4 == 0) {
+                    packed = buffer.get();
+                }
+                pattern[i] = DeviceRecorder.CODES.charAt((packed >>> (2 * (i % 4))) & 3);
+            }
+        }
+        return new String(pattern);
+    }
+
+    /**
+     * Check a decoded pattern length against what is left of the frame, so that a corrupt length fails
+     * as a truncated request instead of allocating a huge pattern.
+     * @param buffer source, positioned after the length
+     * @param length the decoded length
+     * @param raw true for UTF-16 characters, false for packed ones
+     * @return the length
+     */
+    private static int checkedLength(final ByteBuffer buffer, final int length, final boolean raw) {
+        long bytes = raw ? 2L * length : (length + 3L) / 4;
+        if (length < 0 || bytes > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        return length;
+    }
+
+    /**
+     * Encode a failure message.
+     * @param message the message
+     * @return its UTF-8 bytes, at most {@link Short#MAX_VALUE} of them
+     */
+    static byte[] messageBytes(final String message) {
+        byte[] bytes = String.valueOf(message).getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= Short.MAX_VALUE ? bytes : Arrays.copyOf(bytes, Short.MAX_VALUE);
+    }
+
+    /**
+     * Decode a failure message.
+     * @param buffer source, positioned at the message length
+     * @return the message
+     */
+    static String getMessage(final ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Whether a pattern fits the packed form.
+     * @param pattern the pattern
+     * @return true if it only holds '-', '?', 'F' and 'T'
+     */
+    private static boolean isPackable(final CharSequence pattern) {
+        int length = pattern.length();
+        for (int i = 0; i < length; i++) {
+            if (DeviceRecorder.CODES.indexOf(pattern.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * A reseedable generator that yields, for a given seed, the same sequence as a {@link java.util.SplittableRandom}
+ * created with that seed.
+ * <p>
+ *     A {@link TestingDevice} draws its bits and rotations from one of these so that a device can be
+ *     {@link TestingDevice#reset(RotationMode, long) reset} to a new seed in place, without allocating.
+ *     Not thread-safe; each device owns its generator.
+ * </p>
+ * @version 1.0
+ * @see TestingDevice
+ */
+final class DeviceRandom {
+    /** Increment of the SplitMix64 state, the default gamma of SplittableRandom. */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /** Unit of a double made of 53 random bits. */
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    /** Current state. */
+    private long state;
+
+    /**
+     * Create a generator.
+     * @param seed the seed
+     */
+    DeviceRandom(final long seed) {
+        this.state = seed;
+    }
+
+    /**
+     * Start over from a new seed.
+     * @param seed the seed
+     */
+    void reseed(final long seed) {
+        this.state = seed;
+    }
+
+    /**
+     * Next 64 random bits.
+     * @return a uniformly distributed long
+     */
+    long nextLong() {
+        long z = state += GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Next 32 random bits.
+     * @return a uniformly distributed int
+     */
+    int nextInt() {
+        long z = state += GOLDEN_GAMMA;
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    /**
+     * Next int below a bound, drawn without bias.
+     * @param bound exclusive upper bound, positive
+     * @return a uniformly distributed int from 0 to bound - 1
+     */
+    int nextInt(final int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive, not " + bound);
+        }
+        int r = nextInt();
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return r & m;
+        }
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = nextInt() >>> 1) {
+            // reject the top, incomplete range of u
+        }
+        return r;
+    }
+
+    /**
+     * Next double from 0, inclusive, to 1, exclusive.
+     * @return a uniformly distributed double
+     */
+    double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+}
@@ -0,0 +1,214 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends the operations performed on devices, and what the devices answered, to a binary recording file.
+ * <p>
+ *     Layout (big-endian):
+ * </p>
+ * <pre>
+ *   header   int magic 'RLTR', short version, short reserved   (once, when the file is created)
+ *   device   byte 0, int bits, int disclosed                     (before the first operation of a device)
+ *   spin     byte 1 if the spin returned false, 2 if true
+ *   peek     byte 3, pattern requested, pattern returned
+ *   poke     byte 4, pattern poked
+ *   pattern  int length, then 2 bits per character ('-', '?', 'F', 'T'), 4 per byte;
+ *            or int -1 for null; or int -2, int length and UTF-16 characters for anything else
+ * </pre>
+ * <p>
+ *     Records are batched in a direct buffer and written through a {@link FileChannel} when it fills,
+ *     on {@link #flush()} and on {@link #close()}. A recorder may be shared between threads, but the
+ *     devices it records must then be used one at a time, since records carry no device identifier;
+ *     give each thread its own recorder and file to record concurrent unlocks.
+ * </p>
+ * @version 1.0
+ * @see DeviceReplay
+ */
+public final class DeviceRecorder implements Closeable {
+    /** File signature, "RLTR". */
+    static final int MAGIC = 0x524C5452;
+    /** Format version; 1 stored sizes and lengths as shorts. */
+    static final short VERSION = 2;
+    /** Header size in bytes. */
+    static final int HEADER_BYTES = 8;
+
+    /** Record starting a new device. */
+    static final byte DEVICE = 0;
+    /** Spin that returned false. */
+    static final byte SPIN_LOCKED = 1;
+    /** Spin that returned true. */
+    static final byte SPIN_UNLOCKED = 2;
+    /** Peek request and response. */
+    static final byte PEEK = 3;
+    /** Poke. */
+    static final byte POKE = 4;
+
+    /** Pattern length marking a null pattern. */
+    static final int NULL_PATTERN = -1;
+    /** Pattern length marking a pattern stored as raw characters. */
+    static final int RAW_PATTERN = -2;
+    /** Pattern characters, indexed by their 2-bit code. */
+    static final String CODES = "-?FT";
+
+    /** Size of the write batch in bytes. */
+    private static final int BATCH_BYTES = 64 * 1024;
+
+    /** Destination file. */
+    private final FileChannel channel;
+
+    /** Records not yet written. */
+    private final ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_BYTES);
+
+    /**
+     * Open a recording file, creating it or appending to it.
+     * @param file the recording file
+     * @throws IOException if the file cannot be opened, or exists but is not a recording
+     */
+    public DeviceRecorder(final Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size == 0) {
+                batch.putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                    // keep reading until the header is complete or the file ends
+                }
+                if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getShort(4) != VERSION) {
+                    throw new IOException("not a device recording: " + file);
+                }
+            }
+            channel.position(size);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Wrap a device so that every operation performed on it is recorded.
+     * @param dev the device to record
+     * @return a device forwarding to dev and recording each operation
+     */
+    public synchronized RecordingDevice record(final Device dev) {
+        DeviceGeometry geometry = DeviceGeometry.of(dev);
+        ensure(9);
+        batch.put(DEVICE).putInt(geometry.bits()).putInt(geometry.disclosed());
+        return new RecordingDevice(dev, geometry, this);
+    }
+
+    /**
+     * Record a spin.
+     * @param unlocked what the spin returned
+     */
+    synchronized void spun(final boolean unlocked) {
+        ensure(1);
+        batch.put(unlocked ? SPIN_UNLOCKED : SPIN_LOCKED);
+    }
+
+    /**
+     * Record a peek.
+     * @param request the pattern requested
+     * @param response the pattern returned
+     */
+    synchronized void peeked(final CharSequence request, final CharSequence response) {
+        ensure(1);
+        batch.put(PEEK);
+        pattern(request);
+        pattern(response);
+    }
+
+    /**
+     * Record a poke.
+     * @param pattern the pattern poked
+     */
+    synchronized void poked(final CharSequence pattern) {
+        ensure(1);
+        batch.put(POKE);
+        pattern(pattern);
+    }
+
+    /**
+     * Write all batched records to the file.
+     * @throws IOException if writing fails
+     */
+    public synchronized void flush() throws IOException {
+        batch.flip();
+        try {
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+        } finally {
+            batch.compact();
+        }
+    }
+
+    /**
+     * Write all batched records and close the file.
+     * @throws IOException if writing or closing fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Append a pattern, packed if it only holds pattern characters.
+     * @param pattern the pattern, possibly null
+     */
+    private void pattern(final CharSequence pattern) {
+        if (pattern == null) {
+            ensure(4);
+            batch.putInt(NULL_PATTERN);
+            return;
+        }
+        int length = pattern.length();
+        boolean packable = true;
+        for (int i = 0; i < length && packable; i++) {
+            packable = CODES.indexOf(pattern.charAt(i)) >= 0;
+        }
+        if (packable) {
+            ensure(4);
+            batch.putInt(length);
+            for (int i = 0; i < length; i += 4) {
+                int packed = 0;
+                for (int j = i; j < Math.min(length, i + 4); j++) {
+                    packed |= CODES.indexOf(pattern.charAt(j)) << (2 * (j - i));
+                }
+                ensure(1);
+                batch.put((byte) packed);
+            }
+        } else {
+            ensure(8);
+            batch.putInt(RAW_PATTERN).putInt(length);
+            for (int i = 0; i < length; i++) {
+                ensure(2);
+                batch.putChar(pattern.charAt(i));
+            }
+        }
+    }
+
+    /**
+     * Make room in the batch, writing it out if necessary.
+     * @param bytes number of bytes about to be appended; at most the batch size
+     */
+    private void ensure(final int bytes) {
+        if (batch.remaining() < bytes) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
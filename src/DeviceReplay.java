@@ -0,0 +1,164 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A device recording opened for replay.
+ * <p>
+ *     The file is memory-mapped and indexed by device on open; each {@link #device(int)} call returns a
+ *     fresh {@link ReplayDevice} that answers from the mapped records, so a recording can be replayed any
+ *     number of times, from any number of threads, at memory speed.
+ * </p>
+ * @version 1.0
+ * @see DeviceRecorder
+ */
+public final class DeviceReplay {
+    /** Mapped recording. */
+    private final ByteBuffer buffer;
+
+    /** Offset of each device's first operation. */
+    private final int[] starts;
+
+    /** Offset just past each device's last operation. */
+    private final int[] ends;
+
+    /** Geometry of each device. */
+    private final DeviceGeometry[] geometries;
+
+    /**
+     * Index a recording.
+     * @param buffer recording contents, starting at the header
+     * @throws IOException if the contents are not a well-formed recording
+     */
+    private DeviceReplay(final ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < DeviceRecorder.HEADER_BYTES || buffer.getInt(0) != DeviceRecorder.MAGIC) {
+            throw new IOException("not a device recording");
+        }
+        if (buffer.getShort(4) != DeviceRecorder.VERSION) {
+            throw new IOException("unsupported device recording version " + buffer.getShort(4));
+        }
+        int[] found = new int[16];
+        int[] finished = new int[16];
+        DeviceGeometry[] shapes = new DeviceGeometry[16];
+        int count = 0;
+        int position = DeviceRecorder.HEADER_BYTES;
+        while (position < buffer.capacity()) {
+            byte op = buffer.get(position);
+            if (op == DeviceRecorder.DEVICE) {
+                if (position + 9 > buffer.capacity()) {
+                    throw new IOException("truncated device record at " + position);
+                }
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, found.length * 2);
+                    finished = Arrays.copyOf(finished, finished.length * 2);
+                    shapes = Arrays.copyOf(shapes, shapes.length * 2);
+                }
+                if (count > 0) {
+                    finished[count - 1] = position;
+                }
+                try {
+                    shapes[count] = new DeviceGeometry(buffer.getInt(position + 1), buffer.getInt(position + 5));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("corrupt device record at " + position, e);
+                }
+                found[count++] = position + 9;
+                position += 9;
+            } else if (count == 0) {
+                throw new IOException("operation before the first device at " + position);
+            } else {
+                position = skip(buffer, position);
+            }
+        }
+        if (count > 0) {
+            finished[count - 1] = buffer.capacity();
+        }
+        this.starts = Arrays.copyOf(found, count);
+        this.ends = Arrays.copyOf(finished, count);
+        this.geometries = Arrays.copyOf(shapes, count);
+    }
+
+    /**
+     * Memory-map a recording file read-only.
+     * @param file the recording file
+     * @return the indexed recording
+     * @throws IOException if the file cannot be read or is not a well-formed recording
+     */
+    public static DeviceReplay open(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new DeviceReplay(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Number of devices in the recording.
+     * @return device count
+     */
+    public int deviceCount() {
+        return geometries.length;
+    }
+
+    /**
+     * A device replaying the recorded answers of one recorded device.
+     * @param index device number, in recording order
+     * @return a new replay device, positioned at the device's first operation
+     */
+    public ReplayDevice device(final int index) {
+        ByteBuffer records = buffer.duplicate();
+        records.limit(ends[index]).position(starts[index]);
+        return new ReplayDevice(records.slice(), geometries[index], index);
+    }
+
+    /**
+     * Offset just past one record.
+     * @param buffer recording contents
+     * @param position offset of the record's operation byte
+     * @return offset of the next record
+     * @throws IOException if the record is malformed or truncated
+     */
+    private static int skip(final ByteBuffer buffer, final int position) throws IOException {
+        try {
+            byte op = buffer.get(position);
+            switch (op) {
+                case DeviceRecorder.SPIN_LOCKED:
+                case DeviceRecorder.SPIN_UNLOCKED:
+                    return position + 1;
+                case DeviceRecorder.PEEK:
+                    return skipPattern(buffer, skipPattern(buffer, position + 1));
+                case DeviceRecorder.POKE:
+                    return skipPattern(buffer, position + 1);
+                default:
+                    throw new IOException("unknown record " + op + " at " + position);
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("truncated record at " + position, e);
+        }
+    }
+
+    /**
+     * Offset just past a stored pattern.
+     * @param buffer recording contents
+     * @param position offset of the pattern's length
+     * @return offset after the pattern
+     * @throws IOException if the pattern runs past the end of the recording
+     */
+    private static int skipPattern(final ByteBuffer buffer, final int position) throws IOException {
+        int length = buffer.getInt(position);
+        long end;
+        if (length == DeviceRecorder.NULL_PATTERN) {
+            end = position + 4L;
+        } else if (length == DeviceRecorder.RAW_PATTERN) {
+            int stored = buffer.getInt(position + 4);
+            end = stored < 0 ? Long.MAX_VALUE : position + 8L + 2L * stored;
+        } else {
+            end = position + 4L + (length + 3L) / 4;
+        }
+        if (end > buffer.limit() || length < DeviceRecorder.RAW_PATTERN) {
+            throw new IOException("truncated pattern at " + position);
+        }
+        return (int) end;
+    }
+}
@@ -0,0 +1,403 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Hosts {@link TestingDevice}s behind the {@link DeviceProtocol} on a loopback port, as a stand-in for a
+ * remote device gateway.
+ * <p>
+ *     A single thread serves every connection through a selector: it reads whatever requests have
+ *     arrived, performs them in order and queues the responses, writing as much as each connection
+ *     accepts. Devices belong to the server, not to a connection, so a client may reach a device over
+ *     any of its pooled connections.
+ * </p>
+ * @version 1.0
+ * @see DeviceClient
+ */
+public final class DeviceServer implements Closeable {
+    /** Initial size of each connection's buffers. */
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    /** Readiness of the listening socket and the connections. */
+    private final Selector selector;
+
+    /** Listening socket. */
+    private final ServerSocketChannel listener;
+
+    /** Thread running the selector loop. */
+    private final Thread loop;
+
+    /** Hosted devices by id; only touched by the loop thread. */
+    private final Map<Integer, TestingDevice> devices = new HashMap<>();
+
+    /** Id of the next device created. */
+    private int nextDevice = 1;
+
+    /** Number of devices hosted, readable from any thread. */
+    private volatile int deviceCount;
+
+    /** Set by {@link #close()} to end the selector loop, which alone closes the channels and the selector. */
+    private volatile boolean stopping;
+
+    /** First failure of the selector loop to close a channel or the selector, rethrown by {@link #close()}. */
+    private IOException closeFailure;
+
+    /**
+     * Start a server on an ephemeral loopback port.
+     * @throws IOException if the port cannot be opened
+     */
+    public DeviceServer() throws IOException {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    /**
+     * Start a server.
+     * @param address where to listen
+     * @throws IOException if the address cannot be bound
+     */
+    public DeviceServer(final InetSocketAddress address) throws IOException {
+        this.selector = Selector.open();
+        this.listener = ServerSocketChannel.open();
+        try {
+            listener.bind(address);
+            listener.configureBlocking(false);
+            listener.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            listener.close();
+            selector.close();
+            throw e;
+        }
+        this.loop = new Thread(this::serve, "device-server-" + port());
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    /**
+     * Address the server listens on.
+     * @return the bound address
+     */
+    public InetSocketAddress address() {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), port());
+    }
+
+    /**
+     * Port the server listens on.
+     * @return the bound port
+     */
+    public int port() {
+        return listener.socket().getLocalPort();
+    }
+
+    /**
+     * Number of devices currently hosted.
+     * @return devices created and not released
+     */
+    public int deviceCount() {
+        return deviceCount;
+    }
+
+    /**
+     * Stop serving, and wait for the selector loop to close every connection, the listening socket and the
+     * selector. Closing again does nothing.
+     * @throws IOException if closing any of them failed
+     */
+    @Override
+    public void close() throws IOException {
+        stopping = true;
+        selector.wakeup();
+        boolean interrupted = false;
+        while (loop.isAlive() && Thread.currentThread() != loop) {
+            try {
+                loop.join();
+            } catch (InterruptedException e) {
+                // the connections must be closed before returning
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (closeFailure != null) {
+            throw closeFailure;
+        }
+    }
+
+    /**
+     * Selector loop, run until the server is closed; then closes the listening socket, every connection
+     * and the selector.
+     */
+    private void serve() {
+        try {
+            while (!stopping) {
+                selector.select();
+                Iterator<SelectionKey> ready = selector.selectedKeys().iterator();
+                while (ready.hasNext()) {
+                    SelectionKey key = ready.next();
+                    ready.remove();
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            if (key.isReadable()) {
+                                read(key);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                write(key);
+                            }
+                        }
+                    } catch (IOException e) {
+                        key.cancel();
+                        key.channel().close();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // the selector failed; stop serving
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key.channel());
+            }
+            closeQuietly(listener);
+            closeQuietly(selector);
+        }
+    }
+
+    /**
+     * Close something on the loop thread, keeping the first failure for {@link #close()}.
+     * @param closeable what to close
+     */
+    private void closeQuietly(final Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            if (closeFailure == null) {
+                closeFailure = e;
+            }
+        }
+    }
+
+    /**
+     * Accept a pending connection.
+     * @throws IOException if accepting fails
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = listener.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.register(selector, SelectionKey.OP_READ, new Connection());
+        }
+    }
+
+    /**
+     * Read what has arrived on a connection and answer every complete request.
+     * @param key the connection's key
+     * @throws IOException if reading fails or the peer sent a malformed frame
+     */
+    private void read(final SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        SocketChannel channel = (SocketChannel) key.channel();
+        if (channel.read(connection.in) < 0) {
+            throw new IOException("closed by peer");
+        }
+        ByteBuffer in = connection.in;
+        in.flip();
+        while (in.remaining() >= DeviceProtocol.LENGTH_BYTES) {
+            int length = in.getInt(in.position());
+            if (length < DeviceProtocol.REQUEST_HEADER_BYTES || length > DeviceProtocol.MAX_FRAME_BYTES) {
+                throw new IOException("bad frame length " + length);
+            }
+            if (in.remaining() < DeviceProtocol.LENGTH_BYTES + length) {
+                break;
+            }
+            int end = in.position() + DeviceProtocol.LENGTH_BYTES + length;
+            ByteBuffer frame = in.duplicate();
+            frame.position(in.position() + DeviceProtocol.LENGTH_BYTES).limit(end);
+            answer(frame.slice(), connection);
+            in.position(end);
+        }
+        in.compact();
+        if (!in.hasRemaining()) {
+            connection.in = grow(in, in.capacity() * 2);
+        }
+        write(key);
+    }
+
+    /**
+     * Write queued responses, and ask to be told when the connection accepts more if some remain.
+     * @param key the connection's key
+     * @throws IOException if writing fails
+     */
+    private void write(final SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        connection.out.flip();
+        try {
+            ((SocketChannel) key.channel()).write(connection.out);
+        } finally {
+            connection.out.compact();
+        }
+        key.interestOps(connection.out.position() > 0
+                ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    /**
+     * Perform one request and queue its response.
+     * @param frame the request, without its length
+     * @param connection where to queue the response
+     */
+    private void answer(final ByteBuffer frame, final Connection connection) {
+        int requestId = frame.getInt();
+        byte op = frame.get();
+        int deviceId = frame.getInt();
+        connection.response.clear();
+        try {
+            perform(op, deviceId, frame, connection);
+        } catch (RuntimeException e) {
+            byte[] message = DeviceProtocol.messageBytes(e instanceof BufferUnderflowException
+                    ? "truncated request" : e.toString());
+            connection.response.clear();
+            connection.room(3 + message.length).put(DeviceProtocol.FAILED).putShort((short) message.length).put(message);
+        }
+        connection.queue(requestId);
+    }
+
+    /**
+     * Perform one request.
+     * @param op operation
+     * @param deviceId device addressed
+     * @param request request payload
+     * @param connection where to write the status and response payload
+     */
+    private void perform(final byte op, final int deviceId, final ByteBuffer request, final Connection connection) {
+        if (op == DeviceProtocol.CREATE) {
+            TestingDevice dev = new TestingDevice(request.getInt(), request.getInt());
+            int id = nextDevice++;
+            devices.put(id, dev);
+            deviceCount = devices.size();
+            connection.room(5).put(DeviceProtocol.OK).putInt(id);
+            return;
+        }
+        TestingDevice dev = devices.get(deviceId);
+        if (dev == null) {
+            throw new IllegalArgumentException("no device " + deviceId);
+        }
+        switch (op) {
+            case DeviceProtocol.SPIN:
+                connection.room(2).put(DeviceProtocol.OK).put((byte) (dev.spin() ? 1 : 0));
+                break;
+            case DeviceProtocol.PEEK:
+                CharSequence peeked = dev.peek(DeviceProtocol.getPattern(request));
+                DeviceProtocol.putPattern(connection.room(1 + DeviceProtocol.patternBytes(peeked)).put(DeviceProtocol.OK), peeked);
+                break;
+            case DeviceProtocol.POKE:
+                dev.poke(DeviceProtocol.getPattern(request));
+                connection.room(1).put(DeviceProtocol.OK);
+                break;
+            case DeviceProtocol.BATCH:
+                batch(dev, request, connection);
+                break;
+            case DeviceProtocol.RELEASE:
+                devices.remove(deviceId);
+                deviceCount = devices.size();
+                connection.room(1).put(DeviceProtocol.OK);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown op " + op);
+        }
+    }
+
+    /**
+     * Perform a command batch and write its answers.
+     * @param dev the device
+     * @param request the batch
+     * @param connection where to write the status and answers
+     */
+    private static void batch(final TestingDevice dev, final ByteBuffer request, final Connection connection) {
+        DeviceCommandBatch batch = new DeviceCommandBatch(request.get() != 0);
+        int count = request.getInt();
+        for (int i = 0; i < count; i++) {
+            byte op = request.get();
+            if (op == DeviceProtocol.SPIN) {
+                batch.spin();
+            } else if (op == DeviceProtocol.PEEK) {
+                batch.peek(DeviceProtocol.getPattern(request));
+            } else if (op == DeviceProtocol.POKE) {
+                batch.poke(DeviceProtocol.getPattern(request));
+            } else {
+                throw new IllegalArgumentException("unknown batch op " + op);
+            }
+        }
+        batch.executeSequentially(dev);
+        connection.room(5).put(DeviceProtocol.OK).putInt(batch.executed());
+        for (int i = 0; i < batch.executed(); i++) {
+            if (batch.command(i) == DeviceCommandBatch.Command.SPIN) {
+                connection.room(1).put((byte) (batch.spinResult(i) ? 1 : 0));
+            } else if (batch.command(i) == DeviceCommandBatch.Command.PEEK) {
+                CharSequence peeked = batch.peekResult(i);
+                DeviceProtocol.putPattern(connection.room(DeviceProtocol.patternBytes(peeked)), peeked);
+            }
+        }
+    }
+
+    /**
+     * Copy a buffer's contents into a larger one.
+     * @param buffer the buffer, in write mode
+     * @param capacity new capacity
+     * @return the larger buffer, in write mode
+     */
+    private static ByteBuffer grow(final ByteBuffer buffer, final int capacity) {
+        ByteBuffer larger = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    /**
+     * Buffers of one connection.
+     */
+    private static final class Connection {
+        /** Bytes received and not yet answered, in write mode. */
+        private ByteBuffer in = ByteBuffer.allocate(BUFFER_BYTES);
+
+        /** Responses not yet written, in write mode. */
+        private ByteBuffer out = ByteBuffer.allocate(BUFFER_BYTES);
+
+        /** Status and payload of the response being built, in write mode. */
+        private ByteBuffer response = ByteBuffer.allocate(BUFFER_BYTES);
+
+        /**
+         * Make room in the response being built.
+         * @param bytes bytes about to be written
+         * @return the response buffer, with at least that many bytes remaining
+         */
+        ByteBuffer room(final int bytes) {
+            if (response.remaining() < bytes) {
+                response = grow(response, Math.max(response.capacity() * 2, response.position() + bytes));
+            }
+            return response;
+        }
+
+        /**
+         * Frame the response built and queue it for writing.
+         * @param requestId id of the request answered
+         */
+        void queue(final int requestId) {
+            response.flip();
+            int length = Integer.BYTES + response.remaining();
+            if (out.remaining() < DeviceProtocol.LENGTH_BYTES + length) {
+                out = grow(out, Math.max(out.capacity() * 2, out.position() + DeviceProtocol.LENGTH_BYTES + length));
+            }
+            out.putInt(length).putInt(requestId).put(response);
+        }
+    }
+}
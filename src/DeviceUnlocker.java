@@ -1,3 +1,12 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
 /**
  * Provides for unlocking resource-control devices.
  *
@@ -11,27 +20,253 @@ public abstract class DeviceUnlocker {
      * Unlocks a device-controlled resource.
      * This method must be guaranteed to halt, regardless of
      * whether or not it successfully unlocked the resource.
+     * Each device is unlocked by the strategy {@link UnlockStrategies}
+     * chooses for its geometry: out of the box, the dedicated strategy
+     * for default 4-bit/2-disclosure devices and the generalized one for
+     * devices reporting any other geometry.
      * @param dev the device controlling the resource to unlock
      * @return true if the resource is unlocked (all bits in the
      *         device are now identical); false otherwise
+     * @see GeometryAware
+     * @see UnlockStrategy
      */
     public static boolean unlock(final Device dev) {
-        return FourBitTwoDisclosureDeviceUnlocker.unlock(dev);
+        return unlockWithResult(dev).unlocked();
+    }
+
+    /**
+     * Unlocks a device-controlled resource, reporting how.
+     * Chooses a strategy the same way as {@link #unlock(Device)}.
+     * @param dev the device controlling the resource to unlock
+     * @return whether the resource is unlocked, why the unlock stopped, and the operations and time it took
+     */
+    public static UnlockResult unlockWithResult(final Device dev) {
+        if (dev == null) {
+            return finish(false, UnlockResult.Termination.REJECTED, 0, 0, 0, System.nanoTime());
+        }
+        return UnlockStrategies.forGeometry(DeviceGeometry.of(dev)).unlock(dev);
+    }
+
+    /**
+     * Unlocks a device-controlled resource within a budget.
+     * Halts at the latest at the first device operation past the budget.
+     * @param dev the device controlling the resource to unlock
+     * @param budget the operations and time allowed, and the switch to cancel the unlock
+     * @return true if the resource is unlocked (all bits in the
+     *         device are now identical); false otherwise
+     */
+    public static boolean unlock(final Device dev, final UnlockBudget budget) {
+        return unlockWithResult(dev, budget).unlocked();
+    }
+
+    /**
+     * Unlocks a device-controlled resource within a budget, reporting how.
+     * Chooses a strategy the same way as {@link #unlock(Device)}, and checks
+     * the budget before every spin, peek and poke the strategy requests.
+     * @param dev the device controlling the resource to unlock
+     * @param budget the operations and time allowed, and the switch to cancel the unlock
+     * @return whether the resource is unlocked, why the unlock stopped, and the operations and time it took;
+     *         LIMIT_REACHED or CANCELLED, with the operations performed so far, if the budget stopped it
+     */
+    public static UnlockResult unlockWithResult(final Device dev, final UnlockBudget budget) {
+        long start = System.nanoTime();
+        if (dev == null) {
+            return finish(false, UnlockResult.Termination.REJECTED, 0, 0, 0, start);
+        }
+        GuardedDevice guard = GuardedDevice.of(dev);
+        guard.start(budget);
+        try {
+            return UnlockStrategies.forGeometry(guard.geometry()).unlock(guard);
+        } catch (CancellationException e) {
+            return guard.stopped(guard.exhausted()
+                    ? UnlockResult.Termination.LIMIT_REACHED : UnlockResult.Termination.CANCELLED, start);
+        }
+    }
+
+    /**
+     * Opt-in calibration: measures every strategy registered for a geometry
+     * on a short simulated workload, or reuses the winner recorded on disk by
+     * an earlier calibration, and makes the cheapest one the strategy used
+     * for devices of that geometry from now on. Assumes every device
+     * operation costs the same; use a {@link StrategyCalibrator} directly to
+     * weigh spins, peeks and pokes differently.
+     * @param geometry the geometry of the devices to be unlocked
+     * @return the strategy now used for the geometry
+     */
+    public static UnlockStrategy calibrate(final DeviceGeometry geometry) {
+        return new StrategyCalibrator().calibrate(geometry);
+    }
+
+    /**
+     * Unlocks many devices in parallel on the common fork/join pool.
+     * @param devices the devices to unlock; null elements yield REJECTED results
+     * @return one result per device, in the collection's iteration order
+     */
+    public static List<UnlockResult> unlockAll(final Collection<? extends Device> devices) {
+        return unlockAll(devices, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Unlocks many devices in parallel on a dedicated fork/join pool of the given parallelism,
+     * which is shut down before returning.
+     * @param devices the devices to unlock; null elements yield REJECTED results
+     * @param parallelism number of worker threads
+     * @return one result per device, in the collection's iteration order
+     */
+    public static List<UnlockResult> unlockAll(final Collection<? extends Device> devices, final int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return unlockAll(devices, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Unlocks many devices in parallel on a fork/join pool. Each worker thread unlocks through its own
+     * sessions, and idle workers steal halves of the remaining ranges from busy ones.
+     * @param devices the devices to unlock; null elements yield REJECTED results
+     * @param pool the pool to run on
+     * @return one result per device, in the collection's iteration order
+     */
+    public static List<UnlockResult> unlockAll(final Collection<? extends Device> devices, final ForkJoinPool pool) {
+        Device[] work = devices.toArray(new Device[0]);
+        UnlockResult[] results = new UnlockResult[work.length];
+        if (work.length > 0) {
+            // a few leaves per worker keeps stealing effective without paying for a task per device
+            int leaf = Math.max(1, work.length / (pool.getParallelism() * 8));
+            pool.invoke(new UnlockAllTask(work, results, 0, work.length, leaf));
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    /**
+     * Unlocks a stream of devices in parallel, as the stream is consumed.
+     * Parallel streams run on the common fork/join pool, or on the pool of the task consuming them.
+     * @param devices the devices to unlock; null elements yield REJECTED results
+     * @return a parallel stream of results; ordered like the devices if they were ordered
+     */
+    public static Stream<UnlockResult> unlockAll(final Stream<? extends Device> devices) {
+        return devices.parallel().map(DeviceUnlocker::unlockWithResult);
+    }
+
+    /**
+     * Unlocks a range of devices, splitting it in halves until it is small enough to run sequentially.
+     */
+    private static final class UnlockAllTask extends RecursiveAction {
+        /** Serialization version. */
+        private static final long serialVersionUID = 1L;
+        /** All devices of the batch. */
+        private final Device[] devices;
+        /** Results of the batch, by device index. */
+        private final UnlockResult[] results;
+        /** First device of the range. */
+        private final int from;
+        /** End of the range, exclusive. */
+        private final int to;
+        /** Largest range run without splitting. */
+        private final int leaf;
+
+        /**
+         * Prepare to unlock a range.
+         * @param devices all devices of the batch
+         * @param results results of the batch, by device index
+         * @param from first device of the range
+         * @param to end of the range, exclusive
+         * @param leaf largest range run without splitting
+         */
+        UnlockAllTask(final Device[] devices, final UnlockResult[] results, final int from, final int to, final int leaf) {
+            this.devices = devices;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leaf) {
+                for (int i = from; i < to; i++) {
+                    results[i] = unlockWithResult(devices[i]);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new UnlockAllTask(devices, results, from, middle, leaf),
+                        new UnlockAllTask(devices, results, middle, to, leaf));
+            }
+        }
+    }
+
+    /**
+     * Restart the session's random choices from a seed, so that the next unlock of a device repeats exactly
+     * whenever it follows the same reseed. Sessions that make no random choice ignore it.
+     * @param seed seed of the session's random choices
+     */
+    void reseed(final long seed) {
+    }
+
+    /** Marks threads whose unlocks are kept out of the process-wide metrics; unset on every other thread. */
+    private static final ThreadLocal<Boolean> UNRECORDED = new ThreadLocal<>();
+
+    /**
+     * Choose whether unlocks that finish on the calling thread are recorded in the process-wide metrics.
+     * Simulations switch recording off, so that synthetic unlocks neither swamp the counts of real ones
+     * nor pay for updating them inside the time they measure.
+     * @param recorded false to stop recording on the calling thread, true to resume
+     * @return whether unlocks on the calling thread were recorded before, to restore when done
+     */
+    static boolean record(final boolean recorded) {
+        boolean before = UNRECORDED.get() == null;
+        if (recorded) {
+            UNRECORDED.remove();
+        } else {
+            UNRECORDED.set(Boolean.TRUE);
+        }
+        return before;
+    }
+
+    /**
+     * Utility to conclude an unlock: builds its result and records it in the process-wide metrics, unless
+     * the calling thread has switched {@link #record(boolean) recording} off.
+     * @param unlocked whether the device ended unlocked
+     * @param termination why the unlock stopped
+     * @param spins number of spins requested
+     * @param peeks number of peeks requested
+     * @param pokes number of pokes requested
+     * @param startNanos {@link System#nanoTime()} when the unlock started
+     * @return the result
+     */
+    protected static UnlockResult finish(final boolean unlocked, final UnlockResult.Termination termination,
+                                         final long spins, final long peeks, final long pokes, final long startNanos) {
+        return recorded(new UnlockResult(unlocked, termination, spins, peeks, pokes, System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Record the result of an unlock that ended on the calling thread in the process-wide metrics, unless
+     * the thread has switched {@link #record(boolean) recording} off.
+     * @param result the result
+     * @return the result
+     */
+    static UnlockResult recorded(final UnlockResult result) {
+        if (UNRECORDED.get() == null) {
+            UnlockMetrics.global().record(result);
+        }
+        return result;
     }
 
-    /** Establish a string for tracing progress. */
-    private static String trace = "";
+    /** Establish a per-thread buffer for tracing progress. */
+    private static final ThreadLocal<StringBuilder> TRACE = ThreadLocal.withInitial(StringBuilder::new);
 
     /**
-     * Utility to append a line to the trace.
+     * Utility to append a line to the calling thread's trace.
      * @param message the line to append;
      *                if null, the trace is reset to empty
      */
     protected static void log(final String message) {
         if (message == null) {
-            trace = "";
+            TRACE.get().setLength(0);
         } else {
-            trace += message + "\n";
+            TRACE.get().append(message).append('\n');
         }
     }
 
@@ -40,6 +275,6 @@ public abstract class DeviceUnlocker {
      * @return rendering of steps in the unlock process
      */
     public static String showTrace() {
-        return trace;
+        return TRACE.get().toString();
     }
 }
\ No newline at end of file
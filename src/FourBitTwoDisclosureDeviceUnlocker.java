@@ -1,5 +1,5 @@
-import java.util.ArrayList;
-import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Solution development for 4-bit/2-disclosure device.
@@ -20,6 +20,9 @@ public class FourBitTwoDisclosureDeviceUnlocker extends DeviceUnlocker {
     /**char representing false in device.**/
     private static final char FALSE = 'F';
 
+    /**char requesting a bit in a peek pattern.**/
+    private static final char REQUEST = '?';
+
     /**State before device is created, spun, poked, or peeked. */
     private static final int STATE_NOT_CREATED = 0;
 
@@ -36,18 +39,18 @@ public class FourBitTwoDisclosureDeviceUnlocker extends DeviceUnlocker {
     private static final int STATE_POKED = 4;
 
     /**Holds the state of the unlock.*/
-    private static int state = STATE_NOT_CREATED;
+    private int state = STATE_NOT_CREATED;
 
     /**
-     * Static device to unlock.
+     * Device this session is unlocking.
      */
-    private static Device dev;
+    private Device dev;
 
     /** Pattern requested from doPeek. */
-    private static CharSequence peekedPattern = null;
+    private CharSequence peekedPattern = null;
 
     /** Char we are changing device bits to default to 'T'.*/
-    private static char changeBitTo = TRUE;
+    private char changeBitTo = TRUE;
 
     /** Number of Bits for Device. */
     private static final int NUM_OF_BITS = 4;
@@ -55,29 +58,178 @@ public class FourBitTwoDisclosureDeviceUnlocker extends DeviceUnlocker {
     /** Number of bits that are disclosed.*/
     private static final int NUM_OF_BITS_DISCLOSED = 2;
 
+    /** Geometry of the devices this strategy unlocks. */
+    private static final DeviceGeometry GEOMETRY = new DeviceGeometry(NUM_OF_BITS, NUM_OF_BITS_DISCLOSED);
+
+    /** Every valid peek pattern, walked as bit masks. */
+    private static final PeekPatterns PATTERNS = new PeekPatterns(NUM_OF_BITS, NUM_OF_BITS_DISCLOSED);
+
+    /** Number of spins requested during the current unlock. */
+    private long spins;
+
+    /** Number of peeks requested during the current unlock. */
+    private long peeks;
+
+    /** Number of pokes requested during the current unlock. */
+    private long pokes;
+
+    /** Operations queued for the device's next round trip. */
+    private final DeviceCommandBatch batch = new DeviceCommandBatch(true);
+
     /** Log of all SPIN/PEEK/POKE actions performed. */
-    private static StringBuilder traceLog = new StringBuilder();
+    private final UnlockTrace traceLog = new UnlockTrace();
+
+    /**
+     * Source of the random spin counts.
+     */
+    private SplittableRandom random;
+
+    /** Records strategy table steps in the trace log, in the same form as the heuristic's own steps. */
+    private final StrategyTableExecutor.Listener tracer = new StrategyTableExecutor.Listener() {
+        @Override
+        public void spun(final boolean unlocked) {
+            spins++;
+            traceLog.spin(unlocked);
+        }
+
+        @Override
+        public void peeked(final CharSequence request, final CharSequence response) {
+            peeks++;
+            traceLog.peek(request);
+            peekedPattern = response;
+            traceLog.peeked(response);
+        }
+
+        @Override
+        public void poked(final CharSequence pattern) {
+            pokes++;
+            traceLog.poke(pattern);
+        }
+    };
+
+    /**
+     * Per-thread unlock session used by the static entry points, so concurrent
+     * callers never share device, state, or trace.
+     */
+    private static final ThreadLocal<FourBitTwoDisclosureDeviceUnlocker> SESSION =
+            ThreadLocal.withInitial(FourBitTwoDisclosureDeviceUnlocker::new);
+
+    /**
+     * Create an unlock session. A session may be reused for any number of
+     * sequential unlocks, but must not be shared between threads while an
+     * unlock is in progress.
+     */
+    public FourBitTwoDisclosureDeviceUnlocker() {
+        this(new SplittableRandom(ThreadLocalRandom.current().nextLong()));
+    }
+
+    /**
+     * Create an unlock session that draws its random spin counts from a
+     * generator, so that a seeded generator repeats the same unlocks on the
+     * same devices.
+     * @param random source of the random spin counts, owned by the session from now on
+     */
+    public FourBitTwoDisclosureDeviceUnlocker(final SplittableRandom random) {
+        this.random = random;
+    }
+
+    @Override
+    void reseed(final long seed) {
+        random = new SplittableRandom(seed);
+    }
 
     /**
      * Unlocks a resource controlled by a 4-bit/2-disclosed device. Behavior is unspecified if parameter is not a reference to a valid 4-bit/2-disclosure device.
+     * Safe to call from many threads at once; each thread unlocks through its own session.
      * @param dev the device controlling the resource to unlock; must be a 4-bit device with 2 peek/poke bits.
      * @return true if the resource is unlocked (all bits in the device are now identical); false otherwise
      */
     public static boolean unlock(final Device dev) {
+        return SESSION.get().unlockDevice(dev);
+    }
+
+    /**
+     * Unlocks a resource controlled by a 4-bit/2-disclosed device, reporting how.
+     * Safe to call from many threads at once; each thread unlocks through its own session.
+     * @param dev the device controlling the resource to unlock; must be a 4-bit device with 2 peek/poke bits.
+     * @return whether the resource is unlocked, why the unlock stopped, and the operations and time it took
+     */
+    public static UnlockResult unlockWithResult(final Device dev) {
+        return SESSION.get().unlockDeviceWithResult(dev);
+    }
+
+    /**
+     * Unlocks a resource controlled by a 4-bit/2-disclosed device using this session's state.
+     * Follows the 4/2 strategy table, which unlocks any such device within six spins; if tables are
+     * disabled or unavailable, or the device contradicts the table, falls back to the pattern-walking heuristic.
+     * @param dev the device controlling the resource to unlock; must be a 4-bit device with 2 peek/poke bits.
+     * @return true if the resource is unlocked (all bits in the device are now identical); false otherwise
+     */
+    public boolean unlockDevice(final Device dev) {
+        return unlockDeviceWithResult(dev).unlocked();
+    }
+
+    /**
+     * Unlocks a resource controlled by a 4-bit/2-disclosed device using this session's state, reporting how.
+     * @param dev the device controlling the resource to unlock; must be a 4-bit device with 2 peek/poke bits.
+     * @return whether the resource is unlocked, why the unlock stopped, and the operations and time it took
+     */
+    public UnlockResult unlockDeviceWithResult(final Device dev) {
+        long start = System.nanoTime();
+        spins = 0;
+        peeks = 0;
+        pokes = 0;
         if (dev == null) {
-            return false;
+            return finish(false, UnlockResult.Termination.REJECTED, 0, 0, 0, start);
         } else {
             state = STATE_CREATED;
         }
-        clearTrace();
-        FourBitTwoDisclosureDeviceUnlocker.dev = dev;
+        traceLog.begin();
+        this.dev = dev;
+        // an unlock stopped by its budget can leave commands behind
+        batch.clear();
+        peekedPattern = null;
+        changeBitTo = TRUE;
+        // the table needs every answer before its next step; a batching device is better served by whole passes
+        StrategyTableExecutor executor = StrategyTables.enabled() && !(dev instanceof BatchingDevice)
+                ? StrategyTables.forGeometry(GEOMETRY) : null;
+        UnlockResult.Termination termination;
+        if (executor != null && executor.execute(dev, tracer)) {
+            termination = UnlockResult.Termination.DETERMINISTIC_PASS;
+            state = STATE_SPUN;
+        } else {
+            // the table unlocks every consistent 4/2 device, so failing means the device contradicted it;
+            // the heuristic assumes nothing about how the device rotates
+            termination = unlockHeuristically();
+        }
+        boolean isUnlocked = termination == UnlockResult.Termination.DETERMINISTIC_PASS
+                || termination == UnlockResult.Termination.RANDOM_FALLBACK;
+        if (isUnlocked) {
+            traceLog.unlocked();
+        }
+        return finish(isUnlocked, termination, spins, peeks, pokes, start);
+    }
+
+    /**
+     * Unlocks the session's device by walking every disclosure pattern with growing spin counts,
+     * then falling back to random spins. Used when no strategy table is available.
+     * @return DETERMINISTIC_PASS or RANDOM_FALLBACK after the phase that unlocked the device; BUDGET_EXHAUSTED if neither did
+     */
+    private UnlockResult.Termination unlockHeuristically() {
         boolean isUnlocked = doSpin();
-        List<CharSequence> perms = getPermutations();
         int n = 1;
+        while ((!isUnlocked) && (n <= NUM_OF_BITS) && dev instanceof BatchingDevice) {
+            // always poking makes the pass independent of its answers, so it costs one round trip
+            for (long mask = PATTERNS.first(); mask != PeekPatterns.NONE; mask = PATTERNS.nextByPosition(mask)) {
+                queueStep(mask, n);
+            }
+            isUnlocked = sendBatch();
+            n++;
+        }
         while ((!isUnlocked) && (n <= NUM_OF_BITS)) {
-            for (CharSequence perm : perms) {
-                doPeek(perm);
-                if (!peekedPattern.equals(perm.toString().replace("?", String.valueOf(changeBitTo)))) {
+            for (long mask = PATTERNS.first(); mask != PeekPatterns.NONE; mask = PATTERNS.nextByPosition(mask)) {
+                doPeek(mask);
+                if (!isPeekedAsTarget(mask)) {
                     doPoke();
                 }
                 isUnlocked = doSpin(n);
@@ -87,35 +239,50 @@ public class FourBitTwoDisclosureDeviceUnlocker extends DeviceUnlocker {
             }
             n++;
         }
-        if (!isUnlocked) {
+        if (isUnlocked) {
+            return UnlockResult.Termination.DETERMINISTIC_PASS;
+        } else {
             n = NUM_OF_BITS;
             while (n > 0) {
-                for (CharSequence perm : perms) {
-                    doPeek(perm);
-                    doPoke();
+                // no step of a pass depends on an earlier answer, so the whole pass is one round trip
+                // that stops at the spin unlocking the device
+                for (long mask = PATTERNS.first(); mask != PeekPatterns.NONE; mask = PATTERNS.nextByPosition(mask)) {
                     // we want a random number of spins
                     // from 1 to the number of bits.
                     // 0 spins is invalid doSpin()
-                    isUnlocked = doSpin((int) Math.round(Math.random() * NUM_OF_BITS) + 1);
-                    if (isUnlocked) {
-                        break;
-                    }
+                    queueStep(mask, (int) Math.round(random.nextDouble() * NUM_OF_BITS) + 1);
                 }
+                isUnlocked = sendBatch();
                 n--;
             }
         }
-        if (isUnlocked) {
-            appendTrace("device is unlocked");
-        }
-        return isUnlocked;
+        return isUnlocked ? UnlockResult.Termination.RANDOM_FALLBACK : UnlockResult.Termination.BUDGET_EXHAUSTED;
     }
 
     /**
-     * Retrieve trace of previous unlock process.
+     * Retrieve trace of the previous unlock process performed on the calling thread.
      * @return rendering of steps in the unlock process
      */
     public static String showTrace() {
-        return traceLog.toString();
+        return SESSION.get().trace();
+    }
+
+    /**
+     * Retrieve trace of the previous unlock process performed by this session.
+     * @return rendering of steps in the unlock process
+     */
+    public String trace() {
+        return traceLog.render();
+    }
+
+    /**
+     * Settings of this session's trace, e.g. to lower its level or sample it. Sessions used by the static
+     * entry points take their settings from the {@value UnlockTrace#LEVEL_PROPERTY} and
+     * {@value UnlockTrace#SAMPLING_PROPERTY} system properties.
+     * @return the trace recorded by this session
+     */
+    public UnlockTrace traceSettings() {
+        return traceLog;
     }
 
     /**
@@ -127,20 +294,13 @@ public class FourBitTwoDisclosureDeviceUnlocker extends DeviceUnlocker {
      * @param numOfSpins number of spins requested
      * @return true if all bits are the same value. False if values are different.
      */
-    private static boolean doSpin(final int numOfSpins) {
+    private boolean doSpin(final int numOfSpins) {
         boolean result = false;
         if (isValidSpin(numOfSpins)) {
-            for (int i = 0; i < numOfSpins; i++) {
-                appendTrace("spin : performing a spin");
-                result = dev.spin();
-
-                if (result) {
-                    break;
-                }
-            }
-            state = STATE_SPUN;
+            batch.spins(numOfSpins);
+            result = sendBatch();
         } else {
-            appendTrace("doSpin : Spin is not valid");
+            traceLog.note("doSpin : Spin is not valid");
         }
 
         return result;
@@ -150,34 +310,77 @@ public class FourBitTwoDisclosureDeviceUnlocker extends DeviceUnlocker {
      * Checks current state and spins the device once.
      * @return result of spin
      */
-    private static boolean doSpin() {
+    private boolean doSpin() {
         boolean result;
         if (isValidSpin(1)) {
-            result = dev.spin();
-            appendTrace("spin : performing a spin");
-            state = STATE_SPUN;
+            batch.spin();
+            result = sendBatch();
         } else {
             result = false;
         }
         return result;
     }
 
+    /**
+     * Queues a peek of a pattern, a poke of its bits to changeBitTo and a run of spins, none of which
+     * waits for the peek's answer.
+     * @param mask the pattern to peek
+     * @param numOfSpins number of spins after the poke
+     */
+    private void queueStep(final long mask, final int numOfSpins) {
+        CharSequence request = PATTERNS.render(mask);
+        batch.peek(request).poke(getPokedPattern(request)).spins(numOfSpins);
+    }
+
+    /**
+     * Performs the queued operations in one round trip, stopping at a spin that unlocks the device,
+     * and accounts for the ones performed as if each had been requested on its own.
+     * @return true if a spin found the device unlocked
+     */
+    private boolean sendBatch() {
+        batch.execute(dev);
+        for (int i = 0; i < batch.executed(); i++) {
+            switch (batch.command(i)) {
+                case SPIN:
+                    spins++;
+                    traceLog.spin(batch.spinResult(i));
+                    state = STATE_SPUN;
+                    break;
+                case PEEK:
+                    traceLog.peek(batch.pattern(i));
+                    peeks++;
+                    peekedPattern = batch.peekResult(i);
+                    traceLog.peeked(peekedPattern);
+                    state = STATE_PEEKED;
+                    break;
+                default:
+                    traceLog.poke(batch.pattern(i));
+                    pokes++;
+                    state = STATE_POKED;
+                    break;
+            }
+        }
+        boolean result = batch.unlocked();
+        batch.clear();
+        return result;
+    }
+
     /**
      * Checks if the current state is valid. Also checks if the number of Spins
      * is greater than 0.
      * @param numOfSpins Amount of times wished to spin
      * @return if the spin call can continue
      */
-    private static boolean isValidSpin(final int numOfSpins) {
+    private boolean isValidSpin(final int numOfSpins) {
         boolean continueSpin;
         if (dev == null) {
-            appendTrace("doSpin : device is null");
+            traceLog.note("doSpin : device is null");
             continueSpin = false;
         } else if (numOfSpins <= 0) {
-            appendTrace("doSpin : Num of spins is negative, cannot spin a negative amount of times.");
+            traceLog.note("doSpin : Num of spins is negative, cannot spin a negative amount of times.");
             continueSpin = false;
         } else if (state == STATE_NOT_CREATED) {
-            appendTrace("doSpin : Invalid state for spin - no device is created");
+            traceLog.note("doSpin : Invalid state for spin - no device is created");
             continueSpin = false;
         } else {
             continueSpin = true;
@@ -197,16 +400,34 @@ public class FourBitTwoDisclosureDeviceUnlocker extends DeviceUnlocker {
      * @param pattern to view two bits
      * @return the pattern given with the '?' replaced by peeked values(T/F)
      */
-    private static CharSequence doPeek(final CharSequence pattern) {
+    private CharSequence doPeek(final CharSequence pattern) {
+        return doPeek(PATTERNS.parse(pattern), pattern);
+    }
+
+    /**
+     * Peeks at a pattern given as a mask, as the pattern walk produces it, so it is validated without
+     * being parsed back.
+     * @param mask the pattern to view two bits, as a mask
+     * @return the pattern with the '?' replaced by peeked values(T/F)
+     */
+    private CharSequence doPeek(final long mask) {
+        return doPeek(mask, PATTERNS.render(mask));
+    }
+
+    /**
+     * Peeks at a pattern once it is known both as a mask, to validate, and as characters, to send.
+     * @param mask the pattern as a mask, or {@link PeekPatterns#NONE} if it could not be read
+     * @param pattern the same pattern in the form the device accepts
+     * @return the pattern with the '?' replaced by peeked values(T/F), or the pattern itself if invalid
+     */
+    private CharSequence doPeek(final long mask, final CharSequence pattern) {
         CharSequence returnPattern;
-        if (isPeekValid(pattern)) {
-            appendTrace("peek : with pattern", pattern);
-            returnPattern = dev.peek(pattern);
-            peekedPattern = returnPattern;
-            appendTrace("return peekedPattern", returnPattern);
-            state = STATE_PEEKED;
+        if (isPeekValid(mask)) {
+            batch.peek(pattern);
+            sendBatch();
+            returnPattern = peekedPattern;
         } else {
-            appendTrace("doPeek : invalid doPeek call with bits", pattern);
+            traceLog.note("doPeek : invalid doPeek call with bits", pattern);
             returnPattern = pattern;
         }
 
@@ -215,35 +436,34 @@ public class FourBitTwoDisclosureDeviceUnlocker extends DeviceUnlocker {
 
     /**
      * Returns whether or not pattern is valid.
-     * @param pattern to validate
+     * @param mask the pattern to validate, as a mask
      * @return boolean value representing if pattern is valid
      */
-    private static boolean isPeekValid(final CharSequence pattern) {
-        boolean validLength = false;
-        boolean validRequestPattern = false;
-        boolean deviceNotNull = false;
-        if (dev != null && pattern != null) {
-            deviceNotNull = true;
-            int patternLength = pattern.length();
-            validLength = patternLength == NUM_OF_BITS;
-
-            int countOfRequestedBits = 0;
-            for (int i = 0; i < patternLength; i++) {
-                char bit = pattern.charAt(i);
-                if (bit == '?') {
-                    countOfRequestedBits++;
-                }
-            }
+    private boolean isPeekValid(final long mask) {
+        return dev != null && PATTERNS.isValid(mask) && state == STATE_SPUN;
+    }
 
-            validRequestPattern = countOfRequestedBits == NUM_OF_BITS_DISCLOSED;
+    /**
+     * Returns whether the last peek found every requested bit already set to changeBitTo, so a poke would change nothing.
+     * @param mask the pattern of the last peek
+     * @return true if every requested position of peekedPattern holds changeBitTo
+     */
+    private boolean isPeekedAsTarget(final long mask) {
+        if (peekedPattern == null || peekedPattern.length() != NUM_OF_BITS) {
+            return false;
         }
-
-        return deviceNotNull && validLength && validRequestPattern && state == STATE_SPUN;
+        for (long m = mask; m != 0L; m &= m - 1) {
+            if (peekedPattern.charAt(Long.numberOfTrailingZeros(m)) != changeBitTo) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
      * Modifies the state of the device pattern adhering to peekedPattern.
      * Can only modify the states of the pattern viewed by Peek.
+     * The poke is queued and sent with the spins that follow it, in one round trip.
      * doPoke can only be called under conditions:
      *  1) doPoke issued immediately following valid PEEK command
      *  2) The pattern parameter specifies T or F in each of the positions '?' in
@@ -251,11 +471,9 @@ public class FourBitTwoDisclosureDeviceUnlocker extends DeviceUnlocker {
      *  And invalid doPoke command is unspecified - in our implementation it will
      *  log 'invalid poke' and the current state unlock is in.
      */
-    private static void doPoke() {
+    private void doPoke() {
         if (isValidPoke()) {
-            CharSequence patternToPoke = getPokedPattern();
-            appendTrace("poke : Poking with pattern:", patternToPoke);
-            dev.poke(patternToPoke);
+            batch.poke(getPokedPattern(peekedPattern));
             state = STATE_POKED;
         }
     }
@@ -264,17 +482,17 @@ public class FourBitTwoDisclosureDeviceUnlocker extends DeviceUnlocker {
      * Returns boolean value representing validity of last peek request.
      * @return true if the last peek CharSequence pattern was valid to poke, false if the last peek CharSequence pattern was invalid to poke
      */
-    private static boolean isValidPoke() {
+    private boolean isValidPoke() {
         boolean isValid;
         String validBits = "TF";
         if (state != STATE_PEEKED) {
-            appendTrace("isValidPoke : Poke is not valid, current state does not equal STATE_PEEKED");
+            traceLog.note("isValidPoke : Poke is not valid, current state does not equal STATE_PEEKED");
             isValid = false;
         } else if (!validBits.contains(String.valueOf(changeBitTo))) {
-            appendTrace("isValidPoke : Bit to change to is invalid: ", String.valueOf(changeBitTo));
+            traceLog.note("isValidPoke : Bit to change to is invalid: ", String.valueOf(changeBitTo));
             isValid = false;
         } else if (peekedPattern == null) {
-            appendTrace("isValidPoke : Peeked Pattern is null and cannot determine poke pattern", peekedPattern);
+            traceLog.note("isValidPoke : Peeked Pattern is null and cannot determine poke pattern", peekedPattern);
             isValid = false;
         } else {
             isValid = true;
@@ -284,16 +502,17 @@ public class FourBitTwoDisclosureDeviceUnlocker extends DeviceUnlocker {
     }
 
     /**
-     * Returns sequence of characters based on the last Peek by converting everything to ChangeBitTo.
-     * @return CharSequence representing TRUE or FALSE, represented by ChangeBitTo, in respective places where a ? appeared in CharSequence used in last called doPeek
+     * Returns sequence of characters based on a Peek by converting everything disclosed to ChangeBitTo.
+     * @param peeked the pattern returned by a peek, or the request itself when the poke is sent before the answer arrives
+     * @return CharSequence representing TRUE or FALSE, represented by ChangeBitTo, in respective places where a ? appeared in CharSequence used in the peek
      */
-    private static CharSequence getPokedPattern() {
+    private CharSequence getPokedPattern(final CharSequence peeked) {
         StringBuilder newPattern = new StringBuilder();
-        for (int i = 0; i < peekedPattern.length(); i++) {
-            char bit = peekedPattern.charAt(i);
+        for (int i = 0; i < peeked.length(); i++) {
+            char bit = peeked.charAt(i);
 
-            // if the bit peeked was a T or F...
-            if (bit == TRUE || bit == FALSE) {
+            // if the bit peeked was a T or F, or is about to be...
+            if (bit == TRUE || bit == FALSE || bit == REQUEST) {
                 // change to something else.
                 newPattern.append(changeBitTo);
             } else {
@@ -302,76 +521,4 @@ public class FourBitTwoDisclosureDeviceUnlocker extends DeviceUnlocker {
         }
         return newPattern.toString();
     }
-    /**
-     * Get a list of possible permutations for a valid doPeek.
-     * @return list of CharSequences that can be used for a valid doPeek
-     */
-    private static List<CharSequence> getPermutations() {
-        List<CharSequence> permutations = new ArrayList<CharSequence>();
-        permutation(0, 0, new StringBuilder(), permutations);
-        return permutations;
-    }
-
-    /**
-     * 0-1 Knapsack algorithm to grab permutations of valid peeks.
-     * @param index current position in the generated CharSequence
-     * @param used number of peek '?' characters used in this generated CharSequence
-     * @param accumulator the accumulated characters generating this CharSequence
-     * @param perms the list of permutations to add a generated CharSequence to
-     */
-    private static void permutation(final int index, final int used, final StringBuilder accumulator, final List<CharSequence> perms) {
-        // return if we have reached the end of this permutation
-        if (accumulator.length() >= NUM_OF_BITS) {
-            if (used == NUM_OF_BITS_DISCLOSED) {
-                perms.add(accumulator.toString());
-            }
-            return;
-        }
-
-        // make a copy for unique permutations.
-        StringBuilder copy = new StringBuilder(accumulator);
-
-        // use up a ?
-        if (used < 2) {
-            copy.append("?");
-            permutation(index + 1, used + 1, copy, perms);
-        }
-        // do not use a ?
-        accumulator.append("-");
-        permutation(index + 1, used, accumulator, perms);
-    }
-    /**
-     * Clears trace log.
-     */
-    private static void clearTrace() {
-        traceLog = new StringBuilder();
-    }
-    /**
-     * Appends a specified message to the trace log in DeviceUnlocker.
-     * @param message the message to be appended.
-     */
-    private static void appendTrace(final String message) {
-        traceLog.append(message);
-        traceLog.append("\n");
-    }
-
-    /**
-     * Appends a specified message to trace log in DeviceUnlocker, but allowing bits to be formatted
-     * in the message.
-     * @param methodCallMessage Message for the method call
-     * @param deviceBits the bits in the device returned.
-     */
-    private static void appendTrace(final String methodCallMessage, final CharSequence deviceBits) {
-        // Produce a message that looks like:
-        //   [string...] (T - F -  ... - T - F)\n
-        if (deviceBits != null) {
-            traceLog.append(methodCallMessage);
-            traceLog.append(" (");
-            for (int i = 0; i < deviceBits.length(); i++) {
-                traceLog.append(deviceBits.charAt(i));
-            }
-            traceLog.append(")\n");
-        }
-    }
 }
-
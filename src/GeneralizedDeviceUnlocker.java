@@ -0,0 +1,191 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Unlocker for devices of any size n that disclose k bits per peek.
+ * <p>
+ *     Each round peeks a window of k adjacent bits and pokes every disclosed bit that differs from a
+ *     target value chosen by majority on the first peek, then spins. The first ceil(n/k) rounds sweep
+ *     the windows in order, which unlocks a device that does not rotate in a single pass; later rounds
+ *     place the window at a random offset so that no rotation law can keep a bit hidden from it.
+ *     Meanwhile a {@link RotationModel} fits the device's rotation law to what the peeks disclose. While
+ *     some law still explains every answer, fallback rounds aim the window where the remaining laws
+ *     predict the most bits still differ from the target instead, which turns the random phase into a
+ *     short directed sequence on a deterministic device. Rounds go back to random offsets when the fit
+ *     breaks, or when three sweeps' worth of aimed rounds have not unlocked the device.
+ *     A round therefore costs at most one spin, one peek and one poke, and every round can fix up to k
+ *     bits, instead of walking every disclosure pattern as the 4-bit/2-disclosure strategy does.
+ * </p>
+ * @version 1.0
+ * @see DeviceGeometry
+ * @see <a href="../projectDescription.html">Project Description</a>
+ */
+public class GeneralizedDeviceUnlocker extends DeviceUnlocker {
+
+    /** Plan of the rounds, shared with {@link AsyncDeviceUnlocker}. */
+    private final UnlockRounds rounds;
+
+    /** Device this session is unlocking. */
+    private Device dev;
+
+    /** Number of spins requested during the last unlock. */
+    private long spins;
+
+    /** Number of peeks requested during the last unlock. */
+    private long peeks;
+
+    /** Number of pokes requested during the last unlock. */
+    private long pokes;
+
+    /**
+     * Create an unlock session for devices of the given geometry. A session may be reused for any number
+     * of sequential unlocks, but must not be shared between threads while an unlock is in progress.
+     * @param geometry the size and disclosure width of the devices to unlock
+     */
+    public GeneralizedDeviceUnlocker(final DeviceGeometry geometry) {
+        this(geometry, new SplittableRandom(ThreadLocalRandom.current().nextLong()));
+    }
+
+    /**
+     * Create an unlock session for devices of the given geometry that draws its random window offsets from
+     * a generator, so that a seeded generator repeats the same unlocks on the same devices.
+     * @param geometry the size and disclosure width of the devices to unlock
+     * @param random source of the random window offsets, owned by the session from now on
+     */
+    public GeneralizedDeviceUnlocker(final DeviceGeometry geometry, final SplittableRandom random) {
+        this.rounds = new UnlockRounds(geometry, random);
+    }
+
+    @Override
+    void reseed(final long seed) {
+        reseed(new SplittableRandom(seed));
+    }
+
+    /**
+     * Draw the random window offsets from another generator from now on.
+     * @param random source of the random window offsets, owned by the session from now on
+     */
+    void reseed(final SplittableRandom random) {
+        rounds.reseed(random);
+    }
+
+    /**
+     * Unlocks a resource controlled by a device of any geometry.
+     * @param dev the device controlling the resource to unlock
+     * @return true if the resource is unlocked (all bits in the device are now identical); false otherwise
+     */
+    public static boolean unlock(final Device dev) {
+        if (dev == null) {
+            return false;
+        }
+        return new GeneralizedDeviceUnlocker(DeviceGeometry.of(dev)).unlockDevice(dev);
+    }
+
+    /**
+     * Unlocks a resource controlled by a device of any geometry, reporting how.
+     * @param dev the device controlling the resource to unlock
+     * @return whether the resource is unlocked, why the unlock stopped, and the operations and time it took
+     */
+    public static UnlockResult unlockWithResult(final Device dev) {
+        if (dev == null) {
+            return finish(false, UnlockResult.Termination.REJECTED, 0, 0, 0, System.nanoTime());
+        }
+        return new GeneralizedDeviceUnlocker(DeviceGeometry.of(dev)).unlockDeviceWithResult(dev);
+    }
+
+    /**
+     * Unlocks a resource controlled by a device of this session's geometry.
+     * Halts after a bounded number of rounds whether or not the device was unlocked.
+     * @param dev the device controlling the resource to unlock
+     * @return true if the resource is unlocked (all bits in the device are now identical); false otherwise
+     */
+    public boolean unlockDevice(final Device dev) {
+        return unlockDeviceWithResult(dev).unlocked();
+    }
+
+    /**
+     * Unlocks a resource controlled by a device of this session's geometry, reporting how.
+     * Rounds of the initial sweep, and rounds aimed by a confirmed rotation model, count as a deterministic
+     * pass; rounds aimed while several rotation laws still disagree as model-guided; other rounds as the
+     * random fallback.
+     * @param dev the device controlling the resource to unlock
+     * @return whether the resource is unlocked, why the unlock stopped, and the operations and time it took
+     */
+    public UnlockResult unlockDeviceWithResult(final Device dev) {
+        long startNanos = System.nanoTime();
+        spins = 0;
+        peeks = 0;
+        pokes = 0;
+        if (dev == null) {
+            return finish(false, UnlockResult.Termination.REJECTED, 0, 0, 0, startNanos);
+        }
+        this.dev = dev;
+        rounds.start();
+        boolean isUnlocked = doSpin();
+        if (isUnlocked) {
+            return finish(true, UnlockResult.Termination.DETERMINISTIC_PASS, spins, peeks, pokes, startNanos);
+        }
+        if (!rounds.disclosing()) {
+            return finish(false, UnlockResult.Termination.REJECTED, spins, peeks, pokes, startNanos);
+        }
+        while (rounds.hasNext()) {
+            peeks++;
+            CharSequence peeked = dev.peek(rounds.peek());
+            if (!rounds.accepts(peeked)) {
+                return finish(false, UnlockResult.Termination.REJECTED, spins, peeks, pokes, startNanos);
+            }
+            BitPattern poke = rounds.poke(peeked);
+            if (poke != null) {
+                pokes++;
+                dev.poke(poke);
+            }
+            if (doSpin()) {
+                return finish(true, rounds.termination(), spins, peeks, pokes, startNanos);
+            }
+        }
+        return finish(false, UnlockResult.Termination.BUDGET_EXHAUSTED, spins, peeks, pokes, startNanos);
+    }
+
+    /**
+     * Total number of device operations (spins, peeks and pokes) requested during the last unlock.
+     * @return operation count of the last unlock
+     */
+    public long operationCount() {
+        return spins + peeks + pokes;
+    }
+
+    /**
+     * Number of spins requested during the last unlock.
+     * @return spin count of the last unlock
+     */
+    public long spinCount() {
+        return spins;
+    }
+
+    /**
+     * Number of peeks requested during the last unlock.
+     * @return peek count of the last unlock
+     */
+    public long peekCount() {
+        return peeks;
+    }
+
+    /**
+     * Number of pokes requested during the last unlock.
+     * @return poke count of the last unlock
+     */
+    public long pokeCount() {
+        return pokes;
+    }
+
+    /**
+     * Spins the device once.
+     * @return true if all bits are the same value. False if values are different.
+     */
+    private boolean doSpin() {
+        spins++;
+        boolean unlocked = dev.spin();
+        rounds.spun(unlocked);
+        return unlocked;
+    }
+}
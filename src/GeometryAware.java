@@ -0,0 +1,12 @@
+/**
+ * A device that can report its own geometry, allowing unlockers to pick a strategy sized for it.
+ * @version 1.0
+ * @see DeviceGeometry
+ */
+public interface GeometryAware {
+    /**
+     * Retrieve the geometry of this device.
+     * @return number of bits stored and number of bits disclosed per peek
+     */
+    DeviceGeometry geometry();
+}
@@ -0,0 +1,329 @@
+import java.util.concurrent.CancellationException;
+
+/**
+ * A device that counts the operations forwarded to another device and refuses to forward any more once
+ * its unlock is cancelled, its thread is interrupted, its deadline has passed or its operation budget is
+ * spent.
+ * <p>
+ *     A guard {@link #of(Device) of} a {@link BatchingDevice} batches too: a batch that fits in the operation
+ *     budget goes to the device in one round trip and is charged command by command, and one that does
+ *     not is performed one operation at a time until the budget runs out. A guard of any other device is
+ *     not a BatchingDevice, so an unlocker treats it exactly as the device itself.
+ * </p>
+ * <p>
+ *     Refusal throws {@link CancellationException} out of the unlocker, which has no way to stop by
+ *     itself between operations; the counts then still tell how far the unlock got. An operation already
+ *     blocked in the device can only be ended by interrupting its thread, after {@link #expire()} or
+ *     {@link #cancel()} so that whatever the device then throws is read as the stop it is. Anything else
+ *     the device throws is kept as the unlock's {@link #failure()}.
+ * </p>
+ * @version 1.0
+ * @see UnlockService
+ * @see UnlockBudget
+ */
+class GuardedDevice extends Device implements GeometryAware {
+    /** Device performing the operations. */
+    private final Device delegate;
+
+    /** Geometry of the delegate. */
+    private final DeviceGeometry geometry;
+
+    /** {@link System#nanoTime()} after which no operation is forwarded. */
+    private long deadline;
+
+    /** Whether a timeout is in force. */
+    private boolean timed;
+
+    /** Largest number of operations forwarded. */
+    private long maxOperations = UnlockBudget.NO_OPERATION_LIMIT;
+
+    /** Budget whose cancellation stops the unlock, or null. */
+    private UnlockBudget budget;
+
+    /** Set from any thread to stop the unlock at its next operation. */
+    private volatile boolean cancelled;
+
+    /** Set from any thread when the unlock's time is up, though its own clock may not show it yet. */
+    private volatile boolean expired;
+
+    /** Whether the deadline or the operation budget stopped the unlock. */
+    private boolean exhausted;
+
+    /** What the device threw, or null. */
+    private RuntimeException failure;
+
+    /** Spins forwarded. */
+    private long spins;
+
+    /** Peeks forwarded. */
+    private long peeks;
+
+    /** Pokes forwarded. */
+    private long pokes;
+
+    /** Answer to the last peek forwarded, or null. */
+    private CharSequence lastPeek;
+
+    /**
+     * Guard a device.
+     * @param delegate device performing the operations
+     */
+    private GuardedDevice(final Device delegate) {
+        this.delegate = delegate;
+        this.geometry = DeviceGeometry.of(delegate);
+    }
+
+    /**
+     * Guard a device, batching if the device does.
+     * @param delegate device performing the operations
+     * @return the guard
+     */
+    static GuardedDevice of(final Device delegate) {
+        return delegate instanceof BatchingDevice ? new Batching(delegate) : new GuardedDevice(delegate);
+    }
+
+    /**
+     * Start the clock for the unlock.
+     * @param timeoutNanos time allowed from now, or a negative value for no limit
+     */
+    void start(final long timeoutNanos) {
+        timed = timeoutNanos >= 0;
+        deadline = System.nanoTime() + timeoutNanos;
+    }
+
+    /**
+     * Start the clock for the unlock, and limit its operations, as a budget says. Cancelling the budget
+     * stops the unlock at its next operation.
+     * @param limits the budget of the unlock
+     */
+    void start(final UnlockBudget limits) {
+        start(limits.timeoutNanos());
+        maxOperations = limits.maxOperations();
+        budget = limits;
+    }
+
+    /**
+     * Stop the unlock at its next operation. May be called from any thread.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Stop the unlock at its next operation as out of time. May be called from any thread.
+     */
+    void expire() {
+        expired = true;
+    }
+
+    /**
+     * Whether the deadline or the operation budget stopped the unlock.
+     * @return true if an operation was refused, or a blocked one interrupted, because time or operations ran out
+     */
+    boolean exhausted() {
+        return exhausted || expired;
+    }
+
+    /**
+     * Whether the unlock was told to stop, from outside or by running out of time or operations.
+     * @return true if the unlock must not perform another operation
+     */
+    boolean stopping() {
+        return exhausted() || cancelled || (budget != null && budget.cancelled());
+    }
+
+    /**
+     * What the device threw, if anything.
+     * @return the exception the last failed operation threw out of the device, or null
+     */
+    RuntimeException failure() {
+        return failure;
+    }
+
+    /**
+     * Result of an unlock that was stopped, recorded in the process-wide metrics unless the calling thread
+     * has switched {@link DeviceUnlocker#record(boolean) recording} off.
+     * @param termination why it stopped
+     * @param startNanos {@link System#nanoTime()} when it started
+     * @return the result, with the operations forwarded so far, the answer to the last peek and the device's
+     *     failure, if any
+     */
+    UnlockResult stopped(final UnlockResult.Termination termination, final long startNanos) {
+        return DeviceUnlocker.recorded(new UnlockResult(false, termination, spins, peeks, pokes,
+                System.nanoTime() - startNanos, failure, lastPeek == null ? null : lastPeek.toString()));
+    }
+
+    /**
+     * The guarded device.
+     * @return the device performing the operations
+     */
+    Device delegate() {
+        return delegate;
+    }
+
+    /**
+     * Spins forwarded so far.
+     * @return spin count
+     */
+    long spins() {
+        return spins;
+    }
+
+    /**
+     * Peeks forwarded so far.
+     * @return peek count
+     */
+    long peeks() {
+        return peeks;
+    }
+
+    /**
+     * Pokes forwarded so far.
+     * @return poke count
+     */
+    long pokes() {
+        return pokes;
+    }
+
+    /**
+     * Spin the guarded device unless the unlock must stop.
+     * @return true if all bits of the guarded device are the same value
+     */
+    @Override
+    public boolean spin() {
+        check();
+        spins++;
+        try {
+            return delegate.spin();
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        }
+    }
+
+    /**
+     * Peek at the guarded device unless the unlock must stop.
+     * @param pattern the requested pattern
+     * @return the pattern returned by the guarded device
+     */
+    @Override
+    public CharSequence peek(final CharSequence pattern) {
+        check();
+        peeks++;
+        try {
+            lastPeek = delegate.peek(pattern);
+            return lastPeek;
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        }
+    }
+
+    /**
+     * Poke the guarded device unless the unlock must stop.
+     * @param pattern the pattern to poke
+     */
+    @Override
+    public void poke(final CharSequence pattern) {
+        check();
+        pokes++;
+        try {
+            delegate.poke(pattern);
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        }
+    }
+
+    /**
+     * Perform a batch on the guarded device unless the unlock must stop: in one round trip if the whole
+     * batch fits in the operation budget, otherwise one operation at a time until the budget is spent.
+     * @param batch the commands to perform
+     */
+    void execute(final DeviceCommandBatch batch) {
+        if (spins + peeks + pokes + batch.size() > maxOperations) {
+            batch.executeSequentially(this);
+            return;
+        }
+        check();
+        try {
+            ((BatchingDevice) delegate).execute(batch);
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            for (int i = 0; i < batch.executed(); i++) {
+                switch (batch.command(i)) {
+                    case SPIN:
+                        spins++;
+                        break;
+                    case PEEK:
+                        peeks++;
+                        lastPeek = batch.peekResult(i);
+                        break;
+                    default:
+                        pokes++;
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Geometry of the guarded device.
+     * @return bits and disclosure width
+     */
+    @Override
+    public DeviceGeometry geometry() {
+        return geometry;
+    }
+
+    /**
+     * Rendering of the guarded device.
+     * @return the guarded device's string form
+     */
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+
+    /**
+     * Refuse the next operation if the unlock must stop.
+     * @throws CancellationException if cancelled, interrupted, past the deadline or out of operations
+     */
+    private void check() {
+        if (cancelled || (budget != null && budget.cancelled()) || Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("unlock cancelled");
+        }
+        if (expired || timed && System.nanoTime() - deadline > 0) {
+            exhausted = true;
+            throw new CancellationException("unlock timed out");
+        }
+        if (spins + peeks + pokes >= maxOperations) {
+            exhausted = true;
+            throw new CancellationException("unlock ran out of operations");
+        }
+    }
+
+    /**
+     * Guard of a device that performs batches in one round trip.
+     */
+    private static final class Batching extends GuardedDevice implements BatchingDevice {
+        /**
+         * Guard a batching device.
+         * @param delegate device performing the operations, a BatchingDevice
+         */
+        Batching(final Device delegate) {
+            super(delegate);
+        }
+
+        /**
+         * Perform a batch on the guarded device unless the unlock must stop.
+         * @param batch the commands to perform
+         */
+        @Override
+        public void execute(final DeviceCommandBatch batch) {
+            super.execute(batch);
+        }
+    }
+}
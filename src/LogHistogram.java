@@ -0,0 +1,163 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of non-negative values in logarithmic buckets.
+ * <p>
+ *     Values below 4 get a bucket each; above that every power of two is split into 4 buckets, so a
+ *     reported percentile is within 25% of the true value. 248 buckets cover every non-negative long.
+ *     Buckets are {@link LongAdder}s, so recording from many threads does not contend.
+ * </p>
+ * @version 1.0
+ * @see UnlockMetrics
+ */
+public final class LogHistogram {
+    /** Sub-buckets per power of two, as a shift. */
+    private static final int SUB_BITS = 2;
+
+    /** Sub-buckets per power of two. */
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /** Number of buckets needed for every non-negative long. */
+    private static final int BUCKETS = bucketOf(Long.MAX_VALUE) + 1;
+
+    /** Count per bucket. */
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+
+    /** Sum of recorded values. */
+    private final LongAdder sum = new LongAdder();
+
+    /** Largest recorded value. */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Create an empty histogram.
+     */
+    public LogHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record a value.
+     * @param value the value; negative values are recorded as 0
+     */
+    public void record(final long value) {
+        long v = Math.max(0L, value);
+        counts[bucketOf(v)].increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    /**
+     * Number of values recorded.
+     * @return count
+     */
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Mean of the recorded values.
+     * @return mean, or 0 if nothing was recorded
+     */
+    public double mean() {
+        long count = count();
+        return count == 0 ? 0.0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * Largest recorded value.
+     * @return maximum, or 0 if nothing was recorded
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Value below which a fraction of the recorded values fall, rounded up to its bucket's upper bound.
+     * @param fraction between 0 and 1, e.g. 0.99 for the 99th percentile
+     * @return the percentile, or 0 if nothing was recorded
+     */
+    public long percentile(final double fraction) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(Math.min(1.0, Math.max(0.0, fraction)) * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * Add every value recorded in another histogram to this one, as if they had been recorded here.
+     * Histograms filled separately, one per thread, can so be combined without sharing a histogram.
+     * @param other the histogram to add; not modified
+     */
+    public void merge(final LogHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = other.counts[i].sum();
+            if (count != 0) {
+                counts[i].add(count);
+            }
+        }
+        sum.add(other.sum.sum());
+        max.accumulate(other.max());
+    }
+
+    /**
+     * Forget every recorded value.
+     */
+    public void reset() {
+        for (LongAdder bucket : counts) {
+            bucket.reset();
+        }
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * Bucket of a value.
+     * @param value a non-negative value
+     * @return its bucket index
+     */
+    static int bucketOf(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS * (exponent - SUB_BITS + 1) + sub;
+    }
+
+    /**
+     * Largest value that falls in a bucket.
+     * @param bucket bucket index
+     * @return its inclusive upper bound
+     */
+    static long upperBound(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long lower = (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+        return lower + (1L << (exponent - SUB_BITS)) - 1;
+    }
+}
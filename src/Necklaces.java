@@ -0,0 +1,150 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Ring configurations of a device size, identified up to rotation.
+ * <p>
+ *     A configuration of an n-bit device is an n-bit code where bit i holds the value at position i
+ *     relative to the device's current head ({@code 1} for 'T'). After a spin the head may be anywhere,
+ *     so an unlocker can never tell rotations of the same configuration apart; each such class (a
+ *     necklace) is represented by its numerically smallest rotation and numbered densely from 0.
+ * </p>
+ * @version 1.0
+ * @see StrategySolver
+ */
+final class Necklaces {
+    /**
+     * Largest device size whose configurations are tabulated.
+     */
+    static final int MAX_BITS = 20;
+
+    /**
+     * Tables already built, per device size.
+     */
+    private static final ConcurrentMap<Integer, Necklaces> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Device size.
+     */
+    private final int bits;
+    /**
+     * Code with all n bits set.
+     */
+    private final int full;
+    /**
+     * Canonical rotation of every code.
+     */
+    private final int[] canonical;
+    /**
+     * Necklace number of every canonical code, -1 for codes that are not canonical.
+     */
+    private final int[] index;
+    /**
+     * Canonical code of every necklace number.
+     */
+    private final int[] codes;
+
+    /**
+     * Tabulate the necklaces of a device size.
+     * @param bits device size, 1 &lt;= bits &lt;= MAX_BITS
+     */
+    private Necklaces(int bits) {
+        this.bits = bits;
+        this.full = (int) ((1L << bits) - 1);
+        int configurations = 1 << bits;
+        this.canonical = new int[configurations];
+        this.index = new int[configurations];
+        int count = 0;
+        for (int code = 0; code < configurations; code++) {
+            int min = code;
+            for (int r = 1; r < bits; r++) {
+                min = Math.min(min, rotate(code, r));
+            }
+            canonical[code] = min;
+            if (min == code) {
+                index[code] = count++;
+            } else {
+                index[code] = -1;
+            }
+        }
+        this.codes = new int[count];
+        for (int code = 0; code < configurations; code++) {
+            if (index[code] >= 0) codes[index[code]] = code;
+        }
+    }
+
+    /**
+     * Retrieve the necklace table for a device size, building it on first use.
+     * @param bits device size, 1 &lt;= bits &lt;= MAX_BITS
+     * @return the table for that size
+     */
+    static Necklaces of(int bits) {
+        if (bits < 1 || bits > MAX_BITS) {
+            throw new IllegalArgumentException("necklaces are tabulated for 1 to " + MAX_BITS + " bits, not " + bits);
+        }
+        return CACHE.computeIfAbsent(bits, Necklaces::new);
+    }
+
+    /**
+     * Device size.
+     * @return number of bits per configuration
+     */
+    int bits() {
+        return bits;
+    }
+
+    /**
+     * Number of distinct necklaces.
+     * @return necklace count, including the two uniform ones
+     */
+    int count() {
+        return codes.length;
+    }
+
+    /**
+     * Canonical code of a necklace.
+     * @param id necklace number
+     * @return smallest rotation of that necklace
+     */
+    int code(int id) {
+        return codes[id];
+    }
+
+    /**
+     * Necklace number of any configuration.
+     * @param code a configuration
+     * @return the number of its necklace
+     */
+    int id(int code) {
+        return index[canonical[code]];
+    }
+
+    /**
+     * Smallest rotation of a configuration.
+     * @param code a configuration
+     * @return its canonical code
+     */
+    int canonical(int code) {
+        return canonical[code];
+    }
+
+    /**
+     * Whether a configuration is locked open (all bits identical).
+     * @param code a configuration
+     * @return true if all bits are set or all are clear
+     */
+    boolean isUniform(int code) {
+        return code == 0 || code == full;
+    }
+
+    /**
+     * Rotate a configuration so that the bit at position {@code steps} becomes position 0.
+     * @param code a configuration
+     * @param steps rotation, 0 &lt;= steps &lt; bits
+     * @return the rotated configuration
+     */
+    int rotate(int code, int steps) {
+        if (steps == 0) return code;
+        return ((code >>> steps) | (code << (bits - steps))) & full;
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * Disclosure patterns of an n-bit/k-disclosed device, represented as bit masks.
+ * <p>
+ *     Bit i of a mask is set if position i is requested ('?') and clear if it is hidden ('-'), so a
+ *     pattern is valid exactly when its mask has k bits set within the low n bits. Patterns are walked
+ *     one {@code long} at a time, without building a list, either in combinatorial order, by increasing
+ *     mask with Gosper's hack, or in position order, as the patterns read left to right ("??--",
+ *     "?-?-", "?--?", "-??-", ...); the character form a {@link Device} needs is rendered only when a
+ *     pattern is actually sent.
+ *     Devices of up to 64 bits are supported.
+ * </p>
+ * <pre>
+ *   for (long mask = patterns.first(); mask != PeekPatterns.NONE; mask = patterns.next(mask)) {
+ *       dev.peek(patterns.render(mask));
+ *   }
+ * </pre>
+ * @version 1.0
+ * @see <a href="../projectDescription.html">Project Description</a>
+ */
+final class PeekPatterns {
+    /**
+     * Largest device size a mask can describe.
+     */
+    static final int MAX_BITS = Long.SIZE;
+
+    /**
+     * Returned by {@link #next(long)} after the last pattern; never a valid mask since k is at least 1.
+     */
+    static final long NONE = 0L;
+
+    /**char requesting a bit in a peek pattern.**/
+    private static final char REQUEST = '?';
+
+    /**char leaving a bit out of a peek pattern.**/
+    private static final char HIDDEN = '-';
+
+    /**
+     * Number of bits in the device.
+     */
+    private final int numOfBits;
+
+    /**
+     * Number of bits disclosed by each pattern.
+     */
+    private final int numOfBitsDisclosed;
+
+    /**
+     * Mask with all n bits set.
+     */
+    private final long full;
+
+    /**
+     * Patterns of a device geometry.
+     * @param numOfBits number of bits in the device, 1 to {@value #MAX_BITS}
+     * @param numOfBitsDisclosed number of bits each pattern discloses, 1 to numOfBits
+     */
+    PeekPatterns(final int numOfBits, final int numOfBitsDisclosed) {
+        if (numOfBits < 1 || numOfBits > MAX_BITS || numOfBitsDisclosed < 1 || numOfBitsDisclosed > numOfBits) {
+            throw new IllegalArgumentException("no patterns for " + numOfBits + "/" + numOfBitsDisclosed);
+        }
+        this.numOfBits = numOfBits;
+        this.numOfBitsDisclosed = numOfBitsDisclosed;
+        this.full = lowBits(numOfBits);
+    }
+
+    /**
+     * First pattern in combinatorial order: the k lowest positions.
+     * @return mask of the first pattern
+     */
+    long first() {
+        return lowBits(numOfBitsDisclosed);
+    }
+
+    /**
+     * Pattern following a pattern in combinatorial order, i.e. the next larger mask with the same
+     * number of bits set (Gosper's hack).
+     * @param mask a valid pattern
+     * @return mask of the next pattern, or {@link #NONE} after the last
+     */
+    long next(final long mask) {
+        long lowest = mask & -mask;
+        long ripple = mask + lowest;
+        if (ripple == 0L) {
+            // the carry left the 64th bit: mask was the last pattern of a 64-bit device
+            return NONE;
+        }
+        long next = (((ripple ^ mask) >>> 2) / lowest) | ripple;
+        return (next & ~full) == 0L ? next : NONE;
+    }
+
+    /**
+     * Pattern following a pattern in position order: the sorted requested positions, compared left to
+     * right, are the next larger tuple. The first pattern is {@link #first()} in both orders.
+     * @param mask a valid pattern
+     * @return mask of the next pattern, or {@link #NONE} after the last
+     */
+    long nextByPosition(final long mask) {
+        long hidden = ~mask & full;
+        if (hidden == 0L) {
+            return NONE;
+        }
+        // requested positions after the last hidden one are already as far right as they can go
+        int packed = numOfBits - 1 - (Long.SIZE - 1 - Long.numberOfLeadingZeros(hidden));
+        long movable = mask & lowBits(numOfBits - packed);
+        if (movable == 0L) {
+            return NONE;
+        }
+        int position = Long.SIZE - 1 - Long.numberOfLeadingZeros(movable);
+        return (movable & ~(1L << position)) | (lowBits(packed + 1) << (position + 1));
+    }
+
+    /**
+     * Number of patterns, n choose k, saturating at Long.MAX_VALUE.
+     * @return pattern count
+     */
+    long count() {
+        long count = 1;
+        int k = Math.min(numOfBitsDisclosed, numOfBits - numOfBitsDisclosed);
+        for (int i = 1; i <= k; i++) {
+            long factor = numOfBits - k + i;
+            if (count > Long.MAX_VALUE / factor) {
+                return Long.MAX_VALUE;
+            }
+            // exact: the product of i consecutive integers is divisible by i!
+            count = count * factor / i;
+        }
+        return count;
+    }
+
+    /**
+     * Whether a mask is a valid pattern: k positions, all within the device.
+     * @param mask the mask to validate
+     * @return true if the mask can be peeked
+     */
+    boolean isValid(final long mask) {
+        return (mask & ~full) == 0L && Long.bitCount(mask) == numOfBitsDisclosed;
+    }
+
+    /**
+     * Render a pattern in the form a device accepts, e.g. "?--?".
+     * @param mask the pattern
+     * @return the request pattern
+     */
+    String render(final long mask) {
+        char[] pattern = new char[numOfBits];
+        for (int i = 0; i < numOfBits; i++) {
+            pattern[i] = (mask & (1L << i)) != 0L ? REQUEST : HIDDEN;
+        }
+        return new String(pattern);
+    }
+
+    /**
+     * Read a request pattern into a mask.
+     * @param pattern a pattern of '?' and '-' characters
+     * @return its mask, or {@link #NONE} if the pattern has the wrong length or other characters
+     */
+    long parse(final CharSequence pattern) {
+        if (pattern == null || pattern.length() != numOfBits) {
+            return NONE;
+        }
+        long mask = 0L;
+        for (int i = 0; i < numOfBits; i++) {
+            char bit = pattern.charAt(i);
+            if (bit == REQUEST) {
+                mask |= 1L << i;
+            } else if (bit != HIDDEN) {
+                return NONE;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Mask with the lowest bits set.
+     * @param bits number of bits to set, 0 to 64
+     * @return the mask
+     */
+    private static long lowBits(final int bits) {
+        return bits == Long.SIZE ? -1L : (1L << bits) - 1;
+    }
+}
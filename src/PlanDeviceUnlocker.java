@@ -0,0 +1,99 @@
+/**
+ * Unlocks devices by following a deterministic {@link UnlockPlan}.
+ * <p>
+ *     Unlike the heuristic strategies there is no random phase: a device that behaves as a rotating ring
+ *     of its plan's geometry is unlocked within {@link UnlockPlan#maxSpins()} spins, whatever rotations it
+ *     chooses. If a device reports something the plan rules out, unlock gives up and returns false.
+ * </p>
+ * @version 1.0
+ * @see StrategySolver
+ * @see StrategyTableExecutor
+ * @see <a href="../projectDescription.html">Project Description</a>
+ */
+public class PlanDeviceUnlocker extends DeviceUnlocker {
+
+    /** Executor for the plan's table. */
+    private final StrategyTableExecutor executor;
+
+    /** Number of spins requested during the last unlock. */
+    private long spins;
+
+    /** Number of peeks requested during the last unlock. */
+    private long peeks;
+
+    /** Number of pokes requested during the last unlock. */
+    private long pokes;
+
+    /** Counts the operations of the current unlock. */
+    private final StrategyTableExecutor.Listener counter = new StrategyTableExecutor.Listener() {
+        @Override
+        public void spun(final boolean unlocked) {
+            spins++;
+        }
+
+        @Override
+        public void peeked(final CharSequence request, final CharSequence response) {
+            peeks++;
+        }
+
+        @Override
+        public void poked(final CharSequence pattern) {
+            pokes++;
+        }
+    };
+
+    /**
+     * Create an unlock session following a plan. A session may be reused for any number of sequential
+     * unlocks, but must not be shared between threads while an unlock is in progress.
+     * @param plan the plan to follow
+     */
+    public PlanDeviceUnlocker(final UnlockPlan plan) {
+        this(new StrategyTableExecutor(StrategyTable.of(plan)));
+    }
+
+    /**
+     * Create an unlock session running a table executor. A session may be reused for any number of
+     * sequential unlocks, but must not be shared between threads while an unlock is in progress.
+     * @param executor executor for the strategy table to follow; may be shared with other sessions
+     */
+    public PlanDeviceUnlocker(final StrategyTableExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Unlocks a resource controlled by a device of the plan's geometry.
+     * @param dev the device controlling the resource to unlock
+     * @return true if the resource is unlocked (all bits in the device are now identical); false otherwise
+     */
+    public boolean unlockDevice(final Device dev) {
+        return unlockDeviceWithResult(dev).unlocked();
+    }
+
+    /**
+     * Unlocks a resource controlled by a device of the plan's geometry, reporting how.
+     * @param dev the device controlling the resource to unlock
+     * @return whether the resource is unlocked, why the unlock stopped, and the operations and time it took
+     */
+    public UnlockResult unlockDeviceWithResult(final Device dev) {
+        long start = System.nanoTime();
+        spins = 0;
+        peeks = 0;
+        pokes = 0;
+        if (dev == null) {
+            return finish(false, UnlockResult.Termination.REJECTED, 0, 0, 0, start);
+        }
+        // the plan unlocks every consistent device, so failing means the device contradicted it
+        boolean unlocked = executor.execute(dev, counter);
+        return finish(unlocked, unlocked ? UnlockResult.Termination.DETERMINISTIC_PASS : UnlockResult.Termination.REJECTED,
+                spins, peeks, pokes, start);
+    }
+
+    /**
+     * Total number of device operations (spins, peeks and pokes) requested during the last unlock.
+     * @return operation count of the last unlock
+     */
+    public long operationCount() {
+        return spins + peeks + pokes;
+    }
+
+}
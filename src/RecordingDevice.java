@@ -0,0 +1,80 @@
+/**
+ * A device that forwards every operation to another device and records it, with the answer, in a
+ * {@link DeviceRecorder}.
+ * @version 1.0
+ * @see DeviceRecorder#record(Device)
+ * @see ReplayDevice
+ */
+public final class RecordingDevice extends Device implements GeometryAware {
+    /** Device performing the operations. */
+    private final Device delegate;
+
+    /** Geometry of the delegate. */
+    private final DeviceGeometry geometry;
+
+    /** Where operations are recorded. */
+    private final DeviceRecorder recorder;
+
+    /**
+     * Wrap a device.
+     * @param delegate device performing the operations
+     * @param geometry geometry of the delegate
+     * @param recorder where operations are recorded
+     */
+    RecordingDevice(final Device delegate, final DeviceGeometry geometry, final DeviceRecorder recorder) {
+        this.delegate = delegate;
+        this.geometry = geometry;
+        this.recorder = recorder;
+    }
+
+    /**
+     * Spin the wrapped device and record the result.
+     * @return true if all bits of the wrapped device are the same value
+     */
+    @Override
+    public boolean spin() {
+        boolean unlocked = delegate.spin();
+        recorder.spun(unlocked);
+        return unlocked;
+    }
+
+    /**
+     * Peek at the wrapped device and record the request and response.
+     * @param pattern the requested pattern
+     * @return the pattern returned by the wrapped device
+     */
+    @Override
+    public CharSequence peek(final CharSequence pattern) {
+        CharSequence response = delegate.peek(pattern);
+        recorder.peeked(pattern, response);
+        return response;
+    }
+
+    /**
+     * Poke the wrapped device and record the pattern.
+     * @param pattern the pattern to poke
+     */
+    @Override
+    public void poke(final CharSequence pattern) {
+        delegate.poke(pattern);
+        recorder.poked(pattern);
+    }
+
+    /**
+     * Geometry of the wrapped device.
+     * @return bits and disclosure width
+     */
+    @Override
+    public DeviceGeometry geometry() {
+        return geometry;
+    }
+
+    /**
+     * Rendering of the wrapped device.
+     * @return the wrapped device's string form
+     */
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
@@ -0,0 +1,195 @@
+import java.io.Closeable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A device hosted by a {@link DeviceServer}, reached through a {@link DeviceClient}.
+ * <p>
+ *     Every operation is a request over one of the client's pooled connections. The blocking
+ *     {@link Device} methods wait for the answer; the {@link AsyncDevice} methods return at once; and a
+ *     {@link DeviceCommandBatch} travels as a single request. A failed connection surfaces as an
+ *     {@link UncheckedIOException}, and a request the server refused as an {@link IllegalStateException}.
+ * </p>
+ * @version 1.0
+ * @see DeviceClient#create(DeviceGeometry)
+ */
+public final class RemoteDevice extends Device implements GeometryAware, BatchingDevice, AsyncDevice, Closeable {
+    /** Client carrying the requests. */
+    private final DeviceClient client;
+
+    /** Id of the device on the server. */
+    private final int id;
+
+    /** Geometry of the device. */
+    private final DeviceGeometry geometry;
+
+    /**
+     * Refer to a device on the server.
+     * @param client client carrying the requests
+     * @param id id of the device on the server
+     * @param geometry geometry of the device
+     */
+    RemoteDevice(final DeviceClient client, final int id, final DeviceGeometry geometry) {
+        this.client = client;
+        this.id = id;
+        this.geometry = geometry;
+    }
+
+    /**
+     * Spin the remote device and wait for the answer.
+     * @return true if all bits are the same value
+     */
+    @Override
+    public boolean spin() {
+        return await(spinAsync());
+    }
+
+    /**
+     * Peek at the remote device and wait for the answer.
+     * @param pattern the requested pattern
+     * @return the pattern returned by the device
+     */
+    @Override
+    public CharSequence peek(final CharSequence pattern) {
+        return await(peekAsync(pattern));
+    }
+
+    /**
+     * Poke the remote device and wait until it is done.
+     * @param pattern the pattern to poke
+     */
+    @Override
+    public void poke(final CharSequence pattern) {
+        await(pokeAsync(pattern));
+    }
+
+    /**
+     * Spin the remote device.
+     * @return future of true if all bits are the same value
+     */
+    @Override
+    public CompletableFuture<Boolean> spinAsync() {
+        return client.call(DeviceProtocol.SPIN, id, 0, null).thenApply(response -> response.get() != 0);
+    }
+
+    /**
+     * Peek at the remote device.
+     * @param pattern the requested pattern
+     * @return future of the pattern returned by the device
+     */
+    @Override
+    public CompletableFuture<CharSequence> peekAsync(final CharSequence pattern) {
+        return client.call(DeviceProtocol.PEEK, id, DeviceProtocol.patternBytes(pattern),
+                request -> DeviceProtocol.putPattern(request, pattern)).thenApply(DeviceProtocol::getPattern);
+    }
+
+    /**
+     * Poke the remote device.
+     * @param pattern the pattern to poke
+     * @return future completed once the poke has been performed
+     */
+    @Override
+    public CompletableFuture<Void> pokeAsync(final CharSequence pattern) {
+        return client.call(DeviceProtocol.POKE, id, DeviceProtocol.patternBytes(pattern),
+                request -> DeviceProtocol.putPattern(request, pattern)).thenApply(response -> null);
+    }
+
+    /**
+     * Perform a command batch in one request and wait for the answers.
+     * @param batch the commands to perform
+     */
+    @Override
+    public void execute(final DeviceCommandBatch batch) {
+        int payloadBytes = 5 + batch.size();
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.command(i) != DeviceCommandBatch.Command.SPIN) {
+                payloadBytes += DeviceProtocol.patternBytes(batch.pattern(i));
+            }
+        }
+        ByteBuffer response = await(client.call(DeviceProtocol.BATCH, id, payloadBytes, request -> {
+            request.put((byte) (batch.stopsOnUnlock() ? 1 : 0)).putInt(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                switch (batch.command(i)) {
+                    case SPIN:
+                        request.put(DeviceProtocol.SPIN);
+                        break;
+                    case PEEK:
+                        request.put(DeviceProtocol.PEEK);
+                        DeviceProtocol.putPattern(request, batch.pattern(i));
+                        break;
+                    default:
+                        request.put(DeviceProtocol.POKE);
+                        DeviceProtocol.putPattern(request, batch.pattern(i));
+                        break;
+                }
+            }
+        }));
+        int performed = response.getInt();
+        for (int i = 0; i < performed; i++) {
+            switch (batch.command(i)) {
+                case SPIN:
+                    batch.answerSpin(i, response.get() != 0);
+                    break;
+                case PEEK:
+                    batch.answerPeek(i, DeviceProtocol.getPattern(response));
+                    break;
+                default:
+                    batch.answerPoke(i);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Geometry of the remote device.
+     * @return bits and disclosure width
+     */
+    @Override
+    public DeviceGeometry geometry() {
+        return geometry;
+    }
+
+    /**
+     * Release the device on the server; it cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        await(client.call(DeviceProtocol.RELEASE, id, 0, null));
+    }
+
+    /**
+     * Describe the device.
+     * @return id and geometry
+     */
+    @Override
+    public String toString() {
+        return "remote device " + id + " (" + geometry + ")";
+    }
+
+    /**
+     * Wait for a request, rethrowing its failure unwrapped. The wait ends early if the thread is
+     * interrupted, so that a device that never answers cannot hold its caller forever.
+     * @param <T> type of the answer
+     * @param response the pending request
+     * @return the answer
+     * @throws CancellationException if the thread is interrupted while waiting; the interrupt is kept
+     */
+    static <T> T await(final CompletableFuture<T> response) {
+        try {
+            return response.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new CompletionException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted while waiting for a device");
+        }
+    }
+}
@@ -0,0 +1,186 @@
+import java.nio.ByteBuffer;
+
+/**
+ * A device that answers with the results recorded from another device.
+ * <p>
+ *     Replaying reproduces a recorded unlock exactly as long as the unlocker asks for the same operations
+ *     in the same order. Any other request, or a request past the end of the recording, cannot be answered
+ *     and throws an {@link IllegalStateException} naming the operation where the replay diverged.
+ * </p>
+ * @version 1.0
+ * @see DeviceReplay#device(int)
+ */
+public final class ReplayDevice extends Device implements GeometryAware {
+    /** Records of this device, read from the current position. */
+    private final ByteBuffer records;
+
+    /** Geometry of the recorded device. */
+    private final DeviceGeometry geometry;
+
+    /** Device number within the recording. */
+    private final int index;
+
+    /** Number of operations replayed so far. */
+    private long operations;
+
+    /**
+     * Replay one device's records.
+     * @param records the device's records, positioned at its first operation
+     * @param geometry geometry of the recorded device
+     * @param index device number within the recording
+     */
+    ReplayDevice(final ByteBuffer records, final DeviceGeometry geometry, final int index) {
+        this.records = records;
+        this.geometry = geometry;
+        this.index = index;
+    }
+
+    /**
+     * Replay a spin.
+     * @return what the recorded spin returned
+     */
+    @Override
+    public boolean spin() {
+        byte op = next("spin");
+        if (op != DeviceRecorder.SPIN_LOCKED && op != DeviceRecorder.SPIN_UNLOCKED) {
+            throw diverged("spin", op);
+        }
+        return op == DeviceRecorder.SPIN_UNLOCKED;
+    }
+
+    /**
+     * Replay a peek.
+     * @param pattern the requested pattern; must match the recorded request
+     * @return the recorded response
+     */
+    @Override
+    public CharSequence peek(final CharSequence pattern) {
+        byte op = next("peek");
+        if (op != DeviceRecorder.PEEK || !matches(pattern)) {
+            throw diverged("peek " + pattern, op);
+        }
+        return read();
+    }
+
+    /**
+     * Replay a poke.
+     * @param pattern the pattern to poke; must match the recorded pattern
+     */
+    @Override
+    public void poke(final CharSequence pattern) {
+        byte op = next("poke");
+        if (op != DeviceRecorder.POKE || !matches(pattern)) {
+            throw diverged("poke " + pattern, op);
+        }
+    }
+
+    /**
+     * Whether every recorded operation has been replayed.
+     * @return true if no records remain
+     */
+    public boolean isExhausted() {
+        return !records.hasRemaining();
+    }
+
+    /**
+     * Geometry of the recorded device.
+     * @return bits and disclosure width
+     */
+    @Override
+    public DeviceGeometry geometry() {
+        return geometry;
+    }
+
+    /**
+     * Describe the replay.
+     * @return device number, geometry and progress
+     */
+    @Override
+    public String toString() {
+        return "replay of device " + index + " (" + geometry + "), " + operations + " operations replayed";
+    }
+
+    /**
+     * Read the next operation byte.
+     * @param requested the operation being replayed, for the error message
+     * @return the recorded operation
+     */
+    private byte next(final String requested) {
+        if (!records.hasRemaining()) {
+            throw new IllegalStateException("replay of device " + index + " has no record for " + requested
+                    + " after " + operations + " operations");
+        }
+        operations++;
+        return records.get();
+    }
+
+    /**
+     * Build the error for an operation that does not match the recording.
+     * @param requested the operation being replayed
+     * @param op the recorded operation
+     * @return the exception to throw
+     */
+    private IllegalStateException diverged(final String requested, final byte op) {
+        return new IllegalStateException("replay of device " + index + " diverged at operation " + operations
+                + ": recorded op " + op + ", requested " + requested);
+    }
+
+    /**
+     * Compare the next stored pattern with a requested one, consuming it either way.
+     * @param pattern the requested pattern
+     * @return true if they are equal
+     */
+    private boolean matches(final CharSequence pattern) {
+        int length = records.getInt();
+        if (length == DeviceRecorder.NULL_PATTERN) {
+            return pattern == null;
+        }
+        if (length == DeviceRecorder.RAW_PATTERN) {
+            int stored = records.getInt();
+            boolean equal = pattern != null && pattern.length() == stored;
+            for (int i = 0; i < stored; i++) {
+                char bit = records.getChar();
+                equal = equal && pattern.charAt(i) == bit;
+            }
+            return equal;
+        }
+        boolean equal = pattern != null && pattern.length() == length;
+        int packed = 0;
+        for (int i = 0; i < length; i++) {
+            if (i % 4 == 0) {
+                packed = records.get();
+            }
+            char bit = DeviceRecorder.CODES.charAt((packed >>> (2 * (i % 4))) & 3);
+            equal = equal && pattern.charAt(i) == bit;
+        }
+        return equal;
+    }
+
+    /**
+     * Decode the next stored pattern.
+     * @return the pattern, or null if a null pattern was recorded
+     */
+    private CharSequence read() {
+        int length = records.getInt();
+        if (length == DeviceRecorder.NULL_PATTERN) {
+            return null;
+        }
+        char[] pattern;
+        if (length == DeviceRecorder.RAW_PATTERN) {
+            pattern = new char[records.getInt()];
+            for (int i = 0; i < pattern.length; i++) {
+                pattern[i] = records.getChar();
+            }
+        } else {
+            pattern = new char[length];
+            int packed = 0;
+            for (int i = 0; i < length; i++) {
+                if (i % 4 == 0) {
+                    packed = records.get();
+                }
+                pattern[i] = DeviceRecorder.CODES.charAt((packed >>> (2 * (i % 4))) & 3);
+            }
+        }
+        return new String(pattern);
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * How a {@link TestingDevice} rotates its ring on each spin.
+ * @version 1.0
+ * @see TestingDevice#create(DeviceGeometry, RotationMode, java.util.SplittableRandom)
+ * @see SimulationEngine
+ */
+public enum RotationMode {
+    /** The accumulator never grows, so the ring keeps its rotation from spin to spin. */
+    LINEAR,
+    /** The accumulator grows by a fixed multiplier times the spin number, so rotations follow a polynomial. */
+    POLYNOMIAL,
+    /** The accumulator is redrawn at random on every spin. */
+    RANDOM
+}
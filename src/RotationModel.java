@@ -0,0 +1,331 @@
+import java.util.Arrays;
+
+/**
+ * Online fit of the law by which a device rotates its ring on each spin.
+ * <p>
+ *     The model follows a set of hypotheses, each a rotation law with its current phase:
+ * </p>
+ * <ul>
+ *     <li>a fixed step: every spin moves the ring by the same number of positions, 0 for a device that
+ *     does not rotate;</li>
+ *     <li>an accumulating step, the polynomial law of {@link TestingDevice}: an accumulator grows by a
+ *     multiplier times the spin number on every spin, and the ring moves by one less than the
+ *     accumulator. After j spins the accumulator holds the multiplier times j(j+1)/2, which repeats
+ *     every 2n spins, so trying every j below 2n covers a device spun any number of times before.</li>
+ * </ul>
+ * <p>
+ *     Each hypothesis keeps what the peeks and pokes have shown of the ring, in the frame the ring had
+ *     when the model was reset, and is dropped as soon as a peek disagrees with it or a failed spin
+ *     contradicts a ring it knows to be uniform. {@link #window(int, char)} lets the remaining hypotheses
+ *     vote for the positions they predict still need fixing, so the next peek is aimed where most of them
+ *     expect work; once they all agree on every known bit the model is {@link #confirmed()} and the
+ *     peeks follow the ring exactly. When no hypothesis survives, the device follows no known law and the model
+ *     stays silent until it is {@link #reset()}.
+ * </p>
+ * <p>
+ *     The model follows devices of up to {@value #MAX_BITS} bits, with about 2n^2 hypotheses, each
+ *     updated with a few shifts and masks per operation.
+ * </p>
+ * @version 1.0
+ * @see GeneralizedDeviceUnlocker
+ * @see TestingDevice
+ */
+final class RotationModel {
+
+    /**char representing true in device.**/
+    private static final char TRUE = 'T';
+
+    /**char representing false in device.**/
+    private static final char FALSE = 'F';
+
+    /** Largest device a model can follow; known bits are held in a long. */
+    static final int MAX_BITS = 32;
+
+    /** Multiplier marking a fixed-step hypothesis. */
+    private static final int FIXED = 0;
+
+    /** Number of bits in the device. */
+    private final int bits;
+
+    /** Accumulator multiplier of each hypothesis, or FIXED. */
+    private final int[] multiplier;
+
+    /** Step of each fixed-step hypothesis. */
+    private final int[] step;
+
+    /** Number of spins the device has made, modulo bits, under each accumulating hypothesis. */
+    private final int[] spin;
+
+    /** Accumulator of each accumulating hypothesis. */
+    private final int[] accumulator;
+
+    /** Rotation of the ring since the last reset, under each hypothesis. */
+    private final int[] offset;
+
+    /** Bits of the reset frame whose value each hypothesis knows. */
+    private final long[] known;
+
+    /** Values of the known bits, 1 for true. */
+    private final long[] values;
+
+    /** Number of hypotheses still consistent; they occupy the first entries of the arrays. */
+    private int live;
+
+    /** Number of times no hypothesis survived since the model was created. */
+    private long breaks;
+
+    /** Reusable tally of votes per device position. */
+    private final int[] votes;
+
+    /**
+     * Create a model for devices of a given size, with every hypothesis open.
+     * @param bits number of bits in the device, at most MAX_BITS
+     */
+    RotationModel(final int bits) {
+        if (!supports(bits)) {
+            throw new IllegalArgumentException("rotation model supports 1 to " + MAX_BITS + " bits, not " + bits);
+        }
+        this.bits = bits;
+        int count = bits + (bits - 1) * 2 * bits;
+        this.multiplier = new int[count];
+        this.step = new int[count];
+        this.spin = new int[count];
+        this.accumulator = new int[count];
+        this.offset = new int[count];
+        this.known = new long[count];
+        this.values = new long[count];
+        this.votes = new int[bits];
+        reset();
+    }
+
+    /**
+     * Whether a model can follow devices of a given size.
+     * @param bits number of bits in the device
+     * @return true if 1 &lt;= bits &lt;= MAX_BITS
+     */
+    static boolean supports(final int bits) {
+        return bits >= 1 && bits <= MAX_BITS;
+    }
+
+    /**
+     * Reopen every hypothesis, taking the ring's current rotation as the reference frame and forgetting
+     * every bit seen.
+     */
+    void reset() {
+        int h = 0;
+        for (int s = 0; s < bits; s++, h++) {
+            multiplier[h] = FIXED;
+            step[h] = s;
+        }
+        for (int m = 1; m < bits; m++) {
+            for (int j = 0; j < 2 * bits; j++, h++) {
+                multiplier[h] = m;
+                spin[h] = j % bits;
+                accumulator[h] = (int) ((long) m * (j * (j + 1L) / 2) % bits);
+            }
+        }
+        live = h;
+        Arrays.fill(offset, 0);
+        Arrays.fill(known, 0);
+        Arrays.fill(values, 0);
+    }
+
+    /**
+     * Drop every hypothesis the answer of a peek contradicts, and record what it disclosed in the rest.
+     * If the answer contradicts them all, the model starts over from this answer.
+     * @param peeked the pattern returned by a peek
+     * @return true if some hypothesis explained the answer
+     */
+    boolean peeked(final CharSequence peeked) {
+        long seen = positions(peeked, FALSE) | positions(peeked, TRUE);
+        long ones = positions(peeked, TRUE);
+        int before = live;
+        for (int h = 0; h < live; ) {
+            long mask = toFrame(seen, offset[h]);
+            long value = toFrame(ones, offset[h]);
+            if (((values[h] ^ value) & known[h] & mask) != 0) {
+                drop(h);
+            } else {
+                known[h] |= mask;
+                values[h] = (values[h] & ~mask) | value;
+                h++;
+            }
+        }
+        if (live > 0) {
+            return true;
+        }
+        if (before > 0) {
+            breaks++;
+        }
+        return false;
+    }
+
+    /**
+     * Record the values a poke wrote.
+     * @param pattern the pattern poked
+     */
+    void poked(final CharSequence pattern) {
+        long written = positions(pattern, FALSE) | positions(pattern, TRUE);
+        long ones = positions(pattern, TRUE);
+        for (int h = 0; h < live; h++) {
+            long mask = toFrame(written, offset[h]);
+            known[h] |= mask;
+            values[h] = (values[h] & ~mask) | toFrame(ones, offset[h]);
+        }
+    }
+
+    /**
+     * Advance every hypothesis by one spin. A spin that failed drops every hypothesis that knew the whole
+     * ring to be uniform.
+     * @param unlocked what the spin returned
+     */
+    void spun(final boolean unlocked) {
+        int before = live;
+        long full = full();
+        for (int h = 0; h < live; ) {
+            if (!unlocked && known[h] == full && (values[h] == 0 || values[h] == full)) {
+                drop(h);
+                continue;
+            }
+            if (multiplier[h] == FIXED) {
+                offset[h] = (offset[h] + step[h]) % bits;
+            } else {
+                spin[h] = (spin[h] + 1) % bits;
+                accumulator[h] = (accumulator[h] + spin[h] * multiplier[h]) % bits;
+                if (accumulator[h] > 1) {
+                    offset[h] = (offset[h] + accumulator[h] - 1) % bits;
+                }
+            }
+            h++;
+        }
+        if (live == 0 && before > 0) {
+            breaks++;
+        }
+    }
+
+    /**
+     * Whether every remaining hypothesis knows the same bits at the same positions of the device. Laws that
+     * differ only in where they put the ring before the first peek can never be told apart, and need not be.
+     * @return true if the model predicts where every known bit is
+     */
+    boolean confirmed() {
+        if (live == 0) {
+            return false;
+        }
+        long knownHere = toFrame(known[0], (bits - offset[0]) % bits);
+        long valuesHere = toFrame(values[0], (bits - offset[0]) % bits);
+        for (int h = 1; h < live; h++) {
+            if (toFrame(known[h], (bits - offset[h]) % bits) != knownHere
+                    || toFrame(values[h], (bits - offset[h]) % bits) != valuesHere) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Start of the window of adjacent positions that the remaining hypotheses, together, predict covers the
+     * most bits not known to hold a target value.
+     * @param disclosed width of the window
+     * @param target value every bit is being driven towards, TRUE or FALSE
+     * @return position of the window's first bit in the device's current frame, or -1 if no hypothesis
+     *     survives or every one knows the whole ring to hold the target already
+     */
+    int window(final int disclosed, final char target) {
+        if (live == 0) {
+            return -1;
+        }
+        Arrays.fill(votes, 0);
+        for (int h = 0; h < live; h++) {
+            long wrong = target == TRUE ? ~values[h] : values[h];
+            long open = (wrong | ~known[h]) & full();
+            // back to the device's current frame: bit f is position (f - offset) mod n
+            long positions = toFrame(open, (bits - offset[h]) % bits);
+            while (positions != 0) {
+                votes[Long.numberOfTrailingZeros(positions)]++;
+                positions &= positions - 1;
+            }
+        }
+        int best = -1;
+        long bestCovered = 0;
+        for (int start = 0; start < bits; start++) {
+            long covered = 0;
+            for (int i = 0; i < disclosed; i++) {
+                covered += votes[(start + i) % bits];
+            }
+            if (covered > bestCovered) {
+                best = start;
+                bestCovered = covered;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Number of hypotheses still consistent with everything seen.
+     * @return live hypothesis count
+     */
+    int hypotheses() {
+        return live;
+    }
+
+    /**
+     * Number of times every hypothesis was contradicted and the model started over.
+     * @return break count since the model was created
+     */
+    long breaks() {
+        return breaks;
+    }
+
+    /**
+     * Positions of a pattern holding a value.
+     * @param pattern a pattern of T, F and hidden bits
+     * @param value the value to look for
+     * @return bitset over device positions
+     */
+    private long positions(final CharSequence pattern, final char value) {
+        long found = 0;
+        for (int p = 0; p < bits; p++) {
+            if (pattern.charAt(p) == value) {
+                found |= 1L << p;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Move a set of device positions to the reference frame: position p is bit (p + offset) mod n.
+     * @param positions bitset over device positions
+     * @param rotation rotation of the ring since the last reset
+     * @return bitset over reference-frame bits
+     */
+    private long toFrame(final long positions, final int rotation) {
+        if (rotation == 0) {
+            return positions;
+        }
+        return ((positions << rotation) | (positions >>> (bits - rotation))) & full();
+    }
+
+    /**
+     * Bitset of every bit of the ring.
+     * @return n low bits set
+     */
+    private long full() {
+        return bits == Long.SIZE ? -1L : (1L << bits) - 1;
+    }
+
+    /**
+     * Remove a hypothesis, moving the last live one into its place.
+     * @param h index of the hypothesis to remove
+     */
+    private void drop(final int h) {
+        int last = --live;
+        multiplier[h] = multiplier[last];
+        step[h] = step[last];
+        spin[h] = spin[last];
+        accumulator[h] = accumulator[last];
+        offset[h] = offset[last];
+        known[h] = known[last];
+        values[h] = values[last];
+    }
+}
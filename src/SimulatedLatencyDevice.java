@@ -0,0 +1,114 @@
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An asynchronous device that answers for another device after a fixed delay, as a remote device would.
+ * <p>
+ *     Nothing waits for the delay: every operation is scheduled on an event loop and performed there when
+ *     it falls due, and its future completes on the loop thread. Continuations of those futures therefore
+ *     run on the loop too, so a single-threaded scheduler can drive any number of concurrent unlocks as
+ *     long as each step is cheap.
+ * </p>
+ * @version 1.0
+ * @see AsyncDeviceUnlocker
+ */
+public final class SimulatedLatencyDevice implements AsyncDevice {
+    /** Device performing the operations. */
+    private final Device delegate;
+
+    /** Geometry of the delegate. */
+    private final DeviceGeometry geometry;
+
+    /** Event loop the operations are performed on. */
+    private final ScheduledExecutorService loop;
+
+    /** Delay before each answer, in nanoseconds. */
+    private final long latencyNanos;
+
+    /**
+     * Wrap a device.
+     * @param delegate device performing the operations, e.g. a {@link TestingDevice}
+     * @param loop event loop the operations are performed on
+     * @param latency delay before each answer
+     */
+    public SimulatedLatencyDevice(final Device delegate, final ScheduledExecutorService loop, final Duration latency) {
+        this.delegate = delegate;
+        this.geometry = DeviceGeometry.of(delegate);
+        this.loop = loop;
+        this.latencyNanos = latency.toNanos();
+    }
+
+    /**
+     * Spin the wrapped device once the latency has passed.
+     * @return future of true if all bits of the wrapped device are the same value
+     */
+    @Override
+    public CompletableFuture<Boolean> spinAsync() {
+        CompletableFuture<Boolean> answer = new CompletableFuture<>();
+        loop.schedule(() -> {
+            try {
+                answer.complete(delegate.spin());
+            } catch (RuntimeException e) {
+                answer.completeExceptionally(e);
+            }
+        }, latencyNanos, TimeUnit.NANOSECONDS);
+        return answer;
+    }
+
+    /**
+     * Peek at the wrapped device once the latency has passed.
+     * @param pattern the requested pattern
+     * @return future of the pattern returned by the wrapped device
+     */
+    @Override
+    public CompletableFuture<CharSequence> peekAsync(final CharSequence pattern) {
+        CompletableFuture<CharSequence> answer = new CompletableFuture<>();
+        loop.schedule(() -> {
+            try {
+                answer.complete(delegate.peek(pattern));
+            } catch (RuntimeException e) {
+                answer.completeExceptionally(e);
+            }
+        }, latencyNanos, TimeUnit.NANOSECONDS);
+        return answer;
+    }
+
+    /**
+     * Poke the wrapped device once the latency has passed.
+     * @param pattern the pattern to poke
+     * @return future completed once the poke has been performed
+     */
+    @Override
+    public CompletableFuture<Void> pokeAsync(final CharSequence pattern) {
+        CompletableFuture<Void> answer = new CompletableFuture<>();
+        loop.schedule(() -> {
+            try {
+                delegate.poke(pattern);
+                answer.complete(null);
+            } catch (RuntimeException e) {
+                answer.completeExceptionally(e);
+            }
+        }, latencyNanos, TimeUnit.NANOSECONDS);
+        return answer;
+    }
+
+    /**
+     * Geometry of the wrapped device.
+     * @return bits and disclosure width
+     */
+    @Override
+    public DeviceGeometry geometry() {
+        return geometry;
+    }
+
+    /**
+     * Rendering of the wrapped device.
+     * @return the wrapped device's string form
+     */
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
@@ -0,0 +1,316 @@
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Monte Carlo evaluation of an unlock strategy over a generated population of devices.
+ * <p>
+ *     A run unlocks millions of {@link TestingDevice}s built directly from a {@link Population}: device
+ *     size, disclosure width, rotation mode and seed. The devices are split into chunks of
+ *     {@value #CHUNK} that run on a fork/join pool; each chunk draws its devices from its own
+ *     {@link SplittableRandom}, seeded from the population seed and the chunk number, and unlocks them
+ *     through its own strategy session into its own {@link SimulationReport.Tally}. Tallies are merged as
+ *     the chunks complete, so workers share nothing while they run, and a seed yields the same population
+ *     whichever thread happens to run each chunk. Each worker unlocks a single device from a
+ *     {@link DevicePool}, reset in place for every unlock, so a session must not keep a device once it
+ *     has returned its result. Each device makes its random rotations from a seed of
+ *     its own, and a strategy whose sessions are seeded too, such as
+ *     {@code () -> new GeneralizedDeviceUnlocker(geometry, new SplittableRandom(seed))}, makes the whole
+ *     run reproducible. The sessions of the built-in {@link UnlockStrategy strategies} go further: they are
+ *     reseeded from each device's seed before its unlock, so a seed the report lists among its
+ *     {@link SimulationReport#failedSeeds() failures} {@link #replay(Population, long, UnlockStrategy) replays}
+ *     that one unlock exactly. The workers switch {@link DeviceUnlocker#record(boolean) recording} off, so the
+ *     unlocks of a run, including those of a {@link StrategyCalibrator}, stay out of {@link UnlockMetrics}.
+ * </p>
+ * @version 1.0
+ * @see SimulationReport
+ * @see RotationMode
+ */
+public final class SimulationEngine {
+    /** Devices per chunk. */
+    static final int CHUNK = 4096;
+
+    /** Number of worker threads. */
+    private final int parallelism;
+
+    /**
+     * Create an engine running on every available processor.
+     */
+    public SimulationEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create an engine with a fixed number of worker threads.
+     * @param parallelism number of worker threads, at least 1
+     */
+    public SimulationEngine(final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive, not " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Unlock a population of devices on a dedicated pool, which is shut down before returning.
+     * @param population the devices to generate
+     * @param devices number of devices to unlock
+     * @param strategy creates one unlock session per chunk; a session is used by one thread at a time
+     * @return success rate, terminations and operations of the run
+     */
+    public SimulationReport run(final Population population, final long devices,
+                                final Supplier<? extends Function<? super Device, UnlockResult>> strategy) {
+        if (devices < 0) {
+            throw new IllegalArgumentException("device count must not be negative, not " + devices);
+        }
+        long startNanos = System.nanoTime();
+        long chunks = (devices + CHUNK - 1) / CHUNK;
+        SimulationReport.Tally tally = new SimulationReport.Tally();
+        if (chunks > 0) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                DevicePool reusable = new DevicePool(population.geometry(), population.mode());
+                tally = pool.invoke(new ChunkTask(population, reusable, devices, strategy, 0, chunks));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return new SimulationReport(population, tally, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Unlock a population of devices with a registered strategy, one session per chunk.
+     * @param population the devices to generate
+     * @param devices number of devices to unlock
+     * @param strategy the strategy, which must support the population's geometry
+     * @return success rate, terminations and operations of the run
+     */
+    public SimulationReport run(final Population population, final long devices, final UnlockStrategy strategy) {
+        if (!strategy.supports(population.geometry())) {
+            throw new IllegalArgumentException(strategy.name() + " does not support " + population.geometry() + " devices");
+        }
+        return run(population, devices, () -> strategy.session(population.geometry()));
+    }
+
+    /**
+     * Repeat one unlock of a run on the calling thread, such as one whose seed the run's report lists among
+     * its failures.
+     * @param population the population of the run
+     * @param seed seed of the device
+     * @param strategy the strategy of the run, which must support the population's geometry
+     * @return the result of the unlock; for a built-in strategy, equal to the original in all but its time
+     */
+    public static UnlockResult replay(final Population population, final long seed, final UnlockStrategy strategy) {
+        if (!strategy.supports(population.geometry())) {
+            throw new IllegalArgumentException(strategy.name() + " does not support " + population.geometry() + " devices");
+        }
+        Function<Device, UnlockResult> session = strategy.session(population.geometry());
+        if (session instanceof UnlockSession) {
+            ((UnlockSession) session).reseed(sessionSeed(seed));
+        }
+        boolean recorded = DeviceUnlocker.record(false);
+        try {
+            return session.apply(TestingDevice.create(population.geometry(), population.mode(), seed));
+        } finally {
+            DeviceUnlocker.record(recorded);
+        }
+    }
+
+    /**
+     * Seed of a chunk's generator: the population seed and chunk number, mixed so that neighbouring chunks
+     * draw unrelated streams.
+     * @param seed population seed
+     * @param chunk chunk number
+     * @return generator seed
+     */
+    static long chunkSeed(final long seed, final long chunk) {
+        return mix(seed + (chunk + 1) * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Seed of a session's random choices while it unlocks a device: the device's seed, mixed so that the
+     * session does not draw the very stream the device rotates by.
+     * @param seed seed of the device
+     * @return session seed
+     */
+    static long sessionSeed(final long seed) {
+        return mix(seed ^ 0xD1B54A32D192ED03L);
+    }
+
+    /**
+     * SplitMix64 finalizer.
+     * @param seed value to mix
+     * @return the mixed value
+     */
+    private static long mix(final long seed) {
+        long z = seed;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Devices of one geometry and rotation mode, generated from a seed.
+     */
+    public static final class Population {
+        /** Size and disclosure width of the devices. */
+        private final DeviceGeometry geometry;
+        /** How the devices rotate. */
+        private final RotationMode mode;
+        /** Seed of the population. */
+        private final long seed;
+
+        /**
+         * Describe a population.
+         * @param geometry size and disclosure width of the devices
+         * @param mode how the devices rotate
+         * @param seed seed of the population; equal seeds yield equal devices
+         */
+        public Population(final DeviceGeometry geometry, final RotationMode mode, final long seed) {
+            this.geometry = Objects.requireNonNull(geometry, "geometry");
+            this.mode = Objects.requireNonNull(mode, "mode");
+            this.seed = seed;
+        }
+
+        /**
+         * Size and disclosure width of the devices.
+         * @return device geometry
+         */
+        public DeviceGeometry geometry() {
+            return geometry;
+        }
+
+        /**
+         * How the devices rotate.
+         * @return rotation mode
+         */
+        public RotationMode mode() {
+            return mode;
+        }
+
+        /**
+         * Seed of the population.
+         * @return seed
+         */
+        public long seed() {
+            return seed;
+        }
+
+        /**
+         * Whether another object describes the same population.
+         * @param other object to compare
+         * @return true for a population of equal geometry, mode and seed
+         */
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Population)) {
+                return false;
+            }
+            Population that = (Population) other;
+            return geometry.equals(that.geometry) && mode == that.mode && seed == that.seed;
+        }
+
+        /**
+         * Hash consistent with equals.
+         * @return hash of geometry, mode and seed
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(geometry, mode, seed);
+        }
+
+        /**
+         * Describe the population.
+         * @return geometry, mode and seed
+         */
+        @Override
+        public String toString() {
+            return geometry + " " + mode + " seed " + seed;
+        }
+    }
+
+    /**
+     * Unlocks a range of chunks, splitting it in halves until a single chunk remains.
+     */
+    private static final class ChunkTask extends RecursiveTask<SimulationReport.Tally> {
+        /** Serialization version. */
+        private static final long serialVersionUID = 1L;
+        /** Devices to generate. */
+        private final Population population;
+        /** Device of each worker, reset for every unlock. */
+        private final DevicePool reusable;
+        /** Number of devices in the whole run. */
+        private final long devices;
+        /** Creates unlock sessions. */
+        private final Supplier<? extends Function<? super Device, UnlockResult>> strategy;
+        /** First chunk of the range. */
+        private final long from;
+        /** End of the range, exclusive. */
+        private final long to;
+
+        /**
+         * Prepare to unlock a range of chunks.
+         * @param population devices to generate
+         * @param reusable device of each worker
+         * @param devices number of devices in the whole run
+         * @param strategy creates unlock sessions
+         * @param from first chunk of the range
+         * @param to end of the range, exclusive
+         */
+        ChunkTask(final Population population, final DevicePool reusable, final long devices,
+                  final Supplier<? extends Function<? super Device, UnlockResult>> strategy,
+                  final long from, final long to) {
+            this.population = population;
+            this.reusable = reusable;
+            this.devices = devices;
+            this.strategy = strategy;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Unlock the range.
+         * @return tally of every unlock in the range
+         */
+        @Override
+        protected SimulationReport.Tally compute() {
+            if (to - from == 1) {
+                return runChunk(from);
+            }
+            long middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(population, reusable, devices, strategy, from, middle);
+            left.fork();
+            SimulationReport.Tally right = new ChunkTask(population, reusable, devices, strategy, middle, to).compute();
+            return left.join().merge(right);
+        }
+
+        /**
+         * Unlock the devices of one chunk.
+         * @param chunk chunk number
+         * @return tally of the chunk's unlocks
+         */
+        private SimulationReport.Tally runChunk(final long chunk) {
+            SplittableRandom random = new SplittableRandom(chunkSeed(population.seed(), chunk));
+            Function<? super Device, UnlockResult> session = strategy.get();
+            SimulationReport.Tally tally = new SimulationReport.Tally();
+            UnlockSession seeded = session instanceof UnlockSession ? (UnlockSession) session : null;
+            long end = Math.min(devices, (chunk + 1) * CHUNK);
+            boolean recorded = DeviceUnlocker.record(false);
+            try {
+                for (long i = chunk * CHUNK; i < end; i++) {
+                    long seed = random.nextLong();
+                    if (seeded != null) {
+                        seeded.reseed(sessionSeed(seed));
+                    }
+                    tally.record(session.apply(reusable.acquire(seed)), seed);
+                }
+            } finally {
+                DeviceUnlocker.record(recorded);
+            }
+            return tally;
+        }
+    }
+}
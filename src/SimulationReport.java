@@ -0,0 +1,324 @@
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Outcome of a simulated population of unlocks: success rate, terminations and the distribution of
+ * operations per unlock, with the statistics needed to compare two strategies.
+ * <p>
+ *     Reports are built by {@link SimulationEngine} from partial tallies that each worker fills on its own
+ *     and that are merged once the run completes; a finished report is immutable.
+ * </p>
+ * @version 1.0
+ * @see SimulationEngine
+ */
+public final class SimulationReport {
+    /** Two-sided 95% normal quantile. */
+    private static final double Z_95 = 1.959963984540054;
+
+    /** Population simulated. */
+    private final SimulationEngine.Population population;
+
+    /** Number of unlocks attempted. */
+    private final long devices;
+
+    /** Number of unlocks that left the device unlocked. */
+    private final long unlocked;
+
+    /** Unlocks per termination reason. */
+    private final Map<UnlockResult.Termination, Long> terminations;
+
+    /** Operations per unlock. */
+    private final LogHistogram operations;
+
+    /** Sum of operations per unlock. */
+    private final long operationSum;
+
+    /** Sum of squared operations per unlock. */
+    private final double operationSquares;
+
+    /** Number of spins over every unlock. */
+    private final long spins;
+
+    /** Number of peeks over every unlock. */
+    private final long peeks;
+
+    /** Number of pokes over every unlock. */
+    private final long pokes;
+
+    /** Time spent inside every unlock, as reported by the unlocks. */
+    private final long unlockNanos;
+
+    /** Wall-clock duration of the run. */
+    private final long elapsedNanos;
+
+    /** Seeds of the first devices left locked, in device order. */
+    private final long[] failedSeeds;
+
+    /**
+     * Freeze a merged tally.
+     * @param population population simulated
+     * @param tally every unlock of the run
+     * @param elapsedNanos wall-clock duration of the run
+     */
+    SimulationReport(final SimulationEngine.Population population, final Tally tally, final long elapsedNanos) {
+        this.population = population;
+        this.devices = tally.devices;
+        this.unlocked = tally.unlocked;
+        Map<UnlockResult.Termination, Long> counts = new EnumMap<>(UnlockResult.Termination.class);
+        for (UnlockResult.Termination termination : UnlockResult.Termination.values()) {
+            counts.put(termination, tally.terminations[termination.ordinal()]);
+        }
+        this.terminations = counts;
+        this.operations = tally.operations;
+        this.operationSum = tally.operationSum;
+        this.operationSquares = tally.operationSquares;
+        this.spins = tally.spins;
+        this.peeks = tally.peeks;
+        this.pokes = tally.pokes;
+        this.unlockNanos = tally.unlockNanos;
+        this.elapsedNanos = elapsedNanos;
+        this.failedSeeds = Arrays.copyOf(tally.failedSeeds, tally.failures);
+    }
+
+    /**
+     * Population simulated.
+     * @return geometry, rotation mode and seed of the devices
+     */
+    public SimulationEngine.Population population() {
+        return population;
+    }
+
+    /**
+     * Number of unlocks attempted.
+     * @return device count
+     */
+    public long devices() {
+        return devices;
+    }
+
+    /**
+     * Number of unlocks that left the device unlocked.
+     * @return success count
+     */
+    public long unlocked() {
+        return unlocked;
+    }
+
+    /**
+     * Number of unlocks that stopped for a reason.
+     * @param termination the reason
+     * @return count of unlocks that stopped for it
+     */
+    public long terminationCount(final UnlockResult.Termination termination) {
+        return terminations.get(termination);
+    }
+
+    /**
+     * Seeds of the first devices the run left locked, in the order the population generates them, at most
+     * {@value Tally#FAILED_SEEDS}; each rebuilds its device, and for a built-in strategy
+     * {@link SimulationEngine#replay(SimulationEngine.Population, long, UnlockStrategy) replays} its unlock.
+     * @return the seeds, empty if every unlock succeeded
+     */
+    public long[] failedSeeds() {
+        return failedSeeds.clone();
+    }
+
+    /**
+     * Fraction of unlocks that succeeded.
+     * @return success rate, or 0 if nothing was simulated
+     */
+    public double successRate() {
+        return devices == 0 ? 0.0 : (double) unlocked / devices;
+    }
+
+    /**
+     * Lower end of the 95% Wilson score interval on the success rate. A strategy meets a success target
+     * with 95% confidence when this bound is above it.
+     * @return lower confidence bound on the success rate, or 0 if nothing was simulated
+     */
+    public double successLowerBound() {
+        if (devices == 0) {
+            return 0.0;
+        }
+        double p = successRate();
+        double z2 = Z_95 * Z_95;
+        double centre = p + z2 / (2 * devices);
+        double spread = Z_95 * Math.sqrt(p * (1 - p) / devices + z2 / (4.0 * devices * devices));
+        return Math.max(0.0, (centre - spread) / (1 + z2 / devices));
+    }
+
+    /**
+     * Distribution of operations per unlock.
+     * @return histogram of operation counts; must not be modified
+     */
+    public LogHistogram operations() {
+        return operations;
+    }
+
+    /**
+     * Mean number of operations per unlock.
+     * @return exact mean, or 0 if nothing was simulated
+     */
+    public double meanOperations() {
+        return devices == 0 ? 0.0 : (double) operationSum / devices;
+    }
+
+    /**
+     * Mean number of spins per unlock.
+     * @return exact mean, or 0 if nothing was simulated
+     */
+    public double meanSpins() {
+        return devices == 0 ? 0.0 : (double) spins / devices;
+    }
+
+    /**
+     * Mean number of peeks per unlock.
+     * @return exact mean, or 0 if nothing was simulated
+     */
+    public double meanPeeks() {
+        return devices == 0 ? 0.0 : (double) peeks / devices;
+    }
+
+    /**
+     * Mean number of pokes per unlock.
+     * @return exact mean, or 0 if nothing was simulated
+     */
+    public double meanPokes() {
+        return devices == 0 ? 0.0 : (double) pokes / devices;
+    }
+
+    /**
+     * Mean time an unlock took, as measured by the unlock itself; against a simulated device this is the
+     * strategy's own computing time.
+     * @return mean nanoseconds per unlock, or 0 if nothing was simulated
+     */
+    public double meanUnlockNanos() {
+        return devices == 0 ? 0.0 : (double) unlockNanos / devices;
+    }
+
+    /**
+     * Standard error of the mean number of operations per unlock.
+     * @return sample standard deviation divided by the square root of the device count
+     */
+    public double operationsStandardError() {
+        if (devices < 2) {
+            return 0.0;
+        }
+        double mean = meanOperations();
+        double variance = Math.max(0.0, (operationSquares - devices * mean * mean) / (devices - 1));
+        return Math.sqrt(variance / devices);
+    }
+
+    /**
+     * Welch z statistic of the difference in mean operations between this report and another. Values
+     * below -1.96 mean this strategy needs fewer operations with 95% confidence; above 1.96, more.
+     * @param other report of another strategy, usually on an equal population
+     * @return (this mean - other mean) / combined standard error, or 0 if both errors are 0
+     */
+    public double compareOperations(final SimulationReport other) {
+        double error = Math.hypot(operationsStandardError(), other.operationsStandardError());
+        double difference = meanOperations() - other.meanOperations();
+        return error == 0 ? 0.0 : difference / error;
+    }
+
+    /**
+     * Wall-clock duration of the run.
+     * @return elapsed nanoseconds
+     */
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Summarise the report on one line.
+     * @return population, success rate and operation statistics
+     */
+    @Override
+    public String toString() {
+        return String.format("%s: %d unlocks, success %.5f (>= %.5f), ops mean %.3f +/- %.3f, p50 %d, p99 %d,"
+                        + " p99.9 %d, max %d, %.1f unlocks/ms",
+                population, devices, successRate(), successLowerBound(), meanOperations(),
+                Z_95 * operationsStandardError(), operations.percentile(0.5), operations.percentile(0.99),
+                operations.percentile(0.999), operations.max(), devices / Math.max(1e-6, elapsedNanos / 1e6));
+    }
+
+    /**
+     * Running totals of the unlocks of one worker. Not thread-safe; tallies are merged when workers finish.
+     */
+    static final class Tally {
+        /** Number of failing seeds kept. */
+        static final int FAILED_SEEDS = 16;
+        /** Number of unlocks attempted. */
+        private long devices;
+        /** Number of unlocks that left the device unlocked. */
+        private long unlocked;
+        /** Unlocks per termination ordinal. */
+        private final long[] terminations = new long[UnlockResult.Termination.values().length];
+        /** Operations per unlock. */
+        private final LogHistogram operations = new LogHistogram();
+        /** Sum of operations per unlock. */
+        private long operationSum;
+        /** Sum of squared operations per unlock. */
+        private double operationSquares;
+        /** Number of spins over every unlock. */
+        private long spins;
+        /** Number of peeks over every unlock. */
+        private long peeks;
+        /** Number of pokes over every unlock. */
+        private long pokes;
+        /** Time spent inside every unlock. */
+        private long unlockNanos;
+        /** Seeds of the first devices left locked. */
+        private final long[] failedSeeds = new long[FAILED_SEEDS];
+        /** Number of seeds in failedSeeds. */
+        private int failures;
+
+        /**
+         * Count one unlock.
+         * @param result what the unlock returned
+         * @param seed seed of the device
+         */
+        void record(final UnlockResult result, final long seed) {
+            devices++;
+            if (result.unlocked()) {
+                unlocked++;
+            } else if (failures < FAILED_SEEDS) {
+                failedSeeds[failures++] = seed;
+            }
+            terminations[result.termination().ordinal()]++;
+            long count = result.operationCount();
+            operations.record(count);
+            operationSum += count;
+            operationSquares += (double) count * count;
+            spins += result.spins();
+            peeks += result.peeks();
+            pokes += result.pokes();
+            unlockNanos += result.elapsedNanos();
+        }
+
+        /**
+         * Add another worker's unlocks, of devices generated after this tally's, to this tally.
+         * @param other the tally to add; not modified
+         * @return this tally
+         */
+        Tally merge(final Tally other) {
+            devices += other.devices;
+            unlocked += other.unlocked;
+            for (int i = 0; i < terminations.length; i++) {
+                terminations[i] += other.terminations[i];
+            }
+            operations.merge(other.operations);
+            operationSum += other.operationSum;
+            operationSquares += other.operationSquares;
+            spins += other.spins;
+            peeks += other.peeks;
+            pokes += other.pokes;
+            unlockNanos += other.unlockNanos;
+            for (int i = 0; i < other.failures && failures < FAILED_SEEDS; i++) {
+                failedSeeds[failures++] = other.failedSeeds[i];
+            }
+            return this;
+        }
+    }
+}
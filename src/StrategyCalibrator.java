@@ -0,0 +1,324 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Opt-in tuning that measures every registered strategy supporting a geometry and makes the cheapest one
+ * the strategy {@link DeviceUnlocker} uses for it.
+ * <p>
+ *     Each candidate unlocks the same short simulated workload, an equal number of {@link TestingDevice}s
+ *     of every {@link RotationMode}, on a {@link SimulationEngine} spread over every processor, once every
+ *     candidate has been warmed up; like every simulated unlock, these stay out of {@link UnlockMetrics}.
+ *     A candidate's cost is the expected time of a successful unlock: its mean spins, peeks and pokes,
+ *     weighted by what each operation costs on the target hardware, plus its own computing time, divided
+ *     by its success rate. The winner is recorded per geometry in a small properties profile, by
+ *     default {@code calibration.properties} in the {@link StrategyTables#directory() strategy table
+ *     directory}, or the file named by the {@value #PROFILE_PROPERTY} system property, so that later JVMs
+ *     reuse it instead of measuring again. A profile written for other operation costs is ignored and
+ *     replaced, and if the profile cannot be written the choice is kept for this JVM only.
+ * </p>
+ * @version 1.0
+ * @see UnlockStrategies#prefer(DeviceGeometry, String)
+ * @see SimulationEngine
+ */
+public final class StrategyCalibrator {
+    /** System property naming the calibration profile file. */
+    public static final String PROFILE_PROPERTY = "deviceunlocker.calibration.profile";
+
+    /** Default cost of a device operation: a microsecond, as for a device on the local network. */
+    public static final double DEFAULT_OPERATION_NANOS = 1000.0;
+
+    /** Default number of devices of each rotation mode a candidate unlocks. */
+    static final long DEVICES_PER_MODE = 2000;
+
+    /** Seed of the calibration workloads, fixed so that every calibration measures the same devices. */
+    private static final long SEED = 0x5EEDL;
+
+    /** Profile key recording the operation costs the profile was measured for. */
+    private static final String COSTS_KEY = "costs";
+
+    /** Cost of a spin, in nanoseconds. */
+    private final double spinNanos;
+
+    /** Cost of a peek, in nanoseconds. */
+    private final double peekNanos;
+
+    /** Cost of a poke, in nanoseconds. */
+    private final double pokeNanos;
+
+    /** Number of devices of each rotation mode a candidate unlocks. */
+    private final long devicesPerMode;
+
+    /** File holding the profile. */
+    private final Path profile;
+
+    /** Runs the workloads. */
+    private final SimulationEngine engine = new SimulationEngine();
+
+    /**
+     * Create a calibrator for hardware on which every device operation costs {@value #DEFAULT_OPERATION_NANOS}
+     * nanoseconds.
+     */
+    public StrategyCalibrator() {
+        this(DEFAULT_OPERATION_NANOS, DEFAULT_OPERATION_NANOS, DEFAULT_OPERATION_NANOS);
+    }
+
+    /**
+     * Create a calibrator for hardware with the given operation costs, using the configured profile.
+     * @param spinNanos cost of a spin, in nanoseconds
+     * @param peekNanos cost of a peek, in nanoseconds
+     * @param pokeNanos cost of a poke, in nanoseconds
+     */
+    public StrategyCalibrator(final double spinNanos, final double peekNanos, final double pokeNanos) {
+        this(spinNanos, peekNanos, pokeNanos, DEVICES_PER_MODE, profile());
+    }
+
+    /**
+     * Create a calibrator with a given workload and profile.
+     * @param spinNanos cost of a spin, in nanoseconds
+     * @param peekNanos cost of a peek, in nanoseconds
+     * @param pokeNanos cost of a poke, in nanoseconds
+     * @param devicesPerMode number of devices of each rotation mode a candidate unlocks
+     * @param profile file holding the profile
+     */
+    StrategyCalibrator(final double spinNanos, final double peekNanos, final double pokeNanos,
+                       final long devicesPerMode, final Path profile) {
+        if (!(spinNanos >= 0 && peekNanos >= 0 && pokeNanos >= 0)) {
+            throw new IllegalArgumentException("operation costs must not be negative: "
+                    + spinNanos + "/" + peekNanos + "/" + pokeNanos);
+        }
+        if (devicesPerMode < 1) {
+            throw new IllegalArgumentException("workload must hold at least one device, not " + devicesPerMode);
+        }
+        this.spinNanos = spinNanos;
+        this.peekNanos = peekNanos;
+        this.pokeNanos = pokeNanos;
+        this.devicesPerMode = devicesPerMode;
+        this.profile = profile;
+    }
+
+    /**
+     * File holding the calibration profile.
+     * @return the configured or default profile path
+     */
+    public static Path profile() {
+        String configured = System.getProperty(PROFILE_PROPERTY);
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        return StrategyTables.directory().resolve("calibration.properties");
+    }
+
+    /**
+     * Make the cheapest strategy for a geometry the one {@link DeviceUnlocker} uses, taking it from the
+     * profile if it was measured before for the same operation costs and is still registered, and
+     * measuring every candidate and recording the winner otherwise.
+     * @param geometry size and disclosure width of the devices
+     * @return the strategy now used for the geometry
+     */
+    public UnlockStrategy calibrate(final DeviceGeometry geometry) {
+        synchronized (StrategyCalibrator.class) {
+            Properties recorded = load();
+            String name = recorded.getProperty(key(geometry));
+            UnlockStrategy strategy = name == null ? null : UnlockStrategies.named(name);
+            if (strategy == null || !strategy.supports(geometry)) {
+                List<UnlockStrategy> candidates = UnlockStrategies.supporting(geometry);
+                strategy = candidates.size() == 1 ? candidates.get(0) : UnlockStrategies.named(measure(geometry).get(0).strategy());
+                recorded.setProperty(key(geometry), strategy.name());
+                save(recorded);
+            }
+            UnlockStrategies.prefer(geometry, strategy.name());
+            return strategy;
+        }
+    }
+
+    /**
+     * Measure every registered strategy supporting a geometry on the calibration workload.
+     * @param geometry size and disclosure width of the devices
+     * @return one measurement per candidate, cheapest first
+     */
+    public List<Measurement> measure(final DeviceGeometry geometry) {
+        List<UnlockStrategy> candidates = UnlockStrategies.supporting(geometry);
+        // warm every candidate up before timing any, so that none is timed while code they share compiles
+        for (UnlockStrategy candidate : candidates) {
+            engine.run(new SimulationEngine.Population(geometry, RotationMode.POLYNOMIAL, ~SEED), devicesPerMode, candidate);
+        }
+        List<Measurement> measurements = new ArrayList<>();
+        for (UnlockStrategy candidate : candidates) {
+            List<SimulationReport> reports = new ArrayList<>();
+            for (RotationMode mode : RotationMode.values()) {
+                reports.add(engine.run(new SimulationEngine.Population(geometry, mode, SEED + mode.ordinal()),
+                        devicesPerMode, candidate));
+            }
+            measurements.add(new Measurement(candidate.name(), reports));
+        }
+        measurements.sort(Comparator.comparingDouble(Measurement::cost));
+        return measurements;
+    }
+
+    /**
+     * Profile key of a geometry.
+     * @param geometry size and disclosure width of the devices
+     * @return the key
+     */
+    private static String key(final DeviceGeometry geometry) {
+        return geometry.bits() + "-" + geometry.disclosed();
+    }
+
+    /**
+     * Profile value recording this calibrator's operation costs.
+     * @return spin, peek and poke costs
+     */
+    private String costs() {
+        return spinNanos + "/" + peekNanos + "/" + pokeNanos;
+    }
+
+    /**
+     * Read the profile.
+     * @return its entries, or no entries if it is missing, unreadable, or was measured for other costs
+     */
+    private Properties load() {
+        Properties recorded = new Properties();
+        if (Files.isRegularFile(profile)) {
+            try (InputStream in = Files.newInputStream(profile)) {
+                recorded.load(in);
+            } catch (IOException | IllegalArgumentException e) {
+                // unreadable or corrupt: measure again and replace it
+                recorded.clear();
+            }
+        }
+        if (!costs().equals(recorded.getProperty(COSTS_KEY))) {
+            recorded.clear();
+        }
+        recorded.setProperty(COSTS_KEY, costs());
+        return recorded;
+    }
+
+    /**
+     * Replace the profile, atomically where the file system allows it.
+     * @param recorded every entry of the profile
+     */
+    private void save(final Properties recorded) {
+        try {
+            Path directory = profile.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, profile.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(temporary)) {
+                    recorded.store(out, "fastest unlock strategy per geometry, bits-disclosed=strategy");
+                }
+                try {
+                    Files.move(temporary, profile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException atomicMoveUnsupported) {
+                    Files.move(temporary, profile, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            // not persistable here; the choice still holds for this JVM
+        }
+    }
+
+    /**
+     * What a candidate strategy cost on the calibration workload.
+     */
+    public final class Measurement {
+        /** Name of the strategy. */
+        private final String strategy;
+        /** Fraction of unlocks that succeeded. */
+        private final double successRate;
+        /** Mean spins per unlock. */
+        private final double spins;
+        /** Mean peeks per unlock. */
+        private final double peeks;
+        /** Mean pokes per unlock. */
+        private final double pokes;
+        /** Mean computing time per unlock, in nanoseconds. */
+        private final double unlockNanos;
+
+        /**
+         * Combine the reports of a strategy's workloads, which all hold the same number of devices.
+         * @param strategy name of the strategy
+         * @param reports one report per rotation mode
+         */
+        Measurement(final String strategy, final List<SimulationReport> reports) {
+            this.strategy = strategy;
+            double success = 0;
+            double spun = 0;
+            double peeked = 0;
+            double poked = 0;
+            double nanos = 0;
+            for (SimulationReport report : reports) {
+                success += report.successRate();
+                spun += report.meanSpins();
+                peeked += report.meanPeeks();
+                poked += report.meanPokes();
+                nanos += report.meanUnlockNanos();
+            }
+            this.successRate = success / reports.size();
+            this.spins = spun / reports.size();
+            this.peeks = peeked / reports.size();
+            this.pokes = poked / reports.size();
+            this.unlockNanos = nanos / reports.size();
+        }
+
+        /**
+         * Name of the strategy.
+         * @return the strategy's name
+         */
+        public String strategy() {
+            return strategy;
+        }
+
+        /**
+         * Fraction of unlocks that succeeded.
+         * @return success rate
+         */
+        public double successRate() {
+            return successRate;
+        }
+
+        /**
+         * Mean computing time per unlock.
+         * @return nanoseconds
+         */
+        public double unlockNanos() {
+            return unlockNanos;
+        }
+
+        /**
+         * Mean cost of the operations of an unlock on the calibrated hardware.
+         * @return nanoseconds
+         */
+        public double operationNanos() {
+            return spins * spinNanos + peeks * peekNanos + pokes * pokeNanos;
+        }
+
+        /**
+         * Expected time of a successful unlock.
+         * @return nanoseconds, or infinity if no unlock succeeded
+         */
+        public double cost() {
+            return successRate == 0 ? Double.POSITIVE_INFINITY : (operationNanos() + unlockNanos) / successRate;
+        }
+
+        /**
+         * Summarise the measurement on one line.
+         * @return strategy, success rate, operations and cost
+         */
+        @Override
+        public String toString() {
+            return String.format("%s: success %.5f, %.2f spins, %.2f peeks, %.2f pokes, %.0f ns computing,"
+                    + " %.0f ns per unlock", strategy, successRate, spins, peeks, pokes, unlockNanos, cost());
+        }
+    }
+}
@@ -0,0 +1,451 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Offline search for deterministic unlock plans.
+ * <p>
+ *     The solver explores knowledge states: the set of configurations, up to rotation, that a locked
+ *     device might be in. From a state it tries every peek mask (itself only up to rotation), splits
+ *     the state by what the peek would reveal, and for each revealed value looks for a poke after which
+ *     the next spin either unlocks the device or leads to a state that is solvable in one round fewer.
+ *     Iterative deepening makes the first plan found minimal in worst-case spins. Solved and unsolvable
+ *     states are memoized across depths, and the independent branches of a state are searched in
+ *     parallel on a fork/join pool.
+ * </p>
+ * <p>
+ *     Devices of more than {@value Necklaces#MAX_BITS} bits are not searched. Geometries for which no
+ *     deterministic plan exists (for example most with a disclosure width below half the size) simply
+ *     yield no plan within the round limit.
+ * </p>
+ * @version 1.0
+ * @see UnlockPlan
+ */
+public final class StrategySolver {
+    /**
+     * Remaining-round depth at or above which the branches of a state are forked rather than searched in line.
+     */
+    private static final int PARALLEL_DEPTH = 3;
+
+    /** Pool the search runs on. */
+    private final ForkJoinPool pool;
+
+    /**
+     * Create a solver running on the common fork/join pool.
+     */
+    public StrategySolver() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a solver running on the given pool.
+     * @param pool the fork/join pool to search on
+     */
+    public StrategySolver(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Search for a plan that unlocks every device of a geometry, whatever its configuration and rotations,
+     * within the fewest possible rounds.
+     * @param geometry the device geometry; at most {@value Necklaces#MAX_BITS} bits and at least one disclosed bit
+     * @param maxRounds largest worst-case number of peek/poke/spin rounds to accept
+     * @return a plan with minimal worst-case rounds, or null if none exists within maxRounds
+     */
+    public UnlockPlan solve(DeviceGeometry geometry, int maxRounds) {
+        if (geometry.bits() > Necklaces.MAX_BITS || geometry.disclosed() < 1 || geometry.disclosed() > geometry.bits()) {
+            throw new IllegalArgumentException("cannot search plans for geometry " + geometry);
+        }
+        Search search = new Search(geometry);
+        BeliefState root = BeliefState.locked(search.necklaces);
+        if (root.isEmpty()) {
+            // every configuration of a 1-bit device is uniform
+            return new UnlockPlan(geometry, new int[0], new int[0], new int[0], 0);
+        }
+        for (int rounds = 1; rounds <= maxRounds; rounds++) {
+            Node node = pool.invoke(new SolveTask(search, root, rounds));
+            if (node != null) {
+                return search.toPlan(node);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A solved knowledge state: what to peek and, per observation, what to poke and where to go next.
+     */
+    private static final class Node {
+        /** Marker child for observations after which the spin always unlocks. */
+        static final Node UNLOCKED = new Node(0, null, null, 0);
+
+        /** Positions to peek and poke. */
+        final int mask;
+        /** Poke values per observation. */
+        final int[] poke;
+        /** Next state per observation; UNLOCKED, or null if the observation is impossible. */
+        final Node[] next;
+        /** Worst-case rounds from this state. */
+        final int rounds;
+
+        /**
+         * Record a solved state.
+         * @param mask positions to peek and poke
+         * @param poke poke values per observation
+         * @param next next state per observation
+         * @param rounds worst-case rounds from this state
+         */
+        Node(int mask, int[] poke, Node[] next, int rounds) {
+            this.mask = mask;
+            this.poke = poke;
+            this.next = next;
+            this.rounds = rounds;
+        }
+    }
+
+    /**
+     * Per-geometry search context and memo tables, shared by all tasks of one solve.
+     */
+    private static final class Search {
+        /** Configurations of the device size. */
+        final Necklaces necklaces;
+        /** Geometry being solved. */
+        final DeviceGeometry geometry;
+        /** Number of distinct observations. */
+        final int observations;
+        /** Peek masks to try, one per rotation class. */
+        final int[] masks;
+        /** States solved so far, with the best plan found for each. */
+        final ConcurrentMap<BeliefState, Node> solved = new ConcurrentHashMap<>();
+        /** States known to be unsolvable within the recorded number of rounds. */
+        final ConcurrentMap<BeliefState, Integer> unsolvable = new ConcurrentHashMap<>();
+
+        /**
+         * Prepare to search a geometry.
+         * @param geometry the geometry to solve
+         */
+        Search(DeviceGeometry geometry) {
+            this.geometry = geometry;
+            this.necklaces = Necklaces.of(geometry.bits());
+            this.observations = 1 << geometry.disclosed();
+            List<Integer> candidates = new ArrayList<>();
+            PeekPatterns patterns = new PeekPatterns(geometry.bits(), geometry.disclosed());
+            for (long mask = patterns.first(); mask != PeekPatterns.NONE; mask = patterns.next(mask)) {
+                if (necklaces.canonical((int) mask) == mask) candidates.add((int) mask);
+            }
+            this.masks = new int[candidates.size()];
+            for (int i = 0; i < masks.length; i++) {
+                masks[i] = candidates.get(i);
+            }
+        }
+
+        /**
+         * Look up a state solvable within a number of rounds.
+         * @param belief the state
+         * @param rounds rounds available
+         * @return a recorded plan node, or null if not yet known
+         */
+        Node known(BeliefState belief, int rounds) {
+            Node node = solved.get(belief);
+            return node != null && node.rounds <= rounds ? node : null;
+        }
+
+        /**
+         * Whether a state is already known to need more rounds than available.
+         * @param belief the state
+         * @param rounds rounds available
+         * @return true if searching is pointless
+         */
+        boolean hopeless(BeliefState belief, int rounds) {
+            Integer failed = unsolvable.get(belief);
+            return failed != null && failed >= rounds;
+        }
+
+        /**
+         * Record that a state cannot be solved within a number of rounds.
+         * @param belief the state
+         * @param rounds rounds that were available
+         */
+        void fail(BeliefState belief, int rounds) {
+            unsolvable.merge(belief, rounds, Math::max);
+        }
+
+        /**
+         * Split a state by what a peek at a mask would reveal.
+         * @param belief the state
+         * @param mask positions to peek
+         * @return per observation, the rotated configurations revealing it; null for impossible observations
+         */
+        int[][] split(BeliefState belief, int mask) {
+            int[][] groups = new int[observations][];
+            int[] sizes = new int[observations];
+            int bits = necklaces.bits();
+            for (int id = belief.next(0); id >= 0; id = belief.next(id + 1)) {
+                int code = necklaces.code(id);
+                for (int r = 0; r < bits; r++) {
+                    int rotated = necklaces.rotate(code, r);
+                    int observation = UnlockPlan.extract(rotated, mask);
+                    if (groups[observation] == null) groups[observation] = new int[belief.size() * bits];
+                    groups[observation][sizes[observation]++] = rotated;
+                }
+            }
+            for (int observation = 0; observation < observations; observation++) {
+                if (groups[observation] != null) groups[observation] = Arrays.copyOf(groups[observation], sizes[observation]);
+            }
+            return groups;
+        }
+
+        /**
+         * State after poking values into every configuration of a group, excluding the ones the next spin unlocks.
+         * @param group rotated configurations sharing an observation
+         * @param mask positions poked
+         * @param poke values poked, packed in mask-position order
+         * @return the state after the failed spin
+         */
+        BeliefState apply(int[] group, int mask, int poke) {
+            BeliefState.Builder after = new BeliefState.Builder(necklaces);
+            int scattered = UnlockPlan.deposit(poke, mask);
+            for (int code : group) {
+                after.add((code & ~mask) | scattered);
+            }
+            return after.build();
+        }
+
+        /**
+         * Number every node reachable from a root and flatten them into a plan.
+         * @param root the starting node
+         * @return the plan
+         */
+        UnlockPlan toPlan(Node root) {
+            Map<Node, Integer> numbers = new IdentityHashMap<>();
+            List<Node> order = new ArrayList<>();
+            numbers.put(root, 0);
+            order.add(root);
+            for (int i = 0; i < order.size(); i++) {
+                for (Node child : order.get(i).next) {
+                    if (child != null && child != Node.UNLOCKED && !numbers.containsKey(child)) {
+                        numbers.put(child, order.size());
+                        order.add(child);
+                    }
+                }
+            }
+            int[] peekMasks = new int[order.size()];
+            int[] pokeValues = new int[order.size() * observations];
+            int[] next = new int[order.size() * observations];
+            for (int i = 0; i < order.size(); i++) {
+                Node node = order.get(i);
+                peekMasks[i] = node.mask;
+                for (int observation = 0; observation < observations; observation++) {
+                    Node child = node.next[observation];
+                    int slot = i * observations + observation;
+                    pokeValues[slot] = node.poke[observation];
+                    if (child == null) {
+                        next[slot] = UnlockPlan.IMPOSSIBLE;
+                    } else if (child == Node.UNLOCKED) {
+                        next[slot] = UnlockPlan.UNLOCKED;
+                    } else {
+                        next[slot] = numbers.get(child);
+                    }
+                }
+            }
+            return new UnlockPlan(geometry, peekMasks, pokeValues, next, root.rounds);
+        }
+    }
+
+    /**
+     * Solves one knowledge state within a number of rounds, trying each peek mask in turn.
+     */
+    private static final class SolveTask extends RecursiveTask<Node> {
+        /** Serialization version. */
+        private static final long serialVersionUID = 1L;
+        /** Shared search context. */
+        private final Search search;
+        /** The state to solve. */
+        private final BeliefState belief;
+        /** Rounds available. */
+        private final int rounds;
+
+        /**
+         * Prepare to solve a state.
+         * @param search shared search context
+         * @param belief the state to solve
+         * @param rounds rounds available
+         */
+        SolveTask(Search search, BeliefState belief, int rounds) {
+            this.search = search;
+            this.belief = belief;
+            this.rounds = rounds;
+        }
+
+        @Override
+        protected Node compute() {
+            Node node = search.known(belief, rounds);
+            if (node != null) return node;
+            if (rounds == 0 || search.hopeless(belief, rounds)) return null;
+            for (int mask : search.masks) {
+                int[][] groups = search.split(belief, mask);
+                BranchTask[] branches = new BranchTask[groups.length];
+                List<BranchTask> pending = new ArrayList<>();
+                AtomicBoolean abandoned = new AtomicBoolean();
+                for (int observation = 0; observation < groups.length; observation++) {
+                    if (groups[observation] != null) {
+                        branches[observation] = new BranchTask(search, groups[observation], mask, rounds - 1, abandoned);
+                        pending.add(branches[observation]);
+                    }
+                }
+                // the largest groups are the likeliest to fail, so settle them first
+                pending.sort((a, b) -> Integer.compare(b.group.length, a.group.length));
+                if (rounds >= PARALLEL_DEPTH) {
+                    ForkJoinTask.invokeAll(pending);
+                } else {
+                    for (BranchTask branch : pending) {
+                        if (!branch.run()) break;
+                    }
+                }
+                node = combine(mask, branches);
+                if (node != null) {
+                    search.solved.merge(belief, node, (a, b) -> a.rounds <= b.rounds ? a : b);
+                    return node;
+                }
+            }
+            search.fail(belief, rounds);
+            return null;
+        }
+
+        /**
+         * Build a node from the branches of one mask, if every possible observation was solved.
+         * @param mask the mask peeked
+         * @param branches per-observation branch searches; null for impossible observations
+         * @return the solved node, or null if some branch failed
+         */
+        private Node combine(int mask, BranchTask[] branches) {
+            int[] poke = new int[branches.length];
+            Node[] next = new Node[branches.length];
+            int worst = 1;
+            for (int observation = 0; observation < branches.length; observation++) {
+                BranchTask branch = branches[observation];
+                if (branch == null) continue;
+                if (!branch.solvedBranch) return null;
+                poke[observation] = branch.poke;
+                next[observation] = branch.next;
+                if (branch.next != Node.UNLOCKED) worst = Math.max(worst, 1 + branch.next.rounds);
+            }
+            return new Node(mask, poke, next, worst);
+        }
+    }
+
+    /**
+     * Finds a poke for one observation of a state that leads to an unlock or a solvable state.
+     */
+    private static final class BranchTask extends RecursiveTask<Boolean> {
+        /** Serialization version. */
+        private static final long serialVersionUID = 1L;
+        /** Shared search context. */
+        private final Search search;
+        /** Rotated configurations sharing the observation. */
+        final int[] group;
+        /** Positions peeked and poked. */
+        private final int mask;
+        /** Rounds available after this one. */
+        private final int rounds;
+        /** Set by the first sibling branch that fails, since the mask is then useless. */
+        private final AtomicBoolean abandoned;
+        /** Whether a poke was found. */
+        boolean solvedBranch;
+        /** Poke values found. */
+        int poke;
+        /** Next state for the poke found. */
+        Node next;
+
+        /**
+         * Prepare to search one branch.
+         * @param search shared search context
+         * @param group rotated configurations sharing the observation
+         * @param mask positions peeked and poked
+         * @param rounds rounds available after this one
+         * @param abandoned flag shared with the sibling branches of the same mask
+         */
+        BranchTask(Search search, int[] group, int mask, int rounds, AtomicBoolean abandoned) {
+            this.search = search;
+            this.group = group;
+            this.mask = mask;
+            this.rounds = rounds;
+            this.abandoned = abandoned;
+        }
+
+        /**
+         * Search this branch in the calling thread.
+         * @return true if a poke was found
+         */
+        boolean run() {
+            return compute();
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (abandoned.get()) return false;
+            int pokes = 1 << Integer.bitCount(mask);
+            BeliefState[] outcomes = new BeliefState[pokes];
+            for (int candidate = 0; candidate < pokes; candidate++) {
+                outcomes[candidate] = search.apply(group, mask, candidate);
+                if (outcomes[candidate].isEmpty()) {
+                    return found(candidate, Node.UNLOCKED);
+                }
+            }
+            if (rounds > 0) {
+                // try the pokes that leave the fewest possibilities first
+                Integer[] order = new Integer[pokes];
+                for (int candidate = 0; candidate < pokes; candidate++) {
+                    order[candidate] = candidate;
+                }
+                Arrays.sort(order, (a, b) -> Integer.compare(outcomes[a].size(), outcomes[b].size()));
+                for (int i = 0; i < pokes && !abandoned.get(); i++) {
+                    int candidate = order[i];
+                    if (dominated(outcomes, order, i)) continue;
+                    Node node = new SolveTask(search, outcomes[candidate], rounds).compute();
+                    if (node != null) {
+                        return found(candidate, node);
+                    }
+                }
+            }
+            abandoned.set(true);
+            return false;
+        }
+
+        /**
+         * Whether an outcome contains an outcome tried before it. Whatever solves the larger state also
+         * solves the smaller, so if the smaller one failed the larger one will too.
+         * @param outcomes state after each poke
+         * @param order pokes sorted by outcome size
+         * @param i position in order of the poke to check
+         * @return true if the poke need not be tried
+         */
+        private static boolean dominated(BeliefState[] outcomes, Integer[] order, int i) {
+            BeliefState outcome = outcomes[order[i]];
+            for (int j = 0; j < i; j++) {
+                if (outcomes[order[j]].isSubsetOf(outcome)) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Record a successful poke.
+         * @param candidate the poke values
+         * @param node the resulting next state
+         * @return true
+         */
+        private boolean found(int candidate, Node node) {
+            poke = candidate;
+            next = node;
+            solvedBranch = true;
+            return true;
+        }
+    }
+}
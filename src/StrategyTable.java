@@ -0,0 +1,272 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact binary form of an {@link UnlockPlan}, readable in place from a memory-mapped file.
+ * <p>
+ *     Layout (big-endian):
+ * </p>
+ * <pre>
+ *   header   int magic 'RLST', short version, short bits, short disclosed, short reserved,
+ *            int node count, int rounds
+ *   masks    int peek mask, one per node
+ *   entries  per node, per observation: int poke mask, int next node, int spin count
+ * </pre>
+ * <p>
+ *     Every mask, next node and spin count is range-checked when a table is wrapped or mapped, so a stale
+ *     or damaged file is rejected rather than trusted.
+ * </p>
+ * <p>
+ *     A poke mask has a bit set for every peeked position to be poked 'T'; the other peeked positions
+ *     are poked 'F'. The next node is {@link UnlockPlan#UNLOCKED} or {@link UnlockPlan#IMPOSSIBLE} when
+ *     there is none, and the spin count is 0 for impossible observations. Tables are immutable and only
+ *     read with absolute gets, so one mapped table can be shared by every thread of a JVM and, through
+ *     the page cache, by every JVM on a host.
+ * </p>
+ * @version 1.0
+ * @see StrategyTableExecutor
+ * @see StrategyTables
+ */
+public final class StrategyTable {
+    /** File signature, "RLST". */
+    private static final int MAGIC = 0x524C5354;
+
+    /** Format version. */
+    private static final short VERSION = 1;
+
+    /** Header size in bytes. */
+    private static final int HEADER_BYTES = 20;
+
+    /** Size of one entry in bytes. */
+    private static final int ENTRY_BYTES = 12;
+
+    /** Table contents, positioned at the header. */
+    private final ByteBuffer buffer;
+
+    /** Geometry this table unlocks. */
+    private final DeviceGeometry geometry;
+
+    /** Number of nodes. */
+    private final int nodeCount;
+
+    /** Number of observations per node. */
+    private final int observations;
+
+    /** Worst-case rounds after the initial spin. */
+    private final int rounds;
+
+    /**
+     * Wrap and validate table contents.
+     * @param buffer table contents, starting at the header
+     * @throws IOException if the contents are not a well-formed table
+     */
+    private StrategyTable(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("not a strategy table");
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("unsupported strategy table version " + buffer.getShort(4));
+        }
+        this.geometry = new DeviceGeometry(buffer.getShort(6), buffer.getShort(8));
+        this.nodeCount = buffer.getInt(12);
+        this.rounds = buffer.getInt(16);
+        this.observations = 1 << geometry.disclosed();
+        long expected = HEADER_BYTES + 4L * nodeCount + (long) ENTRY_BYTES * nodeCount * observations;
+        if (geometry.disclosed() > 30 || nodeCount < 0 || buffer.capacity() != expected) {
+            throw new IOException("truncated or corrupt strategy table for " + geometry);
+        }
+        check();
+    }
+
+    /**
+     * Check that every node and entry stays within the table, so that executing it can only ever fail by
+     * giving up on a device.
+     * @throws IOException if a mask, next node or spin count is out of range
+     */
+    private void check() throws IOException {
+        if (rounds < 0 || geometry.bits() > Integer.SIZE) {
+            throw new IOException("corrupt strategy table header for " + geometry);
+        }
+        int positions = geometry.bits() == Integer.SIZE ? -1 : (1 << geometry.bits()) - 1;
+        for (int node = 0; node < nodeCount; node++) {
+            int mask = peekMask(node);
+            if ((mask & ~positions) != 0 || Integer.bitCount(mask) > geometry.disclosed()) {
+                throw new IOException("corrupt peek mask at node " + node + " of strategy table for " + geometry);
+            }
+            for (int observation = 0; observation < observations; observation++) {
+                int next = next(node, observation);
+                int spins = spins(node, observation);
+                boolean valid = next == UnlockPlan.IMPOSSIBLE
+                        ? spins == 0
+                        : (next == UnlockPlan.UNLOCKED || next >= 0 && next < nodeCount) && spins > 0;
+                if (!valid || (pokeMask(node, observation) & ~mask) != 0) {
+                    throw new IOException("corrupt entry " + observation + " at node " + node
+                            + " of strategy table for " + geometry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Encode a plan as an in-memory table.
+     * @param plan the plan to encode
+     * @return the table
+     */
+    public static StrategyTable of(UnlockPlan plan) {
+        int observations = plan.observations();
+        int nodes = plan.nodeCount();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 4 * nodes + ENTRY_BYTES * nodes * observations);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) plan.geometry().bits());
+        buffer.putShort((short) plan.geometry().disclosed());
+        buffer.putShort((short) 0);
+        buffer.putInt(nodes);
+        buffer.putInt(plan.rounds());
+        for (int node = 0; node < nodes; node++) {
+            buffer.putInt(plan.peekMask(node));
+        }
+        for (int node = 0; node < nodes; node++) {
+            for (int observation = 0; observation < observations; observation++) {
+                int next = plan.next(node, observation);
+                buffer.putInt(UnlockPlan.deposit(plan.pokeValues(node, observation), plan.peekMask(node)));
+                buffer.putInt(next);
+                buffer.putInt(next == UnlockPlan.IMPOSSIBLE ? 0 : 1);
+            }
+        }
+        buffer.flip();
+        try {
+            return new StrategyTable(buffer.asReadOnlyBuffer());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Memory-map a table file read-only. The mapping stays valid after the file is closed.
+     * @param file the table file
+     * @return the mapped table
+     * @throws IOException if the file cannot be read or is not a well-formed table
+     */
+    public static StrategyTable map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new StrategyTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Write this table to a file. The file is written under a temporary name and then moved into place,
+     * so concurrent readers, in this or other JVMs, never map a partial table.
+     * @param file destination file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer contents = buffer.duplicate();
+                contents.clear();
+                while (contents.hasRemaining()) {
+                    channel.write(contents);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException atomicMoveUnsupported) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Geometry this table unlocks.
+     * @return the device geometry
+     */
+    public DeviceGeometry geometry() {
+        return geometry;
+    }
+
+    /**
+     * Number of knowledge states.
+     * @return node count
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Number of observations per node.
+     * @return 2 to the power of the disclosure width
+     */
+    public int observations() {
+        return observations;
+    }
+
+    /**
+     * Worst-case number of peek/poke/spin rounds after the initial spin.
+     * @return maximum rounds
+     */
+    public int rounds() {
+        return rounds;
+    }
+
+    /**
+     * Positions a node peeks and pokes.
+     * @param node node number
+     * @return bit mask of positions relative to the head
+     */
+    public int peekMask(int node) {
+        return buffer.getInt(HEADER_BYTES + 4 * node);
+    }
+
+    /**
+     * Positions to poke 'T' after an observation; the node's other peeked positions are poked 'F'.
+     * @param node node number
+     * @param observation observed values, packed in mask-position order
+     * @return bit mask of positions relative to the head
+     */
+    public int pokeMask(int node, int observation) {
+        return buffer.getInt(entry(node, observation));
+    }
+
+    /**
+     * Node to continue at after an observation and the following spins fail to unlock.
+     * @param node node number
+     * @param observation observed values, packed in mask-position order
+     * @return next node number, UNLOCKED or IMPOSSIBLE
+     */
+    public int next(int node, int observation) {
+        return buffer.getInt(entry(node, observation) + 4);
+    }
+
+    /**
+     * Number of spins to perform after the poke.
+     * @param node node number
+     * @param observation observed values, packed in mask-position order
+     * @return spin count, 0 for impossible observations
+     */
+    public int spins(int node, int observation) {
+        return buffer.getInt(entry(node, observation) + 8);
+    }
+
+    /**
+     * Byte offset of an entry.
+     * @param node node number
+     * @param observation observed values, packed in mask-position order
+     * @return offset of the entry's poke mask
+     */
+    private int entry(int node, int observation) {
+        return HEADER_BYTES + 4 * nodeCount + ENTRY_BYTES * (node * observations + observation);
+    }
+}
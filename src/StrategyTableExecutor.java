@@ -0,0 +1,221 @@
+/**
+ * Runs a {@link StrategyTable} against a device.
+ * <p>
+ *     Each step is a table lookup: peek the node's mask, decode the disclosed bits into an observation,
+ *     poke the entry's pattern, spin the entry's number of times and move to the entry's next node.
+ *     Peek and poke patterns are rendered once per table entry and then reused, so executing a table
+ *     builds no strings. On a {@link BatchingDevice} each entry's poke and spins are sent as one batch.
+ *     An executor holds no per-unlock state and may be shared by any number of threads.
+ * </p>
+ * @version 1.0
+ * @see StrategyTables
+ */
+public final class StrategyTableExecutor {
+
+    /**char representing true in device.**/
+    private static final char TRUE = 'T';
+
+    /**char representing false in device.**/
+    private static final char FALSE = 'F';
+
+    /**char requesting a bit in a peek pattern.**/
+    private static final char REQUEST = '?';
+
+    /**char leaving a bit out of a peek/poke pattern.**/
+    private static final char HIDDEN = '-';
+
+    /**
+     * Receives every device operation an execution performs, e.g. to trace or count them.
+     */
+    public interface Listener {
+        /**
+         * A spin was performed.
+         * @param unlocked what the spin returned
+         */
+        default void spun(boolean unlocked) {
+        }
+
+        /**
+         * A peek was performed.
+         * @param request the pattern requested
+         * @param response the pattern the device returned
+         */
+        default void peeked(CharSequence request, CharSequence response) {
+        }
+
+        /**
+         * A poke was performed.
+         * @param pattern the pattern poked
+         */
+        default void poked(CharSequence pattern) {
+        }
+    }
+
+    /** Listener that ignores everything. */
+    private static final Listener SILENT = new Listener() { };
+
+    /** Table being executed. */
+    private final StrategyTable table;
+
+    /** Number of bits in the device. */
+    private final int numOfBits;
+
+    /** Peek request pattern of every node. */
+    private final String[] requests;
+
+    /** Poke pattern of every entry, rendered on first use. */
+    private final String[] pokes;
+
+    /**
+     * Prepare to execute a table.
+     * @param table the table to execute
+     */
+    public StrategyTableExecutor(final StrategyTable table) {
+        this.table = table;
+        this.numOfBits = table.geometry().bits();
+        this.requests = new String[table.nodeCount()];
+        for (int node = 0; node < requests.length; node++) {
+            requests[node] = render(table.peekMask(node), 0, true);
+        }
+        this.pokes = new String[table.nodeCount() * table.observations()];
+    }
+
+    /**
+     * Table being executed.
+     * @return the strategy table
+     */
+    public StrategyTable table() {
+        return table;
+    }
+
+    /**
+     * Unlock a device of the table's geometry.
+     * @param dev the device controlling the resource to unlock
+     * @return true if the resource is unlocked (all bits in the device are now identical); false otherwise
+     */
+    public boolean execute(final Device dev) {
+        return execute(dev, SILENT);
+    }
+
+    /**
+     * Unlock a device of the table's geometry, reporting every operation to a listener.
+     * Gives up and returns false if the device reports something the table rules out.
+     * @param dev the device controlling the resource to unlock
+     * @param listener receiver of every spin, peek and poke
+     * @return true if the resource is unlocked (all bits in the device are now identical); false otherwise
+     */
+    public boolean execute(final Device dev, final Listener listener) {
+        boolean isUnlocked = dev.spin();
+        listener.spun(isUnlocked);
+        DeviceCommandBatch batch = dev instanceof BatchingDevice ? new DeviceCommandBatch(true) : null;
+        int node = 0;
+        for (int round = 0; !isUnlocked && round < table.rounds() && node >= 0; round++) {
+            String request = requests[node];
+            CharSequence peeked = dev.peek(request);
+            listener.peeked(request, peeked);
+            int observation = observe(peeked, table.peekMask(node));
+            if (observation < 0) {
+                return false;
+            }
+            int spins = table.spins(node, observation);
+            if (spins == 0) {
+                return false;
+            }
+            String poke = pokePattern(node, observation);
+            if (batch != null) {
+                isUnlocked = sendPokeAndSpins(dev, batch.clear(), poke, spins, listener);
+            } else {
+                dev.poke(poke);
+                listener.poked(poke);
+                for (int i = 0; i < spins && !isUnlocked; i++) {
+                    isUnlocked = dev.spin();
+                    listener.spun(isUnlocked);
+                }
+            }
+            node = table.next(node, observation);
+        }
+        return isUnlocked;
+    }
+
+    /**
+     * Poke a batching device and spin it, in one round trip, stopping at the spin that unlocks it.
+     * @param dev the device
+     * @param batch an empty batch stopping on unlock
+     * @param poke the pattern to poke
+     * @param spins number of spins after the poke
+     * @param listener receiver of the poke and every spin performed
+     * @return true if a spin found the device unlocked
+     */
+    private static boolean sendPokeAndSpins(final Device dev, final DeviceCommandBatch batch, final String poke,
+                                            final int spins, final Listener listener) {
+        batch.poke(poke).spins(spins).execute(dev);
+        if (batch.executed() > 0) {
+            listener.poked(poke);
+        }
+        for (int i = 1; i < batch.executed(); i++) {
+            listener.spun(batch.spinResult(i));
+        }
+        return batch.unlocked();
+    }
+
+    /**
+     * Poke pattern of an entry, rendering and caching it on first use. Racing threads may both render
+     * it; strings are immutable, so either result is safe to keep.
+     * @param node node number
+     * @param observation observed values, packed in mask-position order
+     * @return the poke pattern
+     */
+    private String pokePattern(final int node, final int observation) {
+        int entry = node * table.observations() + observation;
+        String poke = pokes[entry];
+        if (poke == null) {
+            poke = render(table.peekMask(node), table.pokeMask(node, observation), false);
+            pokes[entry] = poke;
+        }
+        return poke;
+    }
+
+    /**
+     * Render a peek request or a poke pattern for a mask.
+     * @param mask positions to request or set
+     * @param values positions to set 'T'; the mask's other positions are set 'F'; ignored for a request
+     * @param request true to render '?' at the mask positions, false to render the values
+     * @return the pattern
+     */
+    private String render(final int mask, final int values, final boolean request) {
+        char[] pattern = new char[numOfBits];
+        for (int i = 0; i < numOfBits; i++) {
+            if ((mask & (1 << i)) == 0) {
+                pattern[i] = HIDDEN;
+            } else if (request) {
+                pattern[i] = REQUEST;
+            } else {
+                pattern[i] = (values & (1 << i)) != 0 ? TRUE : FALSE;
+            }
+        }
+        return new String(pattern);
+    }
+
+    /**
+     * Read the values a peek disclosed at a mask's positions.
+     * @param peeked pattern returned by the device
+     * @param mask positions requested
+     * @return observed values packed in mask-position order, or -1 if the device did not disclose them
+     */
+    private int observe(final CharSequence peeked, final int mask) {
+        if (peeked == null || peeked.length() != numOfBits) {
+            return -1;
+        }
+        int observation = 0;
+        int j = 0;
+        for (int m = mask; m != 0; m &= m - 1, j++) {
+            char bit = peeked.charAt(Integer.numberOfTrailingZeros(m));
+            if (bit == TRUE) {
+                observation |= 1 << j;
+            } else if (bit != FALSE) {
+                return -1;
+            }
+        }
+        return observation;
+    }
+}
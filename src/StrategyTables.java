@@ -0,0 +1,140 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-geometry strategy tables, persisted on disk and memory-mapped on first use.
+ * <p>
+ *     By default a table is solved once per JVM, verified, and kept in memory. When the
+ *     {@value #DIRECTORY_PROPERTY} system property names a directory, tables are persisted there as
+ *     {@code strategy-<bits>-<disclosed>.bin}: a missing, unreadable or inconsistent table is solved,
+ *     verified and written back, so that later JVMs only pay for mapping and checking the file. If the
+ *     directory is not writable the solved table is kept in memory instead. Solving is fast for small
+ *     geometries; an application that cannot afford it in its first unlock can call
+ *     {@link #forGeometry(DeviceGeometry)} at startup.
+ * </p>
+ * @version 1.0
+ * @see StrategyTable
+ */
+public final class StrategyTables {
+    /**
+     * System property naming the directory that holds strategy tables.
+     */
+    public static final String DIRECTORY_PROPERTY = "deviceunlocker.strategy.dir";
+
+    /**
+     * System property that disables strategy tables when set to "false", leaving unlockers to their heuristics.
+     */
+    public static final String ENABLED_PROPERTY = "deviceunlocker.strategy.tables";
+
+    /** Largest worst-case number of rounds searched for when a table has to be solved. */
+    private static final int MAX_ROUNDS = 12;
+
+    /** Executors already loaded in this JVM, per geometry; empty if the geometry has no plan. */
+    private static final ConcurrentMap<DeviceGeometry, Optional<StrategyTableExecutor>> LOADED = new ConcurrentHashMap<>();
+
+    /**
+     * Not instantiable.
+     */
+    private StrategyTables() {
+    }
+
+    /**
+     * Whether strategy tables are in use.
+     * @return false if disabled through the {@value #ENABLED_PROPERTY} system property
+     */
+    public static boolean enabled() {
+        return !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+    }
+
+    /**
+     * Whether tables are persisted on disk.
+     * @return true if the {@value #DIRECTORY_PROPERTY} system property names a table directory
+     */
+    public static boolean persistent() {
+        return System.getProperty(DIRECTORY_PROPERTY) != null;
+    }
+
+    /**
+     * Directory holding strategy tables and other per-user tuning files.
+     * @return the configured directory, or {@code .device-unlocker} in the user's home directory
+     */
+    public static Path directory() {
+        String configured = System.getProperty(DIRECTORY_PROPERTY);
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("user.home"), ".device-unlocker");
+    }
+
+    /**
+     * File holding the table for a geometry.
+     * @param geometry the device geometry
+     * @return path of the table file
+     */
+    public static Path file(DeviceGeometry geometry) {
+        return directory().resolve("strategy-" + geometry.bits() + "-" + geometry.disclosed() + ".bin");
+    }
+
+    /**
+     * Executor for a geometry's table, mapping it from disk or solving it on first use in this JVM.
+     * Solving is fast for small geometries but can take minutes for larger ones; it runs outside the
+     * cache, so it holds up no other geometry, and threads racing to load the same geometry may each
+     * solve it, keeping the first result.
+     * @param geometry the device geometry
+     * @return the executor, or null if no deterministic plan exists for the geometry
+     */
+    public static StrategyTableExecutor forGeometry(DeviceGeometry geometry) {
+        Optional<StrategyTableExecutor> loaded = LOADED.get(geometry);
+        if (loaded == null) {
+            Optional<StrategyTableExecutor> fresh = load(geometry);
+            loaded = LOADED.putIfAbsent(geometry, fresh);
+            if (loaded == null) {
+                loaded = fresh;
+            }
+        }
+        return loaded.orElse(null);
+    }
+
+    /**
+     * Map a geometry's table, solving and persisting it first if necessary.
+     * @param geometry the device geometry
+     * @return the executor, or empty if no plan exists
+     */
+    private static Optional<StrategyTableExecutor> load(DeviceGeometry geometry) {
+        boolean persistent = persistent();
+        Path file = file(geometry);
+        if (persistent && Files.isRegularFile(file)) {
+            try {
+                StrategyTable table = StrategyTable.map(file);
+                if (table.geometry().equals(geometry)) {
+                    return Optional.of(new StrategyTableExecutor(table));
+                }
+            } catch (IOException e) {
+                // unreadable, corrupt or inconsistent: solve it again below and replace it
+            }
+        }
+        if (geometry.bits() > Necklaces.MAX_BITS || geometry.disclosed() < 1 || geometry.disclosed() > geometry.bits()) {
+            return Optional.empty();
+        }
+        UnlockPlan plan = new StrategySolver().solve(geometry, MAX_ROUNDS);
+        if (plan == null) {
+            return Optional.empty();
+        }
+        plan.verify();
+        StrategyTable table = StrategyTable.of(plan);
+        if (persistent) {
+            try {
+                table.write(file);
+                table = StrategyTable.map(file);
+            } catch (IOException e) {
+                // not persistable here, or rewritten meanwhile by someone else; keep using the in-memory table
+            }
+        }
+        return Optional.of(new StrategyTableExecutor(table));
+    }
+}
@@ -1,5 +1,6 @@
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.LongBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * An implementation of the <a href="http://jodypaul.com/cs/sweprin/deviceProj/api/Device.html">Device</a> class used for testing. Allows for linear, polynomial, and pseudo-random rotations per Spin call.
@@ -18,16 +19,31 @@ import java.util.List;
  * @see <a href="http://jodypaul.com/cs/sweprin/deviceProj/api/Device.html">Device</a>
  * @see <a href="http://jodypaul.com/cs/sweprin/deviceProj/projectDescription.html">Project Description</a>
  */
-public class TestingDevice extends Device {
-    private Link<Character> head;
+public class TestingDevice extends Device implements GeometryAware {
     /**
-     * A list of requested positions from the last peek method
+     * The bits stored in this device, with logical position 0 at the current head; null if the device holds no bits
      */
-    private List<Integer> requestedPositions;
+    private BitRing bits;
+    /**
+     * Positions requested by the last peek, as '?'; null before the first peek
+     */
+    private BitPattern requested;
+    /**
+     * Answer to the last peek, reused by every peek; null before the first peek
+     */
+    private BitPattern response;
     /**
      * Whether or not we are using pseudo-random number generators for arbitrary rotations per spin
      */
     private boolean random = false;
+    /**
+     * Seed of every random choice this device makes
+     */
+    private long seed;
+    /**
+     * Source of every random choice this device makes: its bits, its spinner and its random rotations
+     */
+    private DeviceRandom source;
     /**
      * Default number of bits to reveal per peek
      */
@@ -71,7 +87,7 @@ public class TestingDevice extends Device {
     /**
      * The number of spins that have been done
      */
-    private int spins = 0;
+    private long spins = 0;
     /**
      * The number of bits stored
      */
@@ -82,7 +98,7 @@ public class TestingDevice extends Device {
     private int state = 0;
 
     /**
-     * Accumulator for number of spins to do.
+     * Accumulator for number of spins to do, kept reduced modulo size so it never overflows.
      */
     private int accumulator = 0;
     /**
@@ -116,7 +132,19 @@ public class TestingDevice extends Device {
      * @param bitsPerPeek the number of bits to disclose via peek or set via poke
      */
     public TestingDevice(boolean[] initialBits, int bitsPerPeek) {
-        createLinks(initialBits);
+        this(initialBits, bitsPerPeek, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Construct device with specified bits for testing, making its random choices from a seed.
+     * @param initialBits the bit values for this test device
+     * @param bitsPerPeek the number of bits to disclose via peek or set via poke
+     * @param seed seed of the device's random choices; equal seeds yield devices that behave identically
+     */
+    public TestingDevice(boolean[] initialBits, int bitsPerPeek, long seed) {
+        this.seed = seed;
+        this.source = new DeviceRandom(seed);
+        createRing(initialBits);
         this.bitsPerPeek = bitsPerPeek;
         this.size = initialBits.length;
     }
@@ -132,6 +160,25 @@ public class TestingDevice extends Device {
         this.random = isRandom;
     }
 
+    /**
+     * Create a device over a ring that is already filled, with a fixed rotation law.
+     * @param ring the bits of the device
+     * @param bitsPerPeek the number of bits to disclose via peek or set via poke
+     * @param rotatesPerSpinMultiplier a multiple we add to the accumulator each time spin is called to emulate polynomial rotations
+     * @param isRandom whether or not this device uses pseudo-random rotations per spin
+     * @param seed seed the ring was filled from
+     * @param source generator seeded with it, already past the ring's bits
+     */
+    private TestingDevice(BitRing ring, int bitsPerPeek, int rotatesPerSpinMultiplier, boolean isRandom, long seed, DeviceRandom source) {
+        this.seed = seed;
+        this.source = source;
+        this.bits = ring;
+        this.size = ring.size();
+        this.bitsPerPeek = bitsPerPeek;
+        this.rotatesPerSpinMultiplier = rotatesPerSpinMultiplier;
+        this.random = isRandom;
+    }
+
     /**
      * Create a device with a choice of pseudo randomness
      * @param isRandom whether or not to use pseudo-random rotations per spin
@@ -146,12 +193,24 @@ public class TestingDevice extends Device {
      * @param bitsPerPeek the number of bits to disclose via peek or set via poke
      */
     public TestingDevice(int size, int bitsPerPeek) {
+        this(size, bitsPerPeek, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Construct device with specified size and number of peek/poke bits, making its random choices from a seed.
+     * @param size the number of bits stored in this device
+     * @param bitsPerPeek the number of bits to disclose via peek or set via poke
+     * @param seed seed of the device's random choices; equal seeds yield devices that behave identically
+     */
+    public TestingDevice(int size, int bitsPerPeek, long seed) {
+        this.seed = seed;
+        this.source = new DeviceRandom(seed);
         this.size = size;
         boolean[] initialBits = new boolean[this.size];
         boolean allTrue = true;
         boolean allFalse = true;
         for (int i = 0; i < size; i++) {
-            if (Math.random() > 0.5) {
+            if (source.nextDouble() > 0.5) {
                 initialBits[i] = true;
                 allFalse = false;
             }
@@ -163,12 +222,81 @@ public class TestingDevice extends Device {
                 else if (allTrue) initialBits[i] = false;
             }
         }
-        if (Math.random() > 0.5) {
-            rotatesPerSpinMultiplier = (int)(Math.random() * 10);
+        if (source.nextDouble() > 0.5) {
+            rotatesPerSpinMultiplier = (int)(source.nextDouble() * 10);
         }
         this.bitsPerPeek = bitsPerPeek;
         setSpinner();
-        createLinks(initialBits);
+        createRing(initialBits);
+    }
+
+    /**
+     * Create a device with random bits and a rotation law of the given mode, seeded from a random number
+     * generator so that a seeded generator yields the same devices every time.
+     * @param geometry size and disclosure width of the device
+     * @param mode how the device rotates on each spin
+     * @param random source of the device's seed
+     * @return a locked device
+     */
+    static TestingDevice create(DeviceGeometry geometry, RotationMode mode, SplittableRandom random) {
+        return create(geometry, mode, random.nextLong());
+    }
+
+    /**
+     * Create a device with random bits and a rotation law of the given mode, drawing every choice, including
+     * the rotations of a random device, from a seed.
+     * @param geometry size and disclosure width of the device
+     * @param mode how the device rotates on each spin
+     * @param seed seed of the device's random choices; equal seeds yield devices that behave identically
+     * @return a locked device
+     */
+    static TestingDevice create(DeviceGeometry geometry, RotationMode mode, long seed) {
+        if (geometry.bits() < 1) return new TestingDevice(new boolean[0], geometry.disclosed(), seed);
+        DeviceRandom source = new DeviceRandom(seed);
+        BitRing ring = BitRing.random(LongBuffer.wrap(new long[BitRing.words(geometry.bits())]), geometry.bits(), source);
+        return create(ring, geometry.disclosed(), mode, seed, source);
+    }
+
+    /**
+     * Create a device over a ring that is already filled, with a rotation law of the given mode.
+     * @param ring the bits of the device, owned by the device from now on
+     * @param bitsPerPeek the number of bits to disclose via peek or set via poke
+     * @param mode how the device rotates on each spin
+     * @param seed seed the ring was filled from
+     * @param source generator seeded with it, already past the ring's bits; owned by the device from now on
+     * @return a device over the ring
+     */
+    static TestingDevice create(BitRing ring, int bitsPerPeek, RotationMode mode, long seed, DeviceRandom source) {
+        switch (mode) {
+            case RANDOM:
+                return new TestingDevice(ring, bitsPerPeek, 0, true, seed, source);
+            case POLYNOMIAL:
+                return new TestingDevice(ring, bitsPerPeek, 1 + source.nextInt(Math.max(1, ring.size() - 1)), false, seed, source);
+            default:
+                return new TestingDevice(ring, bitsPerPeek, 0, false, seed, source);
+        }
+    }
+
+    /**
+     * Turn this device, in place, into the device {@link #create(DeviceGeometry, RotationMode, long)} would
+     * build for its geometry and the given mode and seed. The ring, wherever it is stored, and the peek
+     * patterns are reused, so a reset allocates nothing; for the same reason it keeps the device's size
+     * and disclosure width.
+     * @param mode how the device rotates on each spin from now on
+     * @param seed seed of the device's random choices
+     */
+    void reset(RotationMode mode, long seed) {
+        this.seed = seed;
+        source.reseed(seed);
+        state = 0;
+        spins = 0;
+        accumulator = 0;
+        numRotatesPerSpin = 1;
+        rotatesPerSpinMultiplier = 0;
+        random = mode == RotationMode.RANDOM;
+        if (bits == null) return;
+        bits.randomize(source);
+        if (mode == RotationMode.POLYNOMIAL) rotatesPerSpinMultiplier = 1 + source.nextInt(Math.max(1, size - 1));
     }
 
     /**
@@ -180,52 +308,37 @@ public class TestingDevice extends Device {
     }
 
     /**
-     * Create the linked list to store the bits used in the locking of this device.
+     * Create the bit ring to store the bits used in the locking of this device.
      * @param initialBits boolean array representing bits being on or off
      */
-    private void createLinks(boolean[] initialBits) {
+    private void createRing(boolean[] initialBits) {
         setSpinner();
         if (initialBits.length < 1) return;
-        char firstValue = VALUE_FALSE;
-        if (initialBits[0]) firstValue = VALUE_TRUE;
-        Link first = new Link(firstValue);
-        Link last = first;
-        for (int i = 1; i < initialBits.length; i++) {
-            boolean bit = initialBits[i];
-            Link<Character> link;
-            if (bit) link = new Link<Character>(VALUE_TRUE);
-            else link = new Link<Character>(VALUE_FALSE);
-            last.add(link);
-            last = link;
-        }
-        last.add(first);
-        head = first;
+        bits = new BitRing(initialBits);
+    }
+
+    /**
+     * Character used to render a bit value.
+     * @param bit the bit value
+     * @return VALUE_TRUE or VALUE_FALSE
+     */
+    private static char valueOf(boolean bit) {
+        return bit ? VALUE_TRUE : VALUE_FALSE;
     }
 
     /**
      * Set the number of arbitrary spins for the next spin.
      */
     private void setSpinner() {
-        this.numRotatesPerSpin = (int)Math.round(Math.random() * size);
-        if (Math.random() > 0.5) rotatesPerSpinMultiplier = (int)Math.round(Math.random() * size);
+        this.numRotatesPerSpin = (int)Math.round(source.nextDouble() * size);
+        if (source.nextDouble() > 0.5) rotatesPerSpinMultiplier = (int)Math.round(source.nextDouble() * size);
     }
 
     /**
      * Print out the bits of this device.
      */
     private void print() {
-        if (head == null) {
-            System.out.println("null");
-            return;
-        }
-        Link current = head;
-        System.out.print("[");
-        do {
-            System.out.print(current.data());
-            if (current.next != head) System.out.print(", ");
-            current = current.next;
-        } while (current != head);
-        System.out.println("]");
+        System.out.println(superPeek());
     }
 
     /**
@@ -233,16 +346,14 @@ public class TestingDevice extends Device {
      * @return A string showign all bits in this device for testing.
      */
     private String superPeek() {
-        if (head == null) {
+        if (bits == null) {
             return "null";
         }
-        Link current = head;
         StringBuilder out = new StringBuilder("[");
-        do {
-            out.append(current.data());
-            if (current.next != head) out.append(", ");
-            current = current.next;
-        } while (current != head);
+        for (int i = 0; i < size; i++) {
+            out.append(valueOf(bits.get(i)));
+            if (i < size - 1) out.append(", ");
+        }
         out.append("]");
         return out.toString();
     }
@@ -262,33 +373,38 @@ public class TestingDevice extends Device {
         return out.toString();
     }
 
+    /**
+     * Retrieve the size and disclosure width of this device.
+     * @return the geometry of this device
+     */
+    @Override
+    public DeviceGeometry geometry() {
+        return new DeviceGeometry(size, bitsPerPeek);
+    }
+
+    /**
+     * Retrieve the seed of this device's random choices.
+     * @return the seed this device was built from
+     */
+    public long seed() {
+        return seed;
+    }
+
     /**
      * Initiate device rotation.
      * @return true if all bits have identical value; false otherwise
      */
     public boolean spin() {
-        if (head == null) return false;
+        if (bits == null) return false;
         state = STATE_SPUN;
-        boolean all_true = true;
-        boolean all_false = true;
-        Link current = head;
-        do {
-            if (current.data().equals(VALUE_TRUE)) all_false = false;
-            else if (current.data().equals(VALUE_FALSE)) all_true = false;
-            current = current.next;
-        } while (current != head);
-        if (all_false || all_true) return true;
+        if (bits.isUniform()) return true;
         spins++;
-        int i = 1;
-        if (random) accumulator = (int)(Math.random() * size);
-        accumulator += spins * rotatesPerSpinMultiplier;
-        while (i < accumulator % size) {
-            head = head.next;
-            i++;
-        }
-        //System.out.println("spun " + (numRotatesPerSpin % size) + " times");
-        //System.out.println(superPeek());
-        return all_true || all_false;
+        if (random) accumulator = source.nextInt(size);
+        // accumulator += spins * rotatesPerSpinMultiplier, reduced modulo size so billions of spins stay exact
+        long increment = Math.floorMod(spins, (long) size) * Math.floorMod(rotatesPerSpinMultiplier, size);
+        accumulator = (int) ((accumulator + increment) % size);
+        if (accumulator > 1) bits.rotate(accumulator - 1);
+        return false;
     }
 
     /**
@@ -303,6 +419,11 @@ public class TestingDevice extends Device {
 
     /**
      * Peek at bits of device.
+     * <p>
+     *     The answer is a {@link BitPattern} that this device reuses on its next peek, so that peeking
+     *     allocates nothing; call toString() on it to keep it longer. A BitPattern request is read from its
+     *     bitsets directly.
+     * </p>
      * @param pattern indicating which bits to show as '?'
      * @return a pattern that discloses the values of the indicated bits
      */
@@ -311,22 +432,30 @@ public class TestingDevice extends Device {
         if (pattern == null) return "";
         state = STATE_PEEKED;
         if (pattern.length() != size) throw new IllegalArgumentException("pattern must be exactly " + size + " characters long");
-        requestedPositions = new ArrayList<Integer>();
-        StringBuilder q = new StringBuilder(pattern);
+        if (requested == null) {
+            requested = new BitPattern(size);
+            response = new BitPattern(size);
+        }
+        requested.clear();
+        response.clear();
         int numPeeked = 0;
-        int f = -1;
-        Link c = head;
-        StringBuilder out = new StringBuilder("");
-        for (int i = 0; i < q.length() && i < size; i++) {
-            if (numPeeked < bitsPerPeek && q.charAt(i) == '?') {
-                requestedPositions.add(i);
-                out.append(c.data());
+        if (pattern instanceof BitPattern) {
+            BitPattern request = (BitPattern) pattern;
+            for (int i = request.nextRequested(0); i >= 0 && numPeeked < bitsPerPeek; i = request.nextRequested(i + 1)) {
+                requested.request(i);
+                response.set(i, bits.get(i));
                 numPeeked++;
             }
-            else out.append("-");
-            c = c.next;
+        } else {
+            for (int i = 0; i < size && numPeeked < bitsPerPeek; i++) {
+                if (pattern.charAt(i) == '?') {
+                    requested.request(i);
+                    response.set(i, bits.get(i));
+                    numPeeked++;
+                }
+            }
         }
-        return out.toString();
+        return response;
     }
 
     /**
@@ -337,23 +466,25 @@ public class TestingDevice extends Device {
     public void poke(CharSequence pattern) {
         if (state != STATE_PEEKED) return;
         if (pattern == null) return;
-        if (head == null) return;
+        if (bits == null) return;
         state = STATE_POKED;
         if (pattern.length() != size) throw new IllegalArgumentException("pattern must be exactly " + size + " characters long");
-        StringBuilder q = new StringBuilder(pattern);
+        BitPattern values = pattern instanceof BitPattern ? (BitPattern) pattern : null;
         int numPoked = 0;
-        int f = -1;
-        Link c = head;
-        for (int i = 0; i < q.length() && i < size; i++) {
-            // they requested this location in their last peek
-            if (requestedPositions.contains(i)) {
-                // and it is within the limit of peeks
-                if (numPoked < bitsPerPeek && (q.charAt(i) == VALUE_TRUE || q.charAt(i) == VALUE_FALSE)) {
+        for (int position = requested.nextRequested(0); position >= 0; position = requested.nextRequested(position + 1)) {
+            // they requested this location in their last peek, and it is within the limit of peeks
+            if (values != null) {
+                if (numPoked < bitsPerPeek && values.isDisclosed(position)) {
                     numPoked++;
-                    c.setData(q.charAt(i));
+                    bits.set(position, values.value(position));
                 }
+                continue;
+            }
+            char value = pattern.charAt(position);
+            if (numPoked < bitsPerPeek && (value == VALUE_TRUE || value == VALUE_FALSE)) {
+                numPoked++;
+                bits.set(position, value == VALUE_TRUE);
             }
-            c = c.next;
         }
     }
 }
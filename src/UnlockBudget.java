@@ -0,0 +1,120 @@
+import java.time.Duration;
+
+/**
+ * Limits on an unlock: a number of device operations, a time allowed from the start of the unlock, or
+ * both, together with a cancellation switch.
+ * <p>
+ *     An unlock run under a budget through {@link DeviceUnlocker#unlockWithResult(Device, UnlockBudget)}
+ *     is checked before every spin, peek and poke. The first operation past either limit is refused and
+ *     the unlock ends as LIMIT_REACHED; once the budget is cancelled, or the unlocking thread is
+ *     interrupted, the next operation is refused and the unlock ends as CANCELLED. Either way the result
+ *     reports the operations performed so far, and the device is left as they left it. A budget may be
+ *     shared by any number of unlocks, on any threads: the limits apply to each unlock separately, and
+ *     cancelling the budget stops them all, including those started afterwards.
+ * </p>
+ * @version 1.0
+ * @see DeviceUnlocker#unlockWithResult(Device, UnlockBudget)
+ * @see UnlockResult.Termination
+ */
+public final class UnlockBudget {
+    /** Operation limit meaning no limit. */
+    public static final long NO_OPERATION_LIMIT = Long.MAX_VALUE;
+
+    /** Longest timeout kept as a limit; a deadline further away could not be compared with the clock. */
+    private static final Duration LONGEST_TIMEOUT = Duration.ofNanos(Long.MAX_VALUE / 2);
+
+    /** Largest number of device operations an unlock may perform. */
+    private final long maxOperations;
+
+    /** Time allowed per unlock in nanoseconds, or -1 for no limit. */
+    private final long timeoutNanos;
+
+    /** Set from any thread to stop every unlock under the budget. */
+    private volatile boolean cancelled;
+
+    /**
+     * Create a budget.
+     * @param maxOperations largest number of spins, peeks and pokes together an unlock may perform, at least 0;
+     *        NO_OPERATION_LIMIT for no limit
+     * @param timeout time allowed per unlock from its start, or null for no limit; timeouts of over a
+     *        century are no limit either
+     */
+    public UnlockBudget(final long maxOperations, final Duration timeout) {
+        if (maxOperations < 0) {
+            throw new IllegalArgumentException("operation budget must not be negative, not " + maxOperations);
+        }
+        if (timeout != null && timeout.isNegative()) {
+            throw new IllegalArgumentException("timeout must not be negative, not " + timeout);
+        }
+        this.maxOperations = maxOperations;
+        this.timeoutNanos = timeout == null || timeout.compareTo(LONGEST_TIMEOUT) > 0 ? -1 : timeout.toNanos();
+    }
+
+    /**
+     * A budget of device operations only.
+     * @param maxOperations largest number of spins, peeks and pokes together an unlock may perform
+     * @return the budget
+     */
+    public static UnlockBudget operations(final long maxOperations) {
+        return new UnlockBudget(maxOperations, null);
+    }
+
+    /**
+     * A budget of time only.
+     * @param timeout time allowed per unlock from its start
+     * @return the budget
+     */
+    public static UnlockBudget timeout(final Duration timeout) {
+        return new UnlockBudget(NO_OPERATION_LIMIT, timeout);
+    }
+
+    /**
+     * A budget without limits, which only stops unlocks once cancelled.
+     * @return the budget
+     */
+    public static UnlockBudget unlimited() {
+        return new UnlockBudget(NO_OPERATION_LIMIT, null);
+    }
+
+    /**
+     * Largest number of device operations an unlock may perform.
+     * @return the operation limit, or NO_OPERATION_LIMIT
+     */
+    public long maxOperations() {
+        return maxOperations;
+    }
+
+    /**
+     * Time allowed per unlock.
+     * @return the timeout in nanoseconds, or -1 for no limit
+     */
+    public long timeoutNanos() {
+        return timeoutNanos;
+    }
+
+    /**
+     * Stop every unlock under this budget at its next device operation. May be called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Whether the budget was cancelled.
+     * @return true once {@link #cancel()} was called
+     */
+    public boolean cancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Describe the budget.
+     * @return operation limit, timeout and cancellation
+     */
+    @Override
+    public String toString() {
+        return "UnlockBudget[operations: " + (maxOperations == NO_OPERATION_LIMIT ? "unlimited" : maxOperations)
+                + ", timeout: " + (timeoutNanos < 0 ? "none" : Duration.ofNanos(timeoutNanos))
+                + (cancelled ? ", cancelled]" : "]");
+    }
+}
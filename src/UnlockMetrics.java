@@ -0,0 +1,223 @@
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide unlock statistics: counters per outcome and per operation, and histograms of latency and
+ * operations per unlock.
+ * <p>
+ *     Every unlock session records its {@link UnlockResult} into {@link #global()}, which is registered
+ *     with the platform MBean server as {@value #OBJECT_NAME} so dashboards can read it over JMX. Recording
+ *     only touches {@link LongAdder}s and is safe and cheap from any number of threads.
+ * </p>
+ * @version 1.0
+ * @see UnlockMetricsMBean
+ */
+public final class UnlockMetrics implements UnlockMetricsMBean {
+    /**
+     * JMX name of the global metrics.
+     */
+    public static final String OBJECT_NAME = "DeviceUnlocker:type=UnlockMetrics";
+
+    /** Metrics of this process, registered with JMX on first use. */
+    private static final UnlockMetrics GLOBAL = register(new UnlockMetrics());
+
+    /** Unlocks attempted. */
+    private final LongAdder unlocks = new LongAdder();
+
+    /** Unlocks that left the device unlocked. */
+    private final LongAdder unlocked = new LongAdder();
+
+    /** Unlocks per termination reason. */
+    private final Map<UnlockResult.Termination, LongAdder> terminations = new EnumMap<>(UnlockResult.Termination.class);
+
+    /** Spins requested. */
+    private final LongAdder spins = new LongAdder();
+
+    /** Peeks requested. */
+    private final LongAdder peeks = new LongAdder();
+
+    /** Pokes requested. */
+    private final LongAdder pokes = new LongAdder();
+
+    /** Unlock latency in nanoseconds. */
+    private final LogHistogram latency = new LogHistogram();
+
+    /** Operations per unlock. */
+    private final LogHistogram operations = new LogHistogram();
+
+    /**
+     * Create empty metrics, not registered anywhere.
+     */
+    public UnlockMetrics() {
+        for (UnlockResult.Termination termination : UnlockResult.Termination.values()) {
+            terminations.put(termination, new LongAdder());
+        }
+    }
+
+    /**
+     * Metrics of this process.
+     * @return the global metrics
+     */
+    public static UnlockMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Record the outcome of an unlock.
+     * @param result the outcome
+     */
+    public void record(final UnlockResult result) {
+        unlocks.increment();
+        if (result.unlocked()) {
+            unlocked.increment();
+        }
+        terminations.get(result.termination()).increment();
+        spins.add(result.spins());
+        peeks.add(result.peeks());
+        pokes.add(result.pokes());
+        latency.record(result.elapsedNanos());
+        operations.record(result.operationCount());
+    }
+
+    /**
+     * Histogram of unlock latency.
+     * @return latency in nanoseconds
+     */
+    public LogHistogram latency() {
+        return latency;
+    }
+
+    /**
+     * Histogram of operations per unlock.
+     * @return operation counts
+     */
+    public LogHistogram operations() {
+        return operations;
+    }
+
+    /**
+     * Number of unlocks that stopped for a reason.
+     * @param termination the reason
+     * @return count
+     */
+    public long terminationCount(final UnlockResult.Termination termination) {
+        return terminations.get(termination).sum();
+    }
+
+    @Override
+    public long getUnlockCount() {
+        return unlocks.sum();
+    }
+
+    @Override
+    public long getUnlockedCount() {
+        return unlocked.sum();
+    }
+
+    @Override
+    public long getDeterministicPassCount() {
+        return terminationCount(UnlockResult.Termination.DETERMINISTIC_PASS);
+    }
+
+    @Override
+    public long getRandomFallbackCount() {
+        return terminationCount(UnlockResult.Termination.RANDOM_FALLBACK);
+    }
+
+    @Override
+    public long getModelGuidedCount() {
+        return terminationCount(UnlockResult.Termination.MODEL_GUIDED);
+    }
+
+    @Override
+    public long getBudgetExhaustedCount() {
+        return terminationCount(UnlockResult.Termination.BUDGET_EXHAUSTED);
+    }
+
+    @Override
+    public long getLimitReachedCount() {
+        return terminationCount(UnlockResult.Termination.LIMIT_REACHED);
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return terminationCount(UnlockResult.Termination.REJECTED);
+    }
+
+    @Override
+    public long getCancelledCount() {
+        return terminationCount(UnlockResult.Termination.CANCELLED);
+    }
+
+    @Override
+    public long getSpinCount() {
+        return spins.sum();
+    }
+
+    @Override
+    public long getPeekCount() {
+        return peeks.sum();
+    }
+
+    @Override
+    public long getPokeCount() {
+        return pokes.sum();
+    }
+
+    @Override
+    public double getMeanOperations() {
+        return operations.mean();
+    }
+
+    @Override
+    public long getOperationsP99() {
+        return operations.percentile(0.99);
+    }
+
+    @Override
+    public long getLatencyP50Nanos() {
+        return latency.percentile(0.50);
+    }
+
+    @Override
+    public long getLatencyP99Nanos() {
+        return latency.percentile(0.99);
+    }
+
+    @Override
+    public long getLatencyMaxNanos() {
+        return latency.max();
+    }
+
+    @Override
+    public void reset() {
+        unlocks.reset();
+        unlocked.reset();
+        for (LongAdder count : terminations.values()) {
+            count.reset();
+        }
+        spins.reset();
+        peeks.reset();
+        pokes.reset();
+        latency.reset();
+        operations.reset();
+    }
+
+    /**
+     * Register metrics with the platform MBean server. Metrics keep working if JMX is unavailable.
+     * @param metrics the metrics to expose
+     * @return metrics
+     */
+    private static UnlockMetrics register(final UnlockMetrics metrics) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            // already registered by another class loader, or JMX is not permitted: metrics stay readable in process
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * JMX view of {@link UnlockMetrics}, registered as {@value UnlockMetrics#OBJECT_NAME}.
+ * @version 1.0
+ */
+public interface UnlockMetricsMBean {
+    /**
+     * Number of unlocks attempted.
+     * @return unlock count
+     */
+    long getUnlockCount();
+
+    /**
+     * Number of unlocks that left the device unlocked.
+     * @return success count
+     */
+    long getUnlockedCount();
+
+    /**
+     * Number of unlocks that ended with a deterministic pass.
+     * @return count of DETERMINISTIC_PASS results
+     */
+    long getDeterministicPassCount();
+
+    /**
+     * Number of unlocks that ended in the random fallback.
+     * @return count of RANDOM_FALLBACK results
+     */
+    long getRandomFallbackCount();
+
+    /**
+     * Number of unlocks that ended in rounds aimed by an unconfirmed rotation model.
+     * @return count of MODEL_GUIDED results
+     */
+    long getModelGuidedCount();
+
+    /**
+     * Number of unlocks that ran out of budget.
+     * @return count of BUDGET_EXHAUSTED results
+     */
+    long getBudgetExhaustedCount();
+
+    /**
+     * Number of unlocks stopped by a caller's operation or time limit.
+     * @return count of LIMIT_REACHED results
+     */
+    long getLimitReachedCount();
+
+    /**
+     * Number of unlocks rejected by a missing or inconsistent device.
+     * @return count of REJECTED results
+     */
+    long getRejectedCount();
+
+    /**
+     * Number of unlocks cancelled before finishing.
+     * @return count of CANCELLED results
+     */
+    long getCancelledCount();
+
+    /**
+     * Spins requested by all unlocks.
+     * @return spin count
+     */
+    long getSpinCount();
+
+    /**
+     * Peeks requested by all unlocks.
+     * @return peek count
+     */
+    long getPeekCount();
+
+    /**
+     * Pokes requested by all unlocks.
+     * @return poke count
+     */
+    long getPokeCount();
+
+    /**
+     * Mean number of operations per unlock.
+     * @return mean operation count
+     */
+    double getMeanOperations();
+
+    /**
+     * 99th percentile of operations per unlock.
+     * @return operation count percentile
+     */
+    long getOperationsP99();
+
+    /**
+     * Median unlock latency.
+     * @return nanoseconds
+     */
+    long getLatencyP50Nanos();
+
+    /**
+     * 99th percentile of unlock latency.
+     * @return nanoseconds
+     */
+    long getLatencyP99Nanos();
+
+    /**
+     * Slowest unlock.
+     * @return nanoseconds
+     */
+    long getLatencyMaxNanos();
+
+    /**
+     * Forget everything recorded so far.
+     */
+    void reset();
+}
@@ -0,0 +1,220 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deterministic unlock strategy for one device geometry, as produced by {@link StrategySolver}.
+ * <p>
+ *     A plan is a graph of knowledge states (nodes). Execution starts with one spin; while the device
+ *     is still locked the unlocker is at some node, peeks that node's mask, looks up the observed
+ *     values, pokes the listed values into the same positions and spins, then moves to the listed
+ *     next node. Masks are relative to the head after the spin, so a plan works whatever rotation
+ *     the device chooses. Observations are packed in mask-position order: bit j of an observation
+ *     (or of a poke value) belongs to the j-th lowest position in the mask, with 1 meaning 'T'.
+ * </p>
+ * @version 1.0
+ * @see StrategySolver
+ * @see PlanDeviceUnlocker
+ */
+public final class UnlockPlan {
+    /**
+     * Next-node marker: the spin following this poke always reports the device unlocked.
+     */
+    public static final int UNLOCKED = -1;
+    /**
+     * Next-node marker: the observation cannot occur in this knowledge state.
+     */
+    public static final int IMPOSSIBLE = -2;
+
+    /** Geometry this plan unlocks. */
+    private final DeviceGeometry geometry;
+
+    /** Peek mask of every node. */
+    private final int[] peekMasks;
+
+    /** Poke values per node and observation, indexed node * observations() + observation. */
+    private final int[] pokeValues;
+
+    /** Next node per node and observation, indexed like pokeValues. */
+    private final int[] next;
+
+    /** Worst-case number of peek/poke/spin rounds after the initial spin. */
+    private final int rounds;
+
+    /**
+     * Assemble a plan. Node 0 is the starting node.
+     * @param geometry geometry this plan unlocks
+     * @param peekMasks peek mask of every node
+     * @param pokeValues poke values per node and observation
+     * @param next next node, UNLOCKED or IMPOSSIBLE per node and observation
+     * @param rounds worst-case number of rounds after the initial spin
+     */
+    UnlockPlan(DeviceGeometry geometry, int[] peekMasks, int[] pokeValues, int[] next, int rounds) {
+        this.geometry = geometry;
+        this.peekMasks = peekMasks;
+        this.pokeValues = pokeValues;
+        this.next = next;
+        this.rounds = rounds;
+    }
+
+    /**
+     * Geometry this plan unlocks.
+     * @return the device geometry
+     */
+    public DeviceGeometry geometry() {
+        return geometry;
+    }
+
+    /**
+     * Number of knowledge states in this plan.
+     * @return node count
+     */
+    public int nodeCount() {
+        return peekMasks.length;
+    }
+
+    /**
+     * Number of distinct observations a peek can return.
+     * @return 2 to the power of the disclosure width
+     */
+    public int observations() {
+        return 1 << geometry.disclosed();
+    }
+
+    /**
+     * Worst-case number of peek/poke/spin rounds after the initial spin.
+     * @return maximum rounds
+     */
+    public int rounds() {
+        return rounds;
+    }
+
+    /**
+     * Worst-case number of spins for a whole unlock, including the initial spin.
+     * @return maximum spins
+     */
+    public int maxSpins() {
+        return rounds + 1;
+    }
+
+    /**
+     * Positions a node peeks and pokes.
+     * @param node node number
+     * @return bit mask of positions relative to the head
+     */
+    public int peekMask(int node) {
+        return peekMasks[node];
+    }
+
+    /**
+     * Values to poke after an observation.
+     * @param node node number
+     * @param observation observed values, packed in mask-position order
+     * @return values to poke, packed in mask-position order
+     */
+    public int pokeValues(int node, int observation) {
+        return pokeValues[node * observations() + observation];
+    }
+
+    /**
+     * Node to continue at after an observation and the following spin fails to unlock.
+     * @param node node number
+     * @param observation observed values, packed in mask-position order
+     * @return next node number, UNLOCKED or IMPOSSIBLE
+     */
+    public int next(int node, int observation) {
+        return next[node * observations() + observation];
+    }
+
+    /**
+     * Exhaustively check this plan against every locked configuration and every rotation the device
+     * could choose, independently of how the plan was found.
+     * @return the worst-case number of rounds after the initial spin
+     * @throws IllegalStateException if some configuration and rotation sequence escapes the plan
+     */
+    public int verify() {
+        Necklaces necklaces = Necklaces.of(geometry.bits());
+        return verify(0, BeliefState.locked(necklaces), necklaces, 0, new HashMap<>());
+    }
+
+    /**
+     * Check one node against one belief.
+     * @param node node number
+     * @param belief configurations the device might be in when arriving at the node
+     * @param necklaces configurations of the device size
+     * @param depth number of rounds taken before arriving at the node
+     * @param verified worst-case rounds of node/belief pairs already checked
+     * @return worst-case number of rounds to unlock from this node
+     */
+    private int verify(int node, BeliefState belief, Necklaces necklaces, int depth, Map<List<Object>, Integer> verified) {
+        if (depth > nodeCount()) {
+            throw new IllegalStateException("plan for " + geometry + " loops at node " + node);
+        }
+        int mask = peekMasks[node];
+        int worst = 1;
+        for (int observation = 0; observation < observations(); observation++) {
+            BeliefState.Builder after = new BeliefState.Builder(necklaces);
+            boolean possible = false;
+            int poke = deposit(pokeValues(node, observation), mask);
+            for (int id = belief.next(0); id >= 0; id = belief.next(id + 1)) {
+                int code = necklaces.code(id);
+                for (int r = 0; r < necklaces.bits(); r++) {
+                    int rotated = necklaces.rotate(code, r);
+                    if (extract(rotated, mask) == observation) {
+                        possible = true;
+                        after.add((rotated & ~mask) | poke);
+                    }
+                }
+            }
+            if (!possible) continue;
+            int target = next(node, observation);
+            if (target == IMPOSSIBLE) {
+                throw new IllegalStateException("plan for " + geometry + " ignores observation " + observation + " at node " + node);
+            }
+            BeliefState remaining = after.build();
+            if (remaining.isEmpty()) continue;
+            if (target == UNLOCKED) {
+                throw new IllegalStateException("plan for " + geometry + " expects an unlock that may not happen at node " + node);
+            }
+            List<Object> key = Arrays.asList(target, remaining);
+            Integer rest = verified.get(key);
+            if (rest == null) {
+                rest = verify(target, remaining, necklaces, depth + 1, verified);
+                verified.put(key, rest);
+            }
+            worst = Math.max(worst, 1 + rest);
+        }
+        return worst;
+    }
+
+    /**
+     * Gather the bits of a configuration at the positions of a mask.
+     * @param code a configuration
+     * @param mask positions to gather
+     * @return the gathered bits, packed in mask-position order
+     */
+    static int extract(int code, int mask) {
+        int values = 0;
+        int j = 0;
+        for (int m = mask; m != 0; m &= m - 1, j++) {
+            if ((code & Integer.lowestOneBit(m)) != 0) values |= 1 << j;
+        }
+        return values;
+    }
+
+    /**
+     * Scatter packed values to the positions of a mask.
+     * @param values bits packed in mask-position order
+     * @param mask positions to scatter to
+     * @return a configuration with the values at the mask positions and zeros elsewhere
+     */
+    static int deposit(int values, int mask) {
+        int code = 0;
+        int j = 0;
+        for (int m = mask; m != 0; m &= m - 1, j++) {
+            if ((values & (1 << j)) != 0) code |= Integer.lowestOneBit(m);
+        }
+        return code;
+    }
+}
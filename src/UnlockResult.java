@@ -0,0 +1,203 @@
+/**
+ * Outcome of one unlock: whether it succeeded, why it stopped, how many device operations it used and how
+ * long it took.
+ * @version 1.0
+ * @see DeviceUnlocker#unlockWithResult(Device)
+ * @see UnlockMetrics
+ */
+public final class UnlockResult {
+
+    /**
+     * Why an unlock stopped.
+     */
+    public enum Termination {
+        /**
+         * Unlocked by a deterministic strategy: a strategy table, the pattern walk or sweep of a heuristic, or
+         * rounds aimed by a rotation model that had narrowed to one prediction.
+         */
+        DETERMINISTIC_PASS,
+        /** Unlocked after the deterministic phase had failed, by randomized rounds. */
+        RANDOM_FALLBACK,
+        /**
+         * Unlocked after the deterministic phase had failed, by rounds aimed where the rotation laws still
+         * fitting the device predicted work, before they had narrowed to one prediction.
+         */
+        MODEL_GUIDED,
+        /**
+         * Gave up without unlocking after the strategy's own bound on operations, which it sets from the
+         * device's geometry.
+         */
+        BUDGET_EXHAUSTED,
+        /**
+         * Stopped by a limit the caller set, an {@link UnlockBudget}'s operations or time or an
+         * {@link UnlockService}'s timeout, before the strategy had finished.
+         */
+        LIMIT_REACHED,
+        /** Gave up because there was no device, or the device refused or contradicted an operation. */
+        REJECTED,
+        /** Stopped from outside before finishing, e.g. because its batch was cancelled. */
+        CANCELLED
+    }
+
+    /** Whether the device ended unlocked. */
+    private final boolean unlocked;
+
+    /** Why the unlock stopped. */
+    private final Termination termination;
+
+    /** Number of spins requested. */
+    private final long spins;
+
+    /** Number of peeks requested. */
+    private final long peeks;
+
+    /** Number of pokes requested. */
+    private final long pokes;
+
+    /** Wall-clock duration in nanoseconds. */
+    private final long elapsedNanos;
+
+    /** What the device threw, if that ended the unlock. */
+    private final Throwable failure;
+
+    /** Answer to the last peek of an unlock that was stopped, or null. */
+    private final String lastPeek;
+
+    /**
+     * Record the outcome of an unlock.
+     * @param unlocked whether the device ended unlocked
+     * @param termination why the unlock stopped
+     * @param spins number of spins requested
+     * @param peeks number of peeks requested
+     * @param pokes number of pokes requested
+     * @param elapsedNanos wall-clock duration in nanoseconds
+     */
+    public UnlockResult(final boolean unlocked, final Termination termination, final long spins, final long peeks,
+                        final long pokes, final long elapsedNanos) {
+        this(unlocked, termination, spins, peeks, pokes, elapsedNanos, null);
+    }
+
+    /**
+     * Record the outcome of an unlock that a device failure ended.
+     * @param unlocked whether the device ended unlocked
+     * @param termination why the unlock stopped
+     * @param spins number of spins requested
+     * @param peeks number of peeks requested
+     * @param pokes number of pokes requested
+     * @param elapsedNanos wall-clock duration in nanoseconds
+     * @param failure what the device threw, or null
+     */
+    public UnlockResult(final boolean unlocked, final Termination termination, final long spins, final long peeks,
+                        final long pokes, final long elapsedNanos, final Throwable failure) {
+        this(unlocked, termination, spins, peeks, pokes, elapsedNanos, failure, null);
+    }
+
+    /**
+     * Record the outcome of an unlock that was stopped before its end, with what it had learned.
+     * @param unlocked whether the device ended unlocked
+     * @param termination why the unlock stopped
+     * @param spins number of spins requested
+     * @param peeks number of peeks requested
+     * @param pokes number of pokes requested
+     * @param elapsedNanos wall-clock duration in nanoseconds
+     * @param failure what the device threw, or null
+     * @param lastPeek answer to the unlock's last peek, or null if it peeked at nothing
+     */
+    public UnlockResult(final boolean unlocked, final Termination termination, final long spins, final long peeks,
+                        final long pokes, final long elapsedNanos, final Throwable failure, final String lastPeek) {
+        if (termination == null) {
+            throw new IllegalArgumentException("termination");
+        }
+        this.unlocked = unlocked;
+        this.termination = termination;
+        this.spins = spins;
+        this.peeks = peeks;
+        this.pokes = pokes;
+        this.elapsedNanos = elapsedNanos;
+        this.failure = failure;
+        this.lastPeek = lastPeek;
+    }
+
+    /**
+     * Whether the device ended unlocked.
+     * @return true if all bits in the device are now identical
+     */
+    public boolean unlocked() {
+        return unlocked;
+    }
+
+    /**
+     * Why the unlock stopped.
+     * @return the termination reason
+     */
+    public Termination termination() {
+        return termination;
+    }
+
+    /**
+     * Number of spins requested.
+     * @return spin count
+     */
+    public long spins() {
+        return spins;
+    }
+
+    /**
+     * Number of peeks requested.
+     * @return peek count
+     */
+    public long peeks() {
+        return peeks;
+    }
+
+    /**
+     * Number of pokes requested.
+     * @return poke count
+     */
+    public long pokes() {
+        return pokes;
+    }
+
+    /**
+     * Total number of device operations requested.
+     * @return spins + peeks + pokes
+     */
+    public long operationCount() {
+        return spins + peeks + pokes;
+    }
+
+    /**
+     * Wall-clock duration of the unlock.
+     * @return elapsed nanoseconds
+     */
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * What the device threw, if that ended the unlock.
+     * @return the device's exception, or null if the unlock did not end on a device failure
+     */
+    public Throwable failure() {
+        return failure;
+    }
+
+    /**
+     * Answer to the last peek of an unlock that was stopped before its end: the bits it had last seen,
+     * from which another attempt on the same device may start.
+     * @return the disclosed pattern, or null if the unlock ran to its end or peeked at nothing
+     */
+    public String lastPeek() {
+        return lastPeek;
+    }
+
+    /**
+     * Describe the result.
+     * @return e.g. "unlocked by DETERMINISTIC_PASS: 6 spins, 5 peeks, 5 pokes in 5123 ns"
+     */
+    @Override
+    public String toString() {
+        return (unlocked ? "unlocked" : "locked") + " by " + termination + ": " + spins + " spins, " + peeks
+                + " peeks, " + pokes + " pokes in " + elapsedNanos + " ns" + (failure == null ? "" : ", device failed: " + failure);
+    }
+}
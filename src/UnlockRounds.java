@@ -0,0 +1,250 @@
+import java.util.SplittableRandom;
+
+/**
+ * Round plan of the generalized n-bit/k-disclosure unlock, shared by {@link GeneralizedDeviceUnlocker}
+ * and {@link AsyncDeviceUnlocker} so that both run exactly the same rounds.
+ * <p>
+ *     The plan chooses each round's window, the poke that follows its peek, and why an unlock by the
+ *     round's spin counts; the unlockers only perform the operations it asks for, one blocking and one
+ *     as a state machine. The first ceil(n/k) rounds sweep the windows in order. Later rounds are aimed by
+ *     a {@link RotationModel} fitted to every peek, poke and spin while some rotation law still explains
+ *     them, for at most three sweeps' worth of rounds, and otherwise placed at a random offset.
+ * </p>
+ * <p>
+ *     A plan holds the state of one unlock at a time and is not thread-safe; {@link #start()} readies it
+ *     for the next.
+ * </p>
+ * @version 1.0
+ * @see RotationModel
+ */
+final class UnlockRounds {
+
+    /**char representing true in device.**/
+    private static final char TRUE = 'T';
+
+    /**char representing false in device.**/
+    private static final char FALSE = 'F';
+
+    /**char marking that no poke target has been chosen yet.**/
+    private static final char UNDECIDED = 0;
+
+    /** Multiplier on the expected number of rounds before unlock gives up. */
+    private static final int ROUND_FACTOR = 16;
+
+    /** Sweeps' worth of fallback rounds a rotation model may aim before rounds go back to random offsets. */
+    private static final int DIRECTED_SWEEPS = 3;
+
+    /** Number of bits in the device. */
+    private final int numOfBits;
+
+    /** Number of bits disclosed per peek. */
+    private final int numOfBitsDisclosed;
+
+    /** Rounds of the initial sweep. */
+    private final int sweepRounds;
+
+    /** Rounds before giving up. */
+    private final int maxRounds;
+
+    /** Reusable peek pattern. */
+    private final BitPattern requestPattern;
+
+    /** Reusable poke pattern. */
+    private final BitPattern pokePattern;
+
+    /** Fit of the device's rotation law, or null if the device is too large to follow. */
+    private final RotationModel model;
+
+    /** Source of the random window offsets. */
+    private SplittableRandom random;
+
+    /** Value every bit is being driven towards. */
+    private char changeBitTo = UNDECIDED;
+
+    /** Rounds begun since the unlock started. */
+    private int round;
+
+    /** Why an unlock by the current round's spin counts. */
+    private UnlockResult.Termination termination = UnlockResult.Termination.DETERMINISTIC_PASS;
+
+    /**
+     * Create a plan for devices of the given geometry.
+     * @param geometry the size and disclosure width of the devices to unlock
+     * @param random source of the random window offsets, owned by the plan from now on
+     */
+    UnlockRounds(final DeviceGeometry geometry, final SplittableRandom random) {
+        this.random = random;
+        this.numOfBits = geometry.bits();
+        this.numOfBitsDisclosed = geometry.usableDisclosed();
+        this.sweepRounds = numOfBitsDisclosed == 0 ? 0 : sweepRounds(numOfBits, numOfBitsDisclosed);
+        this.maxRounds = numOfBitsDisclosed == 0 ? 0 : maxRounds(numOfBits, numOfBitsDisclosed);
+        this.requestPattern = new BitPattern(numOfBits);
+        this.pokePattern = new BitPattern(numOfBits);
+        this.model = RotationModel.supports(numOfBits) ? new RotationModel(numOfBits) : null;
+    }
+
+    /**
+     * Draw the random window offsets from another generator from now on.
+     * @param random source of the random window offsets, owned by the plan from now on
+     */
+    void reseed(final SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * Forget the last unlock, before the first spin of the next.
+     */
+    void start() {
+        round = 0;
+        termination = UnlockResult.Termination.DETERMINISTIC_PASS;
+        changeBitTo = UNDECIDED;
+        if (model != null) {
+            model.reset();
+        }
+    }
+
+    /**
+     * Whether the device discloses anything a round could act on.
+     * @return false if peeks disclose no bit
+     */
+    boolean disclosing() {
+        return numOfBitsDisclosed > 0;
+    }
+
+    /**
+     * Whether another round may begin.
+     * @return false once the unlock has used every round it may
+     */
+    boolean hasNext() {
+        return round < maxRounds;
+    }
+
+    /**
+     * Begin the next round and render its peek: the next window of the sweep, the window the rotation model
+     * aims at, or a random one.
+     * @return the peek pattern, reused by the next round
+     */
+    BitPattern peek() {
+        termination = UnlockResult.Termination.DETERMINISTIC_PASS;
+        int start = round * numOfBitsDisclosed;
+        if (round >= sweepRounds) {
+            start = model == null || round >= sweepRounds * (1 + DIRECTED_SWEEPS)
+                    ? -1 : model.window(numOfBitsDisclosed, changeBitTo);
+            if (start < 0) {
+                termination = UnlockResult.Termination.RANDOM_FALLBACK;
+                start = random.nextInt(numOfBits);
+            } else if (!model.confirmed()) {
+                // while several laws still disagree, the aim is a vote among guesses, not a plan
+                termination = UnlockResult.Termination.MODEL_GUIDED;
+            }
+        }
+        round++;
+        requestPattern.clear();
+        for (int i = 0; i < numOfBitsDisclosed; i++) {
+            requestPattern.request((start + i) % numOfBits);
+        }
+        return requestPattern;
+    }
+
+    /**
+     * Whether the answer to a peek is one the plan can act on.
+     * @param peeked the pattern returned by the peek
+     * @return false if the device refused the peek or answered for a device of another size
+     */
+    boolean accepts(final CharSequence peeked) {
+        return peeked != null && peeked.length() == numOfBits;
+    }
+
+    /**
+     * Learn from the answer to this round's peek and render the poke driving every disclosed bit to the
+     * target value, which the first peek chooses by majority.
+     * @param peeked the pattern returned by the peek, which the plan {@link #accepts(CharSequence) accepts}
+     * @return the poke pattern, reused by the next round, or null if no disclosed bit differs from the
+     *     target and the poke can be skipped
+     */
+    BitPattern poke(final CharSequence peeked) {
+        if (model != null) {
+            model.peeked(peeked);
+        }
+        if (changeBitTo == UNDECIDED) {
+            changeBitTo = majority(peeked);
+        }
+        boolean changes = false;
+        pokePattern.clear();
+        for (int i = 0; i < numOfBits; i++) {
+            char bit = peeked.charAt(i);
+            if (bit == TRUE || bit == FALSE) {
+                pokePattern.set(i, changeBitTo == TRUE);
+                changes |= bit != changeBitTo;
+            }
+        }
+        if (!changes) {
+            return null;
+        }
+        if (model != null) {
+            model.poked(pokePattern);
+        }
+        return pokePattern;
+    }
+
+    /**
+     * Learn from what a spin returned.
+     * @param unlocked what the spin returned
+     */
+    void spun(final boolean unlocked) {
+        if (model != null) {
+            model.spun(unlocked);
+        }
+    }
+
+    /**
+     * Why an unlock by the spin ending the current round counts.
+     * @return DETERMINISTIC_PASS for a round of the sweep, or one aimed by a rotation model that was
+     *     {@link RotationModel#confirmed() confirmed} when the round began; MODEL_GUIDED for one aimed while
+     *     several rotation laws still disagreed; RANDOM_FALLBACK for one at a random offset
+     */
+    UnlockResult.Termination termination() {
+        return termination;
+    }
+
+    /**
+     * Number of rounds needed to peek every window of a device that does not rotate.
+     * @param bits number of bits in the device
+     * @param disclosed number of bits disclosed per peek, at least 1
+     * @return ceil(n/k)
+     */
+    static int sweepRounds(final int bits, final int disclosed) {
+        return (bits + disclosed - 1) / disclosed;
+    }
+
+    /**
+     * Upper bound on rounds per unlock: a generous multiple of the coupon-collector estimate
+     * (n/k) * ln(n) for a device that rotates arbitrarily.
+     * @param bits number of bits in the device
+     * @param disclosed number of bits disclosed per peek, at least 1
+     * @return maximum number of peek/poke/spin rounds
+     */
+    static int maxRounds(final int bits, final int disclosed) {
+        int logBits = 32 - Integer.numberOfLeadingZeros(bits);
+        long rounds = (long) ROUND_FACTOR * sweepRounds(bits, disclosed) * (logBits + 1);
+        return (int) Math.min(Integer.MAX_VALUE, rounds);
+    }
+
+    /**
+     * Chooses the value held by most disclosed bits, preferring true on a tie.
+     * @param peeked the pattern returned by a peek
+     * @return TRUE or FALSE
+     */
+    static char majority(final CharSequence peeked) {
+        int balance = 0;
+        for (int i = 0; i < peeked.length(); i++) {
+            char bit = peeked.charAt(i);
+            if (bit == TRUE) {
+                balance++;
+            } else if (bit == FALSE) {
+                balance--;
+            }
+        }
+        return balance >= 0 ? TRUE : FALSE;
+    }
+}
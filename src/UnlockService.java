@@ -0,0 +1,376 @@
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Unlocks slow, blocking devices with one thread per unlock.
+ * <p>
+ *     An unlock against a device that answers in milliseconds spends nearly all its time blocked, so the
+ *     service runs every unlock on its own thread: a virtual thread where the runtime has them (Java 21
+ *     and later), which lets tens of thousands of unlocks wait on a handful of carrier threads, or else a
+ *     thread from a pool of at most {@value #MAX_PLATFORM_THREADS} platform threads, beyond which unlocks
+ *     wait their turn in a queue. Each unlock gets its own session of the strategy that
+ *     {@link UnlockStrategies} chooses for the device's geometry, tracing at the service's level if the
+ *     strategy keeps a trace.
+ * </p>
+ * <p>
+ *     {@link #unlockAll(Collection)} is structured: it returns only after every unlock of the batch has
+ *     finished, and if the caller is interrupted it cancels the whole batch and waits for it to stop
+ *     before rethrowing. Unlocks are stopped between device operations: one that outlives the per-device
+ *     timeout ends as LIMIT_REACHED, one that is cancelled as CANCELLED, with the operations it
+ *     performed so far. The timeout counts from the moment the unlock starts running, and when it
+ *     passes, the unlock's thread is interrupted, so a device operation that is blocked waiting (such as
+ *     a {@link RemoteDevice} whose server never answers) ends too. An unlock that a device ends by
+ *     throwing is REJECTED, with the device's exception as its {@link UnlockResult#failure() failure};
+ *     anything else an unlocker throws is a bug and is rethrown.
+ * </p>
+ * @version 1.0
+ * @see UnlockResult
+ */
+public final class UnlockService implements AutoCloseable {
+
+    /** Most unlocks run at once on runtimes without virtual threads. */
+    public static final int MAX_PLATFORM_THREADS = 256;
+
+    /** Seconds an idle pool thread lingers before it ends. */
+    private static final long IDLE_SECONDS = 60;
+
+    /** Runs one unlock per task. */
+    private final ExecutorService executor;
+
+    /** Interrupts unlocks that outlive the timeout; null if there is no timeout. */
+    private final ScheduledThreadPoolExecutor timer;
+
+    /** Whether the executor runs virtual threads. */
+    private final boolean virtual;
+
+    /** Time allowed per unlock in nanoseconds, or -1 for no limit. */
+    private final long timeoutNanos;
+
+    /** Trace level of the sessions created for each unlock. */
+    private final UnlockTrace.Level traceLevel;
+
+    /**
+     * Create a service whose unlocks are not traced.
+     * @param timeout time allowed per unlock, or null for no limit
+     */
+    public UnlockService(final Duration timeout) {
+        this(timeout, UnlockTrace.Level.OFF);
+    }
+
+    /**
+     * Create a service.
+     * @param timeout time allowed per unlock, or null for no limit
+     * @param traceLevel trace level of the sessions created for each unlock
+     */
+    public UnlockService(final Duration timeout, final UnlockTrace.Level traceLevel) {
+        ExecutorService virtualThreads = newVirtualThreadExecutor();
+        this.virtual = virtualThreads != null;
+        if (virtual) {
+            this.executor = virtualThreads;
+        } else {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_PLATFORM_THREADS, MAX_PLATFORM_THREADS,
+                    IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new DaemonThreads("unlock-service-"));
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+        }
+        this.timeoutNanos = timeout == null ? -1 : timeout.toNanos();
+        if (timeoutNanos >= 0) {
+            this.timer = new ScheduledThreadPoolExecutor(1, new DaemonThreads("unlock-service-timer-"));
+            timer.setRemoveOnCancelPolicy(true);
+        } else {
+            this.timer = null;
+        }
+        this.traceLevel = traceLevel;
+    }
+
+    /**
+     * Whether unlocks run on virtual threads.
+     * @return false if the runtime has no virtual threads and a bounded thread pool is used instead
+     */
+    public boolean usesVirtualThreads() {
+        return virtual;
+    }
+
+    /**
+     * Start unlocking one device. Cancelling the future with interruption stops the unlock at its
+     * next device operation.
+     * @param dev the device to unlock
+     * @return the pending result; it fails with what the unlocker threw, if that was not through the device
+     * @throws RejectedExecutionException if the service is closed
+     */
+    public Future<UnlockResult> submit(final Device dev) {
+        GuardedDevice guard = dev == null ? null : GuardedDevice.of(dev);
+        return executor.submit(() -> run(guard));
+    }
+
+    /**
+     * Unlock a batch of devices concurrently, one thread per device, and wait for all of them.
+     * @param devices the devices to unlock; null elements yield REJECTED results
+     * @return one result per device, in the collection's iteration order
+     * @throws InterruptedException if the caller is interrupted; the batch is cancelled and has stopped when this is thrown
+     * @throws RuntimeException what an unlocker threw other than through its device, once the whole batch
+     *         has finished; further such exceptions are attached as suppressed
+     */
+    public List<UnlockResult> unlockAll(final Collection<? extends Device> devices) throws InterruptedException {
+        Device[] work = devices.toArray(new Device[0]);
+        GuardedDevice[] guards = new GuardedDevice[work.length];
+        Future<?>[] tasks = new Future<?>[work.length];
+        UnlockResult[] results = new UnlockResult[work.length];
+        RuntimeException[] bugs = new RuntimeException[work.length];
+        CountDownLatch finished = new CountDownLatch(work.length);
+        // set by whichever comes first: the task starting, or the caller giving up on it before it did
+        AtomicIntegerArray claimed = new AtomicIntegerArray(work.length);
+        for (int i = 0; i < work.length; i++) {
+            final int index = i;
+            guards[i] = work[i] == null ? null : GuardedDevice.of(work[i]);
+            try {
+                tasks[i] = executor.submit(() -> {
+                    if (!claimed.compareAndSet(index, 0, 1)) {
+                        return;
+                    }
+                    try {
+                        results[index] = run(guards[index]);
+                    } catch (RuntimeException e) {
+                        bugs[index] = e;
+                    } finally {
+                        finished.countDown();
+                    }
+                });
+            } catch (RejectedExecutionException closed) {
+                results[i] = stopped(guards[i], UnlockResult.Termination.CANCELLED, System.nanoTime());
+                finished.countDown();
+            }
+        }
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            for (int i = 0; i < work.length; i++) {
+                if (guards[i] != null) {
+                    guards[i].cancel();
+                }
+                if (tasks[i] != null) {
+                    tasks[i].cancel(true);
+                    if (claimed.compareAndSet(i, 0, 1)) {
+                        // still queued, so its task will never count down
+                        finished.countDown();
+                    }
+                }
+            }
+            awaitUninterruptibly(finished);
+            throw e;
+        }
+        RuntimeException bug = null;
+        for (RuntimeException e : bugs) {
+            if (bug == null) {
+                bug = e;
+            } else if (e != null) {
+                bug.addSuppressed(e);
+            }
+        }
+        if (bug != null) {
+            throw bug;
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    /**
+     * Cancel every unlock in progress and stop accepting new ones.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+    }
+
+    /**
+     * Unlock one guarded device on the current thread.
+     * @param guard the guarded device, or null
+     * @return the result; CANCELLED or LIMIT_REACHED if the guard stopped the unlock, REJECTED if the
+     *         device threw
+     * @throws RuntimeException what the unlocker threw other than through the device
+     */
+    private UnlockResult run(final GuardedDevice guard) {
+        if (guard == null) {
+            return DeviceUnlocker.unlockWithResult(null);
+        }
+        long start = System.nanoTime();
+        guard.start(timeoutNanos);
+        Watchdog watchdog = timer == null ? null : new Watchdog(guard, timer, timeoutNanos);
+        try {
+            return UnlockStrategies.forGeometry(guard.geometry()).session(guard.geometry(), traceLevel).apply(guard);
+        } catch (RuntimeException e) {
+            if (e instanceof CancellationException || guard.stopping() || Thread.currentThread().isInterrupted()) {
+                // refused by the guard, or a blocked operation given up on because the unlock had to stop
+                UnlockResult.Termination termination = guard.exhausted()
+                        ? UnlockResult.Termination.LIMIT_REACHED : UnlockResult.Termination.CANCELLED;
+                return stopped(guard, termination, start);
+            }
+            if (e == guard.failure()) {
+                return stopped(guard, UnlockResult.Termination.REJECTED, start);
+            }
+            throw e;
+        } finally {
+            if (watchdog != null) {
+                watchdog.disarm();
+            }
+        }
+    }
+
+    /**
+     * Result of an unlock that did not run to completion, recorded in the process-wide metrics unless the
+     * calling thread has switched {@link DeviceUnlocker#record(boolean) recording} off.
+     * @param guard the guarded device, or null
+     * @param termination why it stopped
+     * @param start {@link System#nanoTime()} when it started
+     * @return the result, with the operations performed so far
+     */
+    private static UnlockResult stopped(final GuardedDevice guard, final UnlockResult.Termination termination, final long start) {
+        if (guard != null) {
+            return guard.stopped(termination, start);
+        }
+        return DeviceUnlocker.recorded(new UnlockResult(false, termination, 0, 0, 0, System.nanoTime() - start));
+    }
+
+    /**
+     * Wait for a latch, deferring any interrupt until it opens.
+     * @param latch the latch
+     */
+    private static void awaitUninterruptibly(final CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Executor starting a virtual thread per task, looked up reflectively so the service also runs on
+     * runtimes without virtual threads.
+     * @return the executor, or null if virtual threads are unavailable
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Interrupts one unlock if it outlives the timeout, and never once the unlock is over, so a pooled
+     * thread does not carry the interrupt into its next task.
+     */
+    private static final class Watchdog implements Runnable {
+        /** The unlock's device. */
+        private final GuardedDevice guard;
+
+        /** Thread running the unlock. */
+        private final Thread worker;
+
+        /** Pending expiry. */
+        private final ScheduledFuture<?> expiry;
+
+        /** Whether the unlock is still running. */
+        private boolean armed = true;
+
+        /** Whether the watchdog interrupted the unlock. */
+        private boolean fired;
+
+        /**
+         * Watch the unlock running on the current thread.
+         * @param guard the unlock's device
+         * @param timer runs the expiry
+         * @param timeoutNanos time allowed from now
+         */
+        Watchdog(final GuardedDevice guard, final ScheduledExecutorService timer, final long timeoutNanos) {
+            this.guard = guard;
+            this.worker = Thread.currentThread();
+            this.expiry = timer.schedule(this, timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Time is up: stop the unlock, even inside a blocked device operation.
+         */
+        @Override
+        public synchronized void run() {
+            if (armed) {
+                fired = true;
+                guard.expire();
+                worker.interrupt();
+            }
+        }
+
+        /**
+         * The unlock is over: cancel the expiry, and clear the interrupt if it was delivered.
+         */
+        void disarm() {
+            expiry.cancel(false);
+            boolean interrupted;
+            synchronized (this) {
+                armed = false;
+                interrupted = fired;
+            }
+            if (interrupted) {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    /**
+     * Names the service's threads and keeps them from holding the JVM open.
+     */
+    private static final class DaemonThreads implements ThreadFactory {
+        /** Prefix of the thread names. */
+        private final String prefix;
+
+        /** Number of threads created so far. */
+        private final AtomicInteger created = new AtomicInteger();
+
+        /**
+         * Name threads with a prefix and a number.
+         * @param prefix prefix of the thread names
+         */
+        DaemonThreads(final String prefix) {
+            this.prefix = prefix;
+        }
+
+        /**
+         * Create a named daemon thread.
+         * @param task what the thread runs
+         * @return the unstarted thread
+         */
+        @Override
+        public Thread newThread(final Runnable task) {
+            Thread thread = new Thread(task, prefix + created.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+import java.util.function.Function;
+
+/**
+ * Session of a built-in {@link DeviceUnlocker}, as returned by {@link UnlockStrategy#session(DeviceGeometry)},
+ * whose random choices can be restarted from a seed before an unlock.
+ * <p>
+ *     {@link SimulationEngine} reseeds such a session from the seed of every device it unlocks, so that the
+ *     seed of a device alone repeats its whole unlock. Sessions of other strategies are used as they are.
+ * </p>
+ * @version 1.0
+ * @see SimulationEngine#replay(SimulationEngine.Population, long, UnlockStrategy)
+ */
+final class UnlockSession implements Function<Device, UnlockResult> {
+    /** Unlocker the session belongs to. */
+    private final DeviceUnlocker unlocker;
+
+    /** Unlocks a device with the unlocker. */
+    private final Function<Device, UnlockResult> unlock;
+
+    /**
+     * Wrap a session.
+     * @param unlocker unlocker the session belongs to
+     * @param unlock unlocks a device with the unlocker
+     */
+    UnlockSession(final DeviceUnlocker unlocker, final Function<Device, UnlockResult> unlock) {
+        this.unlocker = unlocker;
+        this.unlock = unlock;
+    }
+
+    /**
+     * Restart the session's random choices from a seed.
+     * @param seed seed of the session's random choices
+     */
+    void reseed(final long seed) {
+        unlocker.reseed(seed);
+    }
+
+    /**
+     * Unlock a device.
+     * @param dev the device controlling the resource to unlock
+     * @return whether the resource is unlocked, why the unlock stopped, and the operations and time it took
+     */
+    @Override
+    public UnlockResult apply(final Device dev) {
+        return unlock.apply(dev);
+    }
+}
@@ -0,0 +1,286 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Registry of {@link UnlockStrategy} implementations, consulted by {@link DeviceUnlocker} for every unlock.
+ * <p>
+ *     The registry starts with the built-in strategies and every {@link ServiceLoader} provider of
+ *     UnlockStrategy visible to the class loader that loads it; a provider that fails to load is skipped.
+ *     More can be {@link #register(UnlockStrategy) registered} at run time. The strategy chosen for a
+ *     geometry is cached, so choosing one costs a single map lookup; registering or removing a strategy
+ *     starts the cache over.
+ * </p>
+ * @version 1.0
+ * @see UnlockStrategy
+ * @see StrategyTables
+ */
+public final class UnlockStrategies {
+    /** Priority of the generalized strategy, which supports every geometry. */
+    public static final int GENERAL_PRIORITY = 0;
+
+    /** Priority of strategies dedicated to a single geometry. */
+    public static final int DEDICATED_PRIORITY = 100;
+
+    /** Registered strategies, in registration order, which breaks ties between equal priorities. */
+    private static final List<UnlockStrategy> REGISTERED = new CopyOnWriteArrayList<>(discover());
+
+    /** Strategy preferred per geometry over the priorities, as picked by a {@link StrategyCalibrator}. */
+    private static final ConcurrentMap<DeviceGeometry, String> PREFERRED = new ConcurrentHashMap<>();
+
+    /** Strategy chosen per geometry; replaced whenever the registered strategies change. */
+    private static volatile ConcurrentMap<DeviceGeometry, UnlockStrategy> chosen = new ConcurrentHashMap<>();
+
+    /**
+     * Not instantiable.
+     */
+    private UnlockStrategies() {
+    }
+
+    /**
+     * Strategy that unlocks devices of a geometry: the preferred strategy if one was set and is still
+     * registered, otherwise the supporting strategy of highest priority.
+     * @param geometry size and disclosure width of the devices
+     * @return the strategy; the generalized strategy supports every geometry, so there always is one
+     */
+    public static UnlockStrategy forGeometry(final DeviceGeometry geometry) {
+        return chosen.computeIfAbsent(geometry, UnlockStrategies::choose);
+    }
+
+    /**
+     * Every registered strategy supporting a geometry, most preferred first.
+     * @param geometry size and disclosure width of the devices
+     * @return the supporting strategies
+     */
+    public static List<UnlockStrategy> supporting(final DeviceGeometry geometry) {
+        List<UnlockStrategy> found = new ArrayList<>();
+        for (UnlockStrategy strategy : REGISTERED) {
+            if (strategy.supports(geometry)) {
+                found.add(strategy);
+            }
+        }
+        // stable, so registration order breaks ties
+        found.sort((a, b) -> Integer.compare(b.priority(geometry), a.priority(geometry)));
+        return found;
+    }
+
+    /**
+     * Registered strategy of a given name.
+     * @param name the strategy's name
+     * @return the strategy, or null if none is registered under that name
+     */
+    public static UnlockStrategy named(final String name) {
+        for (UnlockStrategy strategy : REGISTERED) {
+            if (strategy.name().equals(name)) {
+                return strategy;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Every registered strategy.
+     * @return the strategies, in registration order
+     */
+    public static List<UnlockStrategy> all() {
+        return Collections.unmodifiableList(new ArrayList<>(REGISTERED));
+    }
+
+    /**
+     * Add a strategy, to be considered for every geometry from now on.
+     * @param strategy the strategy
+     * @throws IllegalArgumentException if a strategy of the same name is already registered
+     */
+    public static synchronized void register(final UnlockStrategy strategy) {
+        if (named(strategy.name()) != null) {
+            throw new IllegalArgumentException("a strategy named " + strategy.name() + " is already registered");
+        }
+        REGISTERED.add(strategy);
+        chosen = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Remove a strategy.
+     * @param name the strategy's name
+     * @return true if a strategy of that name was registered
+     */
+    public static synchronized boolean unregister(final String name) {
+        UnlockStrategy strategy = named(name);
+        if (strategy == null) {
+            return false;
+        }
+        REGISTERED.remove(strategy);
+        chosen = new ConcurrentHashMap<>();
+        return true;
+    }
+
+    /**
+     * Prefer a strategy for a geometry over the priorities, or go back to the priorities.
+     * @param geometry size and disclosure width of the devices
+     * @param name name of a strategy supporting the geometry, or null to drop the preference
+     */
+    public static synchronized void prefer(final DeviceGeometry geometry, final String name) {
+        if (name == null) {
+            PREFERRED.remove(geometry);
+        } else {
+            UnlockStrategy strategy = named(name);
+            if (strategy == null || !strategy.supports(geometry)) {
+                throw new IllegalArgumentException("no registered strategy " + name + " supports " + geometry + " devices");
+            }
+            PREFERRED.put(geometry, name);
+        }
+        chosen = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Pick the strategy for a geometry.
+     * @param geometry size and disclosure width of the devices
+     * @return the preferred strategy, or the supporting strategy of highest priority, first registered among equals
+     */
+    private static UnlockStrategy choose(final DeviceGeometry geometry) {
+        String preferred = PREFERRED.get(geometry);
+        UnlockStrategy strategy = preferred == null ? null : named(preferred);
+        if (strategy != null && strategy.supports(geometry)) {
+            return strategy;
+        }
+        return supporting(geometry).get(0);
+    }
+
+    /**
+     * The built-in strategies followed by every strategy provider that loads.
+     * @return the initial strategies
+     */
+    private static List<UnlockStrategy> discover() {
+        List<UnlockStrategy> found = new ArrayList<>();
+        found.add(new Dedicated());
+        found.add(new Generalized());
+        found.add(new Adaptive());
+        Iterator<UnlockStrategy> providers = ServiceLoader.load(UnlockStrategy.class).iterator();
+        while (true) {
+            try {
+                if (!providers.hasNext()) {
+                    break;
+                }
+                UnlockStrategy provided = providers.next();
+                boolean taken = false;
+                for (UnlockStrategy strategy : found) {
+                    taken |= strategy.name().equals(provided.name());
+                }
+                if (!taken) {
+                    found.add(provided);
+                }
+            } catch (ServiceConfigurationError e) {
+                // a broken provider must not take the built-in strategies down with it
+            }
+        }
+        return found;
+    }
+
+    /**
+     * The 4-bit/2-disclosure strategy, for default devices.
+     */
+    private static final class Dedicated implements UnlockStrategy {
+        @Override
+        public String name() {
+            return "four-bit";
+        }
+
+        @Override
+        public boolean supports(final DeviceGeometry geometry) {
+            return DeviceGeometry.DEFAULT.equals(geometry);
+        }
+
+        @Override
+        public int priority(final DeviceGeometry geometry) {
+            return DEDICATED_PRIORITY;
+        }
+
+        @Override
+        public UnlockResult unlock(final Device dev) {
+            return FourBitTwoDisclosureDeviceUnlocker.unlockWithResult(dev);
+        }
+
+        @Override
+        public Function<Device, UnlockResult> session(final DeviceGeometry geometry) {
+            FourBitTwoDisclosureDeviceUnlocker session = new FourBitTwoDisclosureDeviceUnlocker();
+            return new UnlockSession(session, session::unlockDeviceWithResult);
+        }
+
+        @Override
+        public Function<Device, UnlockResult> session(final DeviceGeometry geometry, final UnlockTrace.Level level) {
+            FourBitTwoDisclosureDeviceUnlocker session = new FourBitTwoDisclosureDeviceUnlocker();
+            session.traceSettings().setLevel(level);
+            return new UnlockSession(session, session::unlockDeviceWithResult);
+        }
+    }
+
+    /**
+     * The sweep-then-random strategy, for devices of any geometry.
+     */
+    private static final class Generalized implements UnlockStrategy {
+        @Override
+        public String name() {
+            return "generalized";
+        }
+
+        @Override
+        public boolean supports(final DeviceGeometry geometry) {
+            return true;
+        }
+
+        @Override
+        public int priority(final DeviceGeometry geometry) {
+            return GENERAL_PRIORITY;
+        }
+
+        @Override
+        public UnlockResult unlock(final Device dev) {
+            return GeneralizedDeviceUnlocker.unlockWithResult(dev);
+        }
+
+        @Override
+        public Function<Device, UnlockResult> session(final DeviceGeometry geometry) {
+            GeneralizedDeviceUnlocker session = new GeneralizedDeviceUnlocker(geometry);
+            return new UnlockSession(session, session::unlockDeviceWithResult);
+        }
+    }
+
+    /**
+     * The belief-tracking strategy, for small geometries; registered below the generalized strategy, which
+     * needs fewer operations on devices that rotate by a fixed law, so that it is only used when chosen.
+     */
+    private static final class Adaptive implements UnlockStrategy {
+        @Override
+        public String name() {
+            return "adaptive";
+        }
+
+        @Override
+        public boolean supports(final DeviceGeometry geometry) {
+            return AdaptiveDeviceUnlocker.tracked(geometry);
+        }
+
+        @Override
+        public int priority(final DeviceGeometry geometry) {
+            return GENERAL_PRIORITY - 1;
+        }
+
+        @Override
+        public UnlockResult unlock(final Device dev) {
+            return new AdaptiveDeviceUnlocker().unlockDeviceWithResult(dev);
+        }
+
+        @Override
+        public Function<Device, UnlockResult> session(final DeviceGeometry geometry) {
+            AdaptiveDeviceUnlocker session = new AdaptiveDeviceUnlocker();
+            return new UnlockSession(session, session::unlockDeviceWithResult);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * A way of unlocking devices, chosen by {@link DeviceUnlocker} for each device from the strategies
+ * registered with {@link UnlockStrategies}, according to the device's geometry.
+ * <p>
+ *     A strategy is found either by {@link UnlockStrategies#register(UnlockStrategy) registration} or as a
+ *     {@link java.util.ServiceLoader} provider: a public class with a public no-argument constructor,
+ *     listed in {@code META-INF/services/UnlockStrategy}. Among the strategies that support a geometry, the
+ *     one of highest priority unlocks its devices, so an optimized strategy for a common geometry takes
+ *     over by declaring a priority above the built-in ones.
+ * </p>
+ * @version 1.0
+ * @see UnlockStrategies
+ * @see DeviceUnlocker#unlockWithResult(Device)
+ */
+public interface UnlockStrategy {
+    /**
+     * Name of the strategy, unique among registered strategies.
+     * @return a short identifier
+     */
+    String name();
+
+    /**
+     * Whether the strategy can unlock devices of a geometry.
+     * @param geometry size and disclosure width of the devices
+     * @return true if it can
+     */
+    boolean supports(DeviceGeometry geometry);
+
+    /**
+     * Preference for the strategy among those supporting a geometry; the highest wins. The generalized
+     * strategy, which supports every geometry, has priority {@value UnlockStrategies#GENERAL_PRIORITY}, and
+     * strategies dedicated to a single geometry {@value UnlockStrategies#DEDICATED_PRIORITY}.
+     * @param geometry a supported geometry
+     * @return the priority
+     */
+    int priority(DeviceGeometry geometry);
+
+    /**
+     * Unlock a device. Safe to call from many threads at once.
+     * @param dev the device controlling the resource to unlock, of a supported geometry
+     * @return whether the resource is unlocked, why the unlock stopped, and the operations and time it took
+     */
+    UnlockResult unlock(Device dev);
+
+    /**
+     * Create a session for unlocking devices of a geometry one after the other, which may keep state from
+     * one unlock to the next and must be used by one thread at a time.
+     * @param geometry a supported geometry
+     * @return the session; by default the thread-safe {@link #unlock(Device)}
+     */
+    default Function<Device, UnlockResult> session(final DeviceGeometry geometry) {
+        return this::unlock;
+    }
+
+    /**
+     * Create a session as {@link #session(DeviceGeometry)} does, tracing its unlocks at a level if the
+     * strategy keeps a trace.
+     * @param geometry a supported geometry
+     * @param level trace level of the session
+     * @return the session; by default that of {@link #session(DeviceGeometry)}, which keeps no trace
+     */
+    default Function<Device, UnlockResult> session(final DeviceGeometry geometry, final UnlockTrace.Level level) {
+        return session(geometry);
+    }
+
+    /**
+     * Start unlocking an asynchronous device without blocking a thread, if the strategy can.
+     * @param dev the device controlling the resource to unlock, of a supported geometry
+     * @return future of the unlock's result, or null if the strategy only unlocks blocking devices, as by
+     *     default
+     * @see AsyncDeviceUnlocker
+     */
+    default CompletableFuture<UnlockResult> unlockAsync(final AsyncDevice dev) {
+        return null;
+    }
+}
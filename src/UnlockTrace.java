@@ -0,0 +1,415 @@
+/**
+ * Trace of the device operations performed during an unlock, kept as coded events in a preallocated ring.
+ * <p>
+ *     Each event is an operation code plus the pattern involved, packed into two masks (positions shown,
+ *     and positions holding 'T'), so recording an operation writes a few array slots and allocates nothing.
+ *     The ring is allocated once, when the first event is recorded. Text is rendered only when the trace
+ *     is read, in the same form the unlockers have always logged. When an unlock performs more operations
+ *     than the ring holds, the oldest are overwritten.
+ * </p>
+ * <p>
+ *     The level selects what is kept: nothing, device operations, or operations plus diagnostic notes.
+ *     With 1-in-N sampling only every N-th unlock is recorded; the trace of any other unlock is empty.
+ *     Defaults come from the {@value #LEVEL_PROPERTY} and {@value #SAMPLING_PROPERTY} system properties.
+ *     A trace belongs to one unlock session and is not thread-safe.
+ * </p>
+ * @version 1.0
+ * @see FourBitTwoDisclosureDeviceUnlocker#trace()
+ */
+public final class UnlockTrace {
+
+    /**
+     * How much of an unlock is recorded.
+     */
+    public enum Level {
+        /** Record nothing. */
+        OFF,
+        /** Record spins, peeks, pokes and the unlock itself. */
+        OPS,
+        /** Also record diagnostic notes, such as refused operations. */
+        VERBOSE
+    }
+
+    /**
+     * System property holding the default level, one of OFF, OPS or VERBOSE.
+     */
+    public static final String LEVEL_PROPERTY = "deviceunlocker.trace.level";
+
+    /**
+     * System property holding the default sampling interval N: one unlock in N is recorded.
+     */
+    public static final String SAMPLING_PROPERTY = "deviceunlocker.trace.sampling";
+
+    /** Default number of events kept per unlock. */
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /** A spin; the values mask holds 1 if it unlocked the device. */
+    private static final int SPIN = 0;
+    /** A peek request. */
+    private static final int PEEK = 1;
+    /** The pattern a peek returned. */
+    private static final int PEEKED = 2;
+    /** A poke. */
+    private static final int POKE = 3;
+    /** The device was unlocked. */
+    private static final int UNLOCKED = 4;
+    /** A diagnostic note, with or without a pattern. */
+    private static final int NOTE = 5;
+
+    /** Text of each operation code, as logged. */
+    private static final String[] MESSAGES = {
+        "spin : performing a spin",
+        "peek : with pattern",
+        "return peekedPattern",
+        "poke : Poking with pattern:",
+        "device is unlocked",
+    };
+
+    /**char representing true in device.**/
+    private static final char TRUE = 'T';
+
+    /**char representing false in device.**/
+    private static final char FALSE = 'F';
+
+    /**char requesting a bit in a peek pattern.**/
+    private static final char REQUEST = '?';
+
+    /**char leaving a bit out of a peek/poke pattern.**/
+    private static final char HIDDEN = '-';
+
+    /** Operation code of each slot; null until the first event is recorded. */
+    private int[] ops;
+    /** Pattern length of each slot, or -1 if the event has no pattern. */
+    private int[] lengths;
+    /** Positions shown in each slot's pattern ('?' for a request, 'T' or 'F' otherwise). */
+    private long[] masks;
+    /** Positions holding 'T' in each slot's pattern. */
+    private long[] values;
+    /** Message of each note slot. */
+    private String[] notes;
+    /** Pattern text of slots whose pattern does not fit the masks; null for all others. */
+    private String[] raw;
+
+    /** Slot index mask; the capacity is a power of two. */
+    private final int wrap;
+
+    /** Level of recording. */
+    private Level level;
+
+    /** Record one unlock out of this many. */
+    private int sampling;
+
+    /** Unlocks begun since creation. */
+    private long unlocks;
+
+    /** Whether the current unlock is being recorded. */
+    private boolean sampled;
+
+    /** Events recorded during the current unlock, including any overwritten. */
+    private long written;
+
+    /** Rendering of the current unlock, once requested; null until then or after a new event. */
+    private String rendered;
+
+    /**
+     * Create a trace with the default capacity, level and sampling.
+     */
+    public UnlockTrace() {
+        this(DEFAULT_CAPACITY, defaultLevel(), defaultSampling());
+    }
+
+    /**
+     * Create a trace.
+     * @param capacity number of events kept per unlock; rounded up to a power of two
+     * @param level level of recording
+     * @param sampling record one unlock out of this many; at least 1
+     */
+    public UnlockTrace(final int capacity, final Level level, final int sampling) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity " + capacity);
+        }
+        int slots = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.wrap = slots - 1;
+        setLevel(level);
+        setSampling(sampling);
+    }
+
+    /**
+     * Level of recording.
+     * @return the level
+     */
+    public Level level() {
+        return level;
+    }
+
+    /**
+     * Change the level of recording, starting with the next unlock.
+     * @param level the new level
+     */
+    public void setLevel(final Level level) {
+        if (level == null) {
+            throw new IllegalArgumentException("level");
+        }
+        this.level = level;
+    }
+
+    /**
+     * Sampling interval.
+     * @return N, where one unlock in N is recorded
+     */
+    public int sampling() {
+        return sampling;
+    }
+
+    /**
+     * Change the sampling interval, starting with the next unlock.
+     * @param sampling record one unlock out of this many; at least 1
+     */
+    public void setSampling(final int sampling) {
+        if (sampling < 1) {
+            throw new IllegalArgumentException("sampling " + sampling);
+        }
+        this.sampling = sampling;
+    }
+
+    /**
+     * Start the trace of a new unlock, discarding the previous one.
+     */
+    void begin() {
+        sampled = level != Level.OFF && unlocks++ % sampling == 0;
+        written = 0;
+        rendered = null;
+    }
+
+    /**
+     * Record a spin.
+     * @param unlocked what the spin returned
+     */
+    void spin(final boolean unlocked) {
+        if (keeps(Level.OPS)) {
+            put(SPIN, null, null);
+            values[slot(written - 1)] = unlocked ? 1L : 0L;
+        }
+    }
+
+    /**
+     * Record a peek request.
+     * @param pattern the pattern requested; nothing is recorded if null
+     */
+    void peek(final CharSequence pattern) {
+        if (pattern != null && keeps(Level.OPS)) {
+            put(PEEK, null, pattern);
+        }
+    }
+
+    /**
+     * Record the pattern a peek returned.
+     * @param pattern the pattern returned; nothing is recorded if null
+     */
+    void peeked(final CharSequence pattern) {
+        if (pattern != null && keeps(Level.OPS)) {
+            put(PEEKED, null, pattern);
+        }
+    }
+
+    /**
+     * Record a poke.
+     * @param pattern the pattern poked; nothing is recorded if null
+     */
+    void poke(final CharSequence pattern) {
+        if (pattern != null && keeps(Level.OPS)) {
+            put(POKE, null, pattern);
+        }
+    }
+
+    /**
+     * Record that the device is unlocked.
+     */
+    void unlocked() {
+        if (keeps(Level.OPS)) {
+            put(UNLOCKED, null, null);
+        }
+    }
+
+    /**
+     * Record a diagnostic note.
+     * @param message the note; expected to be a constant, since it is kept by reference
+     */
+    void note(final String message) {
+        if (keeps(Level.VERBOSE)) {
+            put(NOTE, message, null);
+        }
+    }
+
+    /**
+     * Record a diagnostic note about a pattern.
+     * @param message the note; expected to be a constant, since it is kept by reference
+     * @param pattern the pattern concerned; nothing is recorded if null
+     */
+    void note(final String message, final CharSequence pattern) {
+        if (pattern != null && keeps(Level.VERBOSE)) {
+            put(NOTE, message, pattern);
+        }
+    }
+
+    /**
+     * Whether events of a level are kept during the current unlock.
+     * @param eventLevel level of the event
+     * @return true if the event should be recorded
+     */
+    boolean keeps(final Level eventLevel) {
+        return sampled && level.compareTo(eventLevel) >= 0;
+    }
+
+    /**
+     * Number of events recorded during the current unlock, including any since overwritten.
+     * @return event count
+     */
+    public long eventCount() {
+        return written;
+    }
+
+    /**
+     * Render the recorded events of the current unlock, one line per event, oldest first.
+     * @return the trace text; empty if nothing was recorded
+     */
+    public String render() {
+        if (rendered == null) {
+            StringBuilder text = new StringBuilder();
+            long first = Math.max(0, written - (wrap + 1L));
+            for (long event = first; event < written; event++) {
+                append(text, slot(event));
+            }
+            rendered = text.toString();
+        }
+        return rendered;
+    }
+
+    /**
+     * Claim the next slot and store an event in it.
+     * @param op operation code
+     * @param note message of a note, null otherwise
+     * @param pattern pattern of the event, or null
+     */
+    private void put(final int op, final String note, final CharSequence pattern) {
+        if (ops == null) {
+            // allocated on first use, so sessions that never trace never pay for the ring
+            int slots = wrap + 1;
+            ops = new int[slots];
+            lengths = new int[slots];
+            masks = new long[slots];
+            values = new long[slots];
+            notes = new String[slots];
+            raw = new String[slots];
+        }
+        int slot = slot(written++);
+        rendered = null;
+        ops[slot] = op;
+        notes[slot] = note;
+        raw[slot] = null;
+        masks[slot] = 0L;
+        values[slot] = 0L;
+        lengths[slot] = pattern == null ? -1 : pattern.length();
+        if (pattern != null && !encode(slot, op, pattern)) {
+            raw[slot] = pattern.toString();
+        }
+    }
+
+    /**
+     * Pack a pattern into a slot's masks.
+     * @param slot the slot
+     * @param op operation code, which decides whether '?' or 'T'/'F' are expected
+     * @param pattern the pattern
+     * @return false if the pattern cannot be packed, e.g. it is too long or mixes unexpected characters
+     */
+    private boolean encode(final int slot, final int op, final CharSequence pattern) {
+        int length = pattern.length();
+        if (length > Long.SIZE || op == NOTE) {
+            return false;
+        }
+        long shown = 0L;
+        long truth = 0L;
+        for (int i = 0; i < length; i++) {
+            char bit = pattern.charAt(i);
+            if (bit == HIDDEN) {
+                continue;
+            }
+            if (op == PEEK ? bit != REQUEST : bit != TRUE && bit != FALSE) {
+                return false;
+            }
+            shown |= 1L << i;
+            if (bit == TRUE) {
+                truth |= 1L << i;
+            }
+        }
+        masks[slot] = shown;
+        values[slot] = truth;
+        return true;
+    }
+
+    /**
+     * Render one event.
+     * @param text destination
+     * @param slot the event's slot
+     */
+    private void append(final StringBuilder text, final int slot) {
+        int op = ops[slot];
+        text.append(op == NOTE ? notes[slot] : MESSAGES[op]);
+        if (lengths[slot] >= 0) {
+            text.append(" (");
+            if (raw[slot] != null) {
+                text.append(raw[slot]);
+            } else {
+                for (int i = 0; i < lengths[slot]; i++) {
+                    long bit = 1L << i;
+                    if ((masks[slot] & bit) == 0L) {
+                        text.append(HIDDEN);
+                    } else if (op == PEEK) {
+                        text.append(REQUEST);
+                    } else {
+                        text.append((values[slot] & bit) != 0L ? TRUE : FALSE);
+                    }
+                }
+            }
+            text.append(')');
+        }
+        text.append('\n');
+    }
+
+    /**
+     * Slot of an event.
+     * @param event event number within the current unlock
+     * @return its slot
+     */
+    private int slot(final long event) {
+        return (int) event & wrap;
+    }
+
+    /**
+     * Level named by the {@value #LEVEL_PROPERTY} system property.
+     * @return the configured level, VERBOSE if unset or unrecognized
+     */
+    private static Level defaultLevel() {
+        String configured = System.getProperty(LEVEL_PROPERTY);
+        if (configured != null) {
+            for (Level candidate : Level.values()) {
+                if (candidate.name().equalsIgnoreCase(configured.trim())) {
+                    return candidate;
+                }
+            }
+        }
+        return Level.VERBOSE;
+    }
+
+    /**
+     * Sampling interval given by the {@value #SAMPLING_PROPERTY} system property.
+     * @return the configured interval, 1 if unset or invalid
+     */
+    private static int defaultSampling() {
+        try {
+            return Math.max(1, Integer.parseInt(System.getProperty(SAMPLING_PROPERTY, "1").trim()));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+public class AdaptiveDeviceUnlockerTest {
+    @Test
+    /*
+     * Every rotation mode is unlocked, on the same devices as the four-bit unlocker: each seed builds one
+     * device for each unlocker. In every mode the adaptive unlocker costs fewer operations than the four-bit
+     * unlocker, both with its strategy table and with its heuristic.
+     */
+    public void unlocksAllRotationKindsTest() {
+        AdaptiveDeviceUnlocker adaptive = new AdaptiveDeviceUnlocker(new SplittableRandom(1));
+        FourBitTwoDisclosureDeviceUnlocker fourBit = new FourBitTwoDisclosureDeviceUnlocker(new SplittableRandom(2));
+        SplittableRandom seeds = new SplittableRandom(3);
+        for (RotationMode mode : RotationMode.values()) {
+            long adaptiveOperations = 0;
+            long tableOperations = 0;
+            long heuristicOperations = 0;
+            for (int i = 0; i < 2000; i++) {
+                long seed = seeds.nextLong();
+                Assert.assertTrue(mode + " seed " + seed,
+                        adaptive.unlockDevice(TestingDevice.create(DeviceGeometry.DEFAULT, mode, seed)));
+                adaptiveOperations += adaptive.operationCount();
+                UnlockResult result = fourBit.unlockDeviceWithResult(TestingDevice.create(DeviceGeometry.DEFAULT, mode, seed));
+                Assert.assertTrue(mode + " seed " + seed, result.unlocked());
+                tableOperations += result.operationCount();
+                System.setProperty(StrategyTables.ENABLED_PROPERTY, "false");
+                try {
+                    result = fourBit.unlockDeviceWithResult(TestingDevice.create(DeviceGeometry.DEFAULT, mode, seed));
+                } finally {
+                    System.clearProperty(StrategyTables.ENABLED_PROPERTY);
+                }
+                Assert.assertTrue(mode + " seed " + seed, result.unlocked());
+                heuristicOperations += result.operationCount();
+            }
+            Assert.assertTrue(mode + ": " + adaptiveOperations + " vs table " + tableOperations,
+                    adaptiveOperations < tableOperations);
+            Assert.assertTrue(mode + ": " + adaptiveOperations + " vs heuristic " + heuristicOperations,
+                    adaptiveOperations < heuristicOperations);
+        }
+    }
+
+    @Test
+    /*
+     * A device too large, or too narrow, to track beliefs for is still unlocked, by a sweep.
+     */
+    public void untrackedGeometryTest() {
+        Assert.assertTrue(AdaptiveDeviceUnlocker.tracked(DeviceGeometry.DEFAULT));
+        Assert.assertFalse(AdaptiveDeviceUnlocker.tracked(new DeviceGeometry(4, 1)));
+        Assert.assertFalse(AdaptiveDeviceUnlocker.tracked(new DeviceGeometry(8, 4)));
+        AdaptiveDeviceUnlocker unlocker = new AdaptiveDeviceUnlocker();
+        for (int i = 0; i < 200; i++) {
+            UnlockResult result = unlocker.unlockDeviceWithResult(new TestingDevice(8, 2));
+            Assert.assertTrue(result.unlocked());
+            Assert.assertEquals(result.operationCount(), unlocker.operationCount());
+        }
+        Assert.assertTrue(unlocker.unlockDevice(new TestingDevice(4, 1)));
+    }
+}
@@ -0,0 +1,86 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class AsyncDeviceUnlockerTest {
+    @Test
+    /*
+     * One event loop thread drives thousands of concurrent unlocks against devices answering in 1 ms.
+     */
+    public void eventLoopTest() throws InterruptedException, ExecutionException {
+        ScheduledExecutorService loop = Executors.newSingleThreadScheduledExecutor();
+        try {
+            AsyncDeviceUnlocker unlocker = new AsyncDeviceUnlocker();
+            List<CompletableFuture<UnlockResult>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < 5000; i++) {
+                Device dev = i % 2 == 0 ? new TestingDevice() : new TestingDevice(16, 4);
+                results.add(unlocker.unlockAsync(new SimulatedLatencyDevice(dev, loop, Duration.ofMillis(1))));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(60, TimeUnit.SECONDS);
+            long elapsed = System.nanoTime() - start;
+            long operations = 0;
+            for (CompletableFuture<UnlockResult> result : results) {
+                Assert.assertTrue(result.get().unlocked());
+                operations += result.get().operationCount();
+            }
+            // sequentially, every operation would wait out its millisecond
+            Assert.assertTrue("took " + elapsed + " ns for " + operations + " operations",
+                    elapsed < TimeUnit.MILLISECONDS.toNanos(operations) / 10);
+        } catch (TimeoutException e) {
+            throw new AssertionError(e);
+        } finally {
+            loop.shutdownNow();
+        }
+    }
+
+    @Test
+    /*
+     * A blocking device adapted on the calling thread completes every operation at once; the unlock
+     * must loop rather than recurse through thousands of them.
+     */
+    public void blockingAdapterTest() throws InterruptedException, ExecutionException {
+        AsyncDeviceUnlocker unlocker = new AsyncDeviceUnlocker();
+        for (int i = 0; i < 20; i++) {
+            UnlockResult result = unlocker.unlockAsync(AsyncDevice.of(new TestingDevice(1024, 2), Runnable::run)).get();
+            Assert.assertTrue(result.unlocked());
+            Assert.assertTrue(result.operationCount() > 1000);
+        }
+        Assert.assertEquals(UnlockResult.Termination.REJECTED, unlocker.unlockAsync(null).get().termination());
+    }
+
+    @Test
+    public void failureTest() throws InterruptedException {
+        Device broken = new TestingDevice() {
+            @Override
+            public CharSequence peek(final CharSequence pattern) {
+                throw new IllegalStateException("connection lost");
+            }
+
+            @Override
+            public boolean spin() {
+                super.spin();
+                return false;
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            new AsyncDeviceUnlocker().unlockAsync(AsyncDevice.of(broken, executor)).get();
+            Assert.fail("failed device unlocked");
+        } catch (ExecutionException expected) {
+            Assert.assertEquals("connection lost", expected.getCause().getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
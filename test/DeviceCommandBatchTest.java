@@ -0,0 +1,103 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DeviceCommandBatchTest {
+    /**
+     * A testing device that counts round trips, one per operation.
+     */
+    private static class RoundTripDevice extends TestingDevice {
+        /** Round trips so far. */
+        int roundTrips;
+
+        @Override
+        public boolean spin() {
+            roundTrips++;
+            return super.spin();
+        }
+
+        @Override
+        public CharSequence peek(final CharSequence pattern) {
+            roundTrips++;
+            return super.peek(pattern);
+        }
+
+        @Override
+        public void poke(final CharSequence pattern) {
+            roundTrips++;
+            super.poke(pattern);
+        }
+    }
+
+    /**
+     * A round trip counting device that performs a whole batch in one round trip.
+     */
+    private static final class BatchingRoundTripDevice extends RoundTripDevice implements BatchingDevice {
+        @Override
+        public void execute(final DeviceCommandBatch batch) {
+            int before = roundTrips;
+            batch.executeSequentially(this);
+            roundTrips = before + 1;
+        }
+    }
+
+    /**
+     * Total round trips of unlocking a number of devices with the 4/2 unlocker.
+     * @param batching whether the devices accept batches
+     * @return round trips across all unlocks
+     */
+    private static long roundTrips(final boolean batching) {
+        long roundTrips = 0;
+        FourBitTwoDisclosureDeviceUnlocker unlocker = new FourBitTwoDisclosureDeviceUnlocker();
+        for (int i = 0; i < 500; i++) {
+            RoundTripDevice dev = batching ? new BatchingRoundTripDevice() : new RoundTripDevice();
+            Assert.assertTrue(unlocker.unlockDevice(dev));
+            roundTrips += dev.roundTrips;
+        }
+        return roundTrips;
+    }
+
+    @Test
+    /*
+     * Sending whole passes as batches takes several times fewer round trips than the strategy table's one per operation.
+     */
+    public void roundTripTest() {
+        long sequential = roundTrips(false);
+        long batched = roundTrips(true);
+        Assert.assertTrue(sequential + " round trips unbatched, " + batched + " batched", batched * 3 < sequential);
+    }
+
+    @Test
+    public void stopOnUnlockTest() {
+        Device dev = new TestingDevice() {
+            private int spins;
+
+            @Override
+            public boolean spin() {
+                return ++spins == 3;
+            }
+        };
+        DeviceCommandBatch batch = new DeviceCommandBatch(true).spins(2).spin().poke("TT--").spin();
+        Assert.assertEquals(5, batch.size());
+        batch.execute(dev);
+        Assert.assertEquals(3, batch.executed());
+        Assert.assertTrue(batch.unlocked());
+        Assert.assertFalse(batch.spinResult(1));
+        Assert.assertTrue(batch.spinResult(2));
+        try {
+            batch.answerPoke(3);
+            Assert.fail("answered past the unlocking spin");
+        } catch (IllegalStateException expected) {
+            // nothing after the unlock may be performed
+        }
+        batch = new DeviceCommandBatch(false).spins(2).peek("??--");
+        batch.execute(new TestingDevice());
+        Assert.assertEquals(3, batch.executed());
+        Assert.assertEquals(4, batch.peekResult(2).length());
+        try {
+            batch.answerSpin(2, true);
+            Assert.fail("answered a peek as a spin");
+        } catch (IllegalStateException expected) {
+            // answers must match their commands
+        }
+    }
+}
@@ -0,0 +1,112 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class DeviceRecordingTest {
+    @Test
+    /*
+     * Replaying a recording through the same unlocker reproduces every unlock operation for operation.
+     */
+    public void recordAndReplayTest() throws IOException {
+        Path file = Files.createTempFile("recording", ".bin");
+        Files.delete(file);
+        int devices = 200;
+        long[] operations = new long[devices];
+        PlanDeviceUnlocker unlocker = new PlanDeviceUnlocker(new StrategySolver().solve(new DeviceGeometry(6, 4), 10));
+        try (DeviceRecorder recorder = new DeviceRecorder(file)) {
+            for (int i = 0; i < devices; i++) {
+                Assert.assertTrue(unlocker.unlockDevice(recorder.record(new TestingDevice(6, 4))));
+                operations[i] = unlocker.operationCount();
+            }
+        }
+        // a second session appends to the same file
+        try (DeviceRecorder recorder = new DeviceRecorder(file)) {
+            Assert.assertTrue(FourBitTwoDisclosureDeviceUnlocker.unlock(recorder.record(new TestingDevice())));
+        }
+        DeviceReplay replay = DeviceReplay.open(file);
+        Assert.assertEquals(devices + 1, replay.deviceCount());
+        for (int i = 0; i < devices; i++) {
+            ReplayDevice dev = replay.device(i);
+            Assert.assertEquals(new DeviceGeometry(6, 4), dev.geometry());
+            Assert.assertTrue(unlocker.unlockDevice(dev));
+            Assert.assertEquals(operations[i], unlocker.operationCount());
+            Assert.assertTrue(dev.isExhausted());
+        }
+        ReplayDevice last = replay.device(devices);
+        Assert.assertEquals(DeviceGeometry.DEFAULT, last.geometry());
+        Assert.assertTrue(new FourBitTwoDisclosureDeviceUnlocker().unlockDevice(last));
+        Assert.assertTrue(last.isExhausted());
+        Files.delete(file);
+    }
+
+    @Test
+    public void divergenceTest() throws IOException {
+        Path file = Files.createTempFile("recording", ".bin");
+        Files.delete(file);
+        try (DeviceRecorder recorder = new DeviceRecorder(file)) {
+            Device dev = recorder.record(new TestingDevice());
+            dev.spin();
+            Assert.assertEquals(4, dev.peek("??--").length());
+            dev.poke("TT--");
+            dev.spin();
+        }
+        ReplayDevice dev = DeviceReplay.open(file).device(0);
+        dev.spin();
+        try {
+            dev.peek("?-?-");
+            Assert.fail("diverging peek answered");
+        } catch (IllegalStateException expected) {
+            Assert.assertTrue(expected.getMessage().contains("diverged"));
+        }
+        dev = DeviceReplay.open(file).device(0);
+        dev.spin();
+        Assert.assertEquals(4, dev.peek("??--").length());
+        dev.poke("TT--");
+        dev.spin();
+        Assert.assertTrue(dev.isExhausted());
+        try {
+            dev.spin();
+            Assert.fail("spin past the recording answered");
+        } catch (IllegalStateException expected) {
+            // no record left
+        }
+        Files.delete(file);
+    }
+
+    @Test
+    /*
+     * Devices and patterns past 32,767 bits are recorded and replayed whole.
+     */
+    public void largeDeviceTest() throws IOException {
+        Path file = Files.createTempFile("recording", ".bin");
+        Files.delete(file);
+        int bits = 40000;
+        char[] request = new char[bits];
+        Arrays.fill(request, '-');
+        request[0] = '?';
+        request[bits - 1] = '?';
+        char[] poke = request.clone();
+        poke[0] = 'T';
+        poke[bits - 1] = 'T';
+        // an 'x' outside the requested positions forces the raw form
+        poke[bits / 2] = 'x';
+        CharSequence peeked;
+        try (DeviceRecorder recorder = new DeviceRecorder(file)) {
+            Device dev = recorder.record(new TestingDevice(bits, 2));
+            dev.spin();
+            peeked = dev.peek(new String(request)).toString();
+            dev.poke(new String(poke));
+        }
+        ReplayDevice dev = DeviceReplay.open(file).device(0);
+        Assert.assertEquals(new DeviceGeometry(bits, 2), dev.geometry());
+        dev.spin();
+        Assert.assertEquals(peeked, dev.peek(new String(request)).toString());
+        dev.poke(new String(poke));
+        Assert.assertTrue(dev.isExhausted());
+        Files.delete(file);
+    }
+}
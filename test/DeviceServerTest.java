@@ -0,0 +1,127 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class DeviceServerTest {
+    @Test
+    /*
+     * Blocking unlocks from several threads share a small pool of multiplexed connections.
+     */
+    public void remoteUnlockTest() throws IOException {
+        try (DeviceServer server = new DeviceServer(); DeviceClient client = new DeviceClient(server.address(), 2)) {
+            List<Device> devices = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                devices.add(i % 3 == 0 ? client.create(new DeviceGeometry(16, 4)) : client.create());
+            }
+            Assert.assertEquals(300, server.deviceCount());
+            List<UnlockResult> results = DeviceUnlocker.unlockAll(devices, 4);
+            for (UnlockResult result : results) {
+                Assert.assertTrue(result.unlocked());
+            }
+            for (Device dev : devices) {
+                ((RemoteDevice) dev).close();
+            }
+            Assert.assertEquals(0, server.deviceCount());
+        }
+    }
+
+    @Test
+    /*
+     * Thousands of asynchronous unlocks run over one connection without a thread per unlock.
+     */
+    public void asyncUnlockTest() throws IOException {
+        try (DeviceServer server = new DeviceServer(); DeviceClient client = new DeviceClient(server.address(), 1)) {
+            AsyncDeviceUnlocker unlocker = new AsyncDeviceUnlocker();
+            List<CompletableFuture<UnlockResult>> results = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                results.add(unlocker.unlockAsync(client.create()));
+            }
+            for (CompletableFuture<UnlockResult> result : results) {
+                Assert.assertTrue(result.join().unlocked());
+            }
+        }
+    }
+
+    @Test
+    public void batchTest() throws IOException {
+        try (DeviceServer server = new DeviceServer(); DeviceClient client = new DeviceClient(server.address(), 1)) {
+            RemoteDevice dev = client.create(new DeviceGeometry(1000, 3));
+            DeviceCommandBatch batch = new DeviceCommandBatch(false).spin().peek("???" + repeat('-', 997)).poke("TTT" + repeat('-', 997)).spin();
+            batch.execute(dev);
+            Assert.assertEquals(4, batch.executed());
+            CharSequence peeked = batch.peekResult(1);
+            Assert.assertEquals(1000, peeked.length());
+            Assert.assertEquals(-1, peeked.subSequence(0, 3).toString().indexOf('?'));
+            Assert.assertEquals(new DeviceGeometry(1000, 3), DeviceGeometry.of(dev));
+            // past the 32,767 bits a short could describe
+            RemoteDevice large = client.create(new DeviceGeometry(40000, 2));
+            Assert.assertEquals(new DeviceGeometry(40000, 2), DeviceGeometry.of(large));
+            large.spin();
+            Assert.assertEquals(40000, large.peek("??" + repeat('-', 39998)).length());
+        }
+    }
+
+    @Test
+    public void failureTest() throws IOException {
+        RemoteDevice dev;
+        try (DeviceServer server = new DeviceServer(); DeviceClient client = new DeviceClient(server.address(), 1)) {
+            dev = client.create();
+            dev.close();
+            try {
+                dev.spin();
+                Assert.fail("released device answered");
+            } catch (IllegalStateException expected) {
+                Assert.assertTrue(expected.getMessage().contains("no device"));
+            }
+        }
+        try {
+            dev.spin();
+            Assert.fail("closed client answered");
+        } catch (UncheckedIOException expected) {
+            // the connection is gone
+        }
+    }
+
+    @Test
+    /*
+     * Closing the server closes the connections it accepted, so their peers see the end of the stream.
+     */
+    public void closeTest() throws IOException, InterruptedException {
+        DeviceServer server = new DeviceServer();
+        try (Socket peer = new Socket(server.address().getAddress(), server.port())) {
+            peer.setSoTimeout(5000);
+            // let the loop accept the connection
+            Thread.sleep(100);
+            server.close();
+            try {
+                Assert.assertEquals(-1, peer.getInputStream().read());
+            } catch (SocketTimeoutException e) {
+                Assert.fail("connection left open");
+            } catch (SocketException reset) {
+                // closed with unread data
+            }
+        }
+        server.close();
+    }
+
+    /**
+     * A run of one character.
+     * @param c the character
+     * @param count length of the run
+     * @return the run
+     */
+    private static String repeat(final char c, final int count) {
+        char[] run = new char[count];
+        Arrays.fill(run, c);
+        return new String(run);
+    }
+}
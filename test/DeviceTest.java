@@ -4,7 +4,9 @@ import org.junit.Test;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.SplittableRandom;
 
 import static junit.framework.TestCase.fail;
 import static org.mockito.Mockito.spy;
@@ -33,7 +35,7 @@ public class DeviceTest {
                 try {
                     spins = dev.getClass().getDeclaredField("spins");
                     spins.setAccessible(true);
-                    System.out.println("spins: " + spins.getInt(dev));
+                    System.out.println("spins: " + spins.getLong(dev));
                 } catch (Exception e) {
                     e.printStackTrace();
                     fail();
@@ -72,7 +74,7 @@ public class DeviceTest {
                     try {
                         spins = dev.getClass().getDeclaredField("spins");
                         spins.setAccessible(true);
-                        System.out.println("spins: " + spins.getInt(dev));
+                        System.out.println("spins: " + spins.getLong(dev));
                     } catch (Exception e) {
                         fail();
                         e.printStackTrace();
@@ -125,4 +127,171 @@ public class DeviceTest {
             fail();
         }
     }
+    @Test
+    public void spinCountOverflowTest() throws Exception {
+        Constructor polynomial = TestingDevice.class.getDeclaredConstructor(boolean[].class,int.class,int.class,int.class);
+        polynomial.setAccessible(true);
+        boolean[] initialBits = {true,true,false,true,false,false,true};
+        int multiplier = 1_000_003;
+        TestingDevice dev = (TestingDevice) polynomial.newInstance(initialBits, 2, 1, multiplier);
+        Method superPeek = dev.getClass().getDeclaredMethod("superPeek");
+        superPeek.setAccessible(true);
+        Field spins = dev.getClass().getDeclaredField("spins");
+        spins.setAccessible(true);
+        // jump past the point where an int spin count or accumulator would have wrapped
+        long startSpins = 3_000_000_000L;
+        spins.setLong(dev, startSpins);
+
+        BigInteger size = BigInteger.valueOf(initialBits.length);
+        BigInteger accumulator = BigInteger.ZERO;
+        int head = 0;
+        for (long s = startSpins + 1; s <= startSpins + 50; s++) {
+            dev.spin();
+            accumulator = accumulator.add(BigInteger.valueOf(s).multiply(BigInteger.valueOf(multiplier)));
+            int steps = accumulator.mod(size).intValue() - 1;
+            if (steps > 0) head = (head + steps) % initialBits.length;
+            StringBuilder expected = new StringBuilder("[");
+            for (int i = 0; i < initialBits.length; i++) {
+                expected.append(initialBits[(head + i) % initialBits.length] ? 'T' : 'F');
+                if (i < initialBits.length - 1) expected.append(", ");
+            }
+            expected.append("]");
+            Assert.assertEquals(expected.toString(), superPeek.invoke(dev));
+        }
+        Assert.assertEquals(startSpins + 50, spins.getLong(dev));
+    }
+    @Test
+    public void uniformAfterPokeTest() {
+        boolean[] initialBits = {true,false,false,true};
+        TestingDevice dev = new TestingDevice(initialBits, 2);
+        Assert.assertFalse(dev.spin());
+        Assert.assertEquals("-F-T", dev.peek("-?-?").toString());
+        dev.poke("-T-T");
+        Assert.assertFalse(dev.spin());
+        Assert.assertEquals("-TF-", dev.peek("-??-").toString());
+        dev.poke("-TT-");
+        Assert.assertTrue(dev.spin());
+    }
+
+    @Test
+    /*
+     * A bitmask pattern peeks and pokes like its characters, and the device answers every peek with the
+     * same reused pattern, which a command batch copies before the next peek overwrites it.
+     */
+    public void bitPatternTest() throws Exception {
+        Constructor stationary = TestingDevice.class.getDeclaredConstructor(boolean[].class, Integer.TYPE, Integer.TYPE, Integer.TYPE);
+        stationary.setAccessible(true);
+        boolean[] initialBits = new boolean[70];
+        initialBits[66] = true;
+        TestingDevice dev = (TestingDevice) stationary.newInstance(initialBits, 3, 0, 0);
+        BitPattern request = new BitPattern(70).request(1).request(66).request(67).request(69);
+        Assert.assertEquals('?', request.charAt(66));
+        Assert.assertEquals('-', request.charAt(68));
+        Assert.assertFalse(dev.spin());
+        CharSequence first = dev.peek(request);
+        Assert.assertEquals(70, first.length());
+        Assert.assertEquals('F', first.charAt(1));
+        Assert.assertEquals('T', first.charAt(66));
+        Assert.assertEquals('F', first.charAt(67));
+        // only the first three requested bits are disclosed
+        Assert.assertEquals('-', first.charAt(69));
+        dev.poke(new BitPattern(70).set(1, true).set(67, true).set(69, true));
+        Assert.assertFalse(dev.spin());
+        CharSequence second = dev.peek(request.toString());
+        Assert.assertSame(first, second);
+        Assert.assertEquals("TTT", "" + second.charAt(1) + second.charAt(66) + second.charAt(67));
+        Assert.assertEquals('-', second.charAt(69));
+
+        DeviceCommandBatch batch = new DeviceCommandBatch(false).poke(new BitPattern(70).set(1, false))
+                .spin().peek(request).spin().peek(request);
+        batch.execute(dev);
+        Assert.assertEquals('F', batch.peekResult(2).charAt(1));
+        Assert.assertEquals('F', batch.peekResult(4).charAt(1));
+        Assert.assertNotSame(batch.peekResult(2), batch.peekResult(4));
+    }
+
+    @Test
+    /* devices held off-heap rotate like heap devices, and fill the arena without overlapping */
+    public void offHeapDeviceTest() {
+        DeviceGeometry geometry = new DeviceGeometry(100000, 4);
+        DeviceArena arena = new DeviceArena(2 * DeviceArena.bytesFor(geometry));
+        TestingDevice offHeap = arena.device(geometry, RotationMode.POLYNOMIAL, new SplittableRandom(7));
+        TestingDevice onHeap = TestingDevice.create(geometry, RotationMode.POLYNOMIAL, new SplittableRandom(7));
+        BitPattern request = new BitPattern(geometry.bits()).request(0).request(1).request(50000).request(99999);
+        for (int round = 0; round < 20; round++) {
+            Assert.assertEquals(onHeap.spin(), offHeap.spin());
+            Assert.assertEquals(onHeap.peek(request).toString(), offHeap.peek(request).toString());
+        }
+
+        TestingDevice stationary = arena.device(geometry, RotationMode.LINEAR, new SplittableRandom(7));
+        Assert.assertEquals(2 * DeviceArena.bytesFor(geometry), arena.used());
+        BitPattern poke = new BitPattern(geometry.bits());
+        for (int first = 0; first < geometry.bits(); first += 4) {
+            Assert.assertFalse(stationary.spin());
+            request.clear();
+            poke.clear();
+            for (int i = first; i < first + 4; i++) {
+                request.request(i);
+                poke.set(i, true);
+            }
+            stationary.peek(request);
+            stationary.poke(poke);
+        }
+        Assert.assertTrue(stationary.spin());
+        Assert.assertFalse(offHeap.spin());
+        try {
+            arena.device(new DeviceGeometry(1, 1), RotationMode.LINEAR, new SplittableRandom(7));
+            fail("a full arena must refuse another device");
+        } catch (IllegalStateException expected) {
+            Assert.assertEquals(2, arena.devices());
+        }
+    }
+
+    @Test
+    /* devices built from the same seed make the same random choices, random rotations included */
+    public void seededDeviceTest() {
+        DeviceGeometry geometry = new DeviceGeometry(16, 4);
+        TestingDevice first = TestingDevice.create(geometry, RotationMode.RANDOM, 99L);
+        TestingDevice second = TestingDevice.create(geometry, RotationMode.RANDOM, 99L);
+        Assert.assertEquals(99L, first.seed());
+        String request = "????------------";
+        for (int round = 0; round < 50; round++) {
+            Assert.assertEquals(first.spin(), second.spin());
+            Assert.assertEquals(first.peek(request).toString(), second.peek(request).toString());
+        }
+        TestingDevice legacy = new TestingDevice(16, 4, 5L);
+        TestingDevice again = new TestingDevice(16, 4, 5L);
+        for (int round = 0; round < 50; round++) {
+            Assert.assertEquals(legacy.spin(), again.spin());
+            Assert.assertEquals(legacy.peek(request).toString(), again.peek(request).toString());
+        }
+    }
+
+    @Test
+    /* a pooled device reset to a seed behaves as a new device built from it, and each thread gets its own */
+    public void devicePoolTest() throws Exception {
+        DeviceGeometry geometry = new DeviceGeometry(70, 4);
+        BitPattern request = new BitPattern(geometry.bits()).request(0).request(33).request(64).request(69);
+        for (RotationMode mode : RotationMode.values()) {
+            DevicePool pool = new DevicePool(geometry, mode);
+            TestingDevice pooled = pool.acquire(1L);
+            pooled.spin();
+            Assert.assertSame(pooled, pool.acquire(2L));
+            TestingDevice fresh = TestingDevice.create(geometry, mode, 2L);
+            Assert.assertEquals(2L, pooled.seed());
+            // a device reset before it was ever peeked must not accept a poke
+            pooled.poke(new BitPattern(geometry.bits()).set(0, true));
+            for (int round = 0; round < 30; round++) {
+                Assert.assertEquals(fresh.spin(), pooled.spin());
+                Assert.assertEquals(fresh.peek(request).toString(), pooled.peek(request).toString());
+                pooled.poke(new BitPattern(geometry.bits()).set(33, round % 2 == 0));
+                fresh.poke(new BitPattern(geometry.bits()).set(33, round % 2 == 0));
+            }
+            TestingDevice[] other = new TestingDevice[1];
+            Thread thread = new Thread(() -> other[0] = pool.acquire(2L));
+            thread.start();
+            thread.join();
+            Assert.assertNotSame(pooled, other[0]);
+        }
+    }
 }
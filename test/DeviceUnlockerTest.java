@@ -0,0 +1,236 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class DeviceUnlockerTest {
+    @Test
+    /*
+     * Every device of a batch is unlocked, and results line up with the devices.
+     */
+    public void unlockAllTest() {
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            devices.add(i % 3 == 0 ? new TestingDevice(12, 3) : new TestingDevice());
+        }
+        devices.add(null);
+        List<UnlockResult> results = DeviceUnlocker.unlockAll(devices, 4);
+        Assert.assertEquals(devices.size(), results.size());
+        for (int i = 0; i < 3000; i++) {
+            Assert.assertTrue(results.get(i).unlocked());
+            if (i % 3 != 0) {
+                // default devices are unlocked by the 4/2 strategy table
+                Assert.assertEquals(UnlockResult.Termination.DETERMINISTIC_PASS, results.get(i).termination());
+            }
+        }
+        Assert.assertEquals(UnlockResult.Termination.REJECTED, results.get(3000).termination());
+        Assert.assertTrue(DeviceUnlocker.unlockAll(Collections.<Device>emptyList()).isEmpty());
+    }
+
+    @Test
+    public void unlockAllStreamTest() {
+        List<UnlockResult> results = DeviceUnlocker.unlockAll(IntStream.range(0, 1000).mapToObj(i -> new TestingDevice()))
+                .collect(Collectors.toList());
+        Assert.assertEquals(1000, results.size());
+        Assert.assertTrue(results.stream().allMatch(UnlockResult::unlocked));
+    }
+
+    @Test
+    /*
+     * A budget stops an unlock at its first operation past the limit, with the operations performed so far,
+     * and leaves the thread's session ready for the next unlock.
+     */
+    public void operationBudgetTest() {
+        long limited = UnlockMetrics.global().getLimitReachedCount();
+        long exhausted = UnlockMetrics.global().getBudgetExhaustedCount();
+        UnlockResult spent = DeviceUnlocker.unlockWithResult(new NeverUnlocked(16, 4), UnlockBudget.operations(10));
+        Assert.assertFalse(spent.unlocked());
+        Assert.assertEquals(UnlockResult.Termination.LIMIT_REACHED, spent.termination());
+        Assert.assertEquals(10, spent.operationCount());
+
+        // stopped in the middle of a batch of the 4/2 strategy
+        UnlockResult partial = DeviceUnlocker.unlockWithResult(new NeverUnlocked(4, 2), UnlockBudget.operations(3));
+        Assert.assertEquals(UnlockResult.Termination.LIMIT_REACHED, partial.termination());
+        Assert.assertEquals(3, partial.operationCount());
+        // counted apart from strategies giving up on their own
+        Assert.assertEquals(limited + 2, UnlockMetrics.global().getLimitReachedCount());
+        Assert.assertEquals(exhausted, UnlockMetrics.global().getBudgetExhaustedCount());
+        UnlockResult next = DeviceUnlocker.unlockWithResult(new TestingDevice(), UnlockBudget.unlimited());
+        Assert.assertTrue(next.unlocked());
+        Assert.assertEquals(UnlockResult.Termination.DETERMINISTIC_PASS, next.termination());
+        Assert.assertTrue(DeviceUnlocker.unlock(new TestingDevice(12, 3), UnlockBudget.operations(1000)));
+
+        // a stopped unlock stays out of the metrics like any other on a thread that does not record
+        boolean recorded = DeviceUnlocker.record(false);
+        try {
+            long unlocks = UnlockMetrics.global().getUnlockCount();
+            DeviceUnlocker.unlockWithResult(new NeverUnlocked(16, 4), UnlockBudget.operations(10));
+            Assert.assertEquals(unlocks, UnlockMetrics.global().getUnlockCount());
+        } finally {
+            DeviceUnlocker.record(recorded);
+        }
+    }
+
+    @Test
+    /*
+     * A deadline stops an unlock as a reached limit, cancellation as cancelled, whichever strategy runs it.
+     */
+    public void deadlineAndCancellationTest() throws InterruptedException {
+        UnlockResult late = DeviceUnlocker.unlockWithResult(new NeverUnlocked(16, 4), UnlockBudget.timeout(Duration.ZERO));
+        Assert.assertEquals(UnlockResult.Termination.LIMIT_REACHED, late.termination());
+        Assert.assertEquals(0, late.operationCount());
+
+        long start = System.nanoTime();
+        UnlockResult slow = DeviceUnlocker.unlockWithResult(new NeverUnlocked(64, 2, 1), UnlockBudget.timeout(Duration.ofMillis(30)));
+        Assert.assertEquals(UnlockResult.Termination.LIMIT_REACHED, slow.termination());
+        Assert.assertTrue(slow.operationCount() > 0);
+        Assert.assertTrue(System.nanoTime() - start < 1_000_000_000L);
+
+        UnlockBudget budget = UnlockBudget.unlimited();
+        UnlockResult[] cancelled = new UnlockResult[1];
+        Thread unlocking = new Thread(() -> cancelled[0] = DeviceUnlocker.unlockWithResult(new NeverUnlocked(64, 2, 1), budget));
+        unlocking.start();
+        Thread.sleep(20);
+        budget.cancel();
+        unlocking.join(1000);
+        Assert.assertEquals(UnlockResult.Termination.CANCELLED, cancelled[0].termination());
+        Assert.assertTrue(cancelled[0].operationCount() > 0);
+        Assert.assertEquals(0, DeviceUnlocker.unlockWithResult(new TestingDevice(), budget).operationCount());
+    }
+
+    @Test
+    /*
+     * A budget keeps a batching device batching, charging each batch command by command and splitting
+     * only the batch that overruns it; a stopped unlock keeps the last bits it saw.
+     */
+    public void budgetedBatchingTest() {
+        long operations = 0;
+        int trips = 0;
+        for (int i = 0; i < 20; i++) {
+            Batched dev = new Batched(new TestingDevice());
+            UnlockResult result = DeviceUnlocker.unlockWithResult(dev, UnlockBudget.operations(10000));
+            Assert.assertTrue(result.unlocked());
+            Assert.assertNull(result.lastPeek());
+            operations += result.operationCount();
+            trips += dev.trips;
+        }
+        Assert.assertTrue(trips + " round trips for " + operations + " operations", trips * 2 < operations);
+
+        Batched stuck = new Batched(new NeverUnlocked(4, 2));
+        UnlockResult spent = DeviceUnlocker.unlockWithResult(stuck, UnlockBudget.operations(40));
+        Assert.assertEquals(UnlockResult.Termination.LIMIT_REACHED, spent.termination());
+        Assert.assertEquals(40, spent.operationCount());
+        Assert.assertTrue(stuck.trips + " round trips", stuck.trips < 40);
+        Assert.assertEquals(4, spent.lastPeek().length());
+        Assert.assertEquals(2, spent.lastPeek().replaceAll("[^TF]", "").length());
+    }
+
+    /**
+     * A device that performs batches in one round trip, counting round trips.
+     */
+    private static final class Batched extends Device implements BatchingDevice {
+        /** Device performing the operations. */
+        private final TestingDevice dev;
+
+        /** Round trips so far: single operations and whole batches. */
+        private int trips;
+
+        /**
+         * Wrap a device.
+         * @param dev device performing the operations
+         */
+        Batched(final TestingDevice dev) {
+            this.dev = dev;
+        }
+
+        @Override
+        public boolean spin() {
+            trips++;
+            return dev.spin();
+        }
+
+        @Override
+        public CharSequence peek(final CharSequence pattern) {
+            trips++;
+            return dev.peek(pattern);
+        }
+
+        @Override
+        public void poke(final CharSequence pattern) {
+            trips++;
+            dev.poke(pattern);
+        }
+
+        @Override
+        public void execute(final DeviceCommandBatch batch) {
+            trips++;
+            batch.executeSequentially(dev);
+        }
+    }
+
+    /**
+     * A testing device whose spins never report it unlocked, optionally slow to answer.
+     */
+    private static final class NeverUnlocked extends TestingDevice {
+        /** Sleep per operation in milliseconds. */
+        private final long millis;
+
+        /**
+         * Create a fast device.
+         * @param size number of bits
+         * @param bitsPerPeek bits disclosed per peek
+         */
+        NeverUnlocked(final int size, final int bitsPerPeek) {
+            this(size, bitsPerPeek, 0);
+        }
+
+        /**
+         * Create a device.
+         * @param size number of bits
+         * @param bitsPerPeek bits disclosed per peek
+         * @param millis sleep per operation in milliseconds
+         */
+        NeverUnlocked(final int size, final int bitsPerPeek, final long millis) {
+            super(size, bitsPerPeek);
+            this.millis = millis;
+        }
+
+        @Override
+        public boolean spin() {
+            pause();
+            super.spin();
+            return false;
+        }
+
+        @Override
+        public CharSequence peek(final CharSequence pattern) {
+            pause();
+            return super.peek(pattern);
+        }
+
+        @Override
+        public void poke(final CharSequence pattern) {
+            pause();
+            super.poke(pattern);
+        }
+
+        /**
+         * Wait before answering, unless interrupted.
+         */
+        private void pause() {
+            if (millis == 0) {
+                return;
+            }
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
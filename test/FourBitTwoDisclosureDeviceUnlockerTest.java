@@ -5,7 +5,12 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
@@ -19,20 +24,57 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
 
     @Test
     public void getPermutationsTest() {
-        try {
-            Method permsMethod = FourBitTwoDisclosureDeviceUnlocker.class.getDeclaredMethod("getPermutations");
-            permsMethod.setAccessible(true);
-            List<CharSequence> perms = (List<CharSequence>)permsMethod.invoke(FourBitTwoDisclosureDeviceUnlocker.class);
-            Assert.assertTrue(perms.contains("??--"));
-            Assert.assertTrue(perms.contains("?-?-"));
-            Assert.assertTrue(perms.contains("?--?"));
-            Assert.assertTrue(perms.contains("-??-"));
-            Assert.assertTrue(perms.contains("-?-?"));
-            Assert.assertTrue(perms.contains("--??"));
-        } catch(Exception e) {
-            e.printStackTrace();
-            fail();
+        PeekPatterns patterns = new PeekPatterns(4, 2);
+        List<CharSequence> perms = new ArrayList<>();
+        for (long mask = patterns.first(); mask != PeekPatterns.NONE; mask = patterns.next(mask)) {
+            Assert.assertTrue(patterns.isValid(mask));
+            perms.add(patterns.render(mask));
         }
+        Assert.assertEquals(patterns.count(), perms.size());
+        Assert.assertTrue(perms.contains("??--"));
+        Assert.assertTrue(perms.contains("?-?-"));
+        Assert.assertTrue(perms.contains("?--?"));
+        Assert.assertTrue(perms.contains("-??-"));
+        Assert.assertTrue(perms.contains("-?-?"));
+        Assert.assertTrue(perms.contains("--??"));
+        List<CharSequence> byPosition = new ArrayList<>();
+        for (long mask = patterns.first(); mask != PeekPatterns.NONE; mask = patterns.nextByPosition(mask)) {
+            byPosition.add(patterns.render(mask));
+        }
+        Assert.assertEquals(Arrays.asList("??--", "?-?-", "?--?", "-??-", "-?-?", "--??"), byPosition);
+    }
+
+    @Test
+    public void largePatternCountTest() {
+        PeekPatterns patterns = new PeekPatterns(32, 4);
+        long count = 0;
+        long previous = 0;
+        for (long mask = patterns.first(); mask != PeekPatterns.NONE; mask = patterns.next(mask)) {
+            Assert.assertTrue(mask > previous);
+            previous = mask;
+            count++;
+        }
+        Assert.assertEquals(35960, count);
+        Assert.assertEquals(35960, patterns.count());
+        Assert.assertFalse(patterns.isValid(patterns.parse("??--")));
+        Assert.assertFalse(patterns.isValid(1L << 32 | 7));
+        PeekPatterns wide = new PeekPatterns(64, 63);
+        count = 0;
+        for (long mask = wide.first(); mask != PeekPatterns.NONE; mask = wide.next(mask)) {
+            count++;
+        }
+        Assert.assertEquals(64, count);
+        count = 0;
+        for (long mask = wide.first(); mask != PeekPatterns.NONE; mask = wide.nextByPosition(mask)) {
+            count++;
+        }
+        Assert.assertEquals(64, count);
+        count = 0;
+        for (long mask = patterns.first(); mask != PeekPatterns.NONE; mask = patterns.nextByPosition(mask)) {
+            Assert.assertTrue(patterns.isValid(mask));
+            count++;
+        }
+        Assert.assertEquals(35960, count);
     }
     @Test
     /*
@@ -112,8 +154,50 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
     }
 
 
+    @Test(timeout=10000)
+    /*
+     * Unlocks running on many threads at once must not share device, state, or trace.
+     */
+    public void concurrentUnlockTest() throws Exception {
+        final int THREADS = 8;
+        final int UNLOCKS_PER_THREAD = 250;
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> mismatches = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                mismatches.add(pool.submit(() -> {
+                    int bad = 0;
+                    for (int i = 0; i < UNLOCKS_PER_THREAD; i++) {
+                        final int[] spins = {0};
+                        TestingDevice dev = new TestingDevice() {
+                            @Override
+                            public boolean spin() {
+                                spins[0]++;
+                                return super.spin();
+                            }
+                        };
+                        boolean unlocked = FourBitTwoDisclosureDeviceUnlocker.unlock(dev);
+                        String trace = FourBitTwoDisclosureDeviceUnlocker.showTrace();
+                        int tracedSpins = 0;
+                        for (String atom : trace.split("\n")) {
+                            if (atom.startsWith("spin")) tracedSpins++;
+                        }
+                        if (tracedSpins != spins[0] || unlocked != trace.endsWith("device is unlocked\n")) bad++;
+                    }
+                    return bad;
+                }));
+            }
+            for (Future<Integer> mismatch : mismatches) {
+                Assert.assertEquals(0, (int) mismatch.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
     @Test
     public void testDoSpinInvalidCall() throws NoSuchMethodException, NoSuchFieldException, IllegalAccessException, InvocationTargetException {
+        FourBitTwoDisclosureDeviceUnlocker unlocker = new FourBitTwoDisclosureDeviceUnlocker();
         TestingDevice device = new TestingDevice();
         int stateCreated = 1;
 
@@ -122,23 +206,23 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
 
         Field devField = FourBitTwoDisclosureDeviceUnlocker.class.getDeclaredField("dev");
         devField.setAccessible(true);
-        devField.set(FourBitTwoDisclosureDeviceUnlocker.class, device);
+        devField.set(unlocker, device);
 
         Field stateField = FourBitTwoDisclosureDeviceUnlocker.class.getDeclaredField("state");
         stateField.setAccessible(true);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, stateCreated);
-        int state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        stateField.set(unlocker, stateCreated);
+        int state = (int) stateField.get(unlocker);
         Assert.assertTrue(stateCreated == state);
 
-        boolean result = (boolean) doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 5);
+        boolean result = (boolean) doSpin.invoke(unlocker, 5);
         Assert.assertFalse(result);
         Assert.assertTrue(stateCreated == state);
 
-        result = (boolean) doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 0);
+        result = (boolean) doSpin.invoke(unlocker, 0);
         Assert.assertFalse(result);
         Assert.assertTrue(stateCreated == state);
 
-        result = (boolean) doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, -1);
+        result = (boolean) doSpin.invoke(unlocker, -1);
         Assert.assertFalse(result);
         Assert.assertTrue(stateCreated == state);
 
@@ -148,6 +232,7 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
 
     @Test
     public void testDoSpinValidCalls() throws NoSuchMethodException, NoSuchFieldException, IllegalAccessException, InvocationTargetException {
+        FourBitTwoDisclosureDeviceUnlocker unlocker = new FourBitTwoDisclosureDeviceUnlocker();
         TestingDevice device = new TestingDevice();
         int stateSpun= 2;
         int created = 1;
@@ -159,60 +244,61 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
 
         Field devField = FourBitTwoDisclosureDeviceUnlocker.class.getDeclaredField("dev");
         devField.setAccessible(true);
-        devField.set(FourBitTwoDisclosureDeviceUnlocker.class, device);
+        devField.set(unlocker, device);
 
         Field stateField = FourBitTwoDisclosureDeviceUnlocker.class.getDeclaredField("state");
         stateField.setAccessible(true);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, 1);
+        stateField.set(unlocker, 1);
 
-        boolean result = (boolean) doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        int state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        boolean result = (boolean) doSpin.invoke(unlocker, 1);
+        int state = (int) stateField.get(unlocker);
         Assert.assertTrue(state == stateSpun);
         Assert.assertFalse(result);
 
 
-        result = (boolean) doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 5);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        result = (boolean) doSpin.invoke(unlocker, 5);
+        state = (int) stateField.get(unlocker);
         Assert.assertTrue(state == stateSpun);
         Assert.assertFalse(result);
 
         boolean[] bits = {true, true, true, true};
         device = new TestingDevice(bits, 2);
-        devField.set(FourBitTwoDisclosureDeviceUnlocker.class, device);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, created);
-        result = (boolean) doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 5);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        devField.set(unlocker, device);
+        stateField.set(unlocker, created);
+        result = (boolean) doSpin.invoke(unlocker, 5);
+        state = (int) stateField.get(unlocker);
         Assert.assertTrue(state == stateSpun);
         Assert.assertTrue(result);
 
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, stateSpun);
-        result = (boolean) doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 5);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        stateField.set(unlocker, stateSpun);
+        result = (boolean) doSpin.invoke(unlocker, 5);
+        state = (int) stateField.get(unlocker);
         Assert.assertTrue(state == stateSpun);
         Assert.assertTrue(result);
 
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, statePoked);
-        result = (boolean) doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 5);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        stateField.set(unlocker, statePoked);
+        result = (boolean) doSpin.invoke(unlocker, 5);
+        state = (int) stateField.get(unlocker);
         Assert.assertTrue(state == stateSpun);
         Assert.assertTrue(result);
 
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, statePeeked);
-        result = (boolean) doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 5);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        stateField.set(unlocker, statePeeked);
+        result = (boolean) doSpin.invoke(unlocker, 5);
+        state = (int) stateField.get(unlocker);
         Assert.assertTrue(state == stateSpun);
         Assert.assertTrue(result);
 
 
 
         // reset to default values
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class,0);
-        devField.set(FourBitTwoDisclosureDeviceUnlocker.class,null);
+        stateField.set(unlocker,0);
+        devField.set(unlocker,null);
     }
 
 
     @Test
     public void testInvalidPeekedPatternCall() throws Exception {
+        FourBitTwoDisclosureDeviceUnlocker unlocker = new FourBitTwoDisclosureDeviceUnlocker();
         TestingDevice device = new TestingDevice();
         int created = 1;
         int statePeeked = 3;
@@ -220,62 +306,62 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
 
         Field devField = FourBitTwoDisclosureDeviceUnlocker.class.getDeclaredField("dev");
         devField.setAccessible(true);
-        devField.set(FourBitTwoDisclosureDeviceUnlocker.class, device);
+        devField.set(unlocker, device);
 
         Field stateField = FourBitTwoDisclosureDeviceUnlocker.class.getDeclaredField("state");
         stateField.setAccessible(true);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, created);
+        stateField.set(unlocker, created);
 
         Method doSpin = FourBitTwoDisclosureDeviceUnlocker.class.getDeclaredMethod("doSpin", int.class);
         doSpin.setAccessible(true);
 
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
+        doSpin.invoke(unlocker, 1);
         Method doPeek = FourBitTwoDisclosureDeviceUnlocker.class.getDeclaredMethod("doPeek", CharSequence.class);
         doPeek.setAccessible(true);
 
         CharSequence requestPattern = "----";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, created);
-        CharSequence pattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        int state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        stateField.set(unlocker, created);
+        CharSequence pattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        int state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(requestPattern.equals(pattern));
         Assert.assertTrue(state == created);
 
         requestPattern = "????";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, created);
-        pattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        stateField.set(unlocker, created);
+        pattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(requestPattern.equals(pattern));
         Assert.assertTrue(pattern.length() == requestPattern.length());
         Assert.assertTrue(state == created);
 
         requestPattern = "?-??";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, created);
-        pattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        stateField.set(unlocker, created);
+        pattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(requestPattern.equals(pattern));
         Assert.assertTrue(pattern.length() == requestPattern.length());
         Assert.assertTrue(state == created);
 
         requestPattern = "?---";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, created);
-        pattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
+        doSpin.invoke(unlocker, 1);
+        stateField.set(unlocker, created);
+        pattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
         Assert.assertTrue(requestPattern.equals(pattern));
         Assert.assertTrue(pattern.length() == requestPattern.length());
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        state = (int) stateField.get(unlocker);
         Assert.assertTrue(state == created);
 
         requestPattern = "????--";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, created);
-        pattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        stateField.set(unlocker, created);
+        pattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(requestPattern.equals(pattern));
         Assert.assertTrue(pattern.length() == requestPattern.length());
@@ -283,30 +369,30 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
 
 
         requestPattern = "??-";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, created);
-        pattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        stateField.set(unlocker, created);
+        pattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(requestPattern.equals(pattern));
         Assert.assertTrue(pattern.length() == requestPattern.length());
         Assert.assertTrue(state == created);
 
         requestPattern = "";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, created);
-        pattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        stateField.set(unlocker, created);
+        pattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(requestPattern.equals(pattern));
         Assert.assertTrue(pattern.length() == requestPattern.length());
         Assert.assertTrue(state == created);
 
         requestPattern = "???----------?";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, created);
-        pattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        stateField.set(unlocker, created);
+        pattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(requestPattern.equals(pattern));
         Assert.assertTrue(pattern.length() == requestPattern.length());
@@ -314,10 +400,10 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
 
 
         requestPattern = "?--?";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, statePeeked);
-        pattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        stateField.set(unlocker, statePeeked);
+        pattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(requestPattern.equals(pattern));
         Assert.assertTrue(pattern.length() == requestPattern.length());
@@ -325,10 +411,10 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
 
 
         requestPattern = "?--?";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, statePoked);
-        pattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        stateField.set(unlocker, statePoked);
+        pattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(requestPattern.equals(pattern));
         Assert.assertTrue(pattern.length() == requestPattern.length());
@@ -336,21 +422,21 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
 
 
         requestPattern = "?--?---";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, statePeeked);
-        pattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        stateField.set(unlocker, statePeeked);
+        pattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(requestPattern.equals(pattern));
         Assert.assertTrue(pattern.length() == requestPattern.length());
         Assert.assertTrue(state == statePeeked);
 
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, statePoked);
+        stateField.set(unlocker, statePoked);
         requestPattern = "?--?---";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, statePoked);
-        pattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        stateField.set(unlocker, statePoked);
+        pattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(requestPattern.equals(pattern));
         Assert.assertTrue(pattern.length() == requestPattern.length());
@@ -358,10 +444,10 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
 
 
         requestPattern = "????";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, statePeeked);
-        pattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        stateField.set(unlocker, statePeeked);
+        pattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(requestPattern.equals(pattern));
         Assert.assertTrue(pattern.length() == requestPattern.length());
@@ -369,10 +455,10 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
 
 
         requestPattern = "????";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, statePoked);
-        pattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        stateField.set(unlocker, statePoked);
+        pattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(requestPattern.equals(pattern));
         Assert.assertTrue(pattern.length() == requestPattern.length());
@@ -380,10 +466,10 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
 
 
         requestPattern = "";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, statePeeked);
-        pattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        stateField.set(unlocker, statePeeked);
+        pattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(requestPattern.equals(pattern));
         Assert.assertTrue(pattern.length() == requestPattern.length());
@@ -391,34 +477,35 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
 
 
         requestPattern = "";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, statePoked);
-        pattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        stateField.set(unlocker, statePoked);
+        pattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(requestPattern.equals(pattern));
         Assert.assertTrue(pattern.length() == requestPattern.length());
         Assert.assertTrue(state == statePoked);
 
         // reset to default values
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class,0);
-        devField.set(FourBitTwoDisclosureDeviceUnlocker.class,null);
+        stateField.set(unlocker,0);
+        devField.set(unlocker,null);
     }
 
 
     @Test
     public void testValidDoPeekCalls()  throws Exception {
+        FourBitTwoDisclosureDeviceUnlocker unlocker = new FourBitTwoDisclosureDeviceUnlocker();
         int stateCreated = 1;
         int statePeeked = 3;
         TestingDevice device = new TestingDevice();
 
         Field devField = FourBitTwoDisclosureDeviceUnlocker.class.getDeclaredField("dev");
         devField.setAccessible(true);
-        devField.set(FourBitTwoDisclosureDeviceUnlocker.class, device);
+        devField.set(unlocker, device);
 
         Field stateField = FourBitTwoDisclosureDeviceUnlocker.class.getDeclaredField("state");
         stateField.setAccessible(true);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, stateCreated);
+        stateField.set(unlocker, stateCreated);
         Method doSpin = FourBitTwoDisclosureDeviceUnlocker.class.getDeclaredMethod("doSpin", int.class);
         doSpin.setAccessible(true);
 
@@ -426,9 +513,9 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
         doPeek.setAccessible(true);
 
         CharSequence requestPattern = "??--";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        CharSequence returnPattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        int state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        CharSequence returnPattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        int state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(returnPattern.length() == requestPattern.length());
         Assert.assertTrue((returnPattern.charAt(0) == 'T') || (returnPattern.charAt(0) == 'F'));
@@ -439,9 +526,9 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
 
 
         requestPattern = "?-?-";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        returnPattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        returnPattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(returnPattern.length() == requestPattern.length());
         Assert.assertTrue((returnPattern.charAt(0) == 'T') || (returnPattern.charAt(0) == 'F'));
@@ -451,9 +538,9 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
         Assert.assertTrue(state == statePeeked);
 
         requestPattern = "?--?";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        returnPattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        returnPattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(returnPattern.length() == requestPattern.length());
         Assert.assertTrue((returnPattern.charAt(0) == 'T') || (returnPattern.charAt(0) == 'F'));
@@ -463,9 +550,9 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
         Assert.assertTrue(state == statePeeked);
 
         requestPattern = "-?-?";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        returnPattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        returnPattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(returnPattern.length() == requestPattern.length());
         Assert.assertTrue((returnPattern.charAt(1) == 'T') || (returnPattern.charAt(1) == 'F'));
@@ -475,9 +562,9 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
         Assert.assertTrue(state == statePeeked);
 
         requestPattern = "-??-";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        returnPattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        returnPattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(returnPattern.length() == requestPattern.length());
         Assert.assertTrue((returnPattern.charAt(1) == 'T') || (returnPattern.charAt(1) == 'F'));
@@ -487,9 +574,9 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
         Assert.assertTrue(state == statePeeked);
 
         requestPattern = "--??";
-        doSpin.invoke(FourBitTwoDisclosureDeviceUnlocker.class, 1);
-        returnPattern = (CharSequence) doPeek.invoke(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doSpin.invoke(unlocker, 1);
+        returnPattern = (CharSequence) doPeek.invoke(unlocker, requestPattern);
+        state = (int) stateField.get(unlocker);
 
         Assert.assertTrue(returnPattern.length() == requestPattern.length());
         Assert.assertTrue((returnPattern.charAt(2) == 'T') || (returnPattern.charAt(2) == 'F'));
@@ -499,13 +586,14 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
         Assert.assertTrue(state == statePeeked);
 
         // reset to default values
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class,0);
-        devField.set(FourBitTwoDisclosureDeviceUnlocker.class,null);
+        stateField.set(unlocker,0);
+        devField.set(unlocker,null);
 
     }
 
     @Test
     public void testInvalidPokeCall() throws Exception {
+        FourBitTwoDisclosureDeviceUnlocker unlocker = new FourBitTwoDisclosureDeviceUnlocker();
         int stateNotCreated = 0;
         int stateCreated = 1;
         int stateSpun = 2;
@@ -515,11 +603,11 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
 
         Field devField = FourBitTwoDisclosureDeviceUnlocker.class.getDeclaredField("dev");
         devField.setAccessible(true);
-        devField.set(FourBitTwoDisclosureDeviceUnlocker.class, device);
+        devField.set(unlocker, device);
 
         Field stateField = FourBitTwoDisclosureDeviceUnlocker.class.getDeclaredField("state");
         stateField.setAccessible(true);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, stateCreated);
+        stateField.set(unlocker, stateCreated);
 
         Field peekedPatternField = FourBitTwoDisclosureDeviceUnlocker.class.getDeclaredField("peekedPattern");
         peekedPatternField.setAccessible(true);
@@ -531,50 +619,51 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
         doPoke.setAccessible(true);
 
         //Invalid State
-        peekedPatternField.set(FourBitTwoDisclosureDeviceUnlocker.class, "?--?");
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, stateNotCreated);
-        doPoke.invoke(FourBitTwoDisclosureDeviceUnlocker.class);
-        int state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        peekedPatternField.set(unlocker, "?--?");
+        stateField.set(unlocker, stateNotCreated);
+        doPoke.invoke(unlocker);
+        int state = (int) stateField.get(unlocker);
         Assert.assertTrue(state == stateNotCreated);
 
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, stateCreated);
-        doPoke.invoke(FourBitTwoDisclosureDeviceUnlocker.class);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        stateField.set(unlocker, stateCreated);
+        doPoke.invoke(unlocker);
+        state = (int) stateField.get(unlocker);
         Assert.assertTrue(state == stateCreated);
 
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, stateSpun);
-        doPoke.invoke(FourBitTwoDisclosureDeviceUnlocker.class);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        stateField.set(unlocker, stateSpun);
+        doPoke.invoke(unlocker);
+        state = (int) stateField.get(unlocker);
         Assert.assertTrue(state == stateSpun);
 
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, statePoked);
-        doPoke.invoke(FourBitTwoDisclosureDeviceUnlocker.class);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        stateField.set(unlocker, statePoked);
+        doPoke.invoke(unlocker);
+        state = (int) stateField.get(unlocker);
         Assert.assertTrue(state == statePoked);
 
         //Invalid peekedPattern
-        peekedPatternField.set(FourBitTwoDisclosureDeviceUnlocker.class, null);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, statePeeked);
-        doPoke.invoke(FourBitTwoDisclosureDeviceUnlocker.class);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        peekedPatternField.set(unlocker, null);
+        stateField.set(unlocker, statePeeked);
+        doPoke.invoke(unlocker);
+        state = (int) stateField.get(unlocker);
         Assert.assertTrue(state == statePeeked);
 
         //Invalid change bit
-        peekedPatternField.set(FourBitTwoDisclosureDeviceUnlocker.class, "?--?");
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, statePeeked);
-        changeBitToField.set(FourBitTwoDisclosureDeviceUnlocker.class, 'G');
-        doPoke.invoke(FourBitTwoDisclosureDeviceUnlocker.class);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        peekedPatternField.set(unlocker, "?--?");
+        stateField.set(unlocker, statePeeked);
+        changeBitToField.set(unlocker, 'G');
+        doPoke.invoke(unlocker);
+        state = (int) stateField.get(unlocker);
         Assert.assertTrue(state == statePeeked);
 
         // reset to default values
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class,0);
-        devField.set(FourBitTwoDisclosureDeviceUnlocker.class,null);
-        changeBitToField.set(FourBitTwoDisclosureDeviceUnlocker.class,'T');
+        stateField.set(unlocker,0);
+        devField.set(unlocker,null);
+        changeBitToField.set(unlocker,'T');
     }
 
     @Test
     public void testValidDoPokeCalls() throws Exception {
+        FourBitTwoDisclosureDeviceUnlocker unlocker = new FourBitTwoDisclosureDeviceUnlocker();
         int statePeeked = 3;
         int statePoked = 4;
         String requestPattern = "?--?";
@@ -582,33 +671,33 @@ public class FourBitTwoDisclosureDeviceUnlockerTest {
 
         Field devField = FourBitTwoDisclosureDeviceUnlocker.class.getDeclaredField("dev");
         devField.setAccessible(true);
-        devField.set(FourBitTwoDisclosureDeviceUnlocker.class, device);
+        devField.set(unlocker, device);
 
         Field stateField = FourBitTwoDisclosureDeviceUnlocker.class.getDeclaredField("state");
         stateField.setAccessible(true);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, statePeeked);
+        stateField.set(unlocker, statePeeked);
 
         Field peekedPatternField = FourBitTwoDisclosureDeviceUnlocker.class.getDeclaredField("peekedPattern");
         peekedPatternField.setAccessible(true);
-        peekedPatternField.set(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
+        peekedPatternField.set(unlocker, requestPattern);
 
 
         Method doPoke = FourBitTwoDisclosureDeviceUnlocker.class.getDeclaredMethod("doPoke");
         doPoke.setAccessible(true);
 
-        doPoke.invoke(FourBitTwoDisclosureDeviceUnlocker.class);
-        int state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        doPoke.invoke(unlocker);
+        int state = (int) stateField.get(unlocker);
         Assert.assertTrue(state == statePoked);
 
 
-        peekedPatternField.set(FourBitTwoDisclosureDeviceUnlocker.class, requestPattern);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class, statePeeked);
-        doPoke.invoke(FourBitTwoDisclosureDeviceUnlocker.class);
-        state = (int) stateField.get(FourBitTwoDisclosureDeviceUnlocker.class);
+        peekedPatternField.set(unlocker, requestPattern);
+        stateField.set(unlocker, statePeeked);
+        doPoke.invoke(unlocker);
+        state = (int) stateField.get(unlocker);
         Assert.assertTrue(state == statePoked);
 
         // reset to default values
-        devField.set(FourBitTwoDisclosureDeviceUnlocker.class,null);
-        stateField.set(FourBitTwoDisclosureDeviceUnlocker.class,0);
+        devField.set(unlocker,null);
+        stateField.set(unlocker,0);
     }
 }
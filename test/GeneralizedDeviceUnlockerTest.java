@@ -0,0 +1,100 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Constructor;
+
+import static org.mockito.Mockito.*;
+
+public class GeneralizedDeviceUnlockerTest {
+    @Test
+    public void nullDeviceTest() {
+        Assert.assertFalse(GeneralizedDeviceUnlocker.unlock(null));
+    }
+
+    @Test
+    /*
+     * Operation counts reported by the unlocker match the calls the device received.
+     */
+    public void operationCountTest() {
+        TestingDevice dev = spy(new TestingDevice(16, 4));
+        GeneralizedDeviceUnlocker unlocker = new GeneralizedDeviceUnlocker(dev.geometry());
+        unlocker.unlockDevice(dev);
+        verify(dev, times((int) unlocker.spinCount())).spin();
+        verify(dev, times((int) unlocker.peekCount())).peek(any());
+        verify(dev, times((int) unlocker.pokeCount())).poke(any());
+        Assert.assertEquals(unlocker.spinCount() + unlocker.peekCount() + unlocker.pokeCount(), unlocker.operationCount());
+    }
+
+    @Test
+    /*
+     * A device that never rotates is unlocked within a single sweep of ceil(n/k) rounds.
+     */
+    public void sweepUnlocksStationaryDeviceTest() {
+        boolean[] initialBits = new boolean[32];
+        for (int i = 0; i < initialBits.length; i++) {
+            initialBits[i] = i % 3 == 0;
+        }
+        TestingDevice dev = new TestingDevice(initialBits, 4);
+        GeneralizedDeviceUnlocker unlocker = new GeneralizedDeviceUnlocker(dev.geometry());
+        Assert.assertTrue(unlocker.unlockDevice(dev));
+        Assert.assertTrue(unlocker.spinCount() <= 1 + 32 / 4);
+    }
+
+    @Test(timeout=5000)
+    /*
+     * Larger geometries unlock reliably, in far fewer operations than walking every disclosure pattern.
+     */
+    public void efficiencyTestForUnlock() {
+        int[][] geometries = {{8, 2}, {8, 4}, {16, 2}, {16, 4}, {32, 2}, {32, 4}, {32, 8}};
+        final int TOTAL_TESTED = 300;
+        for (int[] geometry : geometries) {
+            int n = geometry[0];
+            int k = geometry[1];
+            GeneralizedDeviceUnlocker unlocker = new GeneralizedDeviceUnlocker(new DeviceGeometry(n, k));
+            int successes = 0;
+            long operations = 0;
+            for (int i = 0; i < TOTAL_TESTED; i++) {
+                if (unlocker.unlockDevice(new TestingDevice(n, k))) successes++;
+                operations += unlocker.operationCount();
+            }
+            long patterns = 1;
+            for (int i = 0; i < k; i++) {
+                patterns = patterns * (n - i) / (i + 1);
+            }
+            System.out.println(n + "/" + k + ": " + successes + " successes, " + (operations / TOTAL_TESTED) + " ops per unlock");
+            Assert.assertTrue(successes > TOTAL_TESTED * 0.99);
+            Assert.assertTrue(operations / TOTAL_TESTED < patterns);
+        }
+    }
+
+    @Test
+    /*
+     * Once the sweep fails on a polynomial device, the rotation model aims the rounds rather than leaving
+     * them random; only rounds aimed by a confirmed model count as deterministic.
+     */
+    public void rotationModelDirectsFallbackTest() throws Exception {
+        Constructor polynomial = TestingDevice.class.getDeclaredConstructor(boolean[].class, Integer.TYPE, Integer.TYPE, Integer.TYPE);
+        polynomial.setAccessible(true);
+        GeneralizedDeviceUnlocker unlocker = new GeneralizedDeviceUnlocker(new DeviceGeometry(16, 4));
+        int directed = 0;
+        for (int i = 0; i < 300; i++) {
+            boolean[] initialBits = new boolean[16];
+            for (int j = 0; j < initialBits.length; j++) {
+                initialBits[j] = Math.random() < 0.5;
+            }
+            initialBits[0] = !initialBits[1];
+            TestingDevice dev = (TestingDevice) polynomial.newInstance(initialBits, 4, 0, 1 + (int) (Math.random() * 15));
+            UnlockResult result = unlocker.unlockDeviceWithResult(dev);
+            Assert.assertTrue(result.unlocked());
+            if (result.termination() != UnlockResult.Termination.RANDOM_FALLBACK) directed++;
+        }
+        Assert.assertTrue(directed + " directed", directed >= 295);
+    }
+
+    @Test
+    public void dispatchByGeometryTest() {
+        TestingDevice dev = spy(new TestingDevice(8, 3));
+        Assert.assertTrue(DeviceUnlocker.unlock(dev));
+        verify(dev, atLeastOnce()).peek(argThat(pattern -> pattern.length() == 8));
+    }
+}
@@ -0,0 +1,68 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Constructor;
+
+public class RotationModelTest {
+    @Test
+    /*
+     * Following a polynomial device through many rounds, the model never loses its law and narrows down to
+     * it, even when the device was spun before the model started.
+     */
+    public void followsPolynomialDeviceTest() throws Exception {
+        Constructor polynomial = TestingDevice.class.getDeclaredConstructor(boolean[].class, Integer.TYPE, Integer.TYPE, Integer.TYPE);
+        polynomial.setAccessible(true);
+        int confirmed = 0;
+        for (int multiplier = 0; multiplier < 12; multiplier++) {
+            boolean[] initialBits = new boolean[12];
+            for (int i = 0; i < initialBits.length; i++) {
+                initialBits[i] = i % 5 == 0 || i == 7;
+            }
+            TestingDevice dev = (TestingDevice) polynomial.newInstance(initialBits, 3, 0, multiplier);
+            for (int i = 0; i < multiplier; i++) {
+                dev.spin();
+            }
+            RotationModel model = new RotationModel(12);
+            int start = 0;
+            for (int round = 0; round < 40; round++) {
+                Assert.assertFalse(dev.spin());
+                model.spun(false);
+                StringBuilder request = new StringBuilder("------------");
+                for (int i = 0; i < 3; i++) {
+                    request.setCharAt((start + i) % 12, '?');
+                }
+                Assert.assertTrue(model.peeked(dev.peek(request)));
+                start = (start + 5) % 12;
+            }
+            Assert.assertEquals(0, model.breaks());
+            Assert.assertTrue(model.hypotheses() <= 12);
+            if (model.confirmed()) confirmed++;
+        }
+        // a multiplier sharing factors with the size can leave laws these peeks cannot tell apart
+        Assert.assertTrue(confirmed >= 10);
+    }
+
+    @Test
+    /*
+     * A device rotating at random follows no law; the model breaks and stops aiming peeks.
+     */
+    public void randomDeviceBreaksFitTest() throws Exception {
+        Constructor random = TestingDevice.class.getDeclaredConstructor(boolean[].class, Integer.TYPE, Boolean.TYPE);
+        random.setAccessible(true);
+        boolean[] initialBits = new boolean[16];
+        for (int i = 0; i < initialBits.length; i++) {
+            initialBits[i] = i % 3 == 0;
+        }
+        TestingDevice dev = (TestingDevice) random.newInstance(initialBits, 4, true);
+        RotationModel model = new RotationModel(16);
+        for (int round = 0; round < 200 && model.hypotheses() > 0; round++) {
+            model.spun(dev.spin());
+            model.peeked(dev.peek("????------------"));
+        }
+        Assert.assertEquals(0, model.hypotheses());
+        Assert.assertEquals(1, model.breaks());
+        Assert.assertEquals(-1, model.window(4, 'T'));
+        model.reset();
+        Assert.assertTrue(model.window(4, 'T') >= 0);
+    }
+}
@@ -0,0 +1,171 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+public class SimulationEngineTest {
+    @Test
+    /*
+     * A seed yields the same population, and so the same report for a deterministic strategy, or for a
+     * randomized one seeded per session, whatever the number of threads; random rotations included.
+     */
+    public void seededRunIsReproducibleTest() {
+        UnlockPlan plan = new StrategySolver().solve(DeviceGeometry.DEFAULT, 10);
+        SimulationEngine.Population population = new SimulationEngine.Population(DeviceGeometry.DEFAULT, RotationMode.POLYNOMIAL, 42);
+        SimulationReport one = new SimulationEngine(1).run(population, 30000, () -> new PlanDeviceUnlocker(plan)::unlockDeviceWithResult);
+        SimulationReport three = new SimulationEngine(3).run(population, 30000, () -> new PlanDeviceUnlocker(plan)::unlockDeviceWithResult);
+        Assert.assertEquals(30000, one.devices());
+        Assert.assertEquals(30000, three.devices());
+        Assert.assertEquals(1.0, one.successRate(), 0.0);
+        Assert.assertEquals(one.meanOperations(), three.meanOperations(), 0.0);
+        Assert.assertEquals(one.operationsStandardError(), three.operationsStandardError(), 1e-12);
+        Assert.assertEquals(one.operations().percentile(0.99), three.operations().percentile(0.99));
+        Assert.assertEquals(one.operations().max(), three.operations().max());
+
+        DeviceGeometry geometry = new DeviceGeometry(16, 4);
+        SimulationEngine.Population random = new SimulationEngine.Population(geometry, RotationMode.RANDOM, 42);
+        SimulationReport first = new SimulationEngine(1).run(random, 20000,
+                () -> new GeneralizedDeviceUnlocker(geometry, new SplittableRandom(7))::unlockDeviceWithResult);
+        SimulationReport second = new SimulationEngine(3).run(random, 20000,
+                () -> new GeneralizedDeviceUnlocker(geometry, new SplittableRandom(7))::unlockDeviceWithResult);
+        Assert.assertEquals(first.unlocked(), second.unlocked());
+        Assert.assertEquals(first.meanOperations(), second.meanOperations(), 0.0);
+        Assert.assertEquals(first.operations().max(), second.operations().max());
+        Assert.assertEquals(first.terminationCount(UnlockResult.Termination.RANDOM_FALLBACK),
+                second.terminationCount(UnlockResult.Termination.RANDOM_FALLBACK));
+    }
+
+    @Test
+    /*
+     * Simulated unlocks stay out of the process-wide metrics, and the calling thread keeps recording.
+     */
+    public void runsAreNotRecordedTest() {
+        long before = UnlockMetrics.global().getUnlockCount();
+        SimulationReport report = new SimulationEngine(2).run(
+                new SimulationEngine.Population(DeviceGeometry.DEFAULT, RotationMode.LINEAR, 5), 20000,
+                () -> new FourBitTwoDisclosureDeviceUnlocker()::unlockDeviceWithResult);
+        Assert.assertEquals(20000, report.devices());
+        Assert.assertTrue(UnlockMetrics.global().getUnlockCount() - before < 20000);
+        long between = UnlockMetrics.global().getUnlockCount();
+        Assert.assertTrue(DeviceUnlocker.unlock(new TestingDevice()));
+        Assert.assertTrue(UnlockMetrics.global().getUnlockCount() > between);
+    }
+
+    @Test
+    /*
+     * The report keeps the seeds of the first failed unlocks in device order, whatever the number of
+     * threads, and each seed replays its unlock, random window offsets included, to the same failure.
+     */
+    public void failedSeedsReplayTest() {
+        UnlockStrategy hurried = new Hurried(40);
+        SimulationEngine.Population population = new SimulationEngine.Population(new DeviceGeometry(16, 4), RotationMode.RANDOM, 9);
+        SimulationReport one = new SimulationEngine(1).run(population, 20000, hurried);
+        SimulationReport three = new SimulationEngine(3).run(population, 20000, hurried);
+        Assert.assertTrue(one.devices() - one.unlocked() > SimulationReport.Tally.FAILED_SEEDS);
+        Assert.assertEquals(SimulationReport.Tally.FAILED_SEEDS, one.failedSeeds().length);
+        Assert.assertArrayEquals(one.failedSeeds(), three.failedSeeds());
+        Assert.assertEquals(one.unlocked(), three.unlocked());
+        for (long seed : one.failedSeeds()) {
+            UnlockResult first = SimulationEngine.replay(population, seed, hurried);
+            UnlockResult second = SimulationEngine.replay(population, seed, hurried);
+            Assert.assertFalse(first.unlocked());
+            Assert.assertEquals(first.operationCount(), second.operationCount());
+        }
+    }
+
+    @Test
+    /*
+     * Every rotation mode is simulated, terminations add up to the device count, and the report tells a
+     * better strategy from a worse one: a single sweep unlocks a device that does not rotate, where the
+     * adaptive unlocker places its peeks at random.
+     */
+    public void compareStrategiesTest() {
+        SimulationEngine engine = new SimulationEngine(2);
+        for (RotationMode mode : RotationMode.values()) {
+            SimulationEngine.Population population = new SimulationEngine.Population(DeviceGeometry.DEFAULT, mode, mode.ordinal());
+            SimulationReport adaptive = engine.run(population, 40000, () -> new AdaptiveDeviceUnlocker()::unlockDeviceWithResult);
+            SimulationReport sweep = engine.run(population, 40000, () -> new GeneralizedDeviceUnlocker(DeviceGeometry.DEFAULT)::unlockDeviceWithResult);
+            long terminations = 0;
+            for (UnlockResult.Termination termination : UnlockResult.Termination.values()) {
+                terminations += adaptive.terminationCount(termination);
+            }
+            Assert.assertEquals(adaptive.devices(), terminations);
+            Assert.assertEquals(adaptive.devices(), adaptive.operations().count());
+            Assert.assertTrue(adaptive.successLowerBound() > 0.999);
+            Assert.assertTrue(adaptive.successLowerBound() <= adaptive.successRate());
+            if (mode == RotationMode.LINEAR) {
+                Assert.assertTrue(sweep.compareOperations(adaptive) < -1.96);
+            }
+            Assert.assertEquals(-adaptive.compareOperations(sweep), sweep.compareOperations(adaptive), 1e-9);
+        }
+    }
+
+    @Test
+    /*
+     * Merging histograms gives the histogram of every value recorded in either.
+     */
+    public void histogramMergeTest() {
+        LogHistogram left = new LogHistogram();
+        LogHistogram right = new LogHistogram();
+        LogHistogram both = new LogHistogram();
+        for (int i = 0; i < 1000; i++) {
+            left.record(i);
+            right.record(3 * i + 7);
+            both.record(i);
+            both.record(3 * i + 7);
+        }
+        left.merge(right);
+        Assert.assertEquals(both.count(), left.count());
+        Assert.assertEquals(both.mean(), left.mean(), 0.0);
+        Assert.assertEquals(both.max(), left.max());
+        Assert.assertEquals(both.percentile(0.5), left.percentile(0.5));
+        Assert.assertEquals(both.percentile(0.999), left.percentile(0.999));
+    }
+
+    /**
+     * Generalized unlocks that count as failed once they take more than a number of operations.
+     */
+    private static final class Hurried implements UnlockStrategy {
+        /** Most operations an unlock may take and succeed. */
+        private final long limit;
+
+        /**
+         * Create the strategy.
+         * @param limit most operations an unlock may take and succeed
+         */
+        Hurried(final long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public String name() {
+            return "hurried";
+        }
+
+        @Override
+        public boolean supports(final DeviceGeometry geometry) {
+            return true;
+        }
+
+        @Override
+        public int priority(final DeviceGeometry geometry) {
+            return 0;
+        }
+
+        @Override
+        public UnlockResult unlock(final Device dev) {
+            return session(DeviceGeometry.of(dev)).apply(dev);
+        }
+
+        @Override
+        public Function<Device, UnlockResult> session(final DeviceGeometry geometry) {
+            GeneralizedDeviceUnlocker unlocker = new GeneralizedDeviceUnlocker(geometry);
+            return new UnlockSession(unlocker, dev -> {
+                UnlockResult result = unlocker.unlockDeviceWithResult(dev);
+                return result.operationCount() <= limit ? result : new UnlockResult(false, UnlockResult.Termination.BUDGET_EXHAUSTED,
+                        result.spins(), result.peeks(), result.pokes(), result.elapsedNanos());
+            });
+        }
+    }
+}
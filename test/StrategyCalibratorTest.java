@@ -0,0 +1,66 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+public class StrategyCalibratorTest {
+    @Test
+    /*
+     * Calibration measures every candidate, makes the cheapest one the strategy DeviceUnlocker uses, and
+     * records it; a later calibrator for the same costs takes the recorded choice without measuring, and
+     * one for other costs measures again.
+     */
+    public void calibrateAndReuseProfileTest() throws IOException {
+        DeviceGeometry geometry = DeviceGeometry.DEFAULT;
+        Path profile = Files.createTempDirectory("calibration").resolve("profile.properties");
+        try {
+            StrategyCalibrator calibrator = new StrategyCalibrator(1000, 1000, 1000, 300, profile);
+            List<StrategyCalibrator.Measurement> measurements = calibrator.measure(geometry);
+            Assert.assertEquals(UnlockStrategies.supporting(geometry).size(), measurements.size());
+            for (int i = 1; i < measurements.size(); i++) {
+                Assert.assertTrue(measurements.get(i - 1).cost() <= measurements.get(i).cost());
+            }
+            UnlockStrategy winner = calibrator.calibrate(geometry);
+            Assert.assertSame(winner, UnlockStrategies.forGeometry(geometry));
+            Assert.assertEquals(winner.name(), read(profile).getProperty("4-2"));
+
+            // a recorded choice is taken as it is, even one no measurement would pick
+            Properties recorded = read(profile);
+            recorded.setProperty("4-2", "adaptive");
+            try (OutputStream out = Files.newOutputStream(profile)) {
+                recorded.store(out, null);
+            }
+            Assert.assertEquals("adaptive", new StrategyCalibrator(1000, 1000, 1000, 300, profile).calibrate(geometry).name());
+            Assert.assertEquals("adaptive", UnlockStrategies.forGeometry(geometry).name());
+            Assert.assertTrue(DeviceUnlocker.unlock(new TestingDevice()));
+
+            // other costs invalidate the profile
+            UnlockStrategy remeasured = new StrategyCalibrator(5000, 1000, 1000, 300, profile).calibrate(geometry);
+            Assert.assertEquals(remeasured.name(), read(profile).getProperty("4-2"));
+            Assert.assertEquals("5000.0/1000.0/1000.0", read(profile).getProperty("costs"));
+        } finally {
+            UnlockStrategies.prefer(geometry, null);
+        }
+        Assert.assertEquals("four-bit", UnlockStrategies.forGeometry(geometry).name());
+    }
+
+    /**
+     * Read a profile.
+     * @param profile the profile file
+     * @return its entries
+     * @throws IOException if it cannot be read
+     */
+    private static Properties read(final Path profile) throws IOException {
+        Properties recorded = new Properties();
+        try (InputStream in = Files.newInputStream(profile)) {
+            recorded.load(in);
+        }
+        return recorded;
+    }
+}
@@ -0,0 +1,61 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Constructor;
+
+import static org.mockito.Mockito.*;
+
+public class StrategySolverTest {
+    @Test
+    public void fourBitTwoDisclosurePlanTest() {
+        UnlockPlan plan = new StrategySolver().solve(DeviceGeometry.DEFAULT, 10);
+        Assert.assertNotNull(plan);
+        // the classic four-glass puzzle needs five turns in the worst case
+        Assert.assertEquals(5, plan.rounds());
+        Assert.assertEquals(plan.rounds(), plan.verify());
+    }
+
+    @Test
+    public void noPlanWithinRoundsTest() {
+        // one hand cannot solve four glasses, whatever the number of turns
+        Assert.assertNull(new StrategySolver().solve(new DeviceGeometry(4, 1), 8));
+        // four glasses with two hands need five turns
+        Assert.assertNull(new StrategySolver().solve(DeviceGeometry.DEFAULT, 4));
+    }
+
+    @Test(timeout=60000)
+    public void largerGeometryPlanTest() {
+        UnlockPlan plan = new StrategySolver().solve(new DeviceGeometry(6, 4), 10);
+        Assert.assertNotNull(plan);
+        Assert.assertEquals(plan.rounds(), plan.verify());
+        PlanDeviceUnlocker unlocker = new PlanDeviceUnlocker(plan);
+        for (int i = 0; i < 1000; i++) {
+            TestingDevice dev = spy(new TestingDevice(6, 4));
+            Assert.assertTrue(unlocker.unlockDevice(dev));
+            verify(dev, atMost(plan.maxSpins())).spin();
+        }
+    }
+
+    @Test
+    /*
+     * The plan unlocks every kind of device, with no random phase and a fixed bound on spins.
+     */
+    public void planUnlocksAllRotationKindsTest() throws Exception {
+        Constructor empty = TestingDevice.class.getDeclaredConstructor();
+        empty.setAccessible(true);
+        Constructor random = TestingDevice.class.getDeclaredConstructor(Boolean.TYPE);
+        random.setAccessible(true);
+        Constructor polynomial = TestingDevice.class.getDeclaredConstructor(Boolean.TYPE, Integer.TYPE, Integer.TYPE);
+        polynomial.setAccessible(true);
+        UnlockPlan plan = new StrategySolver().solve(DeviceGeometry.DEFAULT, 10);
+        PlanDeviceUnlocker unlocker = new PlanDeviceUnlocker(plan);
+        for (int i = 0; i < 3000; i++) {
+            TestingDevice dev;
+            if (i % 3 == 0) dev = (TestingDevice) empty.newInstance();
+            else if (i % 3 == 1) dev = (TestingDevice) random.newInstance(true);
+            else dev = (TestingDevice) polynomial.newInstance(false, (int) (Math.random() * 4), (int) (Math.random() * 10));
+            Assert.assertTrue(unlocker.unlockDevice(dev));
+            Assert.assertTrue(unlocker.operationCount() <= 1 + 3 * plan.rounds());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class StrategyTableTest {
+    @Test
+    /*
+     * A table written to disk and mapped back holds exactly the plan it was encoded from.
+     */
+    public void writeAndMapTest() throws IOException {
+        UnlockPlan plan = new StrategySolver().solve(DeviceGeometry.DEFAULT, 10);
+        Path dir = Files.createTempDirectory("strategy");
+        Path file = dir.resolve("table.bin");
+        StrategyTable.of(plan).write(file);
+        StrategyTable table = StrategyTable.map(file);
+        Assert.assertEquals(DeviceGeometry.DEFAULT, table.geometry());
+        Assert.assertEquals(plan.nodeCount(), table.nodeCount());
+        Assert.assertEquals(plan.rounds(), table.rounds());
+        for (int node = 0; node < plan.nodeCount(); node++) {
+            Assert.assertEquals(plan.peekMask(node), table.peekMask(node));
+            for (int observation = 0; observation < plan.observations(); observation++) {
+                Assert.assertEquals(plan.next(node, observation), table.next(node, observation));
+                Assert.assertEquals(UnlockPlan.deposit(plan.pokeValues(node, observation), plan.peekMask(node)),
+                        table.pokeMask(node, observation));
+            }
+        }
+        Files.delete(file);
+        Files.delete(dir);
+    }
+
+    @Test
+    public void corruptTableTest() throws IOException {
+        UnlockPlan plan = new StrategySolver().solve(DeviceGeometry.DEFAULT, 10);
+        Path file = Files.createTempFile("strategy", ".bin");
+        StrategyTable.of(plan).write(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        try {
+            StrategyTable.map(file);
+            Assert.fail("truncated table accepted");
+        } catch (IOException expected) {
+            // rejected
+        }
+        StrategyTable.of(plan).write(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // next node of the first entry, past the last node
+            ByteBuffer next = ByteBuffer.allocate(4).putInt(plan.nodeCount());
+            next.flip();
+            channel.write(next, 20 + 4 * plan.nodeCount() + 4);
+        }
+        try {
+            StrategyTable.map(file);
+            Assert.fail("table with an out-of-range node accepted");
+        } catch (IOException expected) {
+            // rejected
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 0}), 0);
+        }
+        try {
+            StrategyTable.map(file);
+            Assert.fail("table without signature accepted");
+        } catch (IOException expected) {
+            // rejected
+        }
+        Files.delete(file);
+    }
+
+    @Test
+    /*
+     * Tables are solved and persisted on first use, then mapped from disk by later loads.
+     */
+    public void executorUnlocksTest() throws IOException {
+        Path dir = Files.createTempDirectory("strategy");
+        String previous = System.getProperty(StrategyTables.DIRECTORY_PROPERTY);
+        System.setProperty(StrategyTables.DIRECTORY_PROPERTY, dir.toString());
+        try {
+            DeviceGeometry geometry = new DeviceGeometry(5, 4);
+            StrategyTableExecutor executor = StrategyTables.forGeometry(geometry);
+            Assert.assertNotNull(executor);
+            Assert.assertTrue(Files.isRegularFile(StrategyTables.file(geometry)));
+            Assert.assertEquals(geometry, StrategyTable.map(StrategyTables.file(geometry)).geometry());
+            for (int i = 0; i < 1000; i++) {
+                Assert.assertTrue(executor.execute(new TestingDevice(5, 4)));
+            }
+            Files.delete(StrategyTables.file(geometry));
+        } finally {
+            if (previous == null) {
+                System.clearProperty(StrategyTables.DIRECTORY_PROPERTY);
+            } else {
+                System.setProperty(StrategyTables.DIRECTORY_PROPERTY, previous);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    /*
+     * With tables disabled the four-bit unlocker still unlocks through its heuristic.
+     */
+    public void heuristicFallbackTest() {
+        System.setProperty(StrategyTables.ENABLED_PROPERTY, "false");
+        try {
+            FourBitTwoDisclosureDeviceUnlocker unlocker = new FourBitTwoDisclosureDeviceUnlocker();
+            for (int i = 0; i < 200; i++) {
+                Assert.assertTrue(unlocker.unlockDevice(new TestingDevice(4, 2)));
+            }
+        } finally {
+            System.clearProperty(StrategyTables.ENABLED_PROPERTY);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.mockito.Mockito.*;
+
+public class UnlockResultTest {
+    @Test
+    /*
+     * The result's operation counts match the operations the device actually received.
+     */
+    public void countsMatchDeviceTest() {
+        for (int i = 0; i < 50; i++) {
+            TestingDevice dev = spy(new TestingDevice());
+            UnlockResult result = DeviceUnlocker.unlockWithResult(dev);
+            Assert.assertTrue(result.unlocked());
+            Assert.assertEquals(UnlockResult.Termination.DETERMINISTIC_PASS, result.termination());
+            verify(dev, times((int) result.spins())).spin();
+            verify(dev, times((int) result.peeks())).peek(any());
+            verify(dev, times((int) result.pokes())).poke(any());
+            Assert.assertTrue(result.elapsedNanos() >= 0);
+        }
+        for (int i = 0; i < 50; i++) {
+            TestingDevice dev = spy(new TestingDevice(16, 4));
+            UnlockResult result = DeviceUnlocker.unlockWithResult(dev);
+            Assert.assertTrue(result.unlocked());
+            verify(dev, times((int) result.spins())).spin();
+            verify(dev, times((int) result.peeks())).peek(any());
+            verify(dev, times((int) result.pokes())).poke(any());
+        }
+    }
+
+    @Test
+    public void terminationTest() {
+        Assert.assertEquals(UnlockResult.Termination.REJECTED, DeviceUnlocker.unlockWithResult(null).termination());
+        // a device that refuses every peek cannot be unlocked by sweeping
+        Device refusing = new TestingDevice(8, 2) {
+            @Override
+            public CharSequence peek(CharSequence pattern) {
+                return null;
+            }
+        };
+        UnlockResult result = GeneralizedDeviceUnlocker.unlockWithResult(refusing);
+        Assert.assertFalse(result.unlocked());
+        Assert.assertEquals(UnlockResult.Termination.REJECTED, result.termination());
+        // a device whose spins never report unlocked exhausts the round budget
+        Device stubborn = new TestingDevice(8, 2) {
+            @Override
+            public boolean spin() {
+                super.spin();
+                return false;
+            }
+        };
+        result = GeneralizedDeviceUnlocker.unlockWithResult(stubborn);
+        Assert.assertEquals(UnlockResult.Termination.BUDGET_EXHAUSTED, result.termination());
+        Assert.assertEquals(result.spins(), result.peeks() + 1);
+    }
+
+    @Test
+    public void histogramTest() {
+        LogHistogram histogram = new LogHistogram();
+        for (int v = 1; v <= 1000; v++) {
+            histogram.record(v);
+        }
+        Assert.assertEquals(1000, histogram.count());
+        Assert.assertEquals(500.5, histogram.mean(), 1e-9);
+        Assert.assertEquals(1000, histogram.max());
+        long p50 = histogram.percentile(0.5);
+        Assert.assertTrue(p50 >= 500 && p50 <= 625);
+        Assert.assertEquals(1000, histogram.percentile(1.0));
+        for (long v : new long[]{0, 1, 3, 4, 5, 7, 8, 100, 1L << 40, Long.MAX_VALUE}) {
+            int bucket = LogHistogram.bucketOf(v);
+            Assert.assertTrue(LogHistogram.upperBound(bucket) >= v);
+            Assert.assertTrue(bucket == 0 || LogHistogram.upperBound(bucket - 1) < v);
+        }
+        histogram.reset();
+        Assert.assertEquals(0, histogram.count());
+    }
+
+    @Test
+    public void metricsOverJmxTest() throws Exception {
+        long before = UnlockMetrics.global().getUnlockCount();
+        long unlockedBefore = UnlockMetrics.global().getUnlockedCount();
+        for (int i = 0; i < 10; i++) {
+            FourBitTwoDisclosureDeviceUnlocker.unlock(new TestingDevice());
+        }
+        Assert.assertTrue(UnlockMetrics.global().getUnlockCount() >= before + 10);
+        Assert.assertTrue(UnlockMetrics.global().getUnlockedCount() >= unlockedBefore + 10);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(UnlockMetrics.OBJECT_NAME);
+        Assert.assertTrue(server.isRegistered(name));
+        Assert.assertTrue((Long) server.getAttribute(name, "UnlockCount") >= before + 10);
+        Assert.assertTrue((Long) server.getAttribute(name, "OperationsP99") > 0);
+    }
+}
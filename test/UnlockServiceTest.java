@@ -0,0 +1,212 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class UnlockServiceTest {
+    /**
+     * A testing device that takes a while to answer every operation.
+     */
+    private static final class SlowDevice extends TestingDevice {
+        /** Sleep per operation in milliseconds. */
+        private final long millis;
+
+        /** Operations started so far, across all slow devices of a test. */
+        private final AtomicInteger started;
+
+        SlowDevice(final long millis, final AtomicInteger started) {
+            this.millis = millis;
+            this.started = started;
+        }
+
+        SlowDevice(final int bits, final int disclosed, final long millis, final AtomicInteger started) {
+            super(bits, disclosed);
+            this.millis = millis;
+            this.started = started;
+        }
+
+        @Override
+        public boolean spin() {
+            pause();
+            return super.spin();
+        }
+
+        @Override
+        public CharSequence peek(final CharSequence pattern) {
+            pause();
+            return super.peek(pattern);
+        }
+
+        @Override
+        public void poke(final CharSequence pattern) {
+            pause();
+            super.poke(pattern);
+        }
+
+        private void pause() {
+            started.incrementAndGet();
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Test
+    /*
+     * Blocked unlocks overlap: 500 devices answering in 1 ms take far less than the sum of their operations.
+     */
+    public void unlockAllTest() throws InterruptedException {
+        AtomicInteger operations = new AtomicInteger();
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            devices.add(new SlowDevice(1, operations));
+        }
+        devices.add(null);
+        try (UnlockService service = new UnlockService(null)) {
+            Assert.assertEquals(Runtime.version().feature() >= 21, service.usesVirtualThreads());
+            long start = System.nanoTime();
+            List<UnlockResult> results = service.unlockAll(devices);
+            long elapsed = System.nanoTime() - start;
+            Assert.assertEquals(devices.size(), results.size());
+            for (int i = 0; i < 500; i++) {
+                Assert.assertTrue(results.get(i).unlocked());
+            }
+            Assert.assertEquals(UnlockResult.Termination.REJECTED, results.get(500).termination());
+            Assert.assertTrue("took " + elapsed + " ns for " + operations + " operations",
+                    elapsed < TimeUnit.MILLISECONDS.toNanos(operations.get()) / 4);
+            Assert.assertTrue(service.submit(new TestingDevice()).get().unlocked());
+        } catch (ExecutionException e) {
+            throw new AssertionError(e);
+        }
+        try (UnlockService service = new UnlockService(null)) {
+            Assert.assertTrue(service.unlockAll(Collections.<Device>emptyList()).isEmpty());
+        }
+    }
+
+    @Test
+    /*
+     * A 32/2 device needs about a hundred 20 ms operations, far more than the timeout allows.
+     */
+    public void timeoutTest() throws InterruptedException {
+        long limited = UnlockMetrics.global().getLimitReachedCount();
+        try (UnlockService service = new UnlockService(Duration.ofMillis(200))) {
+            UnlockResult result = service.unlockAll(Collections.singletonList(new SlowDevice(32, 2, 20, new AtomicInteger()))).get(0);
+            Assert.assertFalse(result.unlocked());
+            Assert.assertEquals(UnlockResult.Termination.LIMIT_REACHED, result.termination());
+            Assert.assertTrue(result.spins() + result.peeks() + result.pokes() >= 1);
+        }
+        Assert.assertTrue(UnlockMetrics.global().getLimitReachedCount() > limited);
+    }
+
+    @Test
+    /*
+     * Interrupting the caller cancels the whole batch, and unlockAll only returns once it has stopped.
+     */
+    public void cancellationTest() throws InterruptedException {
+        AtomicInteger operations = new AtomicInteger();
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            devices.add(new SlowDevice(50, operations));
+        }
+        CountDownLatch entered = new CountDownLatch(1);
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        try (UnlockService service = new UnlockService(null)) {
+            Thread caller = new Thread(() -> {
+                entered.countDown();
+                try {
+                    service.unlockAll(devices);
+                } catch (Throwable t) {
+                    thrown.set(t);
+                }
+            });
+            caller.start();
+            entered.await();
+            Thread.sleep(100);
+            caller.interrupt();
+            caller.join(5000);
+            Assert.assertFalse(caller.isAlive());
+            Assert.assertTrue(thrown.get() instanceof InterruptedException);
+            int stopped = operations.get();
+            Thread.sleep(150);
+            // no child kept going after unlockAll gave up
+            Assert.assertEquals(stopped, operations.get());
+        }
+    }
+
+    @Test
+    /*
+     * Interrupting the caller also returns when some of the batch was still queued behind a full pool.
+     */
+    public void queuedCancellationTest() throws InterruptedException {
+        AtomicInteger operations = new AtomicInteger();
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < UnlockService.MAX_PLATFORM_THREADS + 344; i++) {
+            devices.add(new SlowDevice(50, operations));
+        }
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        try (UnlockService service = new UnlockService(null)) {
+            Thread caller = new Thread(() -> {
+                try {
+                    service.unlockAll(devices);
+                } catch (Throwable t) {
+                    thrown.set(t);
+                }
+            });
+            caller.start();
+            Thread.sleep(200);
+            caller.interrupt();
+            caller.join(10000);
+            Assert.assertFalse(caller.isAlive());
+            Assert.assertTrue(thrown.get() instanceof InterruptedException);
+        }
+    }
+
+    @Test
+    /*
+     * A device that never answers is interrupted at the timeout, and one that fails is REJECTED with its cause.
+     */
+    public void blockedAndFailingDeviceTest() throws Exception {
+        Device hung = new TestingDevice() {
+            @Override
+            public boolean spin() {
+                try {
+                    Thread.sleep(Long.MAX_VALUE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted", e);
+                }
+                return false;
+            }
+        };
+        IllegalStateException broken = new IllegalStateException("broken");
+        Device failing = new TestingDevice() {
+            @Override
+            public boolean spin() {
+                throw broken;
+            }
+        };
+        try (UnlockService service = new UnlockService(Duration.ofMillis(100))) {
+            long start = System.nanoTime();
+            List<UnlockResult> results = service.unlockAll(Arrays.asList(hung, failing));
+            Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+            Assert.assertEquals(UnlockResult.Termination.LIMIT_REACHED, results.get(0).termination());
+            Assert.assertEquals(UnlockResult.Termination.REJECTED, results.get(1).termination());
+            Assert.assertSame(broken, results.get(1).failure());
+            // the interrupt did not outlive the unlock it was meant for
+            for (int i = 0; i < 20; i++) {
+                Assert.assertTrue(service.submit(new TestingDevice()).get().unlocked());
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class UnlockStrategiesTest {
+    @Test
+    /*
+     * Out of the box the dedicated strategy takes default devices, the generalized strategy every other
+     * geometry, and the adaptive strategy is available for the small ones it tracks.
+     */
+    public void builtInStrategiesTest() {
+        Assert.assertEquals("four-bit", UnlockStrategies.forGeometry(DeviceGeometry.DEFAULT).name());
+        Assert.assertEquals("generalized", UnlockStrategies.forGeometry(new DeviceGeometry(16, 4)).name());
+        Assert.assertSame(UnlockStrategies.forGeometry(new DeviceGeometry(16, 4)), UnlockStrategies.forGeometry(new DeviceGeometry(16, 4)));
+        List<UnlockStrategy> small = UnlockStrategies.supporting(DeviceGeometry.DEFAULT);
+        Assert.assertEquals("four-bit", small.get(0).name());
+        Assert.assertEquals("generalized", small.get(1).name());
+        Assert.assertEquals("adaptive", small.get(2).name());
+        Assert.assertFalse(UnlockStrategies.named("adaptive").supports(new DeviceGeometry(16, 4)));
+        Assert.assertTrue(DeviceUnlocker.unlockWithResult(new TestingDevice(16, 4)).unlocked());
+        Assert.assertEquals(UnlockResult.Termination.REJECTED, DeviceUnlocker.unlockWithResult(null).termination());
+    }
+
+    @Test
+    /*
+     * A registered strategy of higher priority takes over its geometry from DeviceUnlocker, the unlock
+     * service, the asynchronous unlocker and simulations, and leaves every other geometry alone; removing
+     * it gives its geometry back.
+     */
+    public void registeredStrategyTakesOverTest() throws Exception {
+        DeviceGeometry geometry = new DeviceGeometry(8, 2);
+        AtomicInteger unlocks = new AtomicInteger();
+        AtomicInteger asyncUnlocks = new AtomicInteger();
+        UnlockStrategy counting = new UnlockStrategy() {
+            @Override
+            public String name() {
+                return "counting";
+            }
+
+            @Override
+            public boolean supports(final DeviceGeometry shape) {
+                return geometry.equals(shape);
+            }
+
+            @Override
+            public int priority(final DeviceGeometry shape) {
+                return UnlockStrategies.DEDICATED_PRIORITY;
+            }
+
+            @Override
+            public UnlockResult unlock(final Device dev) {
+                unlocks.incrementAndGet();
+                return GeneralizedDeviceUnlocker.unlockWithResult(dev);
+            }
+
+            @Override
+            public CompletableFuture<UnlockResult> unlockAsync(final AsyncDevice dev) {
+                asyncUnlocks.incrementAndGet();
+                return null;
+            }
+        };
+        Assert.assertEquals("generalized", UnlockStrategies.forGeometry(geometry).name());
+        UnlockStrategies.register(counting);
+        try {
+            try {
+                UnlockStrategies.register(counting);
+                Assert.fail("a second strategy of the same name must be refused");
+            } catch (IllegalArgumentException expected) {
+                Assert.assertSame(counting, UnlockStrategies.named("counting"));
+            }
+            Assert.assertSame(counting, UnlockStrategies.forGeometry(geometry));
+            Assert.assertTrue(DeviceUnlocker.unlock(new TestingDevice(8, 2)));
+            Assert.assertTrue(DeviceUnlocker.unlock(new TestingDevice(16, 4)));
+            Assert.assertEquals(1, unlocks.get());
+            SimulationEngine.Population population = new SimulationEngine.Population(geometry, RotationMode.POLYNOMIAL, 3);
+            SimulationReport report = new SimulationEngine(2).run(population, 100, counting);
+            Assert.assertEquals(1.0, report.successRate(), 0.0);
+            Assert.assertEquals(101, unlocks.get());
+            try (UnlockService service = new UnlockService(Duration.ofSeconds(30))) {
+                for (UnlockResult result : service.unlockAll(Arrays.asList(new TestingDevice(8, 2), new TestingDevice(16, 4)))) {
+                    Assert.assertTrue(result.unlocked());
+                }
+            }
+            Assert.assertEquals(102, unlocks.get());
+            // a strategy that cannot unlock asynchronously is stood in for by the generalized rounds
+            Assert.assertTrue(new AsyncDeviceUnlocker().unlockAsync(AsyncDevice.of(new TestingDevice(8, 2), Runnable::run)).get().unlocked());
+            Assert.assertEquals(1, asyncUnlocks.get());
+            Assert.assertEquals(102, unlocks.get());
+        } finally {
+            Assert.assertTrue(UnlockStrategies.unregister("counting"));
+        }
+        Assert.assertEquals("generalized", UnlockStrategies.forGeometry(geometry).name());
+        Assert.assertFalse(UnlockStrategies.unregister("counting"));
+    }
+}
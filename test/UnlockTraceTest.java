@@ -0,0 +1,77 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UnlockTraceTest {
+    @Test
+    public void renderTest() {
+        UnlockTrace trace = new UnlockTrace(16, UnlockTrace.Level.VERBOSE, 1);
+        trace.begin();
+        trace.spin(false);
+        trace.peek("?--?");
+        trace.peeked("T--F");
+        trace.poke("T--T");
+        trace.note("doPeek : invalid doPeek call with bits", "??x");
+        trace.note("doSpin : device is null");
+        trace.spin(true);
+        trace.unlocked();
+        Assert.assertEquals("spin : performing a spin\n"
+                + "peek : with pattern (?--?)\n"
+                + "return peekedPattern (T--F)\n"
+                + "poke : Poking with pattern: (T--T)\n"
+                + "doPeek : invalid doPeek call with bits (??x)\n"
+                + "doSpin : device is null\n"
+                + "spin : performing a spin\n"
+                + "device is unlocked\n", trace.render());
+        trace.begin();
+        Assert.assertEquals("", trace.render());
+    }
+
+    @Test
+    public void levelTest() {
+        UnlockTrace trace = new UnlockTrace(16, UnlockTrace.Level.OPS, 1);
+        trace.begin();
+        trace.note("doSpin : device is null");
+        trace.spin(true);
+        Assert.assertEquals("spin : performing a spin\n", trace.render());
+        trace.setLevel(UnlockTrace.Level.OFF);
+        trace.begin();
+        trace.spin(true);
+        Assert.assertEquals(0, trace.eventCount());
+        Assert.assertEquals("", trace.render());
+    }
+
+    @Test
+    /*
+     * Only one unlock in N is recorded, and a full ring keeps the latest events.
+     */
+    public void samplingAndWrapTest() {
+        UnlockTrace trace = new UnlockTrace(3, UnlockTrace.Level.OPS, 3);
+        int recorded = 0;
+        for (int unlock = 0; unlock < 9; unlock++) {
+            trace.begin();
+            trace.spin(false);
+            if (trace.eventCount() > 0) recorded++;
+        }
+        Assert.assertEquals(3, recorded);
+        trace.setSampling(1);
+        trace.begin();
+        for (int i = 0; i < 5; i++) {
+            trace.spin(false);
+        }
+        trace.unlocked();
+        Assert.assertEquals(6, trace.eventCount());
+        Assert.assertEquals("spin : performing a spin\nspin : performing a spin\nspin : performing a spin\n"
+                + "device is unlocked\n", trace.render());
+    }
+
+    @Test
+    public void sessionTraceSettingsTest() {
+        FourBitTwoDisclosureDeviceUnlocker unlocker = new FourBitTwoDisclosureDeviceUnlocker();
+        unlocker.traceSettings().setLevel(UnlockTrace.Level.OFF);
+        Assert.assertTrue(unlocker.unlockDevice(new TestingDevice()));
+        Assert.assertEquals("", unlocker.trace());
+        unlocker.traceSettings().setLevel(UnlockTrace.Level.OPS);
+        Assert.assertTrue(unlocker.unlockDevice(new TestingDevice()));
+        Assert.assertTrue(unlocker.trace().endsWith("device is unlocked\n"));
+    }
+}